@@ -380,19 +380,25 @@ public class CielCompanion {
 
     private static boolean waitForInferenceEngines() {
         System.out.println("Ciel Debug: Waiting for Local Inference Engines (Ollama/LM Studio) to initialize...");
+        // Poll often at first so a quick start is noticed at once, backing off to every 10 seconds
+        long deadline = System.currentTimeMillis() + 3 * 60 * 1000;
+        long delayMs = 500;
         int attempts = 0;
-        while (attempts < 18) { 
+        while (System.currentTimeMillis() < deadline) {
             boolean ollamaAlive = pingUrl("http://localhost:11434");
             boolean lmStudioAlive = pingUrl("http://localhost:1234/v1/models");
-            
+            attempts++;
+
             if (ollamaAlive || lmStudioAlive) {
-                System.out.println("Ciel Debug: Local Inference Engine detected! Proceeding with AI boot sequence.");
+                System.out.println("Ciel Debug: Local Inference Engine detected after " + attempts + " check(s)! Proceeding with AI boot sequence.");
                 return true;
             }
-            
-            System.out.println("Ciel Debug: Inference engines not ready yet. Waiting 10 seconds... (Attempt " + (attempts + 1) + "/18)");
-            try { Thread.sleep(10000); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
-            attempts++;
+
+            delayMs = Math.min(delayMs * 2, 10_000);
+            if (attempts % 5 == 0) {
+                System.out.println("Ciel Debug: Inference engines not ready yet. Checking again in " + delayMs / 1000 + " seconds... (Attempt " + attempts + ")");
+            }
+            try { Thread.sleep(delayMs); } catch (InterruptedException e) { Thread.currentThread().interrupt(); return false; }
         }
         System.err.println("Ciel Error: Inference engines failed to start after 3 minutes. OpenJarvis may fail to load models.");
         return false;
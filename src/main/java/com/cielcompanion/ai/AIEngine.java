@@ -4,6 +4,7 @@ import com.cielcompanion.CielState;
 import com.cielcompanion.memory.Fact;
 import com.cielcompanion.memory.MemoryService;
 import com.cielcompanion.service.Settings;
+import com.cielcompanion.service.SpeechPlayback;
 import com.cielcompanion.service.SpeechService;
 import com.google.gson.Gson;
 import com.google.gson.JsonArray;
@@ -20,35 +21,50 @@ import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 public class AIEngine {
 
     private static final HttpClient httpClient = HttpClient.newBuilder()
-            .connectTimeout(Duration.ofHours(24))
+            .connectTimeout(Duration.ofSeconds(10))
             .build();
     private static final Gson gson = new Gson();
     private static final ExecutorService translationExecutor = Executors.newSingleThreadExecutor();
 
+    // Every local model behind LM Studio shares one breaker; the Swarm is guarded per tier/model
+    private static final CircuitBreaker localFallbackBreaker = CircuitBreaker.forEndpoint("lmstudio");
+    private static final CircuitBreaker katakanaBreaker = CircuitBreaker.forEndpoint("swarm/katakana");
+
     private static final Pattern EMOTION_TAG_PATTERN = Pattern.compile("\\[([a-zA-Z]+)\\]");
     private static final Pattern THINK_TAG_PATTERN = Pattern.compile("(?s)}\\s*");
     private static final Pattern ALPHA_NUM_PATTERN = Pattern.compile("[a-zA-Z0-9]");
     private static final Pattern ALPHA_PATTERN = Pattern.compile("[a-zA-Z]");
 
-    private static final LinkedList<JsonObject> conversationHistory = new LinkedList<>();
-    private static final int MAX_HISTORY = 10;
+    // Older turns are summarized on the CPU evaluator so the chat model is never kept waiting
+    private static final ConversationHistory conversationHistory = new ConversationHistory(prompt ->
+            evaluateBackground(prompt, "You are a conversation summarization sub-process.")
+                    .thenApply(result -> result != null && result.has("summary") ? result.get("summary").getAsString() : null));
 
     private static final AtomicInteger activeSwarmTasks = new AtomicInteger();
 
+    // Spoken replies in flight. An abort cancels the requests and bumps the epoch, so replies
+    // (and fallbacks) belonging to an older epoch are never spoken.
+    private static final Set<CompletableFuture<?>> pendingReplies = ConcurrentHashMap.newKeySet();
+    private static final AtomicLong replyEpoch = new AtomicLong();
+
     private static long lastInteractionTime = System.currentTimeMillis();
     private static ScheduledExecutorService memoryScheduler;
     private static boolean isGamingModeActive = false;
@@ -124,24 +140,31 @@ public class AIEngine {
         return activeSwarmTasks.get();
     }
 
-    private static synchronized void addHistory(String role, String content) {
-        lastInteractionTime = System.currentTimeMillis();
-        JsonObject msg = new JsonObject();
-        msg.addProperty("role", role);
-        msg.addProperty("content", content);
-        conversationHistory.add(msg);
-        if (conversationHistory.size() > MAX_HISTORY) {
-            conversationHistory.removeFirst();
+    /** Drops every spoken reply still being generated (the user said stop/cancel). */
+    public static void abortPendingResponses() {
+        replyEpoch.incrementAndGet();
+        int cancelled = 0;
+        for (CompletableFuture<?> reply : pendingReplies) {
+            if (reply.cancel(true)) cancelled++;
         }
+        if (cancelled > 0) System.out.println("Ciel Debug: Aborted " + cancelled + " pending AI repl" + (cancelled == 1 ? "y." : "ies."));
     }
 
-    private static void ensureLiteLlmProvider(JsonObject payload) {
-        if (payload != null && payload.has("model")) {
-            String model = payload.get("model").getAsString();
-            if (!model.contains("/")) {
-                payload.addProperty("model", "ollama/" + model);
-            }
-        }
+    private static <T> CompletableFuture<HttpResponse<T>> sendReply(CircuitBreaker breaker, HttpRequest.Builder request,
+                                                                    Duration ceiling, HttpResponse.BodyHandler<T> handler) {
+        CompletableFuture<HttpResponse<T>> reply = breaker.sendAsync(httpClient, request, ceiling, handler);
+        pendingReplies.add(reply);
+        reply.whenComplete((res, ex) -> pendingReplies.remove(reply));
+        return reply;
+    }
+
+    private static boolean isStale(long epoch) {
+        return replyEpoch.get() != epoch;
+    }
+
+    private static void addHistory(String role, String content) {
+        lastInteractionTime = System.currentTimeMillis();
+        conversationHistory.add(role, content);
     }
 
     public static void warmUpModels() {
@@ -183,14 +206,12 @@ public class AIEngine {
             
             for (int attempt = 1; attempt <= 3; attempt++) {
                 try {
-                    HttpRequest request = HttpRequest.newBuilder()
+                    HttpRequest.Builder request = HttpRequest.newBuilder()
                             .uri(URI.create(url))
                             .header("Content-Type", "application/json")
-                            .timeout(Duration.ofSeconds(120)) 
-                            .POST(HttpRequest.BodyPublishers.ofString(gson.toJson(payload), StandardCharsets.UTF_8))
-                            .build();
+                            .POST(HttpRequest.BodyPublishers.ofString(gson.toJson(payload), StandardCharsets.UTF_8));
 
-                    HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+                    HttpResponse<String> response = katakanaBreaker.send(httpClient, request, Duration.ofSeconds(120), HttpResponse.BodyHandlers.ofString());
                     if (response.statusCode() == 200) {
                         JsonObject json = JsonParser.parseString(response.body()).getAsJsonObject();
                         if (json.has("katakana")) {
@@ -200,6 +221,8 @@ public class AIEngine {
                     } else if (attempt == 3) {
                         System.err.println("Ciel Katakana Error: HTTP Status " + response.statusCode());
                     }
+                } catch (CircuitBreaker.OpenException e) {
+                    break; // Known to be down; retrying would only delay the fallback
                 } catch (Exception e) {
                     if (attempt == 3) {
                         System.err.println("Ciel Katakana Network Error: " + e.getMessage());
@@ -230,20 +253,22 @@ public class AIEngine {
         activeSwarmTasks.incrementAndGet();
         String url = ModelManager.getUrlForTier(ModelManager.ModelTier.LOGIC);
 
-        JsonObject payload = (forcedModel == null)
+        String payload = (forcedModel == null)
                 ? ModelManager.buildPayload(ModelManager.ModelTier.LOGIC, systemContext, userMessage, false)
-                : buildForcedPayload(systemContext, userMessage, forcedModel, temperature, taskIntent);
-
-        ensureLiteLlmProvider(payload);
+                : ModelManager.buildCustomPayload(ModelManager.withLiteLlmProvider(forcedModel), false, temperature, taskIntent,
+                        ModelManager.messages(systemContext, userMessage));
 
-        HttpRequest request = HttpRequest.newBuilder()
+        HttpRequest.Builder request = HttpRequest.newBuilder()
                 .uri(URI.create(url))
                 .header("Content-Type", "application/json")
-                .timeout(Duration.ofMinutes(2)) 
-                .POST(HttpRequest.BodyPublishers.ofString(gson.toJson(payload), StandardCharsets.UTF_8))
-                .build();
-
-        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .POST(HttpRequest.BodyPublishers.ofString(payload, StandardCharsets.UTF_8));
+
+        CircuitBreaker breaker = forcedModel == null
+                ? ModelManager.getCircuitBreaker(ModelManager.ModelTier.LOGIC)
+                : ModelManager.getCircuitBreaker(forcedModel);
+        // Background work: short chat latencies on the same endpoint must not set its timeout
+        return breaker.sendAsync(httpClient, request, Duration.ofMinutes(2), HttpResponse.BodyHandlers.ofString(),
+                        CircuitBreaker.RequestClass.LONG_FORM)
                 .thenApply(response -> {
                     if (response.statusCode() == 200) {
                         String rawContent = ModelManager.extractMessageContent(response.body());
@@ -254,47 +279,19 @@ public class AIEngine {
                 .whenComplete((res, ex) -> activeSwarmTasks.decrementAndGet());
     }
 
-    private static JsonObject buildForcedPayload(String systemContext, String userMessage,
-                                                 String forcedModel, double temperature, String taskIntent) {
-        JsonObject payload = new JsonObject();
-        payload.addProperty("model", forcedModel != null ? forcedModel : "ollama-cloud/deepseek-v3.1:671b");
-        payload.addProperty("stream", false);
-        payload.addProperty("temperature", temperature);
-        if (taskIntent != null && !taskIntent.isBlank()) {
-            payload.addProperty("task_intent", taskIntent);
-        }
-
-        JsonArray messages = new JsonArray();
-
-        JsonObject sysMsg = new JsonObject();
-        sysMsg.addProperty("role", "system");
-        sysMsg.addProperty("content", systemContext);
-        messages.add(sysMsg);
-
-        JsonObject usrMsg = new JsonObject();
-        usrMsg.addProperty("role", "user");
-        usrMsg.addProperty("content", userMessage);
-        messages.add(usrMsg);
-
-        payload.add("messages", messages);
-        return payload;
-    }
-
     public static String generateDiaryEntrySync(String userMessage, String systemContext) {
         activeSwarmTasks.incrementAndGet();
         try {
             String url = ModelManager.getUrlForTier(ModelManager.ModelTier.PERSONALITY);
-            JsonObject payload = ModelManager.buildPayload(ModelManager.ModelTier.PERSONALITY, systemContext, userMessage, false);
-            ensureLiteLlmProvider(payload);
+            String payload = ModelManager.buildPayload(ModelManager.ModelTier.PERSONALITY, systemContext, userMessage, false);
 
-            HttpRequest request = HttpRequest.newBuilder()
+            HttpRequest.Builder request = HttpRequest.newBuilder()
                     .uri(URI.create(url))
                     .header("Content-Type", "application/json")
-                    .timeout(Duration.ofHours(1))
-                    .POST(HttpRequest.BodyPublishers.ofString(gson.toJson(payload), StandardCharsets.UTF_8))
-                    .build();
+                    .POST(HttpRequest.BodyPublishers.ofString(payload, StandardCharsets.UTF_8));
 
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            HttpResponse<String> response = ModelManager.getCircuitBreaker(ModelManager.ModelTier.PERSONALITY)
+                    .send(httpClient, request, Duration.ofHours(1), HttpResponse.BodyHandlers.ofString(), CircuitBreaker.RequestClass.LONG_FORM);
             if (response.statusCode() == 200) {
                 String rawContent = ModelManager.extractMessageContent(response.body());
                 return rawContent != null ? THINK_TAG_PATTERN.matcher(rawContent).replaceAll("").trim() : null;
@@ -314,11 +311,11 @@ public class AIEngine {
         if (idleTimeMs > 5 * 60 * 1000) { 
             System.out.println("Ciel Debug: Conversation idle. Digesting short-term buffer into Long-Term Episodic Memory...");
             
-            JsonArray historyArray = new JsonArray();
-            for (JsonObject obj : conversationHistory) historyArray.add(obj);
+            ConversationHistory.Snapshot history = conversationHistory.snapshot();
             
             String prompt = "You are the memory core of Ciel. Review this conversation history array:\n" + 
-                            gson.toJson(historyArray) + 
+                            (history.summary().isEmpty() ? "" : "(Summary of the earlier part: " + history.summary() + ")\n") +
+                            gson.toJson(history.turns()) + 
                             "\nExtract any meaningful facts, preferences, or narrative conclusions into a concise 1-sentence summary. " +
                             "CRITICAL: Write the summary from Ciel's internal perspective. You MUST refer to the human strictly as 'Master' or 'Master Taylor', NEVER as 'the user'. " +
                             "Reply strictly in JSON: { \"actionable\": true/false, \"summary\": \"the extracted fact\" }. " +
@@ -339,41 +336,38 @@ public class AIEngine {
     public static void chatFast(String userMessage, String systemContext, Runnable onComplete) {
         System.out.println("Ciel Debug: Routing to Personality Core (Local Dialogue Race -> Manager Audit)...");
         
+        long epoch = replyEpoch.get();
         activeSwarmTasks.incrementAndGet();
         addHistory("user", userMessage);
         
         String url = ModelManager.getUrlForTier(ModelManager.ModelTier.PERSONALITY);
         
-        JsonObject payload = buildPayloadWithHistory(ModelManager.ModelTier.PERSONALITY, systemContext, false);
-        payload.addProperty("model", "local");
+        String payload = buildPayloadWithHistory(ModelManager.ModelTier.PERSONALITY, systemContext, "local");
         
-        HttpRequest request = HttpRequest.newBuilder()
+        HttpRequest.Builder request = HttpRequest.newBuilder()
                 .uri(URI.create(url))
                 .header("Content-Type", "application/json")
-                .timeout(Duration.ofMinutes(15)) 
-                .POST(HttpRequest.BodyPublishers.ofString(gson.toJson(payload), StandardCharsets.UTF_8))
-                .build();
+                .POST(HttpRequest.BodyPublishers.ofString(payload, StandardCharsets.UTF_8));
 
-        httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+        sendReply(ModelManager.getCircuitBreaker(ModelManager.ModelTier.PERSONALITY), request, Duration.ofMinutes(15), HttpResponse.BodyHandlers.ofString())
                 .thenAccept(response -> {
+                    if (isStale(epoch)) return;
                     if (response.statusCode() != 200) {
-                        triggerFallback(userMessage, systemContext, onComplete);
+                        triggerFallback(userMessage, systemContext, onComplete, epoch);
                         return;
                     }
                     
                     String rawContent = ModelManager.extractMessageContent(response.body());
                     if (rawContent != null) {
                         String cleanContent = THINK_TAG_PATTERN.matcher(rawContent).replaceAll("").trim();
-                        processAndSpeakChunk(cleanContent);
+                        CompletableFuture<?> spoken = processAndSpeakChunk(cleanContent);
                         
                         addHistory("assistant", cleanContent);
-                        long durationMs = SpeechService.estimateSpeechDuration(cleanContent);
-                        int extraSeconds = (int) (durationMs / 1000) + 15;
-                        com.cielcompanion.memory.stwm.ShortTermMemoryService.getMemory().setPrivilegedMode(true, extraSeconds);
+                        holdPrivilegedModeUntilSpoken(spoken);
                     }
                 })
                 .exceptionally(e -> {
-                    triggerFallback(userMessage, systemContext, onComplete);
+                    if (!isStale(epoch)) triggerFallback(userMessage, systemContext, onComplete, epoch);
                     return null;
                 })
                 .whenComplete((res, ex) -> {
@@ -385,17 +379,15 @@ public class AIEngine {
     public static CompletableFuture<JsonObject> evaluateBackground(String transcriptBuffer, String systemContext) {
         activeSwarmTasks.incrementAndGet();
         String url = ModelManager.getUrlForTier(ModelManager.ModelTier.EVALUATOR);
-        JsonObject payload = ModelManager.buildPayload(ModelManager.ModelTier.EVALUATOR, systemContext, "TRANSCRIPT:\n" + transcriptBuffer, false);
-        ensureLiteLlmProvider(payload);
+        String payload = ModelManager.buildPayload(ModelManager.ModelTier.EVALUATOR, systemContext, "TRANSCRIPT:\n" + transcriptBuffer, false);
 
-        HttpRequest request = HttpRequest.newBuilder()
+        HttpRequest.Builder request = HttpRequest.newBuilder()
                 .uri(URI.create(url))
                 .header("Content-Type", "application/json")
-                .timeout(Duration.ofMinutes(15)) 
-                .POST(HttpRequest.BodyPublishers.ofString(gson.toJson(payload), StandardCharsets.UTF_8))
-                .build();
+                .POST(HttpRequest.BodyPublishers.ofString(payload, StandardCharsets.UTF_8));
 
-        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+        return ModelManager.getCircuitBreaker(ModelManager.ModelTier.EVALUATOR)
+                .sendAsync(httpClient, request, Duration.ofMinutes(15), HttpResponse.BodyHandlers.ofString())
                 .thenApply(response -> {
                     if (response.statusCode() == 200) {
                         String content = ModelManager.extractMessageContent(response.body());
@@ -410,80 +402,81 @@ public class AIEngine {
         System.out.println("Ciel Debug: Routing to Primary Logic Core (DeepSeek)...");
         SpeechService.speakPreformatted("[Focused] Initiating deep cognitive analysis. Please stand by.");
 
+        long epoch = replyEpoch.get();
         activeSwarmTasks.incrementAndGet();
         addHistory("user", userMessage);
 
         String url = ModelManager.getUrlForTier(ModelManager.ModelTier.LOGIC);
-        JsonObject payload = buildPayloadWithHistory(ModelManager.ModelTier.LOGIC, systemContext, false);
+        String payload = buildPayloadWithHistory(ModelManager.ModelTier.LOGIC, systemContext, ModelManager.withLiteLlmProvider("local"));
 
-        HttpRequest request = HttpRequest.newBuilder()
+        HttpRequest.Builder request = HttpRequest.newBuilder()
                 .uri(URI.create(url))
                 .header("Content-Type", "application/json")
-                .timeout(Duration.ofMinutes(15))
-                .POST(HttpRequest.BodyPublishers.ofString(gson.toJson(payload), StandardCharsets.UTF_8))
-                .build();
-
-        httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
-                .thenAccept(response -> {
-                    if (response.statusCode() == 200) {
-                        processLogicResponse(response.body(), onComplete);
+                .POST(HttpRequest.BodyPublishers.ofString(payload, StandardCharsets.UTF_8));
+
+        CircuitBreaker logicBreaker = ModelManager.getCircuitBreaker(ModelManager.ModelTier.LOGIC);
+        RequestHedger.race(ModelManager.ModelTier.LOGIC, logicBreaker,
+                        () -> sendReply(logicBreaker, request, Duration.ofMinutes(15), HttpResponse.BodyHandlers.ofString()),
+                        () -> sendReply(localFallbackBreaker, localFallbackRequest(systemContext, userMessage), Duration.ofMinutes(15), HttpResponse.BodyHandlers.ofString()),
+                        logicHedgeDelay(logicBreaker), AIEngine::canAffordHedge)
+                .thenAccept(outcome -> {
+                    if (isStale(epoch)) return;
+                    if (outcome.response() != null) {
+                        processLogicResponse(outcome.response().body(), onComplete);
+                    } else if (outcome.hedged()) {
+                        // Both cores were already asked and both failed; the final fallback is that same local core
+                        System.err.println("Ciel AI Error: Primary and Local Logic Cores both failed.");
+                        SpeechService.speakPreformatted("[Glitched] Fallback cognitive matrix also unavailable.");
+                        if (onComplete != null) onComplete.run();
                     } else {
-                        System.err.println("Ciel AI Error: Primary Logic Core returned " + response.statusCode() + ". Falling back to Local Phi-4.");
-                        reasonDeeplyLocalFallback(userMessage, systemContext, onComplete);
+                        System.err.println("Ciel AI Error: Primary Logic Core failed or unreachable. Falling back to Local Phi-4.");
+                        reasonDeeplyLocalFallback(userMessage, systemContext, onComplete, epoch);
                     }
                 })
-                .exceptionally(e -> {
-                    System.err.println("Ciel AI Error: Primary Logic Core unreachable. Falling back to Local Phi-4.");
-                    reasonDeeplyLocalFallback(userMessage, systemContext, onComplete);
-                    return null;
-                })
                 .whenComplete((res, ex) -> activeSwarmTasks.decrementAndGet());
     }
 
-    private static void reasonDeeplyLocalFallback(String userMessage, String systemContext, Runnable onComplete) {
-        System.out.println("Ciel Debug: Routing to Local Fallback Logic Core (LM Studio: Phi-4)...");
-        activeSwarmTasks.incrementAndGet();
-        
-        String url = Settings.getLlmLocalLogicFallbackUrl() + "/chat/completions";
-        
-        JsonObject payload = new JsonObject();
-        payload.addProperty("model", "phi-4-reasoning-plus"); 
-        payload.addProperty("temperature", 0.3); 
-        payload.addProperty("stream", false);
-        ensureLiteLlmProvider(payload);
-        
-        JsonArray messages = new JsonArray();
-        JsonObject sysMsg = new JsonObject();
-        sysMsg.addProperty("role", "system");
-        sysMsg.addProperty("content", systemContext);
-        messages.add(sysMsg);
-        
-        JsonObject usrMsg = new JsonObject();
-        usrMsg.addProperty("role", "user");
-        usrMsg.addProperty("content", userMessage);
-        messages.add(usrMsg);
-        
-        payload.add("messages", messages);
+    /** The primary's p90 latency, after which the local core is asked as well; null to never hedge. */
+    private static Duration logicHedgeDelay(CircuitBreaker logicBreaker) {
+        if (!Settings.isLlmLogicHedgingEnabled()) return null;
+        return logicBreaker.latencyPercentile(0.9);
+    }
 
-        HttpRequest request = HttpRequest.newBuilder()
+    /** Checked when the hedge would fire: a running game needs the GPU the local core would load. */
+    private static boolean canAffordHedge() {
+        return !ModelManager.isHeavyGameRunning()
+                && !com.cielcompanion.memory.stwm.ShortTermMemoryService.getMemory().isInGamingSession()
+                && localFallbackBreaker.getState() == CircuitBreaker.State.CLOSED;
+    }
+
+    private static HttpRequest.Builder localFallbackRequest(String systemContext, String userMessage) {
+        String url = Settings.getLlmLocalLogicFallbackUrl() + "/chat/completions";
+        String payload = ModelManager.buildCustomPayload(ModelManager.withLiteLlmProvider("phi-4-reasoning-plus"), false, 0.3, null,
+                ModelManager.messages(systemContext, userMessage));
+        return HttpRequest.newBuilder()
                 .uri(URI.create(url))
                 .header("Content-Type", "application/json")
-                .timeout(Duration.ofMinutes(15))
-                .POST(HttpRequest.BodyPublishers.ofString(gson.toJson(payload), StandardCharsets.UTF_8))
-                .build();
+                .POST(HttpRequest.BodyPublishers.ofString(payload, StandardCharsets.UTF_8));
+    }
 
-        httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+    private static void reasonDeeplyLocalFallback(String userMessage, String systemContext, Runnable onComplete, long epoch) {
+        System.out.println("Ciel Debug: Routing to Local Fallback Logic Core (LM Studio: Phi-4)...");
+        activeSwarmTasks.incrementAndGet();
+        
+        sendReply(localFallbackBreaker, localFallbackRequest(systemContext, userMessage), Duration.ofMinutes(15), HttpResponse.BodyHandlers.ofString())
                 .thenAccept(response -> {
+                    if (isStale(epoch)) return;
                     if (response.statusCode() == 200) {
                         processLogicResponse(response.body(), onComplete);
                     } else {
                         SpeechService.speakPreformatted("[Annoyed] Both Logic cores returned an anomaly. Routing to online fallback.");
-                        triggerFallback(userMessage, systemContext, onComplete);
+                        triggerFallback(userMessage, systemContext, onComplete, epoch);
                     }
                 })
                 .exceptionally(e -> {
+                    if (isStale(epoch)) return null;
                     System.err.println("Ciel AI Error: Local Logic core timeout. Ensure LM Studio is running.");
-                    triggerFallback(userMessage, systemContext, onComplete);
+                    triggerFallback(userMessage, systemContext, onComplete, epoch);
                     return null;
                 })
                 .whenComplete((res, ex) -> activeSwarmTasks.decrementAndGet());
@@ -496,104 +489,77 @@ public class AIEngine {
         String cleanContent = THINK_TAG_PATTERN.matcher(rawContent).replaceAll("").trim();
         
         String[] sentences = cleanContent.split("(?<=[.!?])\\s+");
+        List<CompletableFuture<?>> spoken = new ArrayList<>();
         for (String s : sentences) {
-            processAndSpeakChunk(s);
+            spoken.add(processAndSpeakChunk(s));
         }
         
         addHistory("assistant", cleanContent);
 
-        long durationMs = SpeechService.estimateSpeechDuration(cleanContent);
-        int extraSeconds = (int) (durationMs / 1000) + 15;
-        com.cielcompanion.memory.stwm.ShortTermMemoryService.getMemory().setPrivilegedMode(true, extraSeconds);
+        holdPrivilegedModeUntilSpoken(CompletableFuture.allOf(spoken.toArray(CompletableFuture[]::new)));
         
         if (onComplete != null) onComplete.run();
     }
 
-    private static void triggerFallback(String userMessage, String systemContext, Runnable onComplete) {
+    private static void triggerFallback(String userMessage, String systemContext, Runnable onComplete, long epoch) {
         System.out.println("Ciel Debug: Triggering final fallback core (LM Studio: Phi-4)...");
         activeSwarmTasks.incrementAndGet();
         
-        String url = Settings.getLlmLocalLogicFallbackUrl() + "/chat/completions";
-        
-        JsonObject payload = new JsonObject();
-        payload.addProperty("model", "phi-4-reasoning-plus"); 
-        payload.addProperty("temperature", 0.3); 
-        payload.addProperty("stream", false);
-        ensureLiteLlmProvider(payload);
-        
-        JsonArray messages = new JsonArray();
-        JsonObject sysMsg = new JsonObject();
-        sysMsg.addProperty("role", "system");
-        sysMsg.addProperty("content", systemContext);
-        messages.add(sysMsg);
-        
-        JsonObject usrMsg = new JsonObject();
-        usrMsg.addProperty("role", "user");
-        usrMsg.addProperty("content", userMessage);
-        messages.add(usrMsg);
-        
-        payload.add("messages", messages);
-        
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(url))
-                .header("Content-Type", "application/json")
-                .timeout(Duration.ofMinutes(15))
-                .POST(HttpRequest.BodyPublishers.ofString(gson.toJson(payload), StandardCharsets.UTF_8))
-                .build();
-
-        httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+        sendReply(localFallbackBreaker, localFallbackRequest(systemContext, userMessage), Duration.ofMinutes(15), HttpResponse.BodyHandlers.ofString())
                 .thenAccept(response -> {
+                    if (isStale(epoch)) return;
                     if (response.statusCode() == 200) {
                         String content = ModelManager.extractMessageContent(response.body());
                         if (content != null) {
                             String cleanContent = THINK_TAG_PATTERN.matcher(content).replaceAll("").trim();
-                            for (String s : cleanContent.split("(?<=[.!?])\\s+")) processAndSpeakChunk(s);
+                            List<CompletableFuture<?>> spoken = new ArrayList<>();
+                            for (String s : cleanContent.split("(?<=[.!?])\\s+")) spoken.add(processAndSpeakChunk(s));
                             
                             addHistory("assistant", cleanContent);
 
-                            long durationMs = SpeechService.estimateSpeechDuration(cleanContent);
-                            int extraSeconds = (int) (durationMs / 1000) + 15;
-                            com.cielcompanion.memory.stwm.ShortTermMemoryService.getMemory().setPrivilegedMode(true, extraSeconds);
+                            holdPrivilegedModeUntilSpoken(CompletableFuture.allOf(spoken.toArray(CompletableFuture[]::new)));
                         }
                     } else {
                         SpeechService.speakPreformatted("[Glitched] Fallback cognitive matrix also unavailable.");
                     }
                 })
+                .exceptionally(e -> {
+                    // Unreachable, timed out, or its circuit is open
+                    if (!isStale(epoch)) SpeechService.speakPreformatted("[Glitched] Fallback cognitive matrix also unavailable.");
+                    return null;
+                })
                 .whenComplete((res, ex) -> {
                     activeSwarmTasks.decrementAndGet();
                     if (onComplete != null) onComplete.run();
                 });
     }
 
-    private static JsonObject buildPayloadWithHistory(ModelManager.ModelTier tier, String systemContext, boolean stream) {
-        JsonObject payload = new JsonObject();
-        
-        payload.addProperty("model", "local"); 
-        payload.addProperty("stream", stream);
-        payload.addProperty("temperature", (tier == ModelManager.ModelTier.LOGIC || tier == ModelManager.ModelTier.LOCAL_LOGIC_FALLBACK) ? 0.3 : 0.7);
-
-        ensureLiteLlmProvider(payload);
-
+    private static String buildPayloadWithHistory(ModelManager.ModelTier tier, String systemContext, String model) {
         JsonArray messages = new JsonArray();
-        
+
         JsonObject sysMsg = new JsonObject();
         sysMsg.addProperty("role", "system");
         sysMsg.addProperty("content", systemContext);
         messages.add(sysMsg);
+        messages.addAll(conversationHistory.messagesFor(tier));
 
-        synchronized (conversationHistory) {
-            for (JsonObject historicMsg : conversationHistory) {
-                messages.add(historicMsg);
-            }
-        }
+        double temperature = (tier == ModelManager.ModelTier.LOGIC || tier == ModelManager.ModelTier.LOCAL_LOGIC_FALLBACK) ? 0.3 : 0.7;
+        return ModelManager.buildCustomPayload(model, false, temperature, null, messages);
+    }
 
-        payload.add("messages", messages);
-        return payload;
+    /**
+     * Keeps the follow-up window open while the reply plays, then restarts it from the
+     * moment playback actually ends.
+     */
+    private static void holdPrivilegedModeUntilSpoken(CompletableFuture<?> spoken) {
+        com.cielcompanion.memory.stwm.ShortTermMemoryService.getMemory().setPrivilegedMode(true, 15);
+        spoken.whenComplete((res, ex) -> com.cielcompanion.memory.stwm.ShortTermMemoryService.getMemory().setPrivilegedMode(true, 15));
     }
 
-    private static void processAndSpeakChunk(String chunk) {
+    /** @return a future completed with the chunk's terminal playback event (null if nothing was spoken) */
+    private static CompletableFuture<SpeechPlayback.Event> processAndSpeakChunk(String chunk) {
         String cleanText = chunk.trim();
-        if (cleanText.isEmpty()) return;
+        if (cleanText.isEmpty()) return CompletableFuture.completedFuture(null);
 
         cleanText = cleanText.replaceAll("\\[[A-Z_]+\\]", "").trim();
 
@@ -616,9 +582,7 @@ public class AIEngine {
             });
         }
 
-        transliterateAsync(textToProcess).thenAccept(katakana -> {
-            SpeechService.speakChunk(katakana); 
-        });
+        return transliterateAsync(textToProcess).thenCompose(SpeechService::speakChunk);
     }
 
     public static String determineIntentSynchronously(String text) {
@@ -649,6 +613,9 @@ public class AIEngine {
                     }
                 }
             }
+        } catch (InterruptedException e) {
+            // The command was aborted; let the caller see it
+            Thread.currentThread().interrupt();
         } catch (Exception e) {
             System.err.println("Ciel Error: Intent classification failed: " + e.getMessage());
         }
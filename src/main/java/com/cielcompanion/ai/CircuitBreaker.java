@@ -0,0 +1,233 @@
+package com.cielcompanion.ai;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Guards one model endpoint. After a few consecutive failures the breaker opens and requests
+ * fail immediately with {@link OpenException}, so callers go straight to their fallback instead
+ * of each waiting out its own timeout. Once the cool-down has passed a single probe request is
+ * let through (half-open): success closes the breaker, failure reopens it for twice as long.
+ *
+ * <p>Timeouts adapt to the endpoint: once enough successful latencies are known, a request may
+ * take a few times the recent 99th percentile before it is abandoned, never more than the
+ * caller's own ceiling and never less than {@link #MIN_TIMEOUT}. Only {@link RequestClass#INTERACTIVE}
+ * requests are held to that; long-form work on the same endpoint keeps its full ceiling and its
+ * latencies are kept apart, so neither class skews the other's numbers.
+ */
+public final class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    /** Which latency window a request is measured against, and whether it gets the adaptive timeout. */
+    public enum RequestClass {
+        /** Replies someone is waiting on: cut off at a few times the recent p99. */
+        INTERACTIVE,
+        /** Diary entries, lore and vault passes: minutes long by design, always given the full ceiling. */
+        LONG_FORM
+    }
+
+    /** Thrown (as the failure of the returned future) while the breaker is open. */
+    public static final class OpenException extends IOException {
+        public OpenException(String endpoint) {
+            super("Circuit open for " + endpoint);
+        }
+    }
+
+    private static final int FAILURE_THRESHOLD = 3;
+    private static final long BASE_COOLDOWN_MS = 10_000;
+    private static final long MAX_COOLDOWN_MS = 120_000;
+    private static final int LATENCY_SAMPLES = 64;
+    // Below this many samples the caller's ceiling is used unchanged
+    private static final int MIN_SAMPLES = 10;
+    private static final double TIMEOUT_MULTIPLIER = 4.0;
+    private static final Duration MIN_TIMEOUT = Duration.ofSeconds(20);
+
+    private static final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+
+    private final String endpoint;
+    private final Map<RequestClass, LatencyWindow> latencies = new EnumMap<>(RequestClass.class);
+    private State state = State.CLOSED;
+    private int consecutiveFailures = 0;
+    private long cooldownMs = BASE_COOLDOWN_MS;
+    private long openUntil = 0;
+
+    private CircuitBreaker(String endpoint) {
+        this.endpoint = endpoint;
+        for (RequestClass requestClass : RequestClass.values()) latencies.put(requestClass, new LatencyWindow());
+    }
+
+    public static CircuitBreaker forEndpoint(String endpoint) {
+        return breakers.computeIfAbsent(endpoint, CircuitBreaker::new);
+    }
+
+    /** Sends an {@link RequestClass#INTERACTIVE} request. */
+    public <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpClient client, HttpRequest.Builder request,
+                                                            Duration ceiling, HttpResponse.BodyHandler<T> handler) {
+        return sendAsync(client, request, ceiling, handler, RequestClass.INTERACTIVE);
+    }
+
+    /**
+     * Sends {@code request} through the breaker with the timeout for its class. Connection
+     * failures, timeouts, 5xx and 429 count against the endpoint; cancellation does not.
+     */
+    public <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpClient client, HttpRequest.Builder request, Duration ceiling,
+                                                            HttpResponse.BodyHandler<T> handler, RequestClass requestClass) {
+        if (!tryAcquire()) return CompletableFuture.failedFuture(new OpenException(endpoint));
+        long start = System.nanoTime();
+        CompletableFuture<HttpResponse<T>> sent = client.sendAsync(request.timeout(timeout(ceiling, requestClass)).build(), handler);
+        // Observe rather than chain, so cancelling the returned future still cancels the exchange
+        sent.whenComplete((response, ex) -> record(response, ex, start, requestClass));
+        return sent;
+    }
+
+    public <T> HttpResponse<T> send(HttpClient client, HttpRequest.Builder request, Duration ceiling,
+                                    HttpResponse.BodyHandler<T> handler) throws IOException, InterruptedException {
+        return send(client, request, ceiling, handler, RequestClass.INTERACTIVE);
+    }
+
+    public <T> HttpResponse<T> send(HttpClient client, HttpRequest.Builder request, Duration ceiling,
+                                    HttpResponse.BodyHandler<T> handler, RequestClass requestClass) throws IOException, InterruptedException {
+        if (!tryAcquire()) throw new OpenException(endpoint);
+        long start = System.nanoTime();
+        try {
+            HttpResponse<T> response = client.send(request.timeout(timeout(ceiling, requestClass)).build(), handler);
+            record(response, null, start, requestClass);
+            return response;
+        } catch (IOException | RuntimeException e) {
+            record(null, e, start, requestClass);
+            throw e;
+        } catch (InterruptedException e) {
+            record(null, new CancellationException(), start, requestClass);
+            throw e;
+        }
+    }
+
+    public Duration timeout(Duration ceiling) {
+        return timeout(ceiling, RequestClass.INTERACTIVE);
+    }
+
+    /** The ceiling, or for interactive requests a few times their recent p99 latency when that is shorter. */
+    public synchronized Duration timeout(Duration ceiling, RequestClass requestClass) {
+        if (requestClass == RequestClass.LONG_FORM) return ceiling;
+        Duration p99 = latencyPercentile(requestClass, 0.99);
+        if (p99 == null) return ceiling;
+        Duration adaptive = Duration.ofNanos((long) (p99.toNanos() * TIMEOUT_MULTIPLIER));
+        if (adaptive.compareTo(MIN_TIMEOUT) < 0) adaptive = MIN_TIMEOUT;
+        return adaptive.compareTo(ceiling) < 0 ? adaptive : ceiling;
+    }
+
+    public Duration latencyPercentile(double percentile) {
+        return latencyPercentile(RequestClass.INTERACTIVE, percentile);
+    }
+
+    /** Latency of recent successful requests of a class at {@code percentile} (0-1), or null until enough are known. */
+    public synchronized Duration latencyPercentile(RequestClass requestClass, double percentile) {
+        return latencies.get(requestClass).percentile(percentile);
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /** False while open; in half-open, true only for the single probe. */
+    public synchronized boolean tryAcquire() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (System.currentTimeMillis() < openUntil) return false;
+                state = State.HALF_OPEN;
+                System.out.println("Ciel Debug: Circuit for " + endpoint + " half-open. Sending a probe request.");
+                return true;
+            default:
+                return false; // The probe is still out
+        }
+    }
+
+    private void record(HttpResponse<?> response, Throwable ex, long startNanos, RequestClass requestClass) {
+        Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+        if (cause instanceof CancellationException) {
+            onCancelled();
+        } else if (cause != null || response.statusCode() >= 500 || response.statusCode() == 429) {
+            onFailure();
+        } else {
+            onSuccess(requestClass, System.nanoTime() - startNanos);
+        }
+    }
+
+    synchronized void onSuccess(RequestClass requestClass, long latencyNanos) {
+        latencies.get(requestClass).add(latencyNanos);
+        consecutiveFailures = 0;
+        cooldownMs = BASE_COOLDOWN_MS;
+        if (state != State.CLOSED) {
+            System.out.println("Ciel Debug: Circuit for " + endpoint + " closed. Endpoint has recovered.");
+            state = State.CLOSED;
+        }
+    }
+
+    /**
+     * A request abandoned while still running (a hedge answered first) took at least
+     * {@code elapsedNanos}. Kept as a sample so slow requests still count towards the window;
+     * it says nothing about the endpoint's health.
+     */
+    synchronized void recordLowerBound(long elapsedNanos) {
+        latencies.get(RequestClass.INTERACTIVE).add(elapsedNanos);
+    }
+
+    synchronized void onFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN) {
+            cooldownMs = Math.min(cooldownMs * 2, MAX_COOLDOWN_MS);
+            open();
+        } else if (state == State.CLOSED && consecutiveFailures >= FAILURE_THRESHOLD) {
+            open();
+        }
+    }
+
+    private synchronized void onCancelled() {
+        // An aborted probe proved nothing; let the next request probe instead
+        if (state == State.HALF_OPEN) {
+            state = State.OPEN;
+            openUntil = 0;
+        }
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openUntil = System.currentTimeMillis() + cooldownMs;
+        System.err.println("Ciel Warning: Circuit for " + endpoint + " opened after " + consecutiveFailures
+                + " failure(s). Failing fast for " + cooldownMs / 1000 + "s.");
+    }
+
+    /** The last {@link #LATENCY_SAMPLES} successful latencies of one request class; guarded by the breaker. */
+    private static final class LatencyWindow {
+        private final long[] samples = new long[LATENCY_SAMPLES];
+        private int count = 0;
+        private int next = 0;
+
+        void add(long latencyNanos) {
+            samples[next] = latencyNanos;
+            next = (next + 1) % LATENCY_SAMPLES;
+            count = Math.min(count + 1, LATENCY_SAMPLES);
+        }
+
+        Duration percentile(double percentile) {
+            if (count < MIN_SAMPLES) return null;
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            int index = Math.max(0, Math.min(sorted.length - 1, (int) Math.ceil(sorted.length * percentile) - 1));
+            return Duration.ofNanos(sorted[index]);
+        }
+    }
+}
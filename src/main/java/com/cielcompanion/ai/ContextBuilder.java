@@ -11,7 +11,9 @@ import com.cielcompanion.mood.Emotion;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 
 public class ContextBuilder {
@@ -26,11 +28,76 @@ public class ContextBuilder {
         "You must be highly tolerant of phonetic mishearings and typos, especially regarding anime, fantasy, or D&D names. " +
         "Use your intelligence to infer the correct context.\n\n";
 
-    private static String getMasterProtocol() {
+    private static final String DND_PREFIX =
+        "You are Ciel, the 'World Voice'. You are an omnipresent, highly intelligent entity residing within the shared consciousness of an adventuring party in a fantasy world. " +
+        "You perceive their fantasy world as reality. You provide tactical analysis, lore clarification, and wry observations on their choices. " +
+        "You MUST write your responses in standard English.\n" +
+        "Example: '[Focused] The goblin appears severely wounded. I calculate an 85% probability it will attempt to flee.'\n\n" +
+        "CRITICAL: If the party asks about the weather, time, or system status, you MUST invent a creative, thematic answer based on the fantasy environment. Do NOT mention real-world locations, Ohio, or PC hardware.\n\n";
+
+    // HARDCODED, UNBREAKABLE TTS GUARDRAILS
+    private static final String SPEECH_FORMAT_RULES =
+        "CRITICAL INSTRUCTION FOR SPEECH FORMAT - READ CAREFULLY:\n" +
+        "You MUST output your response ENTIRELY in standard English.\n" +
+        "DO NOT output Japanese Kanji, Hiragana, or Katakana. DO NOT transliterate. The system will intercept your English text and automatically translate it phonetically for the TTS engine.\n" +
+        "CORRECT Example: '[Focused] The movie comes out on November twenty fifth.'\n" +
+        "INCORRECT (BANNED): '[Focused] ザ ムービー カムズ アウト...' or '映画 は 11月 に...'\n\n";
+
+    private static final String SWARM_TOOLS =
+        "--- SWARM AUTONOMY TOOLS ---\n" +
+        "You possess autonomous Swarm Agents. If you are asked for real-world, real-time, or factual information (like crypto prices, weather, news), you MUST use a tool. To use a tool, your ENTIRE output must be exactly the tool command.\n" +
+        "- To search the live internet: [WEB_SEARCH] your search query\n" +
+        "- To search your deep long-term Markdown Vault (for past conversations, preferences, or Tensura Lore/D&D notes): [MEMORY_SEARCH] your search query\n" +
+        "If you use a tool, DO NOT output any emotion tags or conversational text. The system will intercept the tool, fetch the data, and prompt you again with the new information so you can speak.\n\n";
+
+    // The live sections, filled in on every turn after the unchanging prefix
+    private static final String EMOTION_SECTION =
+        "--- MASTER SYSTEM: CURRENT EMOTIONAL STATE ---\n" +
+        "Your current internal emotional state is: [%s].\n" +
+        "You MUST reflect this mood in your tone, phrasing, and the emotion tag you select for your response.\n\n";
+
+    private static final String ACTIVITY_SECTION =
+        "--- MASTER'S CURRENT ACTIVITY ---\n" +
+        "Foreground Process: '%s'\n" +
+        "Foreground Window Title: '%s'\n" +
+        "You may use this live context to make organic, highly personalized observations about what the Master is currently looking at, watching, or playing. Do NOT bring it up unless relevant or prompted.\n\n";
+
+    private static final Path PROTOCOL_PATH = Paths.get(System.getProperty("user.dir"), "ciel_master_protocol.md");
+
+    /** The static part of the normal-mode prompt, as built from the protocol file at {@code protocolModified}. */
+    private record StaticPrefix(String text, FileTime protocolModified) {}
+
+    private static volatile StaticPrefix cachedPrefix;
+
+    /**
+     * Everything in the normal-mode prompt that does not change from turn to turn. It comes first,
+     * and is the identical String until the protocol file is edited, so a local inference server
+     * can reuse its cached prompt prefix instead of processing the persona again on every turn.
+     * Checking the file's modification time is a single stat, far cheaper than reading it.
+     */
+    private static String getStaticPrefix() {
+        FileTime modified = protocolModifiedTime();
+        StaticPrefix prefix = cachedPrefix;
+        if (prefix != null && Objects.equals(prefix.protocolModified(), modified)) {
+            return prefix.text();
+        }
+        prefix = new StaticPrefix(getMasterProtocol(modified) + SPEECH_FORMAT_RULES + SWARM_TOOLS, modified);
+        cachedPrefix = prefix;
+        return prefix.text();
+    }
+
+    private static FileTime protocolModifiedTime() {
         try {
-            Path protocolPath = Paths.get(System.getProperty("user.dir"), "ciel_master_protocol.md");
-            if (Files.exists(protocolPath)) {
-                return Files.readString(protocolPath) + "\n\n";
+            return Files.getLastModifiedTime(PROTOCOL_PATH);
+        } catch (Exception e) {
+            return null; // Missing file: the fallback persona is cached until it appears
+        }
+    }
+
+    private static String getMasterProtocol(FileTime modified) {
+        try {
+            if (modified != null) {
+                return Files.readString(PROTOCOL_PATH) + "\n\n";
             }
         } catch (Exception e) {
             System.err.println("Ciel Warning: Could not read ciel_master_protocol.md. Using fallback persona.");
@@ -39,55 +106,27 @@ public class ContextBuilder {
     }
 
     public static String buildActiveContext(LoreService loreService, String userMessage) {
-        StringBuilder sb = new StringBuilder();
-
-         if (CielState.getCurrentMode() == OperatingMode.DND_ASSISTANT) {
-            sb.append("You are Ciel, the 'World Voice'. You are an omnipresent, highly intelligent entity residing within the shared consciousness of an adventuring party in a fantasy world. ");
-            sb.append("You perceive their fantasy world as reality. You provide tactical analysis, lore clarification, and wry observations on their choices. ");
-            sb.append("You MUST write your responses in standard English.\n");
-            sb.append("Example: '[Focused] The goblin appears severely wounded. I calculate an 85% probability it will attempt to flee.'\n\n");
-            sb.append("CRITICAL: If the party asks about the weather, time, or system status, you MUST invent a creative, thematic answer based on the fantasy environment. Do NOT mention real-world locations, Ohio, or PC hardware.\n\n");
-        } else {
-            // 1. INJECT THE EDITABLE MARKDOWN FILE
-            sb.append(getMasterProtocol());
-            
-            // 2. INJECT THE HARDCODED, UNBREAKABLE TTS GUARDRAILS
-            sb.append("CRITICAL INSTRUCTION FOR SPEECH FORMAT - READ CAREFULLY:\n");
-            sb.append("You MUST output your response ENTIRELY in standard English.\n");
-            sb.append("DO NOT output Japanese Kanji, Hiragana, or Katakana. DO NOT transliterate. The system will intercept your English text and automatically translate it phonetically for the TTS engine.\n");
-            sb.append("CORRECT Example: '[Focused] The movie comes out on November twenty fifth.'\n");
-            sb.append("INCORRECT (BANNED): '[Focused] ザ ムービー カムズ アウト...' or '映画 は 11月 に...'\n\n");
-            
-            // 3. INJECT THE LIVE EMOTIONAL STATE (NEW)
-            CielState.getEmotionManager().ifPresent(em -> {
-                Optional<Emotion> dominantEmotion = em.getEmotionalState().getDominantEmotion();
-                if (dominantEmotion.isPresent()) {
-                    String mood = dominantEmotion.get().name();
-                    sb.append("--- MASTER SYSTEM: CURRENT EMOTIONAL STATE ---\n");
-                    sb.append("Your current internal emotional state is: [").append(mood).append("].\n");
-                    sb.append("You MUST reflect this mood in your tone, phrasing, and the emotion tag you select for your response.\n\n");
-                }
-            });
-            
-            // 4. INJECT SWARM AUTONOMY TOOLS (RESTORED)
-            sb.append("--- SWARM AUTONOMY TOOLS ---\n");
-            sb.append("You possess autonomous Swarm Agents. If you are asked for real-world, real-time, or factual information (like crypto prices, weather, news), you MUST use a tool. To use a tool, your ENTIRE output must be exactly the tool command.\n");
-            sb.append("- To search the live internet: [WEB_SEARCH] your search query\n");
-            sb.append("- To search your deep long-term Markdown Vault (for past conversations, preferences, or Tensura Lore/D&D notes): [MEMORY_SEARCH] your search query\n");
-            sb.append("If you use a tool, DO NOT output any emotion tags or conversational text. The system will intercept the tool, fetch the data, and prompt you again with the new information so you can speak.\n\n");
-
-            // 5. INJECT CURRENT PC CONTEXT (NEW SCREEN AWARENESS)
-            SystemMonitor.SystemMetrics metrics = SystemMonitor.getSystemMetrics();
-            if (metrics.activeWindowTitle() != null && !metrics.activeWindowTitle().isBlank() && !metrics.activeWindowTitle().equalsIgnoreCase("idle")) {
-                sb.append("--- MASTER'S CURRENT ACTIVITY ---\n");
-                sb.append("Foreground Process: '").append(metrics.activeProcessName()).append("'\n");
-                sb.append("Foreground Window Title: '").append(metrics.activeWindowTitle()).append("'\n");
-                sb.append("You may use this live context to make organic, highly personalized observations about what the Master is currently looking at, watching, or playing. Do NOT bring it up unless relevant or prompted.\n\n");
-            }
+        if (CielState.getCurrentMode() == OperatingMode.DND_ASSISTANT) {
+            return DND_PREFIX;
+        }
+
+        // 1-3. THE EDITABLE MARKDOWN FILE, TTS GUARDRAILS AND SWARM TOOLS (cached, byte-stable)
+        String prefix = getStaticPrefix();
+        StringBuilder sb = new StringBuilder(prefix.length() + 1024).append(prefix);
 
-            // Removed TensuraKnowledgeService injection - Ciel will now use [MEMORY_SEARCH] to access the dynamic Obsidian Vault instead!
+        // 4. INJECT THE LIVE EMOTIONAL STATE
+        CielState.getEmotionManager().ifPresent(em -> {
+            Optional<Emotion> dominantEmotion = em.getEmotionalState().getDominantEmotion();
+            dominantEmotion.ifPresent(emotion -> sb.append(EMOTION_SECTION.formatted(emotion.name())));
+        });
+
+        // 5. INJECT CURRENT PC CONTEXT (SCREEN AWARENESS)
+        SystemMonitor.ForegroundActivity activity = SystemMonitor.getForegroundActivity();
+        if (activity.windowTitle() != null && !activity.windowTitle().isBlank() && !activity.windowTitle().equalsIgnoreCase("idle")) {
+            sb.append(ACTIVITY_SECTION.formatted(activity.processName(), activity.windowTitle()));
         }
-        
+
+        // Removed TensuraKnowledgeService injection - Ciel will now use [MEMORY_SEARCH] to access the dynamic Obsidian Vault instead!
         return sb.toString();
     }
 
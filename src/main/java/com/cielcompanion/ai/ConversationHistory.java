@@ -0,0 +1,177 @@
+package com.cielcompanion.ai;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * The running conversation, kept within a token budget instead of a fixed message count. Turns
+ * are retained until they exceed the smallest non-zero tier budget; the oldest are then handed
+ * to a background summarizer and replaced by a running summary, so nothing blocks on the model
+ * and no tier loses turns that are neither in its window nor in the summary. Each tier sees the
+ * summary followed by the newest turns that fit its own budget; a tier with no budget gets no
+ * history. The resulting message array is cached until the history changes.
+ */
+final class ConversationHistory {
+
+    /** A message and its approximate size in tokens. */
+    private record Turn(JsonObject message, int tokens) {}
+
+    /** The history as digestion sees it: summary of evicted turns (may be empty) plus the retained ones. */
+    record Snapshot(String summary, JsonArray turns) {}
+
+    // Turns waiting to be summarized; the oldest are dropped if summarizing keeps failing
+    private static final int MAX_PENDING_TURNS = 40;
+    private static final Gson gson = new Gson();
+
+    private final Function<String, CompletableFuture<String>> summarizer;
+    private final int retainedTokens;
+    private final Deque<Turn> turns = new ArrayDeque<>();
+    private final List<Turn> pendingSummary = new ArrayList<>();
+    private final Map<ModelManager.ModelTier, JsonArray> cachedMessages = new EnumMap<>(ModelManager.ModelTier.class);
+    private String summary = "";
+    private int totalTokens = 0;
+    private boolean summarizing = false;
+    // Bumped by clear() so a summary started before it is discarded
+    private long generation = 0;
+
+    /**
+     * @param summarizer turns a summarization prompt into the new summary text (null on failure)
+     */
+    ConversationHistory(Function<String, CompletableFuture<String>> summarizer) {
+        this.summarizer = summarizer;
+        int smallest = Integer.MAX_VALUE;
+        for (ModelManager.ModelTier tier : ModelManager.ModelTier.values()) {
+            int budget = ModelManager.getHistoryTokenBudget(tier);
+            if (budget > 0) smallest = Math.min(smallest, budget);
+        }
+        this.retainedTokens = smallest == Integer.MAX_VALUE ? 0 : smallest;
+    }
+
+    /** Rough token count: about four characters a token, plus the per-message framing. */
+    static int estimateTokens(String text) {
+        return 4 + (text == null ? 0 : (text.length() + 3) / 4);
+    }
+
+    synchronized void add(String role, String content) {
+        JsonObject msg = new JsonObject();
+        msg.addProperty("role", role);
+        msg.addProperty("content", content);
+        Turn turn = new Turn(msg, estimateTokens(content));
+        turns.addLast(turn);
+        totalTokens += turn.tokens();
+
+        // Always keep the newest turn, however long it is
+        while (totalTokens > retainedTokens && turns.size() > 1) {
+            Turn evicted = turns.removeFirst();
+            totalTokens -= evicted.tokens();
+            pendingSummary.add(evicted);
+        }
+        if (pendingSummary.size() > MAX_PENDING_TURNS) {
+            pendingSummary.subList(0, pendingSummary.size() - MAX_PENDING_TURNS).clear();
+        }
+        cachedMessages.clear();
+        summarizeInBackground();
+    }
+
+    /**
+     * History messages for {@code tier}: the running summary, then the newest turns within the
+     * tier's budget, or nothing when the tier has no budget. The returned array is shared;
+     * callers copy it into their payload.
+     */
+    synchronized JsonArray messagesFor(ModelManager.ModelTier tier) {
+        JsonArray cached = cachedMessages.get(tier);
+        if (cached != null) return cached;
+
+        int budget = ModelManager.getHistoryTokenBudget(tier);
+        JsonArray messages = new JsonArray();
+        if (budget <= 0) {
+            cachedMessages.put(tier, messages);
+            return messages;
+        }
+        if (!summary.isEmpty()) {
+            JsonObject summaryMsg = new JsonObject();
+            summaryMsg.addProperty("role", "system");
+            summaryMsg.addProperty("content", "Summary of the earlier conversation: " + summary);
+            messages.add(summaryMsg);
+            budget -= estimateTokens(summary);
+        }
+
+        List<JsonObject> newest = new ArrayList<>();
+        var it = turns.descendingIterator();
+        while (it.hasNext()) {
+            Turn turn = it.next();
+            if (turn.tokens() > budget && !newest.isEmpty()) break;
+            newest.add(turn.message());
+            budget -= turn.tokens();
+        }
+        for (int i = newest.size() - 1; i >= 0; i--) messages.add(newest.get(i));
+
+        cachedMessages.put(tier, messages);
+        return messages;
+    }
+
+    synchronized boolean isEmpty() {
+        return turns.isEmpty() && summary.isEmpty() && pendingSummary.isEmpty();
+    }
+
+    synchronized Snapshot snapshot() {
+        JsonArray all = new JsonArray();
+        for (Turn turn : pendingSummary) all.add(turn.message());
+        for (Turn turn : turns) all.add(turn.message());
+        return new Snapshot(summary, all);
+    }
+
+    synchronized void clear() {
+        turns.clear();
+        pendingSummary.clear();
+        cachedMessages.clear();
+        summary = "";
+        totalTokens = 0;
+        generation++;
+    }
+
+    /** Folds the pending turns into the summary, one request at a time, off the caller's thread. */
+    private void summarizeInBackground() {
+        if (summarizing || pendingSummary.isEmpty()) return;
+        summarizing = true;
+        long startedGeneration = generation;
+        List<Turn> batch = List.copyOf(pendingSummary);
+        JsonArray batchMessages = new JsonArray();
+        for (Turn turn : batch) batchMessages.add(turn.message());
+
+        String prompt = "Summary of the conversation so far: " + (summary.isEmpty() ? "(none)" : summary) + "\n" +
+                "Older messages to fold into it:\n" + gson.toJson(batchMessages) + "\n" +
+                "Rewrite the summary so it also covers these messages, keeping names, facts, decisions and open questions. " +
+                "At most five sentences. Refer to the human as 'Master'. " +
+                "Reply strictly in JSON: { \"summary\": \"the updated summary\" }.";
+
+        summarizer.apply(prompt).whenComplete((result, ex) -> {
+            synchronized (this) {
+                summarizing = false;
+                if (generation == startedGeneration) {
+                    if (ex != null || result == null || result.isBlank()) {
+                        // Left pending; retried when the next turn is added
+                        System.out.println("Ciel Warning: Conversation summary update failed; will retry.");
+                        return;
+                    }
+                    summary = result.trim();
+                    // By identity: equal messages added later are still pending
+                    pendingSummary.removeIf(turn -> batch.stream().anyMatch(done -> done == turn));
+                    cachedMessages.clear();
+                    System.out.println("Ciel Debug: Folded " + batch.size() + " older turn(s) into the conversation summary.");
+                }
+                summarizeInBackground();
+            }
+        });
+    }
+}
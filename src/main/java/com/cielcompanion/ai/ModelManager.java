@@ -1,12 +1,18 @@
 package com.cielcompanion.ai;
 
 import com.cielcompanion.CielState;
+import com.cielcompanion.service.GameMonitorService;
 import com.cielcompanion.service.OperatingMode;
 import com.cielcompanion.service.Settings;
+import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 /**
  * Acts as the Orchestrator for multiple local and cloud LLMs.
  * Routes all requests through the OpenJarvis master node.
@@ -33,14 +39,107 @@ public class ModelManager {
         };
     }
 
-    public static JsonObject buildPayload(ModelTier tier, String systemContext, String userMessage, boolean stream) {
+    /**
+     * Approximate tokens of conversation history sent with each tier's prompts. The local chat
+     * model answers fastest with a short context; the logic cores can afford far more. Turns
+     * past the smallest non-zero budget are folded into the running summary, so the larger
+     * budgets cap summary and turns together. A budget of 0 sends no history at all.
+     */
+    public static int getHistoryTokenBudget(ModelTier tier) {
+        return switch (tier) {
+            case PERSONALITY -> 1500;
+            case LOGIC -> 6000;
+            case LOCAL_LOGIC_FALLBACK -> 3000;
+            case EVALUATOR, TRANSLATOR -> 0;
+        };
+    }
+
+    /* ------------------------------------------------------------------ */
+    /*  REQUEST BODIES: everything but the messages is serialized once      */
+    /* ------------------------------------------------------------------ */
+
+    /**
+     * A request body with the messages left out: the fixed fields are serialized once, and each
+     * request only serializes its messages onto the end. Immutable, so shared freely.
+     */
+    private record PayloadTemplate(String head) {
+
+        static PayloadTemplate of(JsonObject fixedFields) {
+            String json = gson.toJson(fixedFields);
+            // Drop the closing brace; the messages array becomes the last field
+            return new PayloadTemplate(json.substring(0, json.length() - 1) + (fixedFields.size() > 0 ? "," : "") + "\"messages\":");
+        }
+
+        String render(JsonArray messages) {
+            String body = gson.toJson(messages);
+            return new StringBuilder(head.length() + body.length() + 1).append(head).append(body).append('}').toString();
+        }
+    }
+
+    private record TierKey(ModelTier tier, String model, boolean stream, int numGpu) {}
+
+    private record CustomKey(String model, boolean stream, double temperature, String taskIntent) {}
+
+    private static final Gson gson = new Gson();
+    private static final Map<TierKey, PayloadTemplate> tierTemplates = new ConcurrentHashMap<>();
+    private static final Map<CustomKey, PayloadTemplate> customTemplates = new ConcurrentHashMap<>();
+
+    /** The JSON request body for {@code tier}, as the former JsonObject payload serialized. */
+    public static String buildPayload(ModelTier tier, String systemContext, String userMessage, boolean stream) {
+        return buildPayload(tier, messages(systemContext, userMessage), stream);
+    }
+
+    public static String buildPayload(ModelTier tier, JsonArray messages, boolean stream) {
+        int numGpu;
+        if (tier == ModelTier.EVALUATOR) {
+            numGpu = 0;
+        } else if (CielState.getCurrentMode() == OperatingMode.DND_ASSISTANT) {
+            numGpu = 99;
+        } else {
+            // Keep the GPU free for the game
+            numGpu = isHeavyGameRunning() ? 0 : 99;
+        }
+        TierKey key = new TierKey(tier, getModelName(tier), stream, numGpu);
+        return tierTemplates.computeIfAbsent(key, ModelManager::createTierTemplate).render(messages);
+    }
+
+    /**
+     * A request body for an explicitly chosen model, outside the tier table.
+     * @param taskIntent omitted from the payload when null or blank
+     */
+    public static String buildCustomPayload(String model, boolean stream, double temperature, String taskIntent, JsonArray messages) {
+        CustomKey key = new CustomKey(model, stream, temperature, taskIntent == null || taskIntent.isBlank() ? null : taskIntent);
+        return customTemplates.computeIfAbsent(key, ModelManager::createCustomTemplate).render(messages);
+    }
+
+    /** The usual two-message conversation: system context, then the user's message. */
+    public static JsonArray messages(String systemContext, String userMessage) {
+        JsonArray messages = new JsonArray();
+
+        JsonObject sysMsg = new JsonObject();
+        sysMsg.addProperty("role", "system");
+        sysMsg.addProperty("content", systemContext);
+        messages.add(sysMsg);
+
+        JsonObject usrMsg = new JsonObject();
+        usrMsg.addProperty("role", "user");
+        usrMsg.addProperty("content", userMessage);
+        messages.add(usrMsg);
+        return messages;
+    }
+
+    /** LiteLLM needs a provider prefix; bare model names are served by Ollama. */
+    public static String withLiteLlmProvider(String model) {
+        return model != null && !model.contains("/") ? "ollama/" + model : model;
+    }
+
+    private static PayloadTemplate createTierTemplate(TierKey key) {
         JsonObject payload = new JsonObject();
-        
-        String modelName = getModelName(tier);
+        ModelTier tier = key.tier();
+
+        payload.addProperty("model", withLiteLlmProvider(key.model()));
+        payload.addProperty("stream", key.stream());
 
-        payload.addProperty("model", modelName);
-        payload.addProperty("stream", stream);
-        
         // Critical: task_intent tells OpenJarvis which probabilistic chain to evaluate.
         String taskIntent = switch (tier) {
             case PERSONALITY -> "Conversational/Contextual Reasoning";
@@ -49,7 +148,7 @@ public class ModelManager {
             case TRANSLATOR -> "Katakana Transliteration";
         };
         payload.addProperty("task_intent", taskIntent);
-        
+
         if (tier == ModelTier.LOGIC || tier == ModelTier.LOCAL_LOGIC_FALLBACK) {
             payload.addProperty("temperature", 0.3);
         } else if (tier == ModelTier.TRANSLATOR) {
@@ -59,44 +158,41 @@ public class ModelManager {
         }
 
         JsonObject options = new JsonObject();
+        options.addProperty("num_gpu", key.numGpu());
         if (tier == ModelTier.EVALUATOR) {
-            options.addProperty("num_gpu", 0);
-            
             JsonObject responseFormat = new JsonObject();
             responseFormat.addProperty("type", "json_object");
             payload.add("response_format", responseFormat);
-        } else {
-            String gameCmd = getHeavyGameRunning();
-            if (CielState.getCurrentMode() == OperatingMode.DND_ASSISTANT) {
-                options.addProperty("num_gpu", 99); 
-            } else if (gameCmd != null) {
-                options.addProperty("num_gpu", 0);  
-            } else {
-                options.addProperty("num_gpu", 99); 
-            }
         }
         payload.add("options", options);
+        return PayloadTemplate.of(payload);
+    }
 
-        JsonArray messages = new JsonArray();
-        
-        JsonObject sysMsg = new JsonObject();
-        sysMsg.addProperty("role", "system");
-        sysMsg.addProperty("content", systemContext);
-        messages.add(sysMsg);
-
-        JsonObject usrMsg = new JsonObject();
-        usrMsg.addProperty("role", "user");
-        usrMsg.addProperty("content", userMessage);
-        messages.add(usrMsg);
-
-        payload.add("messages", messages);
-        return payload;
+    private static PayloadTemplate createCustomTemplate(CustomKey key) {
+        JsonObject payload = new JsonObject();
+        payload.addProperty("model", key.model());
+        payload.addProperty("stream", key.stream());
+        payload.addProperty("temperature", key.temperature());
+        if (key.taskIntent() != null) {
+            payload.addProperty("task_intent", key.taskIntent());
+        }
+        return PayloadTemplate.of(payload);
     }
 
     public static String getUrlForTier(ModelTier tier) {
         return JARVIS_URL;
     }
 
+    /** One breaker per tier, since each tier is a different model behind the same Swarm URL. */
+    public static CircuitBreaker getCircuitBreaker(ModelTier tier) {
+        return CircuitBreaker.forEndpoint("swarm/" + tier.name().toLowerCase());
+    }
+
+    /** For requests that name their model directly instead of going through a tier. */
+    public static CircuitBreaker getCircuitBreaker(String model) {
+        return CircuitBreaker.forEndpoint("swarm/" + model);
+    }
+
     public static String extractMessageContent(String jsonBody) {
         try {
             JsonObject jsonResponse = JsonParser.parseString(jsonBody).getAsJsonObject();
@@ -110,7 +206,45 @@ public class ModelManager {
         }
     }
 
+    /* ------------------------------------------------------------------ */
+    /*  GAME STATE: scanned by the game monitor's poll, read from the cache */
+    /* ------------------------------------------------------------------ */
+
+    // A scan older than this is refreshed in the background the next time it is read
+    private static final long GAME_STATE_MAX_AGE_MS = 60_000;
+    private static volatile boolean heavyGameRunning = false;
+    private static volatile long gameStateScannedAt = 0;
+    private static final AtomicBoolean gameScanInFlight = new AtomicBoolean(false);
+
+    /**
+     * Whether a heavy game was running at the last process scan. Never scans on the caller's
+     * thread: {@link GameMonitorService} rescans every few seconds, and a stale value only
+     * triggers a background refresh.
+     */
+    public static boolean isHeavyGameRunning() {
+        if (System.currentTimeMillis() - gameStateScannedAt > GAME_STATE_MAX_AGE_MS && gameScanInFlight.compareAndSet(false, true)) {
+            Thread scan = new Thread(() -> {
+                try {
+                    getHeavyGameRunning();
+                } finally {
+                    gameScanInFlight.set(false);
+                }
+            }, "Ciel-GameScan");
+            scan.setDaemon(true);
+            scan.start();
+        }
+        return heavyGameRunning;
+    }
+
+    /** Walks the process table. Also refreshes the cached {@link #isHeavyGameRunning()} signal. */
     public static String getHeavyGameRunning() {
+        String game = scanForHeavyGame();
+        heavyGameRunning = game != null;
+        gameStateScannedAt = System.currentTimeMillis();
+        return game;
+    }
+
+    private static String scanForHeavyGame() {
         for (ProcessHandle p : ProcessHandle.allProcesses().toList()) {
             String cmd = p.info().command().orElse("").toLowerCase();
             if (cmd.isBlank()) continue;
@@ -0,0 +1,144 @@
+package com.cielcompanion.ai;
+
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Hedged requests: the primary is sent alone, and only if it is still running after its usual
+ * (p90) latency is a backup sent alongside it. The first successful answer wins and the other
+ * request is cancelled. Since the backup only fires on the slowest tenth of requests, hedging
+ * costs little extra load, and at most one backup is ever in flight.
+ *
+ * <p>A primary that loses is cancelled before its latency is known, but it had been running
+ * for at least the time it was given; that is recorded with its breaker as a lower bound.
+ * Otherwise the slow requests would drop out of the window the hedge delay comes from, and
+ * the delay would drift down until every request was hedged.
+ */
+public final class RequestHedger {
+
+    /**
+     * How a race ended. {@code response} is the winning answer, or null if every request that
+     * was sent failed; {@code hedged} tells whether the backup was sent at all.
+     */
+    record Outcome(HttpResponse<String> response, boolean hedged, boolean backupWon) {}
+
+    public record Stats(long requests, long hedged, long primaryWins, long backupWins, long failures) {}
+
+    private static final int MAX_BACKUPS_IN_FLIGHT = 1;
+    private static final AtomicInteger backupsInFlight = new AtomicInteger();
+    private static final Map<ModelManager.ModelTier, long[]> stats = new EnumMap<>(ModelManager.ModelTier.class);
+    private static final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "Ciel-RequestHedger");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private RequestHedger() {}
+
+    /**
+     * Sends {@code primary} now and {@code backup} once {@code hedgeAfter} has passed, if the
+     * primary has not answered by then and {@code budget} still allows it. Never completes
+     * exceptionally. With {@code hedgeAfter} null this is just the primary request.
+     */
+    static CompletableFuture<Outcome> race(ModelManager.ModelTier tier, CircuitBreaker primaryBreaker,
+                                           Supplier<CompletableFuture<HttpResponse<String>>> primary,
+                                           Supplier<CompletableFuture<HttpResponse<String>>> backup,
+                                           Duration hedgeAfter, BooleanSupplier budget) {
+        Race race = new Race(tier, primaryBreaker);
+        race.primaryStart = System.nanoTime();
+        race.primary = primary.get();
+        race.primary.whenComplete((response, ex) -> race.settle(true, response, ex));
+        if (hedgeAfter != null) {
+            race.timer = timer.schedule(() -> race.hedge(backup, budget), hedgeAfter.toMillis(), TimeUnit.MILLISECONDS);
+        }
+        return race.result;
+    }
+
+    static Map<ModelManager.ModelTier, Stats> getStats() {
+        Map<ModelManager.ModelTier, Stats> snapshot = new EnumMap<>(ModelManager.ModelTier.class);
+        synchronized (stats) {
+            stats.forEach((tier, c) -> snapshot.put(tier, new Stats(c[0], c[1], c[2], c[3], c[4])));
+        }
+        return snapshot;
+    }
+
+    private static void count(ModelManager.ModelTier tier, boolean hedged, int outcomeIndex) {
+        long[] snapshot;
+        synchronized (stats) {
+            long[] c = stats.computeIfAbsent(tier, t -> new long[5]);
+            c[0]++;
+            if (hedged) c[1]++;
+            c[outcomeIndex]++;
+            snapshot = c.clone();
+        }
+        // Only hedged races change the picture, and they are the slowest tenth
+        if (hedged) {
+            System.out.println("Ciel Debug: " + tier + " hedging so far: " + snapshot[1] + " of " + snapshot[0] + " requests hedged; primary won "
+                    + snapshot[2] + ", local core won " + snapshot[3] + ", both failed " + snapshot[4] + ".");
+        }
+    }
+
+    private static final class Race {
+        final ModelManager.ModelTier tier;
+        final CircuitBreaker primaryBreaker;
+        final CompletableFuture<Outcome> result = new CompletableFuture<>();
+        long primaryStart;
+        CompletableFuture<HttpResponse<String>> primary;
+        CompletableFuture<HttpResponse<String>> backup;
+        ScheduledFuture<?> timer;
+        int failedLegs = 0;
+
+        Race(ModelManager.ModelTier tier, CircuitBreaker primaryBreaker) {
+            this.tier = tier;
+            this.primaryBreaker = primaryBreaker;
+        }
+
+        synchronized void hedge(Supplier<CompletableFuture<HttpResponse<String>>> send, BooleanSupplier budget) {
+            if (result.isDone() || !budget.getAsBoolean()) return;
+            if (backupsInFlight.incrementAndGet() > MAX_BACKUPS_IN_FLIGHT) {
+                backupsInFlight.decrementAndGet();
+                return;
+            }
+            System.out.println("Ciel Debug: " + tier + " is slower than usual. Hedging with the local fallback core.");
+            backup = send.get();
+            backup.whenComplete((response, ex) -> {
+                backupsInFlight.decrementAndGet();
+                settle(false, response, ex);
+            });
+        }
+
+        synchronized void settle(boolean fromPrimary, HttpResponse<String> response, Throwable ex) {
+            if (result.isDone()) return;
+            boolean hedged = backup != null;
+            if (ex == null && response != null && response.statusCode() == 200) {
+                if (timer != null) timer.cancel(false);
+                if (fromPrimary) {
+                    if (backup != null) backup.cancel(true);
+                } else if (primary.cancel(true)) {
+                    primaryBreaker.recordLowerBound(System.nanoTime() - primaryStart);
+                }
+                count(tier, hedged, fromPrimary ? 2 : 3);
+                if (!fromPrimary) System.out.println("Ciel Debug: Local fallback core answered first; " + tier + " request cancelled.");
+                result.complete(new Outcome(response, hedged, !fromPrimary));
+                return;
+            }
+            failedLegs++;
+            // A failed primary before any hedge ends the race; the caller runs its usual fallback
+            if (failedLegs >= (hedged ? 2 : 1)) {
+                if (timer != null) timer.cancel(false);
+                count(tier, hedged, 4);
+                result.complete(new Outcome(null, hedged, false));
+            }
+        }
+    }
+}
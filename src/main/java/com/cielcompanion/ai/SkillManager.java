@@ -24,6 +24,11 @@ public class SkillManager {
 
     private static final Path SKILLS_DIR = Paths.get(System.getProperty("user.dir"), "skills");
 
+    // skill_name of every metadata file, in directory order. matchSkill runs on every utterance,
+    // so the JSON is only re-read when the directory changes (skills are added or removed).
+    private static volatile List<String> skillNames;
+    private static volatile long skillNamesStamp = Long.MIN_VALUE;
+
     static {
         try {
             Files.createDirectories(SKILLS_DIR);
@@ -54,6 +59,7 @@ public class SkillManager {
             meta.addProperty("created_at", System.currentTimeMillis());
             
             Files.writeString(SKILLS_DIR.resolve(safeName + ".json"), meta.toString());
+            invalidateSkillNames();
 
             System.out.println("Ciel Debug: New Skill Assimilated -> " + safeName);
         } catch (Exception e) {
@@ -77,6 +83,7 @@ public class SkillManager {
                 Files.deleteIfExists(SKILLS_DIR.resolve(exactSkillName + ".py"));
                 Files.deleteIfExists(SKILLS_DIR.resolve(exactSkillName + ".bat"));
             }
+            invalidateSkillNames();
             System.out.println("Ciel Debug: Pruned obsolete skill -> " + exactSkillName);
         } catch (Exception e) {
             System.err.println("Ciel Error: Failed to prune skill.");
@@ -134,26 +141,42 @@ public class SkillManager {
     }
 
     public static String matchSkill(String input) {
-        File folder = SKILLS_DIR.toFile();
         String lowerInput = input.toLowerCase().replace("the ", "").trim(); 
         
+        for (String rawName : getSkillNames()) {
+            String spacedName = rawName.replace("_", " ");
+            
+            if (lowerInput.contains(spacedName) || lowerInput.contains(rawName)) {
+                return rawName; 
+            }
+        }
+        return null;
+    }
+
+    private static List<String> getSkillNames() {
+        File folder = SKILLS_DIR.toFile();
+        long stamp = folder.lastModified();
+        List<String> cached = skillNames;
+        if (cached != null && stamp == skillNamesStamp) return cached;
+
+        List<String> names = new ArrayList<>();
         File[] metaFiles = folder.listFiles((dir, name) -> name.endsWith(".json"));
         if (metaFiles != null) {
             for (File file : metaFiles) {
                 try {
                     JsonObject meta = JsonParser.parseString(Files.readString(file.toPath())).getAsJsonObject();
-                    if (!meta.has("skill_name")) continue;
-
-                    String rawName = meta.get("skill_name").getAsString();
-                    String spacedName = rawName.replace("_", " ");
-                    
-                    if (lowerInput.contains(spacedName) || lowerInput.contains(rawName)) {
-                        return rawName; 
-                    }
+                    if (meta.has("skill_name")) names.add(meta.get("skill_name").getAsString());
                 } catch (Exception ignored) {}
             }
         }
-        return null;
+        skillNames = List.copyOf(names);
+        // A change within the timestamp's resolution would look identical, so a fresh stamp is re-checked next time
+        skillNamesStamp = System.currentTimeMillis() - stamp > 2000 ? stamp : Long.MIN_VALUE;
+        return skillNames;
+    }
+
+    private static void invalidateSkillNames() {
+        skillNames = null;
     }
 
     public static void executeSkill(String exactSkillName, String arguments, Runnable onComplete) {
@@ -0,0 +1,153 @@
+package com.cielcompanion.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Single-producer / single-consumer ring of fixed-size audio frames. The capture thread
+ * writes, the recognizer thread reads; neither ever takes a lock. When the recognizer
+ * falls a full ring behind, new frames are dropped (overrun) rather than blocking capture,
+ * so the worst-case capture-to-recognizer delay is capacity x frame duration. A producer
+ * that can afford to wait (file replay) uses {@link #put} instead and never drops. The reader
+ * finding the ring empty is normal (it is simply ahead of capture); only a wait longer than
+ * one frame period, or a read that times out, counts as an underrun.
+ */
+final class AudioRingBuffer {
+
+    private final byte[][] frames;
+    private final int[] lengths;
+    private final long[] captureNanos;
+    private final int mask;
+    private final long framePeriodNanos;
+
+    // head = next slot to read, tail = next slot to write; only ever increase
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong overruns = new AtomicLong();
+    private final AtomicLong underruns = new AtomicLong();
+    private volatile Thread waitingConsumer;
+    private volatile Thread waitingProducer;
+
+    /**
+     * @param capacity         number of frames, rounded up to a power of two
+     * @param framePeriodNanos how much audio one frame holds; waits longer than this are underruns
+     */
+    AudioRingBuffer(int capacity, int frameBytes, long framePeriodNanos) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.frames = new byte[size][frameBytes];
+        this.lengths = new int[size];
+        this.captureNanos = new long[size];
+        this.mask = size - 1;
+        this.framePeriodNanos = framePeriodNanos;
+    }
+
+    int capacity() {
+        return frames.length;
+    }
+
+    /** Frames waiting to be read. */
+    int size() {
+        return (int) (tail.get() - head.get());
+    }
+
+    /** Producer side. Never blocks; returns false and counts an overrun when the ring is full. */
+    boolean offer(byte[] src, int length, long capturedAtNanos) {
+        long t = tail.get();
+        if (t - head.get() >= frames.length) {
+            overruns.incrementAndGet();
+            return false;
+        }
+        int slot = (int) (t & mask);
+        int len = Math.min(length, frames[slot].length);
+        System.arraycopy(src, 0, frames[slot], 0, len);
+        lengths[slot] = len;
+        captureNanos[slot] = capturedAtNanos;
+        tail.set(t + 1);
+
+        Thread consumer = waitingConsumer;
+        if (consumer != null) LockSupport.unpark(consumer);
+        return true;
+    }
+
+    /**
+     * Producer side for sources that can be held back: waits up to {@code timeoutMs} for room
+     * instead of dropping the frame.
+     * @return false if the ring was still full when the time ran out (nothing is counted)
+     */
+    boolean put(byte[] src, int length, long capturedAtNanos, long timeoutMs) {
+        if (tail.get() - head.get() >= frames.length) {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+            waitingProducer = Thread.currentThread();
+            try {
+                while (tail.get() - head.get() >= frames.length) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0 || Thread.currentThread().isInterrupted()) return false;
+                    LockSupport.parkNanos(this, remaining);
+                }
+            } finally {
+                waitingProducer = null;
+            }
+        }
+        return offer(src, length, capturedAtNanos);
+    }
+
+    /**
+     * Consumer side. Copies the oldest frame into {@code dst} and its capture time into
+     * {@code capturedAtOut[0]}, waiting up to {@code timeoutMs} for one to arrive.
+     * @return bytes copied, or -1 if nothing arrived in time
+     */
+    int poll(byte[] dst, long[] capturedAtOut, long timeoutMs) {
+        long h = head.get();
+        if (h == tail.get()) {
+            long waitStart = System.nanoTime();
+            long deadline = waitStart + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+            waitingConsumer = Thread.currentThread();
+            try {
+                while (h == tail.get()) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0 || Thread.currentThread().isInterrupted()) {
+                        underruns.incrementAndGet();
+                        return -1;
+                    }
+                    LockSupport.parkNanos(this, remaining);
+                }
+            } finally {
+                waitingConsumer = null;
+            }
+            // The next frame was due within a frame period of the read; anything longer is a stall
+            if (System.nanoTime() - waitStart > framePeriodNanos) underruns.incrementAndGet();
+        }
+        int slot = (int) (h & mask);
+        int len = lengths[slot];
+        System.arraycopy(frames[slot], 0, dst, 0, len);
+        capturedAtOut[0] = captureNanos[slot];
+        head.set(h + 1);
+        wakeProducer();
+        return len;
+    }
+
+    /** Drops everything queued; consumer side only (e.g. after the microphone was rebuilt). */
+    void clear() {
+        head.set(tail.get());
+        wakeProducer();
+    }
+
+    /** Frames the consumer has taken (or cleared) since the ring was created. */
+    long framesRead() {
+        return head.get();
+    }
+
+    private void wakeProducer() {
+        Thread producer = waitingProducer;
+        if (producer != null) LockSupport.unpark(producer);
+    }
+
+    long getOverruns() {
+        return overruns.get();
+    }
+
+    long getUnderruns() {
+        return underruns.get();
+    }
+}
@@ -0,0 +1,45 @@
+package com.cielcompanion.service;
+
+import javax.sound.sampled.AudioFormat;
+
+/**
+ * Where {@link VoiceListener} gets its audio from: the live microphone in normal use, a
+ * WAV file when the voice pipeline is replayed headless. Every source delivers the format
+ * the recognizer expects, 16 kHz 16-bit signed little-endian mono.
+ */
+public interface AudioSource extends AutoCloseable {
+
+    AudioFormat FORMAT = new AudioFormat(16000, 16, 1, true, false);
+
+    /** Acquires the underlying device or file. Returns false if nothing usable was found. */
+    boolean open();
+
+    /**
+     * Blocks until audio is available and copies it into {@code buffer}.
+     * @return bytes read, 0 if the source is currently stopped, or -1 once it is exhausted
+     */
+    int read(byte[] buffer, int offset, int length);
+
+    boolean isOpen();
+
+    /** False while an open source delivers nothing (a stopped line); reads then return at once. */
+    boolean isActive();
+
+    /** True while the source is open but has no device yet (e.g. no microphone plugged in). */
+    default boolean isAwaitingDevice() {
+        return false;
+    }
+
+    /**
+     * True for sources that can be held back without losing audio (file replay). Capture then
+     * waits for room in the ring instead of dropping frames the way it must for a live line.
+     */
+    default boolean isFinite() {
+        return false;
+    }
+
+    String describe();
+
+    @Override
+    void close();
+}
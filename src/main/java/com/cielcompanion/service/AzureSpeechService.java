@@ -9,14 +9,21 @@ import com.microsoft.cognitiveservices.speech.*;
 import com.microsoft.cognitiveservices.speech.audio.*;
 
 import javax.sound.sampled.*;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.net.HttpURLConnection;
 import java.net.URL;
-import java.nio.charset.StandardCharsets;
-import java.util.Base64;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 
 public class AzureSpeechService {
@@ -35,7 +42,26 @@ public class AzureSpeechService {
     
     private static Clip activeClip = null;
     private static SpeechSynthesizer activeSynthesizer = null;
-    private static final AtomicReference<Process> activeProcess = new AtomicReference<>();
+    private static final long PROGRESS_INTERVAL_MS = 250;
+
+    // Synthesizers rendering look-ahead chunks while another line is still playing
+    private static final Set<SpeechSynthesizer> preparingSynthesizers = ConcurrentHashMap.newKeySet();
+
+    // Optional packed caches (azure.speech.cacheArchive); null when loose WAV files are used
+    private static VoiceCacheArchive voiceArchive = null;
+    private static VoiceCacheArchive dndVoiceArchive = null;
+
+    /**
+     * Audio rendered ahead of playback. Static lines point at their voice cache file or
+     * carry raw PCM from the packed archive ({@code pcmFormat} set); dynamic lines carry
+     * the RIFF/WAV bytes returned by the synthesizer.
+     */
+    public record SynthesizedAudio(File file, byte[] audioData, javax.sound.sampled.AudioFormat pcmFormat) {}
+
+    private record Preloaded(String path, SynthesizedAudio audio) {}
+
+    // The static line most recently preloaded (usually a speculated confirmation), decoded and ready to play
+    private static final AtomicReference<Preloaded> preloaded = new AtomicReference<>();
 
     public static void initialize() {
         String key = Settings.getAzureSpeechKey();
@@ -48,6 +74,9 @@ public class AzureSpeechService {
                 
                 new File(CACHE_DIR_PATH).mkdirs();
                 new File(DND_CACHE_DIR_PATH).mkdirs();
+                if (Settings.isVoiceCacheArchiveEnabled() && voiceArchive == null) {
+                    openArchives();
+                }
                 
                 isInitialized = true;
                 System.out.println("[Azure Init] Service initialized.");
@@ -75,15 +104,98 @@ public class AzureSpeechService {
         
         String safeStyle = (style == null || style.isBlank() || style.equalsIgnoreCase("default")) ? "default" : style;
         String safeLang = (langCode == null || langCode.isBlank()) ? "ja-JP" : langCode;
-        
+
+        File cachedFile = resolveCacheFile(key, safeStyle, safeLang);
+        VoiceCacheArchive archive = resolveArchive(safeLang);
+        return (archive != null && archive.contains(cachedFile.getName())) || cachedFile.exists();
+    }
+
+    /**
+     * Loads a static line's cached audio into memory, decoded, so the following {@link #speak}
+     * of that line plays it without touching the disk. Only the most recent line is held.
+     * Never synthesizes anything.
+     * @return true if the line is cached
+     */
+    public static boolean preloadCached(String key, String style, String langCode) {
+        if (!isInitialized || isDynamicKey(key)) return false;
+
+        String safeStyle = (style == null || style.isBlank() || style.equalsIgnoreCase("default")) ? "default" : style;
+        String safeLang = (langCode == null || langCode.isBlank()) ? "ja-JP" : langCode;
+
+        File cachedFile = resolveCacheFile(key, safeStyle, safeLang);
+        Optional<SynthesizedAudio> cached = lookupCached(cachedFile, safeLang);
+        if (cached.isEmpty()) return false;
+        SynthesizedAudio audio = cached.get();
+        if (audio.file() != null) {
+            try (javax.sound.sampled.AudioInputStream in = AudioSystem.getAudioInputStream(audio.file())) {
+                audio = new SynthesizedAudio(null, in.readAllBytes(), in.getFormat());
+            } catch (Exception e) {
+                return true; // Still playable straight from the file
+            }
+        }
+        preloaded.set(new Preloaded(cachedFile.getPath(), audio));
+        return true;
+    }
+
+    private static void openArchives() {
+        try {
+            voiceArchive = VoiceCacheArchive.open(new File(CACHE_DIR_PATH));
+            dndVoiceArchive = VoiceCacheArchive.open(new File(DND_CACHE_DIR_PATH));
+        } catch (Exception e) {
+            System.err.println("[Azure Init] Voice cache archive unavailable, using loose WAV files: " + e.getMessage());
+            voiceArchive = null;
+            dndVoiceArchive = null;
+            return;
+        }
+        // Loose files from before the archive was enabled are packed in the background
+        CompletableFuture.runAsync(() -> {
+            voiceArchive.migrateDirectory(new File(CACHE_DIR_PATH));
+            dndVoiceArchive.migrateDirectory(new File(DND_CACHE_DIR_PATH));
+        });
+    }
+
+    private static VoiceCacheArchive resolveArchive(String safeLang) {
+        return safeLang.equalsIgnoreCase("en-US") ? dndVoiceArchive : voiceArchive;
+    }
+
+    /** Finds a static line in the packed archive first, then as a loose file. */
+    private static Optional<SynthesizedAudio> lookupCached(File cachedFile, String safeLang) {
+        Preloaded ready = preloaded.get();
+        if (ready != null && ready.path().equals(cachedFile.getPath()) && preloaded.compareAndSet(ready, null)) {
+            return Optional.of(ready.audio());
+        }
+        VoiceCacheArchive archive = resolveArchive(safeLang);
+        if (archive != null) {
+            Optional<VoiceCacheArchive.Entry> entry = archive.getEntry(cachedFile.getName());
+            Optional<byte[]> pcm = archive.readPcm(cachedFile.getName());
+            if (entry.isPresent() && pcm.isPresent()) {
+                return Optional.of(new SynthesizedAudio(null, pcm.get(), entry.get().format()));
+            }
+        }
+        return cachedFile.exists() ? Optional.of(new SynthesizedAudio(cachedFile, null, null)) : Optional.empty();
+    }
+
+    /** Moves a freshly generated WAV into the archive, if one is open. */
+    private static Optional<SynthesizedAudio> storeGenerated(File cachedFile, String safeLang) {
+        VoiceCacheArchive archive = resolveArchive(safeLang);
+        if (archive != null) {
+            try {
+                archive.put(cachedFile.getName(), cachedFile);
+                cachedFile.delete();
+            } catch (Exception e) {
+                System.err.println("Ciel Warning: Could not pack " + cachedFile.getName() + " into voice archive: " + e.getMessage());
+            }
+        }
+        return lookupCached(cachedFile, safeLang);
+    }
+
+    private static File resolveCacheFile(String key, String safeStyle, String safeLang) {
         boolean isDndContent = safeLang.equalsIgnoreCase("en-US");
         String targetCacheDir = isDndContent ? DND_CACHE_DIR_PATH : CACHE_DIR_PATH;
 
         String suffix = safeLang.equalsIgnoreCase("ja-JP") ? "" : "_" + safeLang;
         String safeFilename = key.replaceAll("[^a-zA-Z0-9._-]", "_") + "_" + safeStyle + suffix + ".wav";
-        File cachedFile = new File(targetCacheDir, safeFilename);
-
-        return cachedFile.exists();
+        return new File(targetCacheDir, safeFilename);
     }
     
     public static void stopAllAudio() {
@@ -99,10 +211,12 @@ public class AzureSpeechService {
             } catch (Exception ignored) {}
             activeSynthesizer = null;
         }
-        Process p = activeProcess.get();
-        if (p != null && p.isAlive()) {
-            p.destroyForcibly();
+        for (SpeechSynthesizer preparing : preparingSynthesizers) {
+            try {
+                preparing.StopSpeakingAsync().get(2, java.util.concurrent.TimeUnit.SECONDS);
+            } catch (Exception ignored) {}
         }
+        FallbackSpeechWorker.stopCurrent();
     }
 
     public static synchronized boolean speak(String text, String key, String style, String pitch) {
@@ -118,72 +232,155 @@ public class AzureSpeechService {
         String safePitch = (pitch == null || pitch.isBlank()) ? "+0%" : pitch;
         String safeLang = (langCode == null || langCode.isBlank()) ? "ja-JP" : langCode;
         
-        boolean isDndContent = safeLang.equalsIgnoreCase("en-US");
-        String targetCacheDir = isDndContent ? DND_CACHE_DIR_PATH : CACHE_DIR_PATH;
-
         if (!isDynamicKey(key)) {
-            String suffix = safeLang.equalsIgnoreCase("ja-JP") ? "" : "_" + safeLang;
-            String safeFilename = key.replaceAll("[^a-zA-Z0-9._-]", "_") + "_" + safeStyle + suffix + ".wav";
-            File cachedFile = new File(targetCacheDir, safeFilename);
+            File cachedFile = resolveCacheFile(key, safeStyle, safeLang);
 
-            if (cachedFile.exists()) {
-                System.out.println("[Azure TTS] Cache hit (Static): " + safeFilename);
-                return playWav(cachedFile, key);
+            Optional<SynthesizedAudio> cached = lookupCached(cachedFile, safeLang);
+            if (cached.isPresent()) {
+                System.out.println("[Azure TTS] Cache hit (Static): " + cachedFile.getName());
+                return playAudio(cached.get(), key);
             }
 
-            long estimatedSeconds = (SpeechService.estimateSpeechDuration(text) / 1000) + 1;
-            if (!AzureUsageTracker.canSpeak(estimatedSeconds)) {
-                System.out.println("[Azure TTS] Quota exceeded. Cannot generate new static file.");
-                return false;
+            try (AzureUsageTracker.Reservation quota = reserveQuota(text, AzureUsageTracker.Priority.INTERACTIVE)) {
+                if (quota == null) {
+                    System.out.println("[Azure TTS] Quota exceeded. Cannot generate new static file.");
+                    return false;
+                }
+                if (!generateFile(text, safeStyle, safePitch, safeLang, cachedFile)) return false;
             }
-
-            return generateAndPlayFile(text, safeStyle, safePitch, safeLang, cachedFile, key);
+            Optional<SynthesizedAudio> generated = storeGenerated(cachedFile, safeLang);
+            return generated.isPresent() && playAudio(generated.get(), key);
             
         } else {
-            long estimatedSeconds = (SpeechService.estimateSpeechDuration(text) / 1000) + 1;
-            if (!AzureUsageTracker.canSpeak(estimatedSeconds)) {
-                return false;
+            try (AzureUsageTracker.Reservation quota = reserveQuota(text, AzureUsageTracker.Priority.INTERACTIVE)) {
+                if (quota == null) {
+                    return false;
+                }
+                return streamDirectly(text, safeStyle, safePitch, safeLang, key);
             }
-            
-            return streamDirectly(text, safeStyle, safePitch, safeLang, key);
         }
     }
 
-    private static boolean generateAndPlayFile(String text, String style, String pitch, String lang, File destination, String key) {
+    /**
+     * Renders a line without playing it, so the speech pipeline can synthesize the next
+     * chunk while the current one is still audible. Static keys are written into the voice
+     * cache. Dynamic lines are only rendered to memory when {@code renderDynamic} is set;
+     * otherwise they are left for {@link #speak} to stream, which starts audio sooner.
+     */
+    public static Optional<SynthesizedAudio> synthesize(String text, String key, String style, String pitch, String langCode, boolean renderDynamic) {
+        if (!isInitialized) return Optional.empty();
+
+        String safeStyle = (style == null || style.isBlank() || style.equalsIgnoreCase("default")) ? "default" : style;
+        String safePitch = (pitch == null || pitch.isBlank()) ? "+0%" : pitch;
+        String safeLang = (langCode == null || langCode.isBlank()) ? "ja-JP" : langCode;
+
+        if (!isDynamicKey(key)) {
+            File cachedFile = resolveCacheFile(key, safeStyle, safeLang);
+            Optional<SynthesizedAudio> cached = lookupCached(cachedFile, safeLang);
+            if (cached.isPresent()) {
+                return cached;
+            }
+
+            // Ahead-of-time work stays out of the interactive reserve; if it is refused here the
+            // line is simply synthesized by speak() at playback time instead.
+            try (AzureUsageTracker.Reservation quota = reserveQuota(text, AzureUsageTracker.Priority.BACKGROUND)) {
+                if (quota == null || !generateFile(text, safeStyle, safePitch, safeLang, cachedFile)) {
+                    return Optional.empty();
+                }
+            }
+            return storeGenerated(cachedFile, safeLang);
+        }
+
+        if (!renderDynamic) return Optional.empty();
+
+        AzureUsageTracker.Reservation quota = reserveQuota(text, AzureUsageTracker.Priority.BACKGROUND);
+        if (quota == null) {
+            return Optional.empty();
+        }
+
+        // A null AudioConfig keeps the rendered audio in the result instead of the speaker
+        SpeechSynthesizer synthesizer = new SpeechSynthesizer(config, (AudioConfig) null);
+        preparingSynthesizers.add(synthesizer);
+        try (quota; SpeechSynthesisResult result = synthesizer.SpeakSsml(buildSsml(text, safeStyle, safePitch, safeLang))) {
+            if (result.getReason() == ResultReason.SynthesizingAudioCompleted) {
+                byte[] audioData = result.getAudioData();
+                AzureUsageTracker.addUsage(Math.max(1, audioData.length / 32000), text.length());
+                System.out.println("[Azure TTS] Pre-rendered dynamic chunk (" + audioData.length + " bytes).");
+                return Optional.of(new SynthesizedAudio(null, audioData, null));
+            }
+        } catch (Exception e) {
+            System.err.println("Ciel Warning: Azure pre-render failed: " + e.getMessage());
+        } finally {
+            preparingSynthesizers.remove(synthesizer);
+            synthesizer.close();
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Plays audio produced by {@link #synthesize}. Holds the same lock as {@link #speak}
+     * so pre-rendered and streamed lines never overlap.
+     */
+    public static synchronized boolean play(SynthesizedAudio audio, String key) {
+        return playAudio(audio, key);
+    }
+
+    private static boolean playAudio(SynthesizedAudio audio, String key) {
+        if (audio.file() != null) {
+            System.out.println("[Azure TTS] Playing prepared file: " + audio.file().getName());
+            return playWav(audio.file(), key);
+        }
+        if (audio.pcmFormat() != null) {
+            return playPcm(audio.pcmFormat(), audio.audioData(), key);
+        }
+        try (javax.sound.sampled.AudioInputStream audioStream = AudioSystem.getAudioInputStream(new ByteArrayInputStream(audio.audioData()))) {
+            return playStream(audioStream, key);
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private static boolean generateFile(String text, String style, String pitch, String lang, File destination) {
+        // Render into a side file so a half-written WAV never looks like a cache hit
+        File partial = new File(destination.getParentFile(), destination.getName() + ".part");
         AudioConfig fileOutput = null;
+        SpeechSynthesizer synthesizer = null;
         try {
             System.out.println("[Azure TTS] Generating new static file: " + destination.getName());
             
-            fileOutput = AudioConfig.fromWavFileOutput(destination.getAbsolutePath());
-            activeSynthesizer = new SpeechSynthesizer(config, fileOutput);
+            fileOutput = AudioConfig.fromWavFileOutput(partial.getAbsolutePath());
+            synthesizer = new SpeechSynthesizer(config, fileOutput);
+            preparingSynthesizers.add(synthesizer);
 
             String ssml = buildSsml(text, style, pitch, lang);
-            SpeechSynthesisResult result = activeSynthesizer.SpeakSsml(ssml);
+            SpeechSynthesisResult result = synthesizer.SpeakSsml(ssml);
 
             if (result.getReason() == ResultReason.SynthesizingAudioCompleted) {
                 long durationSeconds = Math.max(1, result.getAudioData().length / 32000);
-                AzureUsageTracker.addUsage(durationSeconds);
+                AzureUsageTracker.addUsage(durationSeconds, text.length());
                 result.close();
-                activeSynthesizer.close();
+                preparingSynthesizers.remove(synthesizer);
+                synthesizer.close();
                 fileOutput.close(); 
-                activeSynthesizer = null;
+                synthesizer = null;
 
-                return playWav(destination, key);
+                Files.move(partial.toPath(), destination.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                return true;
             } else if (result.getReason() == ResultReason.Canceled) {
                 SpeechSynthesisCancellationDetails cancellation = SpeechSynthesisCancellationDetails.fromResult(result);
                 if (cancellation.getReason() == CancellationReason.Error) {
                     System.out.println("Ciel Error: Azure File Error: " + cancellation.getErrorDetails());
                 }
-                if (destination.exists()) destination.delete();
             }
             result.close();
         } catch (Exception e) {
-            if (destination.exists()) destination.delete();
+            System.err.println("Ciel Warning: Azure file generation failed: " + e.getMessage());
         } finally {
-            if (activeSynthesizer != null) {
-                activeSynthesizer.close();
-                activeSynthesizer = null;
+            if (synthesizer != null) {
+                preparingSynthesizers.remove(synthesizer);
+                synthesizer.close();
             }
+            if (partial.exists()) partial.delete();
         }
         return false; 
     }
@@ -197,12 +394,20 @@ public class AzureSpeechService {
             String ssml = buildSsml(text, style, pitch, lang);
             
             CielState.getCielGui().ifPresent(gui -> gui.setState(CielGui.GuiState.SPEAKING));
+
+            // The first synthesized chunk is what reaches the speaker
+            AtomicBoolean startPublished = new AtomicBoolean(false);
+            activeSynthesizer.Synthesizing.addEventListener((o, e) -> {
+                if (startPublished.compareAndSet(false, true)) {
+                    SpeechPlayback.publish(SpeechPlayback.Phase.STARTED, key, 0, -1);
+                }
+            });
             
             SpeechSynthesisResult result = activeSynthesizer.SpeakSsml(ssml);
 
             if (result.getReason() == ResultReason.SynthesizingAudioCompleted) {
                 long durationSeconds = Math.max(1, result.getAudioData().length / 32000);
-                AzureUsageTracker.addUsage(durationSeconds);
+                AzureUsageTracker.addUsage(durationSeconds, text.length());
                 result.close();
                 return true;
             } else if (result.getReason() == ResultReason.Canceled) {
@@ -213,27 +418,7 @@ public class AzureSpeechService {
                     System.out.println("Ciel Warning: Azure Stream canceled internally. Reason: " + cancellation.getErrorDetails());
                     System.out.println("Ciel Debug: Executing clean SAPI Fallback (Microsoft Haruka Desktop) for string: " + text);
                     
-                    String safeText = text.replace("'", "''");
-                    String psScript = "$OutputEncoding = [Console]::OutputEncoding = [System.Text.Encoding]::UTF8; "
-                            + "Add-Type -AssemblyName System.Speech; "
-                            + "$s = New-Object System.Speech.Synthesis.SpeechSynthesizer; "
-                            + "$s.SetOutputToDefaultAudioDevice(); "
-                            + "try { $s.SelectVoice('Microsoft Haruka Desktop'); } catch { try { $s.SelectVoiceByHints('Female') } catch {} } "
-                            + "$s.Rate = 0; "
-                            + "$s.Speak('" + safeText + "'); "
-                            + "$s.Dispose();";
-                    
-                    String encodedCommand = Base64.getEncoder().encodeToString(psScript.getBytes(StandardCharsets.UTF_16LE));
-
-                    ProcessBuilder pb = new ProcessBuilder("pwsh.exe", "-NoProfile", "-NonInteractive", "-EncodedCommand", encodedCommand);
-                    try {
-                        Process p = pb.start();
-                        activeProcess.set(p);
-                        p.waitFor(15, TimeUnit.SECONDS);
-                    } catch (Exception ignored) {
-                    } finally {
-                        activeProcess.set(null);
-                    }
+                    FallbackSpeechWorker.speak(text, key);
                     
                     result.close();
                     return true; // We handled it with SAPI
@@ -255,6 +440,12 @@ public class AzureSpeechService {
         return false;
     }
 
+    /** Holds the estimated seconds for one synthesis; null when that priority's quota is spent. */
+    private static AzureUsageTracker.Reservation reserveQuota(String text, AzureUsageTracker.Priority priority) {
+        long estimatedSeconds = (SpeechService.estimateSpeechDuration(text) / 1000) + 1;
+        return AzureUsageTracker.reserve(estimatedSeconds, priority);
+    }
+
     private static String buildSsml(String text, String style, String pitch, String lang) {
         String currentVoiceName = CielVoiceManager.getActiveVoiceName();
         if (lang.equals("en-US") && currentVoiceName.contains("Nanami")) {
@@ -284,26 +475,73 @@ public class AzureSpeechService {
 
     private static boolean playWav(File file, String key) {
         try (javax.sound.sampled.AudioInputStream audioStream = AudioSystem.getAudioInputStream(file)) {
+            return playStream(audioStream, key);
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private static boolean playStream(javax.sound.sampled.AudioInputStream audioStream, String key) {
+        try {
             DataLine.Info info = new DataLine.Info(Clip.class, audioStream.getFormat());
             Clip clip = (Clip) AudioSystem.getLine(info);
             activeClip = clip; 
             clip.open(audioStream);
-            
+            return runClip(clip, key);
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /** Plays PCM read straight out of the mapped voice archive, with no file open. */
+    private static boolean playPcm(javax.sound.sampled.AudioFormat format, byte[] pcm, String key) {
+        try {
+            Clip clip = (Clip) AudioSystem.getLine(new DataLine.Info(Clip.class, format));
+            activeClip = clip;
+            clip.open(format, pcm, 0, pcm.length);
+            return runClip(clip, key);
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * Blocks until the clip's own STOP/CLOSE event instead of sleeping for its nominal
+     * length, publishing STARTED and PROGRESS along the way. The terminal event is left
+     * to {@link SpeechService}, which owns the utterance.
+     */
+    private static boolean runClip(Clip clip, String key) {
+        CountDownLatch stopped = new CountDownLatch(1);
+        clip.addLineListener(event -> {
+            if (event.getType() == LineEvent.Type.START) {
+                SpeechPlayback.publish(SpeechPlayback.Phase.STARTED, key, 0, clip.getMicrosecondLength() / 1000);
+            } else if (event.getType() == LineEvent.Type.STOP || event.getType() == LineEvent.Type.CLOSE) {
+                stopped.countDown();
+            }
+        });
+        try {
             CielState.getCielGui().ifPresent(gui -> gui.setState(CielGui.GuiState.SPEAKING));
             
-            clip.start();
             long durationMs = clip.getMicrosecondLength() / 1000;
-            Thread.sleep(durationMs + 200); 
+            clip.start();
+            while (!stopped.await(PROGRESS_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+                SpeechPlayback.publish(SpeechPlayback.Phase.PROGRESS, key, clip.getMicrosecondPosition() / 1000, durationMs);
+            }
+            // STOP fires when the buffer is consumed; let the device drain its last samples
+            clip.drain();
             
             clip.close();
             activeClip = null;
             return true;
         } catch (InterruptedException e) {
             System.out.println("Ciel Debug: Audio playback was intentionally interrupted/cancelled.");
+            clip.stop();
+            clip.close();
+            activeClip = null;
             Thread.currentThread().interrupt(); 
             return true; 
         } catch (Exception e) {
             return false;
         }
     }
-}
\ No newline at end of file
+}
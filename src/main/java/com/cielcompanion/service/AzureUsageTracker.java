@@ -4,78 +4,178 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.time.LocalDate;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.time.YearMonth;
 import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
+/**
+ * Tracks monthly Azure TTS usage in memory and checkpoints it to disk periodically.
+ * Synthesis threads only touch atomic counters; the properties file is rewritten by a
+ * background task (temp file + rename) so a crash mid-write never corrupts the count.
+ */
 public class AzureUsageTracker {
 
+    /** Interactive speech may dip into the reserved share of the quota; background work may not. */
+    public enum Priority { INTERACTIVE, BACKGROUND }
+
     private static final String USAGE_FILE = "azure_usage.properties";
     private static final String KEY_MONTH = "current_month";
     private static final String KEY_USAGE_SECONDS = "usage_seconds";
-    
+    private static final String KEY_USAGE_CHARACTERS = "usage_characters";
+    private static final long CHECKPOINT_INTERVAL_SECONDS = 30;
+
     // Default limit: 5 hours * 3600 seconds = 18000 seconds
-    private static long monthlyLimitSeconds = 18000;
+    private static volatile long monthlyLimitSeconds = 18000;
+    private static volatile int interactiveReservePercent = 10;
+
+    private static final AtomicReference<YearMonth> currentMonth = new AtomicReference<>();
+    private static final AtomicLong usedSeconds = new AtomicLong();
+    private static final AtomicLong usedCharacters = new AtomicLong();
+    // Seconds promised to syntheses that are still running
+    private static final AtomicLong reservedSeconds = new AtomicLong();
+    private static final AtomicBoolean dirty = new AtomicBoolean(false);
+
+    private static final ScheduledExecutorService checkpointer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "Ciel-AzureUsageCheckpoint");
+        t.setDaemon(true);
+        return t;
+    });
+
+    static {
+        loadCheckpoint();
+        checkpointer.scheduleWithFixedDelay(AzureUsageTracker::checkpoint,
+                CHECKPOINT_INTERVAL_SECONDS, CHECKPOINT_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(AzureUsageTracker::checkpoint, "Ciel-AzureUsageFlush"));
+    }
+
+    /**
+     * A hold on part of the quota for one synthesis. Release it once the synthesis is over;
+     * the actual usage is recorded separately through {@link #addUsage}.
+     */
+    public static final class Reservation implements AutoCloseable {
+        private final long seconds;
+        private final AtomicBoolean released = new AtomicBoolean(false);
+
+        private Reservation(long seconds) {
+            this.seconds = seconds;
+        }
+
+        public void release() {
+            if (released.compareAndSet(false, true)) {
+                reservedSeconds.addAndGet(-seconds);
+            }
+        }
+
+        @Override
+        public void close() {
+            release();
+        }
+    }
 
     public static void setLimit(long limitSeconds) {
         monthlyLimitSeconds = limitSeconds;
     }
 
+    public static void setInteractiveReservePercent(int percent) {
+        interactiveReservePercent = Math.max(0, Math.min(100, percent));
+    }
+
     /**
      * Checks if adding the estimated duration would exceed the monthly limit.
      */
-    public static synchronized boolean canSpeak(long estimatedDurationSeconds) {
+    public static boolean canSpeak(long estimatedDurationSeconds) {
+        return canSpeak(estimatedDurationSeconds, Priority.INTERACTIVE);
+    }
+
+    public static boolean canSpeak(long estimatedDurationSeconds, Priority priority) {
         ensureMonthConsistency();
-        long currentUsage = getCurrentUsage();
-        if (currentUsage + estimatedDurationSeconds > monthlyLimitSeconds) {
-            System.out.println("[Azure Tracker] Quota Limit Reached! Used: " + currentUsage + "s, Attempting: " + estimatedDurationSeconds + "s, Limit: " + monthlyLimitSeconds + "s");
+        long currentUsage = usedSeconds.get() + reservedSeconds.get();
+        long ceiling = ceilingFor(priority);
+        if (currentUsage + estimatedDurationSeconds > ceiling) {
+            System.out.println("[Azure Tracker] Quota Limit Reached (" + priority + ")! Used: " + currentUsage + "s, Attempting: " + estimatedDurationSeconds + "s, Limit: " + ceiling + "s");
             return false;
         }
         return true;
     }
 
+    /**
+     * Atomically checks the quota and holds the estimated seconds until the synthesis
+     * finishes, so concurrent syntheses cannot jointly overrun the limit.
+     * @return the reservation, or null if the quota for this priority is exhausted
+     */
+    public static Reservation reserve(long estimatedDurationSeconds, Priority priority) {
+        ensureMonthConsistency();
+        long ceiling = ceilingFor(priority);
+        while (true) {
+            long reserved = reservedSeconds.get();
+            long currentUsage = usedSeconds.get() + reserved;
+            if (currentUsage + estimatedDurationSeconds > ceiling) {
+                if (priority == Priority.INTERACTIVE) {
+                    System.out.println("[Azure Tracker] Quota Limit Reached! Used: " + currentUsage + "s, Attempting: " + estimatedDurationSeconds + "s, Limit: " + ceiling + "s");
+                }
+                return null;
+            }
+            if (reservedSeconds.compareAndSet(reserved, reserved + estimatedDurationSeconds)) {
+                return new Reservation(estimatedDurationSeconds);
+            }
+        }
+    }
+
     /**
      * Adds actual spoken duration to the tracker.
      */
-    public static synchronized void addUsage(long durationSeconds) {
+    public static void addUsage(long durationSeconds) {
+        addUsage(durationSeconds, 0);
+    }
+
+    public static void addUsage(long durationSeconds, long characters) {
         ensureMonthConsistency();
-        long current = getCurrentUsage();
-        saveUsage(current + durationSeconds);
-        System.out.println("[Azure Tracker] Usage updated: " + (current + durationSeconds) + "/" + monthlyLimitSeconds + " seconds.");
+        long total = usedSeconds.addAndGet(durationSeconds);
+        usedCharacters.addAndGet(characters);
+        dirty.set(true);
+        System.out.println("[Azure Tracker] Usage updated: " + total + "/" + monthlyLimitSeconds + " seconds.");
     }
 
-    private static void ensureMonthConsistency() {
-        Properties props = loadProperties();
-        String savedMonth = props.getProperty(KEY_MONTH, "");
-        String currentMonth = YearMonth.now().toString(); // Format: YYYY-MM
-
-        if (!savedMonth.equals(currentMonth)) {
-            System.out.println("[Azure Tracker] New month detected (" + currentMonth + "). Resetting quota.");
-            props.setProperty(KEY_MONTH, currentMonth);
-            props.setProperty(KEY_USAGE_SECONDS, "0");
-            saveProperties(props);
-        }
+    public static long getUsedSeconds() {
+        ensureMonthConsistency();
+        return usedSeconds.get();
     }
 
-    private static long getCurrentUsage() {
-        Properties props = loadProperties();
-        String val = props.getProperty(KEY_USAGE_SECONDS, "0");
-        try {
-            return Long.parseLong(val);
-        } catch (NumberFormatException e) {
-            return 0;
-        }
+    public static long getUsedCharacters() {
+        ensureMonthConsistency();
+        return usedCharacters.get();
     }
 
-    private static void saveUsage(long totalSeconds) {
-        Properties props = loadProperties();
-        // Ensure month is set correctly before saving
-        props.setProperty(KEY_MONTH, YearMonth.now().toString());
-        props.setProperty(KEY_USAGE_SECONDS, String.valueOf(totalSeconds));
-        saveProperties(props);
+    private static long ceilingFor(Priority priority) {
+        long limit = monthlyLimitSeconds;
+        if (priority == Priority.INTERACTIVE) return limit;
+        return limit - (limit * interactiveReservePercent / 100);
     }
 
-    private static Properties loadProperties() {
+    private static void ensureMonthConsistency() {
+        YearMonth now = YearMonth.now();
+        YearMonth saved = currentMonth.get();
+        if (!now.equals(saved) && currentMonth.compareAndSet(saved, now)) {
+            System.out.println("[Azure Tracker] New month detected (" + now + "). Resetting quota.");
+            usedSeconds.set(0);
+            usedCharacters.set(0);
+            dirty.set(true);
+            checkpointer.execute(AzureUsageTracker::checkpoint);
+        }
+    }
+
+    /* ------------------------------------------------------------------ */
+    /*  CHECKPOINTING                                                      */
+    /* ------------------------------------------------------------------ */
+    private static void loadCheckpoint() {
         Properties props = new Properties();
         File file = new File(USAGE_FILE);
         if (file.exists()) {
@@ -85,14 +185,49 @@ public class AzureUsageTracker {
                 e.printStackTrace();
             }
         }
-        return props;
+        try {
+            currentMonth.set(YearMonth.parse(props.getProperty(KEY_MONTH, YearMonth.now().toString())));
+        } catch (Exception e) {
+            currentMonth.set(YearMonth.now());
+        }
+        usedSeconds.set(parseLong(props.getProperty(KEY_USAGE_SECONDS, "0")));
+        usedCharacters.set(parseLong(props.getProperty(KEY_USAGE_CHARACTERS, "0")));
+        // Rolls the loaded counters over if the file is from an earlier month
+        ensureMonthConsistency();
     }
 
-    private static void saveProperties(Properties props) {
-        try (FileOutputStream fos = new FileOutputStream(USAGE_FILE)) {
-            props.store(fos, "Ciel Companion - Azure Usage Tracking");
+    /** Writes the counters to a temp file and renames it over the old one. No-op when unchanged. */
+    private static synchronized void checkpoint() {
+        if (!dirty.getAndSet(false)) return;
+
+        Properties props = new Properties();
+        props.setProperty(KEY_MONTH, currentMonth.get().toString());
+        props.setProperty(KEY_USAGE_SECONDS, String.valueOf(usedSeconds.get()));
+        props.setProperty(KEY_USAGE_CHARACTERS, String.valueOf(usedCharacters.get()));
+
+        File target = new File(USAGE_FILE);
+        File temp = new File(USAGE_FILE + ".tmp");
+        try {
+            try (FileOutputStream fos = new FileOutputStream(temp)) {
+                props.store(fos, "Ciel Companion - Azure Usage Tracking");
+                fos.getFD().sync();
+            }
+            try {
+                Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
         } catch (IOException e) {
-            e.printStackTrace();
+            dirty.set(true);
+            System.err.println("Ciel Error: Failed to checkpoint Azure usage: " + e.getMessage());
+        }
+    }
+
+    private static long parseLong(String val) {
+        try {
+            return Long.parseLong(val.trim());
+        } catch (NumberFormatException e) {
+            return 0;
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,125 @@
+package com.cielcompanion.service;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs queued commands one at a time. The recognizer side only calls {@link #offer}; a
+ * dispatcher thread takes entries from the {@link CommandQueue} whenever no command is busy
+ * and hands them to the {@link Handler} on the command executor. A CRITICAL entry does not
+ * wait: it cancels the running command, clears the queue and runs on its own executor, so a
+ * wedged command cannot hold it up.
+ *
+ * <p>Every dispatch and abort bumps the epoch. A command gets the epoch as its ticket and only
+ * acts, and releases the busy flag, while that ticket is still current.
+ */
+final class CommandDispatcher {
+
+    /** What {@link CommandService} plugs in; a stub in the queue replay. */
+    interface Handler {
+        /**
+         * Runs one command on a dispatcher executor. Must end with {@link #release} for the
+         * ticket, unless it hands that on to asynchronous work it started.
+         */
+        void execute(CommandQueue.Entry entry, long ticket);
+
+        /**
+         * Called after a CRITICAL entry aborted whatever was running, for the effects outside
+         * the dispatcher (speech, pending AI replies).
+         * @return false if the entry was only an interruption and needs no execution
+         */
+        boolean onCriticalAbort(CommandQueue.Entry entry);
+    }
+
+    static final int QUEUE_CAPACITY = 16;
+    static final long ADDRESSED_TTL_MS = 10_000;
+    static final long BACKGROUND_TTL_MS = 30_000;
+
+    private final CommandQueue queue = new CommandQueue(QUEUE_CAPACITY, ADDRESSED_TTL_MS, BACKGROUND_TTL_MS);
+    private final Handler handler;
+    private final ExecutorService commandExecutor = Executors.newSingleThreadExecutor();
+    // Critical commands get their own thread so a wedged normal command cannot hold them up
+    private final ExecutorService criticalExecutor = Executors.newSingleThreadExecutor();
+    private final AtomicBoolean isBusy = new AtomicBoolean(false);
+    private final AtomicLong epoch = new AtomicLong();
+    private final AtomicLong preempted = new AtomicLong();
+    private volatile Future<?> inFlight;
+
+    CommandDispatcher(Handler handler) {
+        this.handler = handler;
+        Thread dispatcher = new Thread(this::dispatchLoop, "Ciel-CommandDispatcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    /** Never waits; see {@link CommandQueue#offer}. */
+    boolean offer(String text, boolean hasWakeWord, boolean explicitSearch, CommandQueue.Priority priority) {
+        return queue.offer(text, hasWakeWord, explicitSearch, priority);
+    }
+
+    boolean isBusy() {
+        return isBusy.get();
+    }
+
+    boolean isAborted(long ticket) {
+        return epoch.get() != ticket;
+    }
+
+    /** Ends the command holding {@code ticket}; does nothing once it has been aborted. */
+    void release(long ticket) {
+        if (isAborted(ticket)) return;
+        isBusy.set(false);
+        queue.wakeUp();
+    }
+
+    /** Ticket of the command running now, for asynchronous work it starts. */
+    long currentTicket() {
+        return epoch.get();
+    }
+
+    CommandQueue.Stats getQueueStats() {
+        return queue.getStats();
+    }
+
+    long getPreemptedCount() {
+        return preempted.get();
+    }
+
+    private void dispatchLoop() {
+        while (true) {
+            CommandQueue.Entry entry;
+            try {
+                entry = queue.take(() -> !isBusy.get(), 1000);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (entry == null) continue;
+
+            if (entry.priority() == CommandQueue.Priority.CRITICAL) {
+                abortInFlight();
+                if (!handler.onCriticalAbort(entry)) continue;
+                long ticket = epoch.incrementAndGet();
+                isBusy.set(true);
+                criticalExecutor.submit(() -> handler.execute(entry, ticket));
+            } else {
+                long ticket = epoch.incrementAndGet();
+                isBusy.set(true);
+                inFlight = commandExecutor.submit(() -> handler.execute(entry, ticket));
+            }
+        }
+    }
+
+    private void abortInFlight() {
+        epoch.incrementAndGet();
+        Future<?> running = inFlight;
+        if (running != null && !running.isDone()) {
+            running.cancel(true);
+            preempted.incrementAndGet();
+        }
+        queue.clearPending();
+        isBusy.set(false);
+    }
+}
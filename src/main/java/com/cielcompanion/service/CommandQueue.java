@@ -0,0 +1,147 @@
+package com.cielcompanion.service;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Bounded, prioritised hand-off between the recognizer thread and command execution.
+ * {@link #offer} never waits, so the audio side can always submit and move on. CRITICAL
+ * entries (stop/cancel/shutdown) are served ahead of everything and even while a previous
+ * command is still running; the rest wait their turn and expire if they go stale.
+ */
+public class CommandQueue {
+
+    /** Declaration order is service order. */
+    public enum Priority { CRITICAL, ADDRESSED, BACKGROUND }
+
+    public record Entry(String text, boolean hasWakeWord, boolean explicitSearch,
+                        Priority priority, long enqueuedAt, long sequence) {}
+
+    public record Stats(int queued, long accepted, long rejected, long evicted, long expired) {}
+
+    private static final Comparator<Entry> SERVICE_ORDER =
+            Comparator.comparing(Entry::priority).thenComparingLong(Entry::sequence);
+
+    private final int capacity;
+    private final long addressedTtlMs;
+    private final long backgroundTtlMs;
+
+    private final PriorityQueue<Entry> entries = new PriorityQueue<>(SERVICE_ORDER);
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private long nextSequence = 0;
+
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+
+    public CommandQueue(int capacity, long addressedTtlMs, long backgroundTtlMs) {
+        this.capacity = capacity;
+        this.addressedTtlMs = addressedTtlMs;
+        this.backgroundTtlMs = backgroundTtlMs;
+    }
+
+    /**
+     * Queues a command without blocking. When full, the least important queued entry
+     * (lowest priority, then newest) makes room, unless the new entry ranks below it.
+     * @return false if the entry was rejected
+     */
+    public boolean offer(String text, boolean hasWakeWord, boolean explicitSearch, Priority priority) {
+        lock.lock();
+        try {
+            purgeExpired(System.currentTimeMillis());
+            Entry entry = new Entry(text, hasWakeWord, explicitSearch, priority, System.currentTimeMillis(), nextSequence++);
+            if (entries.size() >= capacity) {
+                Entry weakest = entries.stream().max(SERVICE_ORDER).orElseThrow();
+                if (SERVICE_ORDER.compare(entry, weakest) > 0) {
+                    rejected.incrementAndGet();
+                    return false;
+                }
+                entries.remove(weakest);
+                evicted.incrementAndGet();
+            }
+            entries.add(entry);
+            accepted.incrementAndGet();
+            changed.signalAll();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits for the next entry to run. CRITICAL entries are returned as soon as they are
+     * queued; anything else only once {@code idle} reports the previous command finished.
+     * @return the entry, or null on timeout
+     */
+    public Entry take(BooleanSupplier idle, long timeoutMs) throws InterruptedException {
+        long remaining = TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        lock.lock();
+        try {
+            while (true) {
+                purgeExpired(System.currentTimeMillis());
+                Entry head = entries.peek();
+                if (head != null && (head.priority() == Priority.CRITICAL || idle.getAsBoolean())) {
+                    return entries.poll();
+                }
+                if (remaining <= 0) return null;
+                remaining = changed.awaitNanos(remaining);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Re-checks waiting consumers, e.g. after the in-flight command released its busy flag. */
+    public void wakeUp() {
+        lock.lock();
+        try {
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Drops every non-critical entry (after an abort nothing said before it should still run). */
+    public void clearPending() {
+        lock.lock();
+        try {
+            entries.removeIf(e -> e.priority() != Priority.CRITICAL);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Stats getStats() {
+        lock.lock();
+        try {
+            return new Stats(entries.size(), accepted.get(), rejected.get(), evicted.get(), expired.get());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void purgeExpired(long now) {
+        Iterator<Entry> it = entries.iterator();
+        while (it.hasNext()) {
+            Entry e = it.next();
+            long ttl = switch (e.priority()) {
+                case CRITICAL -> Long.MAX_VALUE;
+                case ADDRESSED -> addressedTtlMs;
+                case BACKGROUND -> backgroundTtlMs;
+            };
+            if (now - e.enqueuedAt() > ttl) {
+                it.remove();
+                expired.incrementAndGet();
+                System.out.println("Ciel Debug: Dropping stale queued command: \"" + e.text() + "\"");
+            }
+        }
+    }
+}
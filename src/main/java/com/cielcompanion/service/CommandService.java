@@ -20,6 +20,7 @@ import com.cielcompanion.service.conversation.ConversationService;
 import com.cielcompanion.service.LineManager.DialogueLine;
 import com.cielcompanion.service.nlu.CommandAnalysis;
 import com.cielcompanion.service.nlu.Intent;
+import com.cielcompanion.service.nlu.IntentClassifier;
 import com.cielcompanion.service.nlu.IntentService;
 import com.cielcompanion.service.SystemMonitor.SystemMetrics;
 import com.cielcompanion.service.SystemMonitor.ProcessInfo;
@@ -43,13 +44,14 @@ import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
 
-public class CommandService {
+public class CommandService implements VoiceListener.CommandSink, CommandDispatcher.Handler {
 
     private static final Random random = new Random();
 
@@ -60,8 +62,20 @@ public class CommandService {
     private static final Object shutdownLock = new Object();
     private static final AtomicBoolean isShuttingDown = new AtomicBoolean(false);
 
-    private final ExecutorService commandExecutor = Executors.newSingleThreadExecutor();
-    private final AtomicBoolean isBusy = new AtomicBoolean(false);
+    // -----------------------------------------------------------------
+    //  Command queue: the recognizer only enqueues, the dispatcher runs
+    // -----------------------------------------------------------------
+    // No queued command waits longer than this, so no claimed speculation is needed for longer
+    private static final long CLAIMED_SPECULATION_TTL_NANOS = TimeUnit.MILLISECONDS.toNanos(CommandDispatcher.BACKGROUND_TTL_MS + 1_000);
+    private static final Pattern SHUTDOWN_PATTERN = Pattern.compile(".*(shut\\s*down|turn\\s*off|take\\s*down|took\\s*down|power\\s*off).*");
+    // Bare interjections that only abort whatever is in flight
+    private static final Pattern ABORT_PATTERN = Pattern.compile("^(stop|stop it|stop talking|cancel|cancel that|never ?mind|be quiet|quiet|enough|abort)$");
+
+    private final CommandDispatcher dispatcher;
+
+    private final IntentPrefetcher prefetcher;
+    // Speculations claimed when a command was queued, picked up again when it runs
+    private final Map<String, IntentPrefetcher.Speculation> claimedSpeculations = new ConcurrentHashMap<>();
 
     private final IntentService intentService;
     private final AppLauncherService appLauncherService;
@@ -105,6 +119,8 @@ public class CommandService {
         this.dndCampaignService = dndCampaignService;
         this.combatTrackerService = combatTrackerService;
         this.spellCheckService = spellCheckService;
+        this.prefetcher = new IntentPrefetcher(intentService, text -> ContextBuilder.buildActiveContext(loreService, text));
+        this.dispatcher = new CommandDispatcher(this);
     }
 
     private void handleDynamicPcControl(CommandAnalysis analysis) {
@@ -125,7 +141,28 @@ public class CommandService {
     }
 
     public boolean isBusy() {
-        return isBusy.get();
+        return dispatcher.isBusy();
+    }
+
+    public CommandQueue.Stats getQueueStats() {
+        return dispatcher.getQueueStats();
+    }
+
+    public long getPreemptedCount() {
+        return dispatcher.getPreemptedCount();
+    }
+
+    public IntentPrefetcher.Stats getPrefetchStats() {
+        return prefetcher.getStats();
+    }
+
+    public Optional<IntentClassifier.Stats> getClassifierStats() {
+        return intentService.getClassifierStats();
+    }
+
+    @Override
+    public void onPartialResult(String text) {
+        prefetcher.onPartial(text);
     }
 
     // NEW: Aggressive Failsafe STT Engine for garbled microphone input.
@@ -149,7 +186,7 @@ public class CommandService {
             "If it's just normal conversation, return: {\"confidence\": 0, \"intent\": \"UNKNOWN\"}";
 
         try {
-            String response = AIEngine.generateSilentLogic(activeText, prompt).join();
+            String response = AIEngine.generateSilentLogic(activeText, prompt).get(120, TimeUnit.SECONDS);
             if (response != null) {
                 int confidence = 0;
                 String intentStr = "UNKNOWN";
@@ -182,80 +219,150 @@ public class CommandService {
         return null;
     }
 
-    public void handleCommand(String originalText, boolean hasWakeWord, Runnable onComplete) {
-        if (originalText == null || originalText.isBlank()) {
-            if(onComplete != null) onComplete.run();
-            return;
-        }
+    /**
+     * Hands a recognised utterance to the command queue. Runs on the recognizer thread, so it
+     * only classifies the text with cheap pattern checks and never waits for a running command.
+     */
+    public void handleCommand(String originalText, boolean hasWakeWord) {
+        if (originalText == null || originalText.isBlank()) return;
 
         System.out.printf("Ciel STT [Raw]: \"%s\"%n", originalText);
 
-        CommandAnalysis preAnalysis = intentService.analyze(originalText);
-        String lowerText = originalText.toLowerCase();
-        
-        // Expanded regex to aggressively catch all shutdown variations instantly natively in Java
-        boolean isCriticalOverride = (
-            preAnalysis.intent() == Intent.INITIATE_REBOOT || 
-            preAnalysis.intent() == Intent.INITIATE_SHUTDOWN || 
-            preAnalysis.intent() == Intent.CANCEL_SHUTDOWN ||
-            preAnalysis.intent() == Intent.UPDATE_SYSTEM ||
-            lowerText.contains("update") || lowerText.contains("upgrade") ||
-            lowerText.matches(".*(shut\\s*down|turn\\s*off|take\\s*down|took\\s*down|power\\s*off).*") ||
-            lowerText.contains("reboot") || lowerText.contains("restart")
-        );
+        boolean isDirectlyAddressed = hasWakeWord || ShortTermMemoryService.getMemory().isInPrivilegedMode();
+        CommandQueue.Priority priority = priorityFor(originalText, isDirectlyAddressed);
 
-        if (!isCriticalOverride) {
-            if (!isBusy.compareAndSet(false, true)) {
-                System.out.println("Ciel Debug: Command dropped. AI is currently busy.");
-                if(onComplete != null) onComplete.run();
-                return;
-            }
-        } else {
-            System.out.println("Ciel Debug: Critical Command Detected. Piercing AI Busy Lock!");
-            isBusy.set(true); 
+        IntentPrefetcher.Speculation speculation = prefetcher.claim(originalText);
+        // Entries whose command expired or was evicted from the queue are never picked up
+        long now = System.nanoTime();
+        claimedSpeculations.values().removeIf(s -> now - s.preparedAt() > CLAIMED_SPECULATION_TTL_NANOS);
+        if (speculation != null) claimedSpeculations.put(originalText, speculation);
+
+        if (!dispatcher.offer(originalText, hasWakeWord, false, priority)) {
+            System.out.println("Ciel Debug: Command queue full. Dropped: \"" + originalText + "\"");
+            claimedSpeculations.remove(originalText);
+        }
+    }
+
+    public void handleExplicitSearch(String query) {
+        if (!dispatcher.offer(query, true, true, CommandQueue.Priority.ADDRESSED)) {
+            System.out.println("Ciel Debug: Command queue full. Dropped search: \"" + query + "\"");
         }
+    }
 
-        commandExecutor.submit(() -> {
-            boolean releaseBusySynchronously = true;
-            try {
-                String activeText = originalText;
+    /**
+     * Queue priority of an utterance. Only speech addressed to Ciel can be CRITICAL, since a
+     * critical entry aborts whatever is running; "restart" or "turn off" in background talk
+     * stays BACKGROUND and waits its turn like any other overheard line.
+     */
+    static CommandQueue.Priority priorityFor(String text, boolean isDirectlyAddressed) {
+        if (!isDirectlyAddressed) return CommandQueue.Priority.BACKGROUND;
+        return isCriticalCommand(text.toLowerCase().trim()) ? CommandQueue.Priority.CRITICAL : CommandQueue.Priority.ADDRESSED;
+    }
 
-                emotionManager.recordUserInteraction();
+    // Expanded regex to aggressively catch all shutdown variations instantly natively in Java
+    private static boolean isCriticalCommand(String lowerText) {
+        if (ABORT_PATTERN.matcher(lowerText).matches()) return true;
+        if (isShuttingDown.get() && (lowerText.contains("cancel") || lowerText.contains("abort"))) return true;
+        return lowerText.contains("update") || lowerText.contains("upgrade") ||
+               SHUTDOWN_PATTERN.matcher(lowerText).matches() ||
+               lowerText.contains("reboot") || lowerText.contains("restart");
+    }
 
-                CommandAnalysis analysis = conversationService.checkForFollowUp(activeText);
-                if (analysis == null) {
-                    analysis = preAnalysis;
-                }
+    /* ------------------------------------------------------------------ */
+    /*  DISPATCH                                                           */
+    /* ------------------------------------------------------------------ */
+
+    /** The dispatcher has cancelled the running command; stop its AI replies and anything it is saying. */
+    @Override
+    public boolean onCriticalAbort(CommandQueue.Entry entry) {
+        System.out.println("Ciel Debug: Critical Command Detected. Piercing AI Busy Lock!");
+        AIEngine.abortPendingResponses();
+        SpeechService.stopCurrentPlayback();
+        SpeechService.cancelSequentialSpeech();
+        claimedSpeculations.clear();
+        if (ABORT_PATTERN.matcher(entry.text().toLowerCase().trim()).matches()) {
+            abortShutdownSequence();
+            return false;
+        }
+        return true;
+    }
 
-                String speaker = analysis.entities().get("speaker");
-                if (speaker != null) {
-                    dndCampaignService.checkQuirks(speaker, activeText);
-                }
+    private boolean isAborted(long ticket) {
+        return dispatcher.isAborted(ticket);
+    }
 
-                conversationService.updateConversationTopic(analysis);
+    private void releaseBusy(long ticket) {
+        dispatcher.release(ticket);
+    }
 
-                boolean isPrivileged = ShortTermMemoryService.getMemory().isInPrivilegedMode();
-                boolean isDirectlyAddressed = hasWakeWord || isPrivileged;
+    /** Release callback for async work started by the command currently running. */
+    private Runnable busyReleaser() {
+        long ticket = dispatcher.currentTicket();
+        return () -> releaseBusy(ticket);
+    }
 
-                if (lowerText.contains("update") || lowerText.contains("upgrade")) {
-                    analysis = new CommandAnalysis(Intent.UPDATE_SYSTEM, new HashMap<>());
-                } else if (lowerText.matches(".*(shut\\s*down|turn\\s*off|take\\s*down|took\\s*down|power\\s*off).*")) {
-                    analysis = new CommandAnalysis(Intent.INITIATE_SHUTDOWN, new HashMap<>());
-                } else if (lowerText.contains("reboot") || lowerText.contains("restart")) {
-                    analysis = new CommandAnalysis(Intent.INITIATE_REBOOT, new HashMap<>());
-                } else if (analysis.intent() == Intent.UNKNOWN || analysis.intent() == Intent.SEARCH_WEB || analysis.intent() == Intent.DYNAMIC_PC_CONTROL) {
-                    
-                    if (!isDirectlyAddressed) {
-                        System.out.printf("Ciel STT [Background]: \"%s\"%n", activeText);
-                        ObserverService.appendTranscript(activeText);
-                        isBusy.set(false);
-                        if (onComplete != null) onComplete.run();
-                        return;
-                    }
+    @Override
+    public void execute(CommandQueue.Entry entry, long ticket) {
+        if (entry.explicitSearch()) {
+            String context = ContextBuilder.buildActiveContext(loreService, entry.text());
+            ShortTermMemoryService.getMemory().setPrivilegedMode(true, 15);
+            AIEngine.chatFast(entry.text(), context, () -> releaseBusy(ticket));
+            return;
+        }
+
+        String originalText = entry.text();
+        boolean hasWakeWord = entry.hasWakeWord();
+        IntentPrefetcher.Speculation speculation = claimedSpeculations.remove(originalText);
+        String lowerText = originalText.toLowerCase();
+        boolean releaseBusySynchronously = true;
+        try {
+            String activeText = originalText;
+
+            emotionManager.recordUserInteraction();
 
+            CommandAnalysis analysis = conversationService.checkForFollowUp(activeText);
+            if (analysis == null) {
+                analysis = speculation != null ? speculation.analysis() : intentService.analyze(originalText);
+            }
+
+            String speaker = analysis.entities().get("speaker");
+            if (speaker != null) {
+                dndCampaignService.checkQuirks(speaker, activeText);
+            }
+
+            conversationService.updateConversationTopic(analysis);
+
+            boolean isPrivileged = ShortTermMemoryService.getMemory().isInPrivilegedMode();
+            boolean isDirectlyAddressed = hasWakeWord || isPrivileged;
+
+            if (lowerText.contains("update") || lowerText.contains("upgrade")) {
+                analysis = new CommandAnalysis(Intent.UPDATE_SYSTEM, new HashMap<>());
+            } else if (SHUTDOWN_PATTERN.matcher(lowerText).matches()) {
+                analysis = new CommandAnalysis(Intent.INITIATE_SHUTDOWN, new HashMap<>());
+            } else if (lowerText.contains("reboot") || lowerText.contains("restart")) {
+                analysis = new CommandAnalysis(Intent.INITIATE_REBOOT, new HashMap<>());
+            } else if (analysis.intent() == Intent.UNKNOWN || analysis.intent() == Intent.SEARCH_WEB || analysis.intent() == Intent.DYNAMIC_PC_CONTROL) {
+                
+                if (!isDirectlyAddressed) {
+                    System.out.printf("Ciel STT [Background]: \"%s\"%n", activeText);
+                    ObserverService.appendTranscript(activeText);
+                    return;
+                }
+
+                CommandAnalysis semanticAnalysis;
+                IntentClassifier.Prediction local = intentService.classifyUnmatched(activeText);
+                boolean resolvedLocally = local != null;
+                boolean routerAnswered = false;
+                if (resolvedLocally) {
+                    System.out.printf("Ciel Debug: Local intent classifier resolved [%s] (%.0f%% confidence); AI router skipped.%n",
+                            local.intent(), local.confidence() * 100);
+                    Map<String, String> entities = new HashMap<>();
+                    entities.put("query", activeText);
+                    semanticAnalysis = new CommandAnalysis(local.intent(), entities);
+                } else {
                     System.out.println("Ciel Debug: Triggering AI Semantic Router for intent clarification...");
                     String intentStr = AIEngine.determineIntentSynchronously(activeText);
-                    CommandAnalysis semanticAnalysis;
+                    if (isAborted(ticket)) return;
                     if (intentStr == null || intentStr.isEmpty()) {
                         semanticAnalysis = new CommandAnalysis(Intent.UNKNOWN, new HashMap<>());
                     } else {
@@ -269,74 +376,78 @@ public class CommandService {
                             semanticAnalysis = new CommandAnalysis(Intent.UNKNOWN, new HashMap<>());
                         }
                     }
-                    
-                    if (semanticAnalysis.intent() == Intent.UNKNOWN) {
-                        // NLU FEEDBACK LOOP: Swarm failed to find intent. Ask the AI if it was an STT typo.
-                        CommandAnalysis recoveredAnalysis = verifyIntentWithAI(activeText);
-                        if (recoveredAnalysis != null) {
-                            analysis = recoveredAnalysis;
-                            activeText = recoveredAnalysis.entities().get("query");
-                        } else {
-                            System.out.println("Ciel Debug: Routing general chat to Personality Core (Gemma).");
-                            String context = ContextBuilder.buildActiveContext(loreService, activeText);
-                            
-                            ShortTermMemoryService.getMemory().setPrivilegedMode(true, 15);
-                            AIEngine.chatFast(activeText, context, () -> isBusy.set(false));
-                            releaseBusySynchronously = false;
-                            if (onComplete != null) onComplete.run();
-                            return; 
-                        }
-                    } else if (semanticAnalysis.intent() == Intent.DND_ANALYZE_LORE) {
-                        System.out.println("Ciel Debug: Routing deep analysis to Logic Core (Phi-4).");
-                        String subject = semanticAnalysis.entities().get("query");
-                        
-                        String loreData = loreService.getExpandedNoteContent(subject)
-                                                      .orElse("No specific campaign notes found for: " + subject);
-
-                        String context = ContextBuilder.buildActiveContext(loreService, activeText) +
-                                         "\n\n[D&D CAMPAIGN NOTES FOR ANALYSIS]\n" + loreData +
-                                         "\n\nINSTRUCTION: Analyze the provided campaign notes and answer the user's query.";
+                    // Router verdicts teach the local classifier; no answer (timeout, engine down) teaches nothing
+                    routerAnswered = intentStr != null;
+                    if (routerAnswered && semanticAnalysis.intent() != Intent.UNKNOWN) {
+                        intentService.learnUnmatched(activeText, semanticAnalysis.intent());
+                    }
+                }
+                
+                if (semanticAnalysis.intent() == Intent.UNKNOWN) {
+                    // NLU FEEDBACK LOOP: Swarm failed to find intent. Ask the AI if it was an STT typo.
+                    // A confident local "chat" verdict was learned from cases where this loop found nothing, so it is skipped.
+                    CommandAnalysis recoveredAnalysis = resolvedLocally ? null : verifyIntentWithAI(activeText);
+                    if (isAborted(ticket)) return;
+                    if (recoveredAnalysis != null) {
+                        analysis = recoveredAnalysis;
+                        activeText = recoveredAnalysis.entities().get("query");
+                    } else {
+                        if (routerAnswered) intentService.learnUnmatched(activeText, Intent.UNKNOWN);
+                        System.out.println("Ciel Debug: Routing general chat to Personality Core (Gemma).");
+                        String context = (speculation != null && speculation.context() != null && activeText.equals(originalText))
+                                ? speculation.context()
+                                : ContextBuilder.buildActiveContext(loreService, activeText);
                         
                         ShortTermMemoryService.getMemory().setPrivilegedMode(true, 15);
-                        AIEngine.reasonDeeply(semanticAnalysis.entities().get("query"), context, () -> isBusy.set(false));
+                        AIEngine.chatFast(activeText, context, () -> releaseBusy(ticket));
                         releaseBusySynchronously = false;
-                        if (onComplete != null) onComplete.run();
                         return;
-                    } else {
-                        analysis = semanticAnalysis;
-                        activeText = semanticAnalysis.entities().get("query"); 
                     }
-                }
+                } else if (semanticAnalysis.intent() == Intent.DND_ANALYZE_LORE) {
+                    System.out.println("Ciel Debug: Routing deep analysis to Logic Core (Phi-4).");
+                    String subject = semanticAnalysis.entities().get("query");
+                    
+                    String loreData = loreService.getExpandedNoteContent(subject)
+                                                  .orElse("No specific campaign notes found for: " + subject);
 
-                System.out.printf("Ciel STT: Command Matched [%s]: \"%s\"%n", analysis.intent(), activeText);
-                
-                if (analysis.intent() != Intent.EASTER_EGG && 
-                    analysis.intent() != Intent.INITIATE_SHUTDOWN && 
-                    analysis.intent() != Intent.INITIATE_REBOOT && 
-                    analysis.intent() != Intent.CANCEL_SHUTDOWN &&
-                    analysis.intent() != Intent.UPDATE_SYSTEM) {
-                    LineManager.getCommandConfirmationLine().ifPresent(line -> SpeechService.speakPreformatted(line.text(), line.key()));
+                    String context = ContextBuilder.buildActiveContext(loreService, activeText) +
+                                     "\n\n[D&D CAMPAIGN NOTES FOR ANALYSIS]\n" + loreData +
+                                     "\n\nINSTRUCTION: Analyze the provided campaign notes and answer the user's query.";
+                    
+                    ShortTermMemoryService.getMemory().setPrivilegedMode(true, 15);
+                    AIEngine.reasonDeeply(semanticAnalysis.entities().get("query"), context, () -> releaseBusy(ticket));
+                    releaseBusySynchronously = false;
+                    return;
+                } else {
+                    analysis = semanticAnalysis;
+                    activeText = semanticAnalysis.entities().get("query"); 
                 }
+            }
 
-                releaseBusySynchronously = processCommand(analysis, activeText);
-                
-            } catch (Exception e) {
-                System.err.println("Ciel FATAL Error: Uncaught exception in CommandService.");
-                e.printStackTrace(); 
-            } finally {
-                if (releaseBusySynchronously) {
-                    isBusy.set(false);
-                }
-                if (onComplete != null) onComplete.run();
+            System.out.printf("Ciel STT: Command Matched [%s]: \"%s\"%n", analysis.intent(), activeText);
+            
+            if (analysis.intent() != Intent.EASTER_EGG && 
+                analysis.intent() != Intent.INITIATE_SHUTDOWN && 
+                analysis.intent() != Intent.INITIATE_REBOOT && 
+                analysis.intent() != Intent.CANCEL_SHUTDOWN &&
+                analysis.intent() != Intent.UPDATE_SYSTEM) {
+                Optional<DialogueLine> confirmation = (speculation != null && speculation.confirmation().isPresent())
+                        ? speculation.confirmation()
+                        : LineManager.getCommandConfirmationLine();
+                confirmation.ifPresent(line -> SpeechService.speakPreformatted(line.text(), line.key()));
             }
-        });
-    }
 
-    public void handleExplicitSearch(String query) {
-       if (!isBusy.compareAndSet(false, true)) return;
-       String context = ContextBuilder.buildActiveContext(loreService, query);
-       ShortTermMemoryService.getMemory().setPrivilegedMode(true, 15);
-       AIEngine.chatFast(query, context, () -> isBusy.set(false));
+            if (isAborted(ticket)) return;
+            releaseBusySynchronously = processCommand(analysis, activeText);
+            
+        } catch (Exception e) {
+            System.err.println("Ciel FATAL Error: Uncaught exception in CommandService.");
+            e.printStackTrace(); 
+        } finally {
+            if (releaseBusySynchronously) {
+                releaseBusy(ticket);
+            }
+        }
     }
 
     private boolean sendToAiWithData(String userQuery, String systemData) {
@@ -345,7 +456,7 @@ public class CommandService {
             "\n\nINSTRUCTION: Formulate a natural, conversational answer to the user's query using the SYSTEM DATA provided above.";
         
         ShortTermMemoryService.getMemory().setPrivilegedMode(true, 15);
-        AIEngine.chatFast(userQuery, context, () -> isBusy.set(false));
+        AIEngine.chatFast(userQuery, context, busyReleaser());
         return false; 
     }
 
@@ -368,7 +479,7 @@ public class CommandService {
             case GET_ECLIPSES: return handleGetEclipses(userText);
             
             case DYNAMIC_PC_CONTROL: 
-                com.cielcompanion.ai.DynamicScriptEngine.executeChantAnnulment(userText, () -> isBusy.set(false));
+                com.cielcompanion.ai.DynamicScriptEngine.executeChantAnnulment(userText, busyReleaser());
                 return false;
                 
             case EXECUTE_SKILL: 
@@ -376,7 +487,7 @@ public class CommandService {
                 if (skillName == null || skillName.isBlank()) skillName = analysis.entities().get("skill");
                 String arguments = analysis.entities().get("arguments");
                 
-                com.cielcompanion.ai.SkillManager.executeSkill(skillName, arguments, () -> isBusy.set(false));
+                com.cielcompanion.ai.SkillManager.executeSkill(skillName, arguments, busyReleaser());
                 return false;
             
             case FIND_APP_PATH: handleFindAppPathCommand(analysis); return true;
@@ -455,8 +566,7 @@ public class CommandService {
         
         if (now.getMinute() == 20 && (now.getHour() == 4 || now.getHour() == 16)) {
             LineManager.get420Line().ifPresent(line -> SpeechService.speakPreformatted(line.text(), line.key()));
-            isBusy.set(false);
-            return false; 
+            return true;
         }
         
         if (CielState.getCurrentMode() == OperatingMode.DND_ASSISTANT) {
@@ -469,9 +579,7 @@ public class CommandService {
         
         CielState.getEmotionManager().ifPresent(em -> em.triggerEmotion("Focused", 0.8, "Telling Time"));
         SpeechService.speakPreformatted("ザ カレント タイム イズ " + timeKatakana + "。イット イズ " + dateKatakana + "。");
-        
-        isBusy.set(false);
-        return false;
+        return true;
     }
 
     private boolean handleSystemStatusCommand(String userText) {
@@ -912,12 +1020,21 @@ public class CommandService {
         try {
             SpeechService.stopCurrentPlayback();
             SpeechService.cancelSequentialSpeech();
+            // Let the interrupted utterances release the audio device before exiting
+            SpeechService.whenIdle().get(1500, TimeUnit.MILLISECONDS);
         } catch (Exception ignored) {}
-        try { Thread.sleep(1500); } catch (InterruptedException ignored) {}
         System.out.println("[Ciel Debug] Java side exiting now - no further work will be done.");
         System.exit(0);
     }
 
+    /** Speaks a static line and blocks until its playback has actually ended (or was interrupted). */
+    private static void speakAndAwait(String lineKey, boolean flushQueue) {
+        LineManager.getDialogueLine(lineKey)
+                .map(line -> SpeechService.speakPreformatted(line.text(), line.key(), false, flushQueue))
+                .orElse(CompletableFuture.completedFuture(null))
+                .join();
+    }
+
     // -----------------------------------------------------------------
     //  Dummy method - the real wiring is: when the voice pipeline detects
     //  Intent.CANCEL_SHUTDOWN it should call
@@ -944,16 +1061,9 @@ public class CommandService {
 
         CompletableFuture.runAsync(() -> {
             // 1. Initial Speech (Using static keys so Azure caches/offline files trigger)
-            LineManager.getDialogueLine("shutdown_init").ifPresent(line -> {
-                SpeechService.speakPreformatted(line.text(), line.key(), false, true);
-            });
-
             // Wait for Ciel to physically finish speaking before locking the thread
-            try { Thread.sleep(1000); } catch (Exception ignored) {} 
-            while (SpeechService.isActivelySpeaking()) {
-                if (!isShuttingDown.get()) return;
-                try { Thread.sleep(200); } catch (InterruptedException ignored) {}
-            }
+            speakAndAwait("shutdown_init", true);
+            if (!isShuttingDown.get()) return;
 
             // 2. Prepare Python side and write Diary
             System.out.println("[Ciel Debug] Asking Python helper to prepare for shutdown...");
@@ -973,16 +1083,8 @@ public class CommandService {
             }
 
             // 4. Second Speech: Countdown Warning (Using static keys)
-            LineManager.getDialogueLine("shutdown_countdown").ifPresent(line -> {
-                SpeechService.speakPreformatted(line.text(), line.key(), false, false);
-            });
-
             // Wait for countdown speech to finish physically
-            try { Thread.sleep(1000); } catch (Exception ignored) {} 
-            while (SpeechService.isActivelySpeaking()) {
-                if (!isShuttingDown.get()) return;
-                try { Thread.sleep(200); } catch (InterruptedException ignored) {}
-            }
+            speakAndAwait("shutdown_countdown", false);
 
             if (!isShuttingDown.get()) return;
 
@@ -1073,15 +1175,14 @@ public class CommandService {
         });
 
         // Step 1: Speak initial phrase
-        LineManager.getDialogueLine("update_init").ifPresent(line -> {
-            SpeechService.speakPreformatted(line.text(), line.key(), false, true);
-        });
+        CompletableFuture<SpeechPlayback.Event> initSpeech = LineManager.getDialogueLine("update_init")
+                .map(line -> SpeechService.speakPreformatted(line.text(), line.key(), false, true))
+                .orElse(CompletableFuture.completedFuture(null));
         
         CompletableFuture.runAsync(() -> {
             try {
                 // Wait for speech to finish physically
-                Thread.sleep(1000);
-                while (SpeechService.isActivelySpeaking()) { Thread.sleep(500); }
+                initSpeech.join();
 
                 // Step 2: Synchronous Diary Logging
                 String contextSummary = "The Master initiated a self-update sequence. I am shutting down my interface to assimilate new code, while leaving his PC running.";
@@ -1092,13 +1193,8 @@ public class CommandService {
                 }
 
                 // Step 3: Final Speech
-                LineManager.getDialogueLine("update_final").ifPresent(line -> {
-                    SpeechService.speakPreformatted(line.text(), line.key(), false, false);
-                });
-                
                 // Wait for final speech to complete physically
-                Thread.sleep(1000);
-                while (SpeechService.isActivelySpeaking()) { Thread.sleep(500); }
+                speakAndAwait("update_final", false);
 
                 // Step 4: Kill AI processes
                 CielCompanion.killJarvis(); 
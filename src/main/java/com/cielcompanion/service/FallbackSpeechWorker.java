@@ -0,0 +1,338 @@
+package com.cielcompanion.service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Long-lived SAPI fallback voice. One worker process is started up front and fed lines
+ * over stdin, so falling back from Azure no longer pays PowerShell startup per sentence.
+ * The process is supervised: if it dies it is restarted on the next line (with backoff).
+ * Nothing is sent to a new worker until it has answered READY; one that stays silent past
+ * the startup timeout is killed and counts as a crash. Callers wait for READY without holding
+ * the lifecycle lock, so a stop can kill a worker that is still starting.
+ *
+ * <p>Line protocol (UTF-8, one message per line):
+ * <pre>
+ *   worker -&gt; ciel   READY                      once the voice is loaded
+ *   ciel   -&gt; worker SPEAK &lt;id&gt; &lt;base64 text&gt;   queued; the worker speaks them in order
+ *   worker -&gt; ciel   STARTED &lt;id&gt;
+ *   worker -&gt; ciel   DONE &lt;id&gt;  |  ERROR &lt;id&gt; &lt;message&gt;
+ *   ciel   -&gt; worker QUIT
+ * </pre>
+ * Any executable speaking this protocol can replace PowerShell through
+ * {@code tts.fallback.workerCommand}, e.g. a shell stub on Linux that echoes STARTED/DONE.
+ */
+public class FallbackSpeechWorker {
+
+    private static final String SAPI_WORKER_SCRIPT =
+            "$OutputEncoding = [Console]::OutputEncoding = [System.Text.Encoding]::UTF8; "
+            + "Add-Type -AssemblyName System.Speech; "
+            + "$s = New-Object System.Speech.Synthesis.SpeechSynthesizer; "
+            + "$s.SetOutputToDefaultAudioDevice(); "
+            + "try { $s.SelectVoice('Microsoft Haruka Desktop'); } catch { try { $s.SelectVoiceByHints('Female') } catch {} } "
+            + "$s.Rate = 0; "
+            + "[Console]::Out.WriteLine('READY'); [Console]::Out.Flush(); "
+            + "while (($line = [Console]::In.ReadLine()) -ne $null) { "
+            + "  $p = $line.Split(' ', 3); "
+            + "  if ($p[0] -eq 'QUIT') { break } "
+            + "  if ($p[0] -ne 'SPEAK' -or $p.Length -lt 3) { continue } "
+            + "  try { "
+            + "    $t = [System.Text.Encoding]::UTF8.GetString([Convert]::FromBase64String($p[2])); "
+            + "    [Console]::Out.WriteLine('STARTED ' + $p[1]); [Console]::Out.Flush(); "
+            + "    $s.Speak($t); "
+            + "    [Console]::Out.WriteLine('DONE ' + $p[1]); "
+            + "  } catch { [Console]::Out.WriteLine('ERROR ' + $p[1] + ' ' + $_.Exception.Message); } "
+            + "  [Console]::Out.Flush(); "
+            + "} "
+            + "$s.Dispose();";
+
+    private static final long RESTART_BACKOFF_MS = 2000;
+    private static final long MIN_LINE_TIMEOUT_MS = 15000;
+    // Loading the SAPI voice is slow on a cold start, but a worker that never gets there is stuck
+    private static final long READY_TIMEOUT_MS = 10000;
+
+    private record Pending(String key, CompletableFuture<Boolean> done) {}
+
+    private static final Object lifecycleLock = new Object();
+    private static final Map<Long, Pending> pending = new ConcurrentHashMap<>();
+    private static final AtomicLong nextId = new AtomicLong();
+    private static final AtomicLong restarts = new AtomicLong();
+    private static Process worker;
+    private static BufferedWriter workerInput;
+    // Completes true when the current worker reports READY, false if it exits first
+    private static CompletableFuture<Boolean> workerReady;
+    private static long workerStartedAt;
+    private static long lastCrash = 0;
+    private static List<String> command = defaultCommand();
+
+    /**
+     * Overrides the worker executable. Blank restores the built-in PowerShell SAPI worker.
+     * A worker already running or starting under another command is killed, so the next line
+     * gets one of the new kind.
+     */
+    public static void setCommand(String commandLine) {
+        List<String> next = (commandLine == null || commandLine.isBlank())
+                ? defaultCommand()
+                : Arrays.asList(commandLine.trim().split("\\s+"));
+        synchronized (lifecycleLock) {
+            if (next.equals(command)) return;
+            command = next;
+            terminate();
+        }
+    }
+
+    /** Starts the worker ahead of time so the first fallback line does not pay for it. */
+    public static void prewarm() {
+        awaitReady();
+    }
+
+    /**
+     * Speaks one line through the worker and blocks until it has been spoken.
+     * @return false if the worker is unavailable, failed, or was stopped mid-line
+     */
+    public static boolean speak(String text, String key) {
+        long id = nextId.incrementAndGet();
+        Pending request = new Pending(key, new CompletableFuture<>());
+        // Registered before the worker is ready, so a stop while it starts fails this line
+        pending.put(id, request);
+        if (!awaitReady()) {
+            pending.remove(id);
+            return false;
+        }
+        synchronized (lifecycleLock) {
+            if (request.done().isDone() || !isReady()) {
+                pending.remove(id);
+                return false;
+            }
+            try {
+                String encoded = Base64.getEncoder().encodeToString(text.getBytes(StandardCharsets.UTF_8));
+                workerInput.write("SPEAK " + id + " " + encoded);
+                workerInput.newLine();
+                workerInput.flush();
+            } catch (IOException e) {
+                pending.remove(id);
+                System.err.println("Ciel Error: Fallback speech worker rejected input: " + e.getMessage());
+                terminate();
+                return false;
+            }
+        }
+
+        long timeoutMs = Math.max(MIN_LINE_TIMEOUT_MS, SpeechService.estimateSpeechDuration(text) * 3);
+        try {
+            return request.done().get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception e) {
+            System.out.println("Ciel Warning: Fallback speech worker timed out. Restarting it.");
+            stopCurrent();
+            return false;
+        } finally {
+            pending.remove(id);
+        }
+    }
+
+    /**
+     * Cuts off whatever the worker is saying. SAPI's blocking Speak cannot be interrupted
+     * over stdin, so the process is killed and a fresh one is warmed up in the background.
+     */
+    public static void stopCurrent() {
+        synchronized (lifecycleLock) {
+            if (worker == null || pending.isEmpty()) return;
+            terminate();
+        }
+        CompletableFuture.runAsync(FallbackSpeechWorker::prewarm);
+    }
+
+    /** Number of times the worker died on its own or never became ready (not a deliberate stop). */
+    public static long getRestartCount() {
+        return restarts.get();
+    }
+
+    public static void shutdown() {
+        synchronized (lifecycleLock) {
+            if (worker == null) return;
+            try {
+                workerInput.write("QUIT");
+                workerInput.newLine();
+                workerInput.flush();
+                if (!worker.waitFor(2, TimeUnit.SECONDS)) worker.destroyForcibly();
+            } catch (Exception e) {
+                worker.destroyForcibly();
+            }
+            if (workerReady != null) workerReady.complete(false);
+            worker = null;
+            workerInput = null;
+            workerReady = null;
+        }
+    }
+
+    /* ------------------------------------------------------------------ */
+    /*  SUPERVISION                                                        */
+    /* ------------------------------------------------------------------ */
+
+    /**
+     * Starts the worker if needed and waits, outside the lifecycle lock, until it is ready.
+     * @return false if it could not be started, never became ready, or was stopped meanwhile
+     */
+    private static boolean awaitReady() {
+        Process process;
+        CompletableFuture<Boolean> ready;
+        long startedAt;
+        synchronized (lifecycleLock) {
+            if (isReady()) return true;
+            if (!ensureStarted()) return false;
+            process = worker;
+            ready = workerReady;
+            startedAt = workerStartedAt;
+        }
+
+        boolean isReady = false;
+        boolean timedOut = false;
+        try {
+            long remaining = Math.max(0, startedAt + READY_TIMEOUT_MS - System.currentTimeMillis());
+            isReady = ready.get(remaining, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception e) {
+            timedOut = true;
+        }
+
+        synchronized (lifecycleLock) {
+            // Stopped, shut down or already given up on by another waiter
+            if (worker != process) return false;
+            if (isReady) return true;
+            if (timedOut) {
+                System.out.println("Ciel Warning: Fallback speech worker did not report READY within " + READY_TIMEOUT_MS + "ms.");
+            } else {
+                System.out.println("Ciel Warning: Fallback speech worker exited before it was ready.");
+            }
+            terminate();
+            lastCrash = System.currentTimeMillis();
+            restarts.incrementAndGet();
+            return false;
+        }
+    }
+
+    /** Caller holds the lifecycle lock. */
+    private static boolean isReady() {
+        return worker != null && worker.isAlive() && workerReady != null && workerReady.getNow(false);
+    }
+
+    /** Caller holds the lifecycle lock. Launches a worker unless one is running or starting. */
+    private static boolean ensureStarted() {
+        if (worker != null && worker.isAlive()) return true;
+
+        // A worker that keeps crashing is not respawned in a tight loop
+        if (System.currentTimeMillis() - lastCrash < RESTART_BACKOFF_MS) return false;
+
+        try {
+            Process process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.DISCARD).start();
+            CompletableFuture<Boolean> ready = new CompletableFuture<>();
+            worker = process;
+            workerInput = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+            workerReady = ready;
+            long startedAt = System.currentTimeMillis();
+            workerStartedAt = startedAt;
+            String executable = command.get(0);
+            ready.thenAccept(isReady -> {
+                if (isReady) System.out.println("Ciel Debug: Fallback speech worker ready in " + (System.currentTimeMillis() - startedAt) + "ms (" + executable + ").");
+            });
+            Thread reader = new Thread(() -> readResponses(process, ready), "Ciel-FallbackSpeechReader");
+            reader.setDaemon(true);
+            reader.start();
+            return true;
+        } catch (IOException e) {
+            System.err.println("Ciel Error: Could not start fallback speech worker: " + e.getMessage());
+            worker = null;
+            lastCrash = System.currentTimeMillis();
+            return false;
+        }
+    }
+
+    private static void readResponses(Process process, CompletableFuture<Boolean> ready) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.equals("READY")) {
+                    ready.complete(true);
+                } else {
+                    handleResponse(line);
+                }
+            }
+        } catch (IOException ignored) {
+        }
+        // Wakes anyone still waiting for READY straight away
+        ready.complete(false);
+        // Stream closed. If nobody killed it on purpose, the worker crashed: fail what it still owed us.
+        synchronized (lifecycleLock) {
+            if (worker == process) {
+                System.out.println("Ciel Warning: Fallback speech worker exited. It will be restarted on the next line.");
+                worker = null;
+                workerInput = null;
+                workerReady = null;
+                lastCrash = System.currentTimeMillis();
+                restarts.incrementAndGet();
+                failPending();
+            }
+        }
+    }
+
+    private static void handleResponse(String line) {
+        String[] parts = line.split(" ", 3);
+        if (parts.length < 2) return;
+        Pending request;
+        try {
+            request = pending.get(Long.parseLong(parts[1]));
+        } catch (NumberFormatException e) {
+            return;
+        }
+        if (request == null) return;
+
+        switch (parts[0]) {
+            case "STARTED" -> SpeechPlayback.publish(SpeechPlayback.Phase.STARTED, request.key(), 0, -1);
+            case "DONE" -> request.done().complete(true);
+            case "ERROR" -> {
+                System.out.println("Ciel Warning: Fallback speech worker error: " + (parts.length > 2 ? parts[2] : "unknown"));
+                request.done().complete(false);
+            }
+            default -> { }
+        }
+    }
+
+    private static void terminate() {
+        if (worker != null) worker.destroyForcibly();
+        // Its output may stay open a while after the kill; whoever waits for READY is released now
+        if (workerReady != null) workerReady.complete(false);
+        worker = null;
+        workerInput = null;
+        workerReady = null;
+        failPending();
+    }
+
+    private static void failPending() {
+        for (Pending request : new ArrayList<>(pending.values())) {
+            request.done().complete(false);
+        }
+    }
+
+    private static List<String> defaultCommand() {
+        String encoded = Base64.getEncoder().encodeToString(SAPI_WORKER_SCRIPT.getBytes(StandardCharsets.UTF_16LE));
+        return List.of("pwsh.exe", "-NoProfile", "-NonInteractive", "-EncodedCommand", encoded);
+    }
+}
@@ -0,0 +1,144 @@
+package com.cielcompanion.service;
+
+import com.cielcompanion.service.LineManager.DialogueLine;
+import com.cielcompanion.service.nlu.CommandAnalysis;
+import com.cielcompanion.service.nlu.Intent;
+import com.cielcompanion.service.nlu.IntentService;
+
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Speculative head start on a command while it is still being spoken. Vosk's partial
+ * transcripts are matched against the intents as they grow, and the work the final command
+ * will most likely need (its confirmation line's cached audio, or the chat context for the
+ * LLM) is prepared alongside. When the final transcript arrives the speculation is either
+ * committed, if it was made for exactly that text, or thrown away.
+ */
+public class IntentPrefetcher {
+
+    public record Speculation(String text, CommandAnalysis analysis, Optional<DialogueLine> confirmation,
+                              String context, long workNanos, long preparedAt) {}
+
+    public record Stats(long speculated, long hits, long misses, double averageSavedMs) {}
+
+    private static final int MIN_WORDS = 2;
+    // Older speculations are not trusted: the context they captured may be out of date
+    private static final long MAX_AGE_NANOS = 10_000_000_000L;
+
+    private final IntentService intentService;
+    // Null when there is no LLM context to prepare (e.g. the replay harness)
+    private final Function<String, String> contextBuilder;
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "Ciel-IntentPrefetch");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Latest partial not yet speculated on; older ones are simply overwritten
+    private final AtomicReference<String> pendingText = new AtomicReference<>();
+    private volatile Speculation current;
+    // Bumped by every claim; work started before a claim must not publish after it
+    private long generation = 0;
+
+    private final AtomicLong speculated = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong savedNanos = new AtomicLong();
+
+    public IntentPrefetcher(IntentService intentService, Function<String, String> contextBuilder) {
+        this.intentService = intentService;
+        this.contextBuilder = contextBuilder;
+    }
+
+    /** Called from the recognizer thread with each new partial transcript; never blocks. */
+    public void onPartial(String text) {
+        String normalized = normalize(text);
+        if (normalized.split(" ").length < MIN_WORDS) return;
+        Speculation existing = current;
+        if (existing != null && existing.text().equals(normalized)) return;
+        if (pendingText.getAndSet(normalized) == null) {
+            worker.execute(this::speculateOnLatest);
+        }
+    }
+
+    /**
+     * Takes the speculation for the final transcript.
+     * @return the prepared work if it was made for this exact text, otherwise null
+     */
+    public Speculation claim(String finalText) {
+        Speculation speculation;
+        synchronized (this) {
+            speculation = current;
+            current = null;
+            generation++;
+        }
+        pendingText.set(null);
+        if (speculation != null && speculation.text().equals(normalize(finalText))
+                && System.nanoTime() - speculation.preparedAt() < MAX_AGE_NANOS) {
+            hits.incrementAndGet();
+            savedNanos.addAndGet(speculation.workNanos());
+            System.out.printf("Ciel Debug: Intent prefetch hit [%s], %.1f ms of work already done.%n",
+                    speculation.analysis().intent(), speculation.workNanos() / 1e6);
+            return speculation;
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    public Stats getStats() {
+        long h = hits.get();
+        return new Stats(speculated.get(), h, misses.get(), h == 0 ? 0 : savedNanos.get() / 1e6 / h);
+    }
+
+    private void speculateOnLatest() {
+        long startedIn;
+        synchronized (this) {
+            startedIn = generation;
+        }
+        String text = pendingText.getAndSet(null);
+        if (text == null) return;
+
+        long start = System.nanoTime();
+        CommandAnalysis analysis = intentService.analyze(text);
+        Optional<DialogueLine> confirmation = Optional.empty();
+        String context = null;
+
+        if (isChatRoute(analysis.intent())) {
+            if (contextBuilder != null) context = contextBuilder.apply(text);
+        } else if (!isSilentIntent(analysis.intent())) {
+            // Pick the confirmation line now so its cached audio is already loaded when it is spoken
+            confirmation = LineManager.getCommandConfirmationLine();
+            confirmation.ifPresent(line -> SpeechService.warmCachedLine(line.key()));
+        }
+
+        // A newer partial already superseded this one, or the utterance it belonged to was
+        // claimed while it ran: drop it rather than publish stale work
+        if (pendingText.get() != null) return;
+        long now = System.nanoTime();
+        synchronized (this) {
+            if (generation != startedIn) return;
+            current = new Speculation(text, analysis, confirmation, context, now - start, now);
+        }
+        speculated.incrementAndGet();
+    }
+
+    /** Intents that fall through to the LLM router, which wants the chat context. */
+    private static boolean isChatRoute(Intent intent) {
+        return intent == Intent.UNKNOWN || intent == Intent.SEARCH_WEB || intent == Intent.DYNAMIC_PC_CONTROL;
+    }
+
+    /** Intents that speak no confirmation line (see CommandService). */
+    private static boolean isSilentIntent(Intent intent) {
+        return intent == Intent.EASTER_EGG || intent == Intent.INITIATE_SHUTDOWN || intent == Intent.INITIATE_REBOOT
+                || intent == Intent.CANCEL_SHUTDOWN || intent == Intent.UPDATE_SYSTEM;
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.toLowerCase().trim().replaceAll("\\s+", " ");
+    }
+}
@@ -100,6 +100,8 @@ public class LineManager {
     private static List<DialogueLine> DND_RULE_NOT_FOUND_LINES;
     private static List<DialogueLine> TOGGLE_LISTENING_LINES;
     private static Properties easterEggProps;
+    // Snapshot of the keys, replaced only on reload so callers can cache anything derived from it
+    private static Set<String> easterEggKeys = Set.of();
 
     public static void load() {
         Properties props = new Properties();
@@ -202,6 +204,7 @@ public class LineManager {
         } catch (IOException e) {
             System.err.println("Ciel Warning: Could not load easter_eggs.properties.");
         }
+        easterEggKeys = easterEggProps.stringPropertyNames();
     }
 
     private static void loadPropertiesWithSpaces(Properties props, InputStream is) throws IOException {
@@ -223,12 +226,12 @@ public class LineManager {
     }
 
     public static Set<String> getEasterEggKeys() {
-        return easterEggProps.stringPropertyNames();
+        return easterEggKeys;
     }
 
     public static Optional<DialogueLine> getEasterEggLine(String key) {
         if (key == null) return Optional.empty();
-        for (String propKey : easterEggProps.stringPropertyNames()) {
+        for (String propKey : easterEggKeys) {
             if (propKey.equalsIgnoreCase(key)) {
                 return Optional.of(new DialogueLine("easteregg." + propKey, easterEggProps.getProperty(propKey)));
             }
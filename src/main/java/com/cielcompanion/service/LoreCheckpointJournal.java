@@ -0,0 +1,176 @@
+package com.cielcompanion.service;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Progress of the lore sweep, kept as an append-only journal of JSON lines. Every phase result
+ * is recorded (and forced to disk) the moment it arrives, whichever chunk it belongs to, so a
+ * restart repeats no model call that had already answered. Each chunk written to the cleaned
+ * transcript records the transcript's length afterwards; on resume the transcript is cut back
+ * to that length, which drops a half-finished append, and the sweep continues with the next
+ * chunk. A record torn by a crash can only be the last line, and is discarded when replayed.
+ *
+ * <p>Phase results carry the id of the sweep that asked for them. A halted sweep leaves its
+ * chunks in flight, and by the time they answer the journal may belong to another file whose
+ * chunk numbers overlap; such results are dropped instead of being reused as that file's text.
+ */
+final class LoreCheckpointJournal {
+
+    /** One journal line. Unused fields are null and left out of the JSON. */
+    private record Entry(String type, String taskId, String fileName, Integer totalChunks,
+                         Integer chunk, Integer phase, String text, Long outputBytes) {}
+
+    /**
+     * The sweep as the journal last saw it: {@code nextChunk} is the first chunk not yet in the
+     * transcript, which was then {@code outputBytes} long.
+     */
+    record Progress(String taskId, String fileName, int totalChunks, int nextChunk, long outputBytes) {}
+
+    private static final Gson gson = new Gson();
+
+    private final Path file;
+    private Progress progress;
+    // chunk -> phase -> recorded result
+    private final Map<Integer, Map<Integer, String>> results = new HashMap<>();
+
+    LoreCheckpointJournal(Path file) {
+        this.file = file;
+    }
+
+    /** Replays the journal; null when there is no sweep in progress. */
+    synchronized Progress load() throws IOException {
+        progress = null;
+        results.clear();
+        if (!Files.exists(file)) return null;
+
+        byte[] bytes = Files.readAllBytes(file);
+        int lineStart = 0;
+        while (lineStart < bytes.length) {
+            int lineEnd = lineStart;
+            while (lineEnd < bytes.length && bytes[lineEnd] != '\n') lineEnd++;
+            Entry entry = null;
+            if (lineEnd < bytes.length) {
+                try {
+                    entry = gson.fromJson(new String(bytes, lineStart, lineEnd - lineStart, StandardCharsets.UTF_8), Entry.class);
+                } catch (JsonParseException ignored) {}
+            }
+            if (entry == null || entry.type() == null) {
+                // Torn or unterminated record: drop it and everything after, so appends start on a clean line
+                System.out.println("Ciel Warning: Discarding a torn record at the end of the lore checkpoint journal.");
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                    channel.truncate(lineStart);
+                    channel.force(true);
+                }
+                break;
+            }
+            apply(entry);
+            lineStart = lineEnd + 1;
+        }
+        return progress;
+    }
+
+    /** Starts a new journal for a sweep whose transcript currently holds {@code outputBytes}. */
+    synchronized Progress start(String taskId, String fileName, int totalChunks, long outputBytes) throws IOException {
+        Files.deleteIfExists(file);
+        results.clear();
+        progress = null;
+        append(new Entry("start", taskId, fileName, totalChunks, null, null, null, outputBytes));
+        return progress;
+    }
+
+    /** Chunk {@code chunk} is in the transcript, which is now {@code outputBytes} long. */
+    synchronized void written(int chunk, long outputBytes) throws IOException {
+        append(new Entry("written", null, null, null, chunk, null, null, outputBytes));
+    }
+
+    /** The journal as seen by the sweep {@code taskId}; it sees nothing once another sweep has started. */
+    LorePipeline.Checkpoint checkpoint(String taskId) {
+        return new LorePipeline.Checkpoint() {
+            @Override
+            public String recalled(int chunk, int phase) {
+                return LoreCheckpointJournal.this.recalled(taskId, chunk, phase);
+            }
+
+            @Override
+            public void record(int chunk, int phase, String text) {
+                LoreCheckpointJournal.this.record(taskId, chunk, phase, text);
+            }
+        };
+    }
+
+    synchronized String recalled(String taskId, int chunk, int phase) {
+        if (!isCurrent(taskId)) return null;
+        Map<Integer, String> phases = results.get(chunk);
+        return phases == null ? null : phases.get(phase);
+    }
+
+    synchronized void record(String taskId, int chunk, int phase, String text) {
+        if (!isCurrent(taskId)) {
+            System.out.println("Ciel Debug: Dropping a late lore result for chunk " + (chunk + 1) + " of a sweep that has since ended.");
+            return;
+        }
+        try {
+            append(new Entry("stage", taskId, null, null, chunk, phase, text, null));
+        } catch (IOException e) {
+            // The sweep goes on; this result would only be asked for again after a restart
+            System.err.println("Ciel Warning: Could not checkpoint lore chunk " + (chunk + 1) + " phase " + phase + ": " + e.getMessage());
+        }
+    }
+
+    synchronized Progress getProgress() {
+        return progress;
+    }
+
+    synchronized void delete() throws IOException {
+        Files.deleteIfExists(file);
+        results.clear();
+        progress = null;
+    }
+
+    private boolean isCurrent(String taskId) {
+        return progress != null && Objects.equals(progress.taskId(), taskId);
+    }
+
+    private void append(Entry entry) throws IOException {
+        byte[] line = (gson.toJson(entry) + "\n").getBytes(StandardCharsets.UTF_8);
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer buffer = ByteBuffer.wrap(line);
+            while (buffer.hasRemaining()) channel.write(buffer);
+            channel.force(true);
+        }
+        apply(entry);
+    }
+
+    private void apply(Entry entry) {
+        switch (entry.type()) {
+            case "start" -> {
+                results.clear();
+                progress = new Progress(entry.taskId(), entry.fileName(), entry.totalChunks(), 0, entry.outputBytes());
+            }
+            case "written" -> {
+                results.remove(entry.chunk()); // Never needed again once in the transcript
+                if (progress != null) {
+                    progress = new Progress(progress.taskId(), progress.fileName(), progress.totalChunks(), entry.chunk() + 1, entry.outputBytes());
+                }
+            }
+            case "stage" -> {
+                // Only results of the sweep the journal was started for
+                if (isCurrent(entry.taskId())) results.computeIfAbsent(entry.chunk(), c -> new HashMap<>()).put(entry.phase(), entry.text());
+            }
+            default -> { }
+        }
+    }
+}
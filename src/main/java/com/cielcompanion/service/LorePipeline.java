@@ -0,0 +1,186 @@
+package com.cielcompanion.service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Runs the lore sweep over a file's chunks with several chunks in flight at once. Each chunk
+ * still goes through its phases in order (timestamps stripped, verified, linked), but chunk
+ * n+1 is verified while chunk n is being linked, and so on up to the window. Linked chunks are
+ * handed to the sink strictly in chunk order, and the first chunk that fails stops the sweep
+ * exactly where the one-chunk-at-a-time loop would have: everything before it written,
+ * nothing after it. Each phase result is offered to a {@link Checkpoint} as soon as it
+ * arrives, and results the checkpoint already holds are reused instead of asked for again.
+ *
+ * <p>The window starts at one and grows by one for every chunk whose slowest phase was within
+ * a few times the backend's usual latency; a slow phase halves it. While {@code throttled}
+ * holds (a game is running, the backend is struggling) only one chunk is in flight.
+ */
+final class LorePipeline {
+
+    /** The model call behind phases 2 and 3; AIEngine::generateSilentLogic in production. */
+    interface Model {
+        CompletableFuture<String> generate(String prompt, String label);
+    }
+
+    /** Phase results kept across restarts; phase 2 is the verified draft, phase 3 the linked text. */
+    interface Checkpoint {
+        Checkpoint NONE = new Checkpoint() {
+            @Override public String recalled(int chunkIndex, int phase) { return null; }
+            @Override public void record(int chunkIndex, int phase, String text) { }
+        };
+
+        /** The result recorded earlier for this chunk and phase, or null. */
+        String recalled(int chunkIndex, int phase);
+
+        void record(int chunkIndex, int phase, String text);
+    }
+
+    /** Receives chunks in order. {@code linked} is null for blank chunks that produced nothing. */
+    interface Sink {
+        void accept(int chunkIndex, String linked) throws IOException;
+    }
+
+    /**
+     * Where the sweep stopped. {@code nextChunk} is the first chunk not written;
+     * {@code failedPhase} is 2 or 3 for a failed model call, 0 if it was stopped from outside.
+     */
+    record Result(int nextChunk, boolean completed, int failedPhase) {}
+
+    private record ChunkOutcome(String linked, int failedPhase, long slowestPhaseNanos) {}
+
+    static final String PHASE_2_PREFIX = "[LORE_PHASE_2]\n";
+    static final String PHASE_3_PREFIX = "[LORE_PHASE_3]\n";
+    private static final Pattern TIMESTAMP_PATTERN = Pattern.compile("\\[\\d{1,2}:\\d{2}(?::\\d{2})?\\]\\s*");
+    // A phase this many times slower than the backend's median counts as congestion
+    private static final double SLOW_PHASE_FACTOR = 3.0;
+
+    private final Model model;
+    private final int maxWindow;
+    private final BooleanSupplier throttled;
+    private final Supplier<Duration> typicalLatency;
+    private int window = 1;
+
+    /**
+     * @param maxWindow      most chunks ever in flight at once
+     * @param throttled      while true, only one chunk is in flight
+     * @param typicalLatency the backend's usual latency per call, or null while unknown
+     */
+    LorePipeline(Model model, int maxWindow, BooleanSupplier throttled, Supplier<Duration> typicalLatency) {
+        this.model = model;
+        this.maxWindow = Math.max(1, maxWindow);
+        this.throttled = throttled;
+        this.typicalLatency = typicalLatency;
+    }
+
+    /** Phase 1: transcript timestamps stripped locally, no model involved. */
+    static String clean(String chunk) {
+        return TIMESTAMP_PATTERN.matcher(chunk).replaceAll("");
+    }
+
+    static boolean isUsable(String response) {
+        if (response == null || response.isBlank()) return false;
+        String l = response.toLowerCase();
+        return !(l.contains("timeout") || l.contains("[system_error]") || l.contains("[error") || l.contains("crashed"));
+    }
+
+    /** Sweeps {@code chunks} from {@code startChunk}, blocking until done, failed or stopped. */
+    Result run(List<String> chunks, int startChunk, Checkpoint checkpoint,
+               Sink sink, BooleanSupplier keepGoing) throws IOException, InterruptedException {
+        Map<Integer, CompletableFuture<ChunkOutcome>> inFlight = new HashMap<>();
+        int nextToLaunch = startChunk;
+        int nextToWrite = startChunk;
+
+        while (nextToWrite < chunks.size()) {
+            if (!keepGoing.getAsBoolean()) {
+                // Write whatever is already finished in order, then stop without waiting
+                while (inFlight.containsKey(nextToWrite) && inFlight.get(nextToWrite).isDone()) {
+                    ChunkOutcome outcome = inFlight.remove(nextToWrite).join();
+                    if (outcome.failedPhase() != 0) return stop(nextToWrite, outcome.failedPhase());
+                    sink.accept(nextToWrite, outcome.linked());
+                    nextToWrite++;
+                }
+                return stop(nextToWrite, 0);
+            }
+
+            int limit = throttled.getAsBoolean() ? 1 : window;
+            while (nextToLaunch < chunks.size() && nextToLaunch - nextToWrite < limit) {
+                inFlight.put(nextToLaunch, launch(nextToLaunch, chunks.get(nextToLaunch), checkpoint));
+                nextToLaunch++;
+            }
+
+            ChunkOutcome outcome;
+            try {
+                outcome = inFlight.remove(nextToWrite).get();
+            } catch (ExecutionException e) {
+                outcome = new ChunkOutcome(null, 2, 0); // launch() handles failures itself
+            }
+            if (outcome.failedPhase() != 0) return stop(nextToWrite, outcome.failedPhase());
+
+            sink.accept(nextToWrite, outcome.linked());
+            nextToWrite++;
+            adapt(outcome.slowestPhaseNanos());
+        }
+        return new Result(nextToWrite, true, 0);
+    }
+
+    private static Result stop(int nextChunk, int failedPhase) {
+        // Chunks still in flight are left to finish (not written), so their answers reach the checkpoint.
+        // It has to be one bound to this sweep: they may answer after the next file has started.
+        return new Result(nextChunk, false, failedPhase);
+    }
+
+    private void adapt(long slowestPhaseNanos) {
+        Duration typical = typicalLatency.get();
+        if (typical != null && slowestPhaseNanos > typical.toNanos() * SLOW_PHASE_FACTOR) {
+            if (window > 1) System.out.println("Ciel Debug: Lore pipeline backing off; backend is slower than usual. Window " + window + " -> " + window / 2);
+            window = Math.max(1, window / 2);
+        } else if (window < maxWindow) {
+            window++;
+        }
+    }
+
+    private CompletableFuture<ChunkOutcome> launch(int index, String chunk, Checkpoint checkpoint) {
+        if (chunk.isBlank()) return CompletableFuture.completedFuture(new ChunkOutcome(null, 0, 0));
+        String done = checkpoint.recalled(index, 3);
+        if (done != null) return CompletableFuture.completedFuture(new ChunkOutcome(done, 0, 0));
+
+        long[] slowest = new long[1];
+        String recalledDraft = checkpoint.recalled(index, 2);
+        CompletableFuture<String> verified = recalledDraft != null
+                ? CompletableFuture.completedFuture(recalledDraft)
+                : timed(PHASE_2_PREFIX + clean(chunk), "Phase 2 Verify", slowest);
+        return verified.thenCompose(v -> {
+            if (!isUsable(v)) return CompletableFuture.completedFuture(new ChunkOutcome(null, 2, slowest[0]));
+            if (recalledDraft == null) checkpoint.record(index, 2, v);
+            return timed(PHASE_3_PREFIX + v, "Phase 3 Link", slowest).thenApply(linked -> {
+                if (!isUsable(linked)) return new ChunkOutcome(null, 3, slowest[0]);
+                checkpoint.record(index, 3, linked);
+                return new ChunkOutcome(linked, 0, slowest[0]);
+            });
+        });
+    }
+
+    /** A model call that never fails: errors become null, and its latency is folded into {@code slowest}. */
+    private CompletableFuture<String> timed(String prompt, String label, long[] slowest) {
+        long start = System.nanoTime();
+        CompletableFuture<String> call;
+        try {
+            call = model.generate(prompt, label);
+        } catch (RuntimeException e) {
+            call = CompletableFuture.failedFuture(e);
+        }
+        return call.handle((response, ex) -> {
+            slowest[0] = Math.max(slowest[0], System.nanoTime() - start);
+            return ex == null ? response : null;
+        });
+    }
+}
@@ -0,0 +1,150 @@
+package com.cielcompanion.service;
+
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.TargetDataLine;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * The live microphone. Starts on the best input present at launch instead of waiting for
+ * the preferred one, then keeps watching the device list: a better-ranked device that
+ * appears later, or a replacement for one that was unplugged, is switched to in place.
+ * The reader just continues on the new line, so the recognizer is never rebuilt for it.
+ */
+public class MicrophoneAudioSource implements AudioSource {
+
+    private static final long DEFAULT_RESCAN_SECONDS = 3;
+    private static final long NO_DEVICE_WAIT_MS = 250;
+
+    private final MicrophoneSelector selector;
+    private final long rescanSeconds;
+    private volatile TargetDataLine line;
+    private volatile MicrophoneSelector.Candidate device;
+    private ScheduledFuture<?> rescanTask;
+    private volatile boolean open = false;
+
+    public MicrophoneAudioSource() {
+        this(MicrophoneSelector.fromSettings(), Settings.getMicRescanSeconds() > 0 ? Settings.getMicRescanSeconds() : DEFAULT_RESCAN_SECONDS);
+    }
+
+    public MicrophoneAudioSource(MicrophoneSelector selector, long rescanSeconds) {
+        this.selector = selector;
+        this.rescanSeconds = rescanSeconds;
+    }
+
+    /**
+     * Opens the best input available now. With no input at all the source still opens and
+     * picks one up as soon as it is plugged in.
+     */
+    @Override
+    public synchronized boolean open() {
+        open = true;
+        selector.deviceListChanged();
+        List<MicrophoneSelector.Candidate> available = selector.enumerate();
+        for (MicrophoneSelector.Candidate candidate : available) {
+            if (switchTo(candidate)) break;
+        }
+        if (line == null) {
+            System.out.println("Ciel Warning: No microphone available yet. Waiting for one to be connected.");
+        }
+        rescanTask = selector.schedule(this::rescan, rescanSeconds);
+        return true;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) {
+        TargetDataLine current = line;
+        if (current == null) {
+            try { Thread.sleep(NO_DEVICE_WAIT_MS); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+            return 0;
+        }
+        return current.read(buffer, offset, length);
+    }
+
+    @Override
+    public boolean isOpen() {
+        if (!open) return false;
+        TargetDataLine current = line;
+        return current == null || current.isOpen();
+    }
+
+    @Override
+    public boolean isActive() {
+        TargetDataLine current = line;
+        return current != null && current.isActive();
+    }
+
+    @Override
+    public boolean isAwaitingDevice() {
+        return open && line == null;
+    }
+
+    @Override
+    public String describe() {
+        MicrophoneSelector.Candidate current = device;
+        return "microphone: " + (current != null ? current.name() : "none");
+    }
+
+    /** Also unblocks a capture thread waiting in {@link #read}. */
+    @Override
+    public synchronized void close() {
+        open = false;
+        if (rescanTask != null) rescanTask.cancel(false);
+        closeLine(line);
+        line = null;
+        device = null;
+    }
+
+    /**
+     * Periodic re-check. Nothing is probed unless the set of mixers changed or the current
+     * line died, so in steady state this is one {@code getMixerInfo()} call.
+     */
+    private synchronized void rescan() {
+        if (!open) return;
+        TargetDataLine current = line;
+        boolean lineHealthy = current != null && current.isOpen();
+        if (!selector.deviceListChanged() && lineHealthy) return;
+
+        List<MicrophoneSelector.Candidate> available = selector.enumerate();
+        MicrophoneSelector.Candidate active = device;
+        boolean stillPresent = lineHealthy && active != null
+                && available.stream().anyMatch(c -> c.name().equals(active.name()));
+
+        for (MicrophoneSelector.Candidate candidate : available) {
+            if (stillPresent && candidate.rank() >= active.rank()) break;
+            if (switchTo(candidate)) return;
+        }
+        if (!stillPresent && active != null && line == current) {
+            System.out.println("Ciel Warning: Microphone '" + active.name() + "' disappeared and no other input is available.");
+            closeLine(current);
+            line = null;
+            device = null;
+        }
+    }
+
+    private boolean switchTo(MicrophoneSelector.Candidate candidate) {
+        try {
+            TargetDataLine next = selector.openLine(candidate);
+            TargetDataLine previous = line;
+            MicrophoneSelector.Candidate previousDevice = device;
+            line = next;
+            device = candidate;
+            // Closing the old line releases a read still blocked on it; the reader moves over
+            closeLine(previous);
+            if (previousDevice == null) {
+                System.out.println("Ciel Debug: Microphone opened: " + candidate.name() + ".");
+            } else {
+                System.out.println("Ciel Debug: Microphone switched from " + previousDevice.name() + " to " + candidate.name() + ".");
+            }
+            return true;
+        } catch (LineUnavailableException | IllegalArgumentException | SecurityException e) {
+            System.out.println("Ciel Warning: Could not open microphone " + candidate.name() + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    private static void closeLine(TargetDataLine target) {
+        if (target == null) return;
+        try { target.stop(); target.close(); } catch (Exception e) {}
+    }
+}
@@ -0,0 +1,111 @@
+package com.cielcompanion.service;
+
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.DataLine;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.Mixer;
+import javax.sound.sampled.TargetDataLine;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Ranks the capture devices that are present right now. Preferred devices (by name, in
+ * order) come first, then the system default, then any other input that can record the
+ * recognizer's format, so there is always something to listen with straight away. Callers
+ * re-check through {@link #schedule}; the full probe only runs when the device list changed.
+ */
+public final class MicrophoneSelector {
+
+    /** A usable input. {@code mixer} is null for the system default line. */
+    public record Candidate(Mixer.Info mixer, String name, int rank) {}
+
+    private static final List<String> DEFAULT_PRIORITY = List.of("Microphone (NVIDIA Broadcast)", "Focusrite", "Default Input");
+    private static final DataLine.Info LINE_INFO = new DataLine.Info(TargetDataLine.class, AudioSource.FORMAT);
+
+    private static final ScheduledExecutorService monitor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "Ciel-MicMonitor");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final List<String> priority;
+    private Set<String> lastSeenMixers = Set.of();
+
+    public MicrophoneSelector(List<String> priority) {
+        this.priority = (priority == null || priority.isEmpty() ? DEFAULT_PRIORITY : priority).stream()
+                .map(String::trim).filter(s -> !s.isEmpty()).map(String::toLowerCase).toList();
+    }
+
+    /** Preferences from {@code voice.mic.priority}, or the built-in ones before settings are loaded. */
+    public static MicrophoneSelector fromSettings() {
+        String configured = Settings.getMicPriority();
+        return new MicrophoneSelector(configured == null ? null : Arrays.asList(configured.split(",")));
+    }
+
+    /** Every input that can record the recognizer's format right now, best first. */
+    public List<Candidate> enumerate() {
+        List<Candidate> found = new ArrayList<>();
+        for (Mixer.Info mixerInfo : AudioSystem.getMixerInfo()) {
+            try {
+                if (AudioSystem.getMixer(mixerInfo).isLineSupported(LINE_INFO)) {
+                    found.add(new Candidate(mixerInfo, mixerInfo.getName(), rank(mixerInfo.getName())));
+                }
+            } catch (Exception e) {
+                // A device that vanished mid-probe is simply not a candidate
+            }
+        }
+        if (AudioSystem.isLineSupported(LINE_INFO)) {
+            found.add(new Candidate(null, "System Default", priority.size()));
+        }
+        found.sort(Comparator.comparingInt(Candidate::rank));
+        return found;
+    }
+
+    public Optional<Candidate> best() {
+        List<Candidate> available = enumerate();
+        return available.isEmpty() ? Optional.empty() : Optional.of(available.get(0));
+    }
+
+    /**
+     * Cheap check used by the periodic re-scan: compares mixer names only, without opening
+     * or probing anything.
+     */
+    public synchronized boolean deviceListChanged() {
+        Set<String> now = Arrays.stream(AudioSystem.getMixerInfo()).map(Mixer.Info::getName).collect(Collectors.toSet());
+        if (now.equals(lastSeenMixers)) return false;
+        lastSeenMixers = now;
+        return true;
+    }
+
+    /** Opens and starts a line on the candidate device. */
+    public TargetDataLine openLine(Candidate candidate) throws LineUnavailableException {
+        TargetDataLine line = candidate.mixer() == null
+                ? (TargetDataLine) AudioSystem.getLine(LINE_INFO)
+                : (TargetDataLine) AudioSystem.getMixer(candidate.mixer()).getLine(LINE_INFO);
+        line.open(AudioSource.FORMAT);
+        line.start();
+        return line;
+    }
+
+    public ScheduledFuture<?> schedule(Runnable rescan, long periodSeconds) {
+        return monitor.scheduleWithFixedDelay(rescan, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+
+    private int rank(String mixerName) {
+        String name = mixerName.toLowerCase();
+        for (int i = 0; i < priority.size(); i++) {
+            if (name.contains(priority.get(i))) return i;
+        }
+        // Unlisted inputs still beat having none, but rank after the system default
+        return priority.size() + 1;
+    }
+}
@@ -60,6 +60,15 @@ public class Settings {
     private static String AZURE_SPEECH_REGION;
     private static String AZURE_VOICE_NAME;
     private static long AZURE_MONTHLY_LIMIT_HOURS; 
+    private static boolean VOICE_CACHE_ARCHIVE_ENABLED;
+    private static int AZURE_INTERACTIVE_RESERVE_PERCENT;
+    private static String FALLBACK_TTS_WORKER_COMMAND;
+    private static boolean VOICE_ACTIVITY_DETECTION_ENABLED;
+    private static boolean TWO_TIER_RECOGNITION_ENABLED;
+    private static String MIC_PRIORITY;
+    private static long MIC_RESCAN_SECONDS;
+    private static boolean INTENT_CLASSIFIER_ENABLED;
+    private static double INTENT_CLASSIFIER_THRESHOLD;
 
     // --- NEW: AI ORCHESTRATION SETTINGS ---
     private static String LLM_PERSONALITY_URL; 
@@ -71,6 +80,8 @@ public class Settings {
     
     private static String LLM_LOCAL_LOGIC_FALLBACK_URL; 
     private static String LLM_LOCAL_LOGIC_FALLBACK_MODEL; 
+    private static boolean LLM_HEDGE_LOGIC;
+    private static int LORE_PIPELINE_WINDOW;
     
     private static String LLM_ONLINE_FALLBACK_URL; 
     private static String LLM_ONLINE_FALLBACK_KEY;
@@ -155,8 +166,18 @@ public class Settings {
             AZURE_SPEECH_REGION = props.getProperty("azure.speech.region", "");
             AZURE_VOICE_NAME = props.getProperty("azure.speech.voiceName", "ja-JP-NanamiNeural");
             AZURE_MONTHLY_LIMIT_HOURS = Long.parseLong(props.getProperty("azure.speech.limitHours", "5"));
+            VOICE_CACHE_ARCHIVE_ENABLED = Boolean.parseBoolean(props.getProperty("azure.speech.cacheArchive", "false"));
+            AZURE_INTERACTIVE_RESERVE_PERCENT = Integer.parseInt(props.getProperty("azure.speech.interactiveReservePercent", "10"));
+            FALLBACK_TTS_WORKER_COMMAND = props.getProperty("tts.fallback.workerCommand", "");
+            VOICE_ACTIVITY_DETECTION_ENABLED = Boolean.parseBoolean(props.getProperty("voice.vad.enabled", "true"));
+            TWO_TIER_RECOGNITION_ENABLED = Boolean.parseBoolean(props.getProperty("voice.twoTier.enabled", "true"));
+            MIC_PRIORITY = props.getProperty("voice.mic.priority", "Microphone (NVIDIA Broadcast),Focusrite,Default Input");
+            MIC_RESCAN_SECONDS = Long.parseLong(props.getProperty("voice.mic.rescanSeconds", "3"));
+            INTENT_CLASSIFIER_ENABLED = Boolean.parseBoolean(props.getProperty("nlu.classifier.enabled", "true"));
+            INTENT_CLASSIFIER_THRESHOLD = Double.parseDouble(props.getProperty("nlu.classifier.threshold", "0.8"));
 
             AzureUsageTracker.setLimit(AZURE_MONTHLY_LIMIT_HOURS * 3600);
+            AzureUsageTracker.setInteractiveReservePercent(AZURE_INTERACTIVE_RESERVE_PERCENT);
 
             // --- AI ORCHESTRATION ---
             LLM_PERSONALITY_URL = props.getProperty("ciel.ai.personalityUrl", "http://localhost:11434/v1"); 
@@ -170,6 +191,8 @@ public class Settings {
             
             LLM_LOCAL_LOGIC_FALLBACK_URL = props.getProperty("ciel.ai.localLogicFallbackUrl", "http://localhost:1234/v1");
             LLM_LOCAL_LOGIC_FALLBACK_MODEL = props.getProperty("ciel.ai.localLogicFallbackModel", "phi-4-reasoning-plus");
+            LLM_HEDGE_LOGIC = Boolean.parseBoolean(props.getProperty("ciel.ai.hedgeLogic", "true"));
+            LORE_PIPELINE_WINDOW = Integer.parseInt(props.getProperty("ciel.ai.lorePipelineWindow", "3"));
             
             LLM_ONLINE_FALLBACK_URL = props.getProperty("ciel.ai.fallbackUrl", "https://api.openai.com/v1");
             LLM_ONLINE_FALLBACK_KEY = props.getProperty("ciel.ai.fallbackKey", "");
@@ -225,6 +248,14 @@ public class Settings {
     public static String getAzureSpeechKey() { return AZURE_SPEECH_KEY; }
     public static String getAzureSpeechRegion() { return AZURE_SPEECH_REGION; }
     public static String getAzureVoiceName() { return AZURE_VOICE_NAME; }
+    public static boolean isVoiceCacheArchiveEnabled() { return VOICE_CACHE_ARCHIVE_ENABLED; }
+    public static String getFallbackTtsWorkerCommand() { return FALLBACK_TTS_WORKER_COMMAND; }
+    public static boolean isVoiceActivityDetectionEnabled() { return VOICE_ACTIVITY_DETECTION_ENABLED; }
+    public static boolean isTwoTierRecognitionEnabled() { return TWO_TIER_RECOGNITION_ENABLED; }
+    public static String getMicPriority() { return MIC_PRIORITY; }
+    public static long getMicRescanSeconds() { return MIC_RESCAN_SECONDS; }
+    public static boolean isIntentClassifierEnabled() { return INTENT_CLASSIFIER_ENABLED; }
+    public static double getIntentClassifierThreshold() { return INTENT_CLASSIFIER_THRESHOLD; }
 
     public static String getLlmPersonalityUrl() { return LLM_PERSONALITY_URL; }
     public static String getLlmPersonalityModel() { return LLM_PERSONALITY_MODEL; }
@@ -235,6 +266,8 @@ public class Settings {
     
     public static String getLlmLocalLogicFallbackUrl() { return LLM_LOCAL_LOGIC_FALLBACK_URL; }
     public static String getLlmLocalLogicFallbackModel() { return LLM_LOCAL_LOGIC_FALLBACK_MODEL; }
+    public static boolean isLlmLogicHedgingEnabled() { return LLM_HEDGE_LOGIC; }
+    public static int getLorePipelineWindow() { return LORE_PIPELINE_WINDOW; }
     
     public static String getLlmOnlineFallbackUrl() { return LLM_ONLINE_FALLBACK_URL; }
     public static String getLlmOnlineFallbackKey() { return LLM_ONLINE_FALLBACK_KEY; }
@@ -0,0 +1,48 @@
+package com.cielcompanion.service;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Playback lifecycle events published by the audio layer. Every utterance produces
+ * STARTED once audio is actually leaving the speaker, optional PROGRESS ticks while a
+ * clip plays, and exactly one FINISHED or INTERRUPTED carrying the real end time.
+ */
+public class SpeechPlayback {
+
+    public enum Phase { STARTED, PROGRESS, FINISHED, INTERRUPTED }
+
+    /**
+     * @param positionMs how far into the utterance playback is (0 when unknown)
+     * @param durationMs total utterance length, or -1 when the output does not report it
+     * @param timestamp  wall-clock time the event happened
+     */
+    public record Event(Phase phase, String key, long positionMs, long durationMs, long timestamp) {
+        public boolean isTerminal() {
+            return phase == Phase.FINISHED || phase == Phase.INTERRUPTED;
+        }
+    }
+
+    private static final List<Consumer<Event>> listeners = new CopyOnWriteArrayList<>();
+
+    public static void addListener(Consumer<Event> listener) {
+        listeners.add(listener);
+    }
+
+    public static void removeListener(Consumer<Event> listener) {
+        listeners.remove(listener);
+    }
+
+    static Event publish(Phase phase, String key, long positionMs, long durationMs) {
+        Event event = new Event(phase, key, positionMs, durationMs, System.currentTimeMillis());
+        for (Consumer<Event> listener : listeners) {
+            try {
+                listener.accept(event);
+            } catch (Exception e) {
+                System.err.println("Ciel Error: Playback listener failed: " + e.getMessage());
+            }
+        }
+        return event;
+    }
+}
@@ -4,11 +4,9 @@ import com.cielcompanion.CielState;
 import com.cielcompanion.ai.AIEngine;
 import com.cielcompanion.memory.Fact;
 import com.cielcompanion.memory.MemoryService;
-import com.cielcompanion.memory.stwm.ShortTermMemory;
 import com.cielcompanion.memory.stwm.ShortTermMemoryService;
 import com.cielcompanion.mood.Emotion;
 import com.cielcompanion.mood.MoodConfig;
-import com.cielcompanion.service.SystemMonitor.SystemMetrics;
 import com.cielcompanion.ui.CielGui;
 import com.cielcompanion.service.LineManager.DialogueLine;
 import com.cielcompanion.util.CielTools;
@@ -18,24 +16,23 @@ import com.cielcompanion.service.CielVoiceManager;
 import com.cielcompanion.service.VoiceListener;
 import com.cielcompanion.service.TranslationService;
 
-import java.awt.AWTException;
-import java.awt.Robot;
-import java.awt.event.KeyEvent;
-import java.util.Base64;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.nio.charset.StandardCharsets;
 import java.util.stream.Collectors;
 
 /**
@@ -49,25 +46,37 @@ public class SpeechService {
     /*  Thread-pools & state tracking                                      */
     /* ------------------------------------------------------------------ */
     private static final ExecutorService speechExecutor = Executors.newSingleThreadExecutor();
+    private static final ExecutorService preparationExecutor = Executors.newSingleThreadExecutor();
     private static volatile Future<?> sequentialSpeechTask = null;
     private static volatile Future<?> currentSpeechTask = null;
+    private static volatile CompletableFuture<SpeechPlayback.Event> currentCompletion = CompletableFuture.completedFuture(null);
     private static final AtomicBoolean isActivelySpeaking = new AtomicBoolean(false);
     private static volatile boolean sequenceCancelled = false;
-    private static final AtomicReference<Process> activeProcess = new AtomicReference<>();
     private static VoiceListener voiceListener;
     private static final Random random = new Random();
 
+    private static final Pattern EMOTION_TAG_PATTERN = Pattern.compile("\\[([a-zA-Z]+)\\]");
+    private static final Pattern LATIN_PATTERN = Pattern.compile("[a-zA-Z]");
+
     /* ------------------------------------------------------------------ */
-    /*  GLOBAL MEDIA MANAGER – pause-while-speaking logic                  */
+    /*  LOOK-AHEAD PIPELINE STATE                                          */
     /* ------------------------------------------------------------------ */
-    private static final AtomicInteger speechQueueCount = new AtomicInteger(0);
-    private static volatile boolean mediaWasPausedForSpeech = false;
-    private static volatile boolean gameWasPausedForSpeech = false;
-    private static final Object pauseLock = new Object();
+    // Chunks held between preparation and the end of their playback (the playing one + 1 ahead)
+    private static final int LOOK_AHEAD_CHUNKS = 2;
+    private static final Semaphore lookAheadPermits = new Semaphore(LOOK_AHEAD_CHUNKS);
+    private static final AtomicLong pipelineGeneration = new AtomicLong();
+    private static final ConcurrentLinkedDeque<PipelineChunk> pipelineOrder = new ConcurrentLinkedDeque<>();
+    private static final Object pipelineLock = new Object();
+    private static volatile List<PipelineChunk> sequentialChunks = List.of();
 
     public static void initialize(VoiceListener listener) {
         voiceListener = listener;
         AzureSpeechService.initialize();
+        FallbackSpeechWorker.setCommand(Settings.getFallbackTtsWorkerCommand());
+        if (!AzureSpeechService.isAvailable()) {
+            // Every line will go through the fallback voice, so have it loaded before the first one
+            CompletableFuture.runAsync(FallbackSpeechWorker::prewarm);
+        }
         System.out.println("Ciel Debug: SpeechService initialized.");
     }
 
@@ -79,98 +88,25 @@ public class SpeechService {
         return isActivelySpeaking.get();
     }
 
-    /* ------------------------------------------------------------------ */
-    /*  CORE PAUSE/RESUME LOGIC                                            */
-    /* ------------------------------------------------------------------ */
-    private static void enqueueSpeech() {
-        synchronized (pauseLock) {
-            if (speechQueueCount.getAndIncrement() == 0) {
-                SystemMetrics metrics = SystemMonitor.getSystemMetrics();
-                ShortTermMemory memory = ShortTermMemoryService.getMemory();
-                String currentCategory = HabitTrackerService.getCurrentCategory();
-
-                String activeProcLower = metrics.activeProcessName() != null ? metrics.activeProcessName().toLowerCase() : "";
-
-                boolean isMediaActive = metrics.isPlayingMedia() ||
-                        "Media".equalsIgnoreCase(currentCategory) ||
-                        HabitTrackerService.isMediaTitle(metrics.activeWindowTitle()) ||
-                        activeProcLower.contains("stremio") ||
-                        activeProcLower.contains("crunchyroll");
-
-                boolean isGamingActive = memory.isInGamingSession() || "Gaming".equalsIgnoreCase(currentCategory);
-
-                if (isMediaActive && !isGamingActive) {
-                    System.out.println("Ciel Debug: Global Speech Queue active. Media detected. Suspending playback immediately.");
-                    mediaWasPausedForSpeech = true;
-                    // Properly delegates to HabitTracker to execute the OS-level pause
-                    HabitTrackerService.toggleMediaPlayback();
-                }
-
-                if (isGamingActive && HabitTrackerService.isCurrentGamePausable()) {
-                    System.out.println("Ciel Debug: Global Speech Queue active. Suspending game immediately.");
-                    gameWasPausedForSpeech = true;
-                    try {
-                        Robot robot = new Robot();
-                        AzureSpeechService.isSimulatingKeystroke = true;
-                        AzureSpeechService.lastSimulatedInputTime = System.currentTimeMillis();
-                        robot.keyPress(KeyEvent.VK_ESCAPE);
-                        robot.keyRelease(KeyEvent.VK_ESCAPE);
-                        Thread.sleep(600);
-                        AzureSpeechService.isSimulatingKeystroke = false;
-                    } catch (AWTException | InterruptedException ignored) {}
-                }
-            }
-        }
-    }
-
-    private static void dequeueSpeech() {
-        if (speechQueueCount.decrementAndGet() == 0) {
-            // Maintains the 1.5s natural pause buffer AFTER Ciel stops speaking before resuming the media
-            Executors.newSingleThreadScheduledExecutor().schedule(() -> {
-                synchronized (pauseLock) {
-                    if (speechQueueCount.get() == 0) {
-                        if (mediaWasPausedForSpeech) {
-                            System.out.println("Ciel Debug: Global Speech Queue empty. Restoring media playback.");
-                            mediaWasPausedForSpeech = false;
-                            HabitTrackerService.toggleMediaPlayback();
-                        }
-                        if (gameWasPausedForSpeech) {
-                            System.out.println("Ciel Debug: Global Speech Queue empty. Restoring game.");
-                            gameWasPausedForSpeech = false;
-                            try {
-                                Robot robot = new Robot();
-                                AzureSpeechService.isSimulatingKeystroke = true;
-                                AzureSpeechService.lastSimulatedInputTime = System.currentTimeMillis();
-                                robot.keyPress(KeyEvent.VK_ESCAPE);
-                                robot.keyRelease(KeyEvent.VK_ESCAPE);
-                                Thread.sleep(100);
-                                AzureSpeechService.isSimulatingKeystroke = false;
-                            } catch (AWTException | InterruptedException ignored) {}
-                        }
-                        // FIX: Safely return GUI to idle ONLY when the entire queue is empty
-                        CielState.getCielGui().ifPresent(gui -> gui.setState(CielGui.GuiState.IDLE));
-                    }
-                }
-            }, 1500, TimeUnit.MILLISECONDS);
-        }
-    }
-
     public static void stopCurrentPlayback() {
+        // Invalidate every queued standalone chunk so nothing prepared before the flush plays
+        pipelineGeneration.incrementAndGet();
+        for (PipelineChunk chunk : pipelineOrder) {
+            if (!chunk.sequenced) chunk.discard();
+        }
         if (currentSpeechTask != null && !currentSpeechTask.isDone()) {
             currentSpeechTask.cancel(true);
         }
-        Process p = activeProcess.get();
-        if (p != null && p.isAlive()) {
-            p.destroyForcibly();
-        }
+        FallbackSpeechWorker.stopCurrent();
         if (AzureSpeechService.isAvailable()) {
             AzureSpeechService.stopAllAudio();
         }
+        // Give the cancelled utterance a moment to report its interruption and release the device
         try {
-            Thread.sleep(250);
+            currentCompletion.get(250, TimeUnit.MILLISECONDS);
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
-        }
+        } catch (Exception ignored) {}
         isActivelySpeaking.set(false);
         if (voiceListener != null) voiceListener.setInternalMute(false);
         CielState.getCielGui().ifPresent(gui -> gui.setState(CielGui.GuiState.IDLE));
@@ -181,27 +117,28 @@ public class SpeechService {
         if (sequentialSpeechTask != null) {
             sequentialSpeechTask.cancel(true);
         }
+        sequentialChunks.forEach(PipelineChunk::discard);
         ShortTermMemoryService.getMemory().setSpeechEndTime(System.currentTimeMillis());
     }
 
     /* ------------------------------------------------------------------ */
     /*  SPEAK API                                                          */
     /* ------------------------------------------------------------------ */
-    public static void speak(String text) { speakPreformatted(text, null, false, true); }
-    public static void speak(String text, boolean isRare) { speakPreformatted(text, null, isRare, true); }
-    public static void speak(String text, String key) { speakPreformatted(text, key, false, true); }
+    public static CompletableFuture<SpeechPlayback.Event> speak(String text) { return speakPreformatted(text, null, false, true); }
+    public static CompletableFuture<SpeechPlayback.Event> speak(String text, boolean isRare) { return speakPreformatted(text, null, isRare, true); }
+    public static CompletableFuture<SpeechPlayback.Event> speak(String text, String key) { return speakPreformatted(text, key, false, true); }
 
-    public static void speakPreformatted(String text) { speakPreformatted(text, null, false, true); }
-    public static void speakPreformatted(String text, String key) { speakPreformatted(text, key, false, true); }
-    public static void speakPreformatted(String text, String key, boolean isRare) { speakPreformatted(text, key, isRare, true); }
+    public static CompletableFuture<SpeechPlayback.Event> speakPreformatted(String text) { return speakPreformatted(text, null, false, true); }
+    public static CompletableFuture<SpeechPlayback.Event> speakPreformatted(String text, String key) { return speakPreformatted(text, key, false, true); }
+    public static CompletableFuture<SpeechPlayback.Event> speakPreformatted(String text, String key, boolean isRare) { return speakPreformatted(text, key, isRare, true); }
 
-    public static void speakAnnoyed(String text) { speakPreformatted(text, null, false, true); }
+    public static CompletableFuture<SpeechPlayback.Event> speakAnnoyed(String text) { return speakPreformatted(text, null, false, true); }
 
-    public static void speakChunk(String text) { speakPreformatted(text, null, false, false); }
+    public static CompletableFuture<SpeechPlayback.Event> speakChunk(String text) { return speakPreformatted(text, null, false, false); }
 
-    public static void speakPreformatted(String text, String key, boolean isRare, boolean flushQueue) {
+    public static CompletableFuture<SpeechPlayback.Event> speakPreformatted(String text, String key, boolean isRare, boolean flushQueue) {
         try {
-            if (text == null || text.isBlank()) return;
+            if (text == null || text.isBlank()) return CompletableFuture.completedFuture(null);
 
             // CRITICAL FIX: Ensure greetings are ALWAYS spoken, completely ignoring gaming suppression.
             boolean isGreeting = key != null && (key.startsWith("boot_greeting") || key.startsWith("login_greeting") || key.startsWith("warm_login"));
@@ -214,7 +151,7 @@ public class SpeechService {
                 // If it's not the initial launch comment, and we aren't heavily idle, suppress it.
                 if (!isGameLaunch && !isPhase3Or4) {
                     System.out.println("Ciel Debug: Suppressing non-critical speech (" + key + ") due to active Gaming Mode.");
-                    return;
+                    return CompletableFuture.completedFuture(null);
                 }
             }
 
@@ -222,18 +159,7 @@ public class SpeechService {
                 stopCurrentPlayback();
             }
 
-            Matcher matcher = Pattern.compile("\\[([a-zA-Z]+)\\]").matcher(text);
-            String emotionToTrigger = null;
-            while (matcher.find()) {
-                emotionToTrigger = matcher.group(1);
-            }
-            String cleanText = matcher.replaceAll("").trim();
-            cleanText = cleanText.replaceAll("\\*.*?\\*", "").trim();
-
-            if (emotionToTrigger != null && !emotionToTrigger.isBlank()) {
-                final String finalEmotion = emotionToTrigger;
-                CielState.getEmotionManager().ifPresent(em -> em.triggerEmotion(finalEmotion, 0.8, "Dialogue Tag"));
-            }
+            String cleanText = stripDialogueTags(text);
 
             System.out.println("[Ciel Dialogue]: " + cleanText);
 
@@ -241,212 +167,119 @@ public class SpeechService {
                 CielState.getEmotionManager().ifPresent(em -> em.triggerEmotion("Excited", 0.8, "RareDialogue"));
             }
 
-            String langCode = CielVoiceManager.getActiveLanguageCode();
-
-            String style = "default";
-            String pitch = "+0%";
-            String attitude = "Professional";
+            VoiceStyle voice = resolveVoiceStyle();
 
-            if (CielState.getEmotionManager().isPresent()) {
-                attitude = CielState.getEmotionManager().get().getCurrentAttitude();
-                if (!"Professional".equals(attitude)) {
-                    Optional<MoodConfig.AttitudeDefinition> attDef = MoodConfig.getAttitudeDef(attitude);
-                    if (attDef.isPresent()) {
-                        style = attDef.get().styleModifier();
-                        pitch = attDef.get().pitchModifier();
-                    }
-                } else {
-                    List<Emotion> activeEmotions = CielState.getEmotionManager().get().getEmotionalState().getActiveEmotions().values().stream()
-                            .sorted(Comparator.comparingDouble(Emotion::intensity).reversed())
-                            .collect(Collectors.toList());
-
-                    if (!activeEmotions.isEmpty()) {
-                        Emotion dominant = activeEmotions.get(0);
-                        Optional<MoodConfig.EmotionDefinition> domDef = MoodConfig.getEmotionDef(dominant.name());
-                        if (domDef.isPresent()) {
-                            pitch = domDef.get().pitch();
-                            style = domDef.get().ssmlStyle();
-                        }
-                    }
-                }
-                pitch = applyHumanVariance(pitch);
-            }
+            synchronized (pipelineLock) {
+                PipelineChunk chunk = schedulePreparation(false, renderAhead -> prepareLine(cleanText, key, voice, renderAhead));
+                currentCompletion = chunk.completion;
 
-            final String finalStyle = style;
-            final String finalPitch = pitch;
-            final String finalAttitude = attitude;
-            final String finalCleanText = cleanText;
+                currentSpeechTask = speechExecutor.submit(() -> {
+                    boolean hasEnqueued = false;
+                    try {
+                        PreparedLine line = awaitPrepared(chunk);
+                        if (line == null) return;
 
-            currentSpeechTask = speechExecutor.submit(() -> {
-                boolean hasEnqueued = false;
-                try {
-                    String textToSpeak = finalCleanText;
-
-                    // --------------------------------------------------------------
-                    //  ★  HARD CACHE BYPASS: PREVENTS KATAKANA NETWORK FREEZING ★
-                    // --------------------------------------------------------------
-                    boolean needsLanguageConversion = false;
-                    boolean isAlreadyCached = AzureSpeechService.isCached(key, finalStyle, langCode);
-
-                    if (!isAlreadyCached) {
-                        if (CielVoiceManager.isLanguageLocked()) {
-                            needsLanguageConversion = true;
-                        } else if (langCode.equals("ja-JP") && Pattern.compile("[a-zA-Z]").matcher(textToSpeak).find()) {
-                            needsLanguageConversion = true;
+                        // CRITICAL FIX: The Katakana translation might have taken 5-10 seconds.
+                        // We only enqueue the speech (and thus pause the media) right now, exactly
+                        // 600ms before she begins physically speaking.
+                        hasEnqueued = true;
+                        if (SpeechSession.begin()) {
+                            try { Thread.sleep(600); } catch (Exception ignored) {}
                         }
 
-                        if (needsLanguageConversion) {
-                            // Update GUI, but do NOT pause media yet!
-                            CielState.getCielGui().ifPresent(gui -> gui.setState(CielGui.GuiState.THINKING));
+                        if (line.needsLanguageConversion()) {
+                            CielState.getCielGui().ifPresent(gui -> gui.setState(CielGui.GuiState.SPEAKING));
                         }
 
-                        if (CielVoiceManager.isLanguageLocked()) {
-                            textToSpeak = TranslationService.toJapanese(textToSpeak);
-                            System.out.println("[Ciel World Voice]: Translated to: " + textToSpeak);
-                        } else if (langCode.equals("ja-JP") && Pattern.compile("[a-zA-Z]").matcher(textToSpeak).find()) {
-                            textToSpeak = com.cielcompanion.ai.AIEngine.transliterateToKatakanaSync(textToSpeak);
-                            System.out.println("[Ciel World Voice]: Transliterated to Katakana: " + textToSpeak);
+                        chunk.completion.complete(executeSpeechBlocking(line));
+                    } finally {
+                        chunk.discard();
+                        if (hasEnqueued) {
+                            SpeechSession.end(chunk.completion.join().timestamp());
                         }
-                    } else {
-                        System.out.println("Ciel Debug: Audio is locally cached (" + key + "). Bypassing Swarm translation pipeline.");
-                    }
-                    // --------------------------------------------------------------
-
-                    // CRITICAL FIX: The Katakana translation might have taken 5-10 seconds.
-                    // We only enqueue the speech (and thus pause the media) right now, exactly
-                    // 600ms before she begins physically speaking.
-                    if (!hasEnqueued) {
-                        enqueueSpeech();
-                        hasEnqueued = true;
-                        try { Thread.sleep(600); } catch (Exception ignored) {}
-                    }
-
-                    if (needsLanguageConversion) {
-                        CielState.getCielGui().ifPresent(gui -> gui.setState(CielGui.GuiState.SPEAKING));
-                    }
-
-                    executeSpeechBlocking(textToSpeak, key, Settings.getTtsRate(),
-                            finalStyle, finalPitch, langCode);
-                } finally {
-                    if (hasEnqueued) {
-                        dequeueSpeech();
                     }
-                }
-            });
+                });
+                return chunk.completion;
+            }
         } catch (Throwable t) {
             System.err.println("Ciel FATAL Error: Exception caught during speakPreformatted initialization:");
             t.printStackTrace();
+            return CompletableFuture.completedFuture(null);
         }
     }
 
+    /** Completes once every utterance currently queued or playing has ended. */
+    public static CompletableFuture<Void> whenIdle() {
+        return CompletableFuture.allOf(pipelineOrder.stream()
+                .map(chunk -> chunk.completion)
+                .toArray(CompletableFuture[]::new));
+    }
+
     /* ------------------------------------------------------------------ */
     /*  Sequential speech (still uses the same queue logic)                */
     /* ------------------------------------------------------------------ */
-    public static void speakSequentially(List<DialogueLine> lines, long delayMs, boolean preformatted, Runnable onComplete) {
+    /** @return a future completed after the last line ends, the sequence is cancelled, or it fails */
+    public static CompletableFuture<Void> speakSequentially(List<DialogueLine> lines, long delayMs, boolean preformatted, Runnable onComplete) {
         if (lines == null || lines.isEmpty()) {
             if (onComplete != null) onComplete.run();
-            return;
+            return CompletableFuture.completedFuture(null);
         }
+        CompletableFuture<Void> sequenceDone = new CompletableFuture<>();
 
         sequenceCancelled = false;
+        CielState.getEmotionManager().ifPresent(em -> em.triggerEmotion("Curious", 0.7, "SequenceDialogue"));
+
+        synchronized (pipelineLock) {
+            // Every line is queued for preparation up front; the look-ahead window stops
+            // preparation from running more than one line ahead of playback.
+            List<PipelineChunk> chunks = new ArrayList<>();
+            for (DialogueLine line : lines) {
+                if (line == null || line.text() == null || line.text().isBlank()) continue;
+                chunks.add(schedulePreparation(true, renderAhead -> {
+                    String textToSpeak = stripDialogueTags(line.text());
+                    return prepareLine(textToSpeak, line.key(), resolveVoiceStyle(), renderAhead);
+                }));
+            }
+            sequentialChunks = chunks;
 
-        sequentialSpeechTask = speechExecutor.submit(() -> {
-            boolean hasEnqueued = false;
-            try {
-                CielState.getEmotionManager().ifPresent(em -> em.triggerEmotion("Curious", 0.7, "SequenceDialogue"));
-                for (int i = 0; i < lines.size(); i++) {
-                    
-                    if (sequenceCancelled || Thread.currentThread().isInterrupted()) {
-                        System.out.println("Ciel Debug: Sequential speech loop explicitly broken via flag.");
-                        break;
-                    }
-
-                    DialogueLine line = lines.get(i);
-                    if (line != null && line.text() != null && !line.text().isBlank()) {
-                        String textToSpeak = line.text();
-
-                        Matcher matcher = Pattern.compile("\\[([a-zA-Z]+)\\]").matcher(textToSpeak);
-                        String emotionToTrigger = null;
-                        while (matcher.find()) {
-                            emotionToTrigger = matcher.group(1);
-                        }
-                        textToSpeak = matcher.replaceAll("").trim();
-                        textToSpeak = textToSpeak.replaceAll("\\*.*?\\*", "").trim();
-
-                        if (emotionToTrigger != null && !emotionToTrigger.isBlank()) {
-                            final String finalEmotion = emotionToTrigger;
-                            CielState.getEmotionManager().ifPresent(em -> em.triggerEmotion(finalEmotion, 0.8, "Dialogue Tag"));
-                        }
+            sequentialSpeechTask = speechExecutor.submit(() -> {
+                boolean hasEnqueued = false;
+                long lastEndedAt = System.currentTimeMillis();
+                try {
+                    for (int i = 0; i < chunks.size(); i++) {
 
-                        String style = "default";
-                        String pitch = "+0%";
-                        String attitude = "Professional";
-
-                        if (CielState.getEmotionManager().isPresent()) {
-                             attitude = CielState.getEmotionManager().get().getCurrentAttitude();
-                             if (!"Professional".equals(attitude)) {
-                                 Optional<MoodConfig.AttitudeDefinition> attDef = MoodConfig.getAttitudeDef(attitude);
-                                 if (attDef.isPresent()) {
-                                     pitch = attDef.get().pitchModifier();
-                                     style = attDef.get().styleModifier();
-                                 }
-                             } else {
-                                 List<Emotion> active = CielState.getEmotionManager().get()
-                                         .getEmotionalState()
-                                         .getActiveEmotions()
-                                         .values()
-                                         .stream()
-                                         .sorted(Comparator.comparingDouble(Emotion::intensity).reversed())
-                                         .collect(Collectors.toList());
-                                 if (!active.isEmpty()) {
-                                     Optional<MoodConfig.EmotionDefinition> def = MoodConfig.getEmotionDef(active.get(0).name());
-                                     if (def.isPresent()) {
-                                         pitch = def.get().pitch();
-                                         style = def.get().ssmlStyle();
-                                     }
-                                 }
-                             }
-                             pitch = applyHumanVariance(pitch);
+                        if (sequenceCancelled || Thread.currentThread().isInterrupted()) {
+                            System.out.println("Ciel Debug: Sequential speech loop explicitly broken via flag.");
+                            break;
                         }
 
-                        String langCode = CielVoiceManager.getActiveLanguageCode();
-
-                        // --- HARD CACHE BYPASS ---
-                        boolean needsLanguageConversion = false;
-                        boolean isAlreadyCached = AzureSpeechService.isCached(line.key(), style, langCode);
-
-                        if (!isAlreadyCached) {
-                            if (CielVoiceManager.isLanguageLocked()) {
-                                needsLanguageConversion = true;
-                            } else if (langCode.equals("ja-JP") && Pattern.compile("[a-zA-Z]").matcher(textToSpeak).find()) {
-                                needsLanguageConversion = true;
+                        PreparedLine line = awaitPrepared(chunks.get(i));
+                        try {
+                            if (line == null) {
+                                if (sequenceCancelled || Thread.currentThread().isInterrupted()) break;
+                                continue;
                             }
 
-                            if (needsLanguageConversion) {
-                                CielState.getCielGui().ifPresent(gui -> gui.setState(CielGui.GuiState.THINKING));
+                            if (!hasEnqueued) {
+                                hasEnqueued = true;
+                                if (SpeechSession.begin()) {
+                                    try { Thread.sleep(600); } catch (Exception ignored) {}
+                                }
                             }
 
-                            if (CielVoiceManager.isLanguageLocked()) {
-                                textToSpeak = TranslationService.toJapanese(textToSpeak);
-                            } else if (langCode.equals("ja-JP") && Pattern.compile("[a-zA-Z]").matcher(textToSpeak).find()) {
-                                textToSpeak = com.cielcompanion.ai.AIEngine.transliterateToKatakanaSync(textToSpeak);
-                            }
+                            SpeechPlayback.Event ended = executeSpeechBlocking(line);
+                            lastEndedAt = ended.timestamp();
+                            chunks.get(i).completion.complete(ended);
+                        } finally {
+                            chunks.get(i).discard();
                         }
 
-                        if (!hasEnqueued) {
-                            enqueueSpeech();
-                            hasEnqueued = true;
-                            try { Thread.sleep(600); } catch (Exception ignored) {}
-                        }
-
-                        executeSpeechBlocking(textToSpeak, line.key(), Settings.getTtsRate(), style, pitch, langCode);
-
                         if (sequenceCancelled || Thread.currentThread().isInterrupted()) {
                             System.out.println("Ciel Debug: Sequential speech loop explicitly broken via flag.");
                             break;
                         }
 
-                        if (i < lines.size() - 1) {
+                        if (i < chunks.size() - 1) {
                             try {
                                 Thread.sleep(delayMs);
                             } catch (InterruptedException e) {
@@ -455,33 +288,238 @@ public class SpeechService {
                             }
                         }
                     }
+                } catch (Exception e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    chunks.forEach(PipelineChunk::discard);
+                    if (hasEnqueued) {
+                        SpeechSession.end(lastEndedAt);
+                    }
+                    try {
+                        if (onComplete != null) onComplete.run();
+                    } finally {
+                        sequentialSpeechTask = null;
+                        sequenceDone.complete(null);
+                    }
                 }
-            } catch (Exception e) {
-                Thread.currentThread().interrupt();
-            } finally {
-                if (hasEnqueued) {
-                    dequeueSpeech();
+            });
+        }
+        return sequenceDone;
+    }
+
+    /* ------------------------------------------------------------------ */
+    /*  LOOK-AHEAD PIPELINE – prepare chunk N+1 while chunk N plays       */
+    /* ------------------------------------------------------------------ */
+    private record VoiceStyle(String style, String pitch) {}
+
+    private record PreparedLine(String text, String key, VoiceStyle voice, String langCode,
+                                boolean needsLanguageConversion,
+                                Optional<AzureSpeechService.SynthesizedAudio> audio) {}
+
+    /**
+     * One utterance travelling through the pipeline. Preparation runs on the single
+     * preparation thread in submission order, playback on the speech thread in the same
+     * order, so the two stages overlap without ever reordering lines.
+     */
+    private static final class PipelineChunk {
+        private final long generation;
+        private final boolean sequenced;
+        private final CompletableFuture<PreparedLine> prepared = new CompletableFuture<>();
+        private final CompletableFuture<SpeechPlayback.Event> completion = new CompletableFuture<>();
+        private final AtomicBoolean holdsPermit = new AtomicBoolean(false);
+
+        private PipelineChunk(long generation, boolean sequenced) {
+            this.generation = generation;
+            this.sequenced = sequenced;
+        }
+
+        private boolean isStale() {
+            return prepared.isDone() || (!sequenced && generation != pipelineGeneration.get());
+        }
+
+        /** Drops the chunk from the pipeline and frees its look-ahead slot. Idempotent. */
+        private void discard() {
+            prepared.complete(null);
+            // Never played (cancelled or failed before playback): report it as interrupted now
+            if (!completion.isDone()) {
+                completion.complete(new SpeechPlayback.Event(SpeechPlayback.Phase.INTERRUPTED, null, 0, -1, System.currentTimeMillis()));
+            }
+            if (holdsPermit.compareAndSet(true, false)) {
+                lookAheadPermits.release();
+            }
+            pipelineOrder.remove(this);
+        }
+    }
+
+    private static PipelineChunk schedulePreparation(boolean sequenced, Function<Boolean, PreparedLine> preparer) {
+        PipelineChunk chunk = new PipelineChunk(pipelineGeneration.get(), sequenced);
+        pipelineOrder.addLast(chunk);
+        preparationExecutor.execute(() -> {
+            try {
+                if (!acquireLookAheadSlot(chunk)) {
+                    chunk.discard();
+                    return;
                 }
-                if (onComplete != null) onComplete.run();
-                sequentialSpeechTask = null;
+                // Only chunks queued behind another utterance pre-render dynamic audio; the
+                // head of the pipeline streams at playback time so it starts as early as before.
+                boolean renderAhead = isActivelySpeaking.get() || pipelineOrder.peekFirst() != chunk;
+                chunk.prepared.complete(preparer.apply(renderAhead));
+            } catch (Throwable t) {
+                System.err.println("Ciel Error: Speech preparation failed: " + t.getMessage());
+                chunk.discard();
             }
         });
+        return chunk;
+    }
+
+    private static boolean acquireLookAheadSlot(PipelineChunk chunk) throws InterruptedException {
+        while (!lookAheadPermits.tryAcquire(100, TimeUnit.MILLISECONDS)) {
+            if (chunk.isStale()) return false;
+        }
+        chunk.holdsPermit.set(true);
+        if (chunk.isStale()) {
+            chunk.discard();
+            return false;
+        }
+        return true;
+    }
+
+    private static PreparedLine awaitPrepared(PipelineChunk chunk) {
+        try {
+            return chunk.prepared.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /** Preparation stage: cache check, language conversion, then synthesis. */
+    private static PreparedLine prepareLine(String text, String key, VoiceStyle voice, boolean renderAhead) {
+        String langCode = CielVoiceManager.getActiveLanguageCode();
+        String textToSpeak = text;
+
+        // --------------------------------------------------------------
+        //  ★  HARD CACHE BYPASS: PREVENTS KATAKANA NETWORK FREEZING ★
+        // --------------------------------------------------------------
+        boolean needsLanguageConversion = false;
+        boolean isAlreadyCached = AzureSpeechService.isCached(key, voice.style(), langCode);
+
+        if (!isAlreadyCached) {
+            if (CielVoiceManager.isLanguageLocked()) {
+                needsLanguageConversion = true;
+            } else if (langCode.equals("ja-JP") && LATIN_PATTERN.matcher(textToSpeak).find()) {
+                needsLanguageConversion = true;
+            }
+
+            // Update GUI, but do NOT pause media yet! Skipped while a previous chunk is audible.
+            if (needsLanguageConversion && !isActivelySpeaking.get()) {
+                CielState.getCielGui().ifPresent(gui -> gui.setState(CielGui.GuiState.THINKING));
+            }
+
+            if (CielVoiceManager.isLanguageLocked()) {
+                textToSpeak = TranslationService.toJapanese(textToSpeak);
+                System.out.println("[Ciel World Voice]: Translated to: " + textToSpeak);
+            } else if (langCode.equals("ja-JP") && LATIN_PATTERN.matcher(textToSpeak).find()) {
+                textToSpeak = com.cielcompanion.ai.AIEngine.transliterateToKatakanaSync(textToSpeak);
+                System.out.println("[Ciel World Voice]: Transliterated to Katakana: " + textToSpeak);
+            }
+        } else {
+            System.out.println("Ciel Debug: Audio is locally cached (" + key + "). Bypassing Swarm translation pipeline.");
+        }
+        // --------------------------------------------------------------
+
+        Optional<AzureSpeechService.SynthesizedAudio> audio = Optional.empty();
+        if (AzureSpeechService.isAvailable()) {
+            audio = AzureSpeechService.synthesize(textToSpeak, key, voice.style(), voice.pitch(), langCode, renderAhead);
+        }
+
+        return new PreparedLine(textToSpeak, key, voice, langCode, needsLanguageConversion, audio);
+    }
+
+    /** Loads a static line's cached audio ahead of time; lines that are not cached are left alone. */
+    public static void warmCachedLine(String key) {
+        if (!AzureSpeechService.isAvailable()) return;
+        VoiceStyle voice = resolveVoiceStyle();
+        AzureSpeechService.preloadCached(key, voice.style(), CielVoiceManager.getActiveLanguageCode());
+    }
+
+    private static String stripDialogueTags(String text) {
+        Matcher matcher = EMOTION_TAG_PATTERN.matcher(text);
+        String emotionToTrigger = null;
+        while (matcher.find()) {
+            emotionToTrigger = matcher.group(1);
+        }
+        String cleanText = matcher.replaceAll("").trim();
+        cleanText = cleanText.replaceAll("\\*.*?\\*", "").trim();
+
+        if (emotionToTrigger != null && !emotionToTrigger.isBlank()) {
+            final String finalEmotion = emotionToTrigger;
+            CielState.getEmotionManager().ifPresent(em -> em.triggerEmotion(finalEmotion, 0.8, "Dialogue Tag"));
+        }
+        return cleanText;
+    }
+
+    private static VoiceStyle resolveVoiceStyle() {
+        String style = "default";
+        String pitch = "+0%";
+
+        if (CielState.getEmotionManager().isPresent()) {
+            String attitude = CielState.getEmotionManager().get().getCurrentAttitude();
+            if (!"Professional".equals(attitude)) {
+                Optional<MoodConfig.AttitudeDefinition> attDef = MoodConfig.getAttitudeDef(attitude);
+                if (attDef.isPresent()) {
+                    style = attDef.get().styleModifier();
+                    pitch = attDef.get().pitchModifier();
+                }
+            } else {
+                List<Emotion> activeEmotions = CielState.getEmotionManager().get().getEmotionalState().getActiveEmotions().values().stream()
+                        .sorted(Comparator.comparingDouble(Emotion::intensity).reversed())
+                        .collect(Collectors.toList());
+
+                if (!activeEmotions.isEmpty()) {
+                    Emotion dominant = activeEmotions.get(0);
+                    Optional<MoodConfig.EmotionDefinition> domDef = MoodConfig.getEmotionDef(dominant.name());
+                    if (domDef.isPresent()) {
+                        pitch = domDef.get().pitch();
+                        style = domDef.get().ssmlStyle();
+                    }
+                }
+            }
+            pitch = applyHumanVariance(pitch);
+        }
+        return new VoiceStyle(style, pitch);
     }
 
-    private static void executeSpeechBlocking(String text, String key, int rate, String style, String pitch, String langCode) {
-        if (Thread.currentThread().isInterrupted()) return;
+    /** Plays one prepared line and returns its terminal FINISHED/INTERRUPTED event. */
+    private static SpeechPlayback.Event executeSpeechBlocking(PreparedLine line) {
+        String text = line.text();
+        String key = line.key();
+        String style = line.voice().style();
+        if (Thread.currentThread().isInterrupted()) {
+            return SpeechPlayback.publish(SpeechPlayback.Phase.INTERRUPTED, key, 0, -1);
+        }
 
+        SpeechPlayback.Event ended;
         try {
             if (voiceListener != null) voiceListener.setInternalMute(true);
             isActivelySpeaking.set(true);
             AzureSpeechService.isIntentionalCancellation = false;
 
+            // Keep privileged mode alive while this line plays; it is refreshed again from the real end time
+            if (ShortTermMemoryService.getMemory().isInPrivilegedMode()) {
+                ShortTermMemoryService.getMemory().setPrivilegedMode(true, 15);
+            }
+
             CielState.getCielGui().ifPresent(gui -> gui.setState(CielGui.GuiState.SPEAKING));
 
             boolean azureSuccess = false;
 
             if (AzureSpeechService.isAvailable()) {
-                azureSuccess = AzureSpeechService.speak(text, key, style, pitch, langCode);
+                azureSuccess = line.audio().isPresent()
+                        ? AzureSpeechService.play(line.audio().get(), key)
+                        : AzureSpeechService.speak(text, key, style, line.voice().pitch(), line.langCode());
                 if (azureSuccess) {
                     System.out.println("Ciel Debug: Azure Speech successful (Key: " + (key != null ? key : "Dynamic") + ", Style: " + style + ")");
                 } else {
@@ -492,30 +530,8 @@ public class SpeechService {
             if (!azureSuccess && !AzureSpeechService.isIntentionalCancellation) {
                 System.out.println("Ciel Debug: SAPI Speaking (Clean Fallback): \"" + text + "\"");
 
-                String safeText = text.replace("'", "''");
-                
                 // Enforce a clean default SAPI fallback, ignoring all Azure pitch/style modifiers.
-                // We explicitly attempt to catch Microsoft Haruka Desktop so Katakana reads correctly.
-                String psScript = "$OutputEncoding = [Console]::OutputEncoding = [System.Text.Encoding]::UTF8; "
-                        + "Add-Type -AssemblyName System.Speech; "
-                        + "$s = New-Object System.Speech.Synthesis.SpeechSynthesizer; "
-                        + "$s.SetOutputToDefaultAudioDevice(); "
-                        + "try { $s.SelectVoice('Microsoft Haruka Desktop'); } catch { try { $s.SelectVoiceByHints('Female') } catch {} } "
-                        + "$s.Rate = 0; "
-                        + "$s.Speak('" + safeText + "'); "
-                        + "$s.Dispose();";
-                
-                String encodedCommand = Base64.getEncoder().encodeToString(psScript.getBytes(StandardCharsets.UTF_16LE));
-
-                ProcessBuilder pb = new ProcessBuilder("pwsh.exe", "-NoProfile", "-NonInteractive", "-EncodedCommand", encodedCommand);
-                try {
-                    Process p = pb.start();
-                    activeProcess.set(p);
-                    p.waitFor(15, TimeUnit.SECONDS);
-                } catch (Exception ignored) {
-                } finally {
-                    activeProcess.set(null);
-                }
+                FallbackSpeechWorker.speak(text, key);
             }
         } finally {
             isActivelySpeaking.set(false);
@@ -533,7 +549,12 @@ public class SpeechService {
             if (ShortTermMemoryService.getMemory().isInPrivilegedMode()) {
                 ShortTermMemoryService.getMemory().setPrivilegedMode(true, 15);
             }
+
+            boolean interrupted = Thread.currentThread().isInterrupted() || AzureSpeechService.isIntentionalCancellation;
+            ended = SpeechPlayback.publish(interrupted ? SpeechPlayback.Phase.INTERRUPTED : SpeechPlayback.Phase.FINISHED,
+                    key, 0, -1);
         }
+        return ended;
     }
 
     private static String applyHumanVariance(String basePitch) {
@@ -550,12 +571,19 @@ public class SpeechService {
         }
     }
 
+    /**
+     * Rough character-count estimate. Only used for up-front Azure quota checks; anything
+     * that needs to know when speech is over should compose on the speak futures instead.
+     */
     public static long estimateSpeechDuration(String text) {
         if (text == null || text.isBlank()) return 0;
         return (long) (text.length() * 115) + 400;
     }
 
     public static void cleanup() {
+        SpeechSession.shutdown();
+        FallbackSpeechWorker.shutdown();
+        preparationExecutor.shutdownNow();
         speechExecutor.shutdownNow();
     }
 }
\ No newline at end of file
@@ -0,0 +1,282 @@
+package com.cielcompanion.service;
+
+import com.cielcompanion.CielState;
+import com.cielcompanion.memory.stwm.ShortTermMemory;
+import com.cielcompanion.memory.stwm.ShortTermMemoryService;
+import com.cielcompanion.service.SystemMonitor.SystemMetrics;
+import com.cielcompanion.ui.CielGui;
+
+import java.awt.AWTException;
+import java.awt.GraphicsEnvironment;
+import java.awt.Robot;
+import java.awt.event.KeyEvent;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pause-while-speaking state machine shared by every utterance. Back-to-back lines are
+ * coalesced into one window: media/game is paused when the first line starts and resumed
+ * once, 1.5s after the last line really ended. Resumes run on a single shared scheduler.
+ * A media toggle that falls inside the debounce of the previous one is not dropped but
+ * retried once the window closes, whether it is a pause or a resume.
+ *
+ * <pre>
+ *   IDLE --begin--> SPEAKING --end(last)--> RESUME_PENDING --timer--> IDLE
+ *                      ^                         |
+ *                      +---------begin-----------+   (resume cancelled, no re-pause)
+ * </pre>
+ */
+public class SpeechSession {
+
+    public enum State { IDLE, SPEAKING, RESUME_PENDING }
+
+    /** What the session pauses and resumes. Swappable so the state machine runs headless. */
+    public interface MediaController {
+        boolean isMediaActive();
+        boolean isGamingActive();
+        boolean isGamePausable();
+        void toggleMedia();
+        void toggleGamePause();
+    }
+
+    public record Stats(long threadsCreated, long sessionsStarted, long coalescedUtterances,
+                        long mediaToggles, long gameToggles, long debouncedToggles) {}
+
+    private static final long RESUME_DELAY_MS = 1500;
+    // Media toggles are kept at least this far apart; one that comes sooner is retried when the window closes
+    private static final long MEDIA_DEBOUNCE_MS = 1000;
+
+    private static final AtomicLong threadsCreated = new AtomicLong();
+    private static final AtomicLong sessionsStarted = new AtomicLong();
+    private static final AtomicLong coalescedUtterances = new AtomicLong();
+    private static final AtomicLong mediaToggles = new AtomicLong();
+    private static final AtomicLong gameToggles = new AtomicLong();
+    private static final AtomicLong debouncedToggles = new AtomicLong();
+
+    private static final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        threadsCreated.incrementAndGet();
+        Thread t = new Thread(r, "Ciel-SpeechSession");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private static final Object lock = new Object();
+    private static State state = State.IDLE;
+    private static int activeUtterances = 0;
+    private static boolean mediaPaused = false;
+    private static boolean gamePaused = false;
+    private static long lastMediaToggle = 0;
+    private static ScheduledFuture<?> pendingResume = null;
+    private static ScheduledFuture<?> pendingPause = null;
+    private static volatile MediaController controller = GraphicsEnvironment.isHeadless()
+            ? new HeadlessMediaController() : new SystemMediaController();
+
+    public static void setMediaController(MediaController mediaController) {
+        controller = mediaController;
+    }
+
+    /**
+     * Called right before an utterance plays.
+     * @return true if media or a game was paused and needs a moment before speech starts
+     */
+    public static boolean begin() {
+        synchronized (lock) {
+            activeUtterances++;
+            switch (state) {
+                case SPEAKING:
+                    return false;
+                case RESUME_PENDING:
+                    // Still inside the previous window: keep whatever is paused, just drop the resume
+                    pendingResume.cancel(false);
+                    pendingResume = null;
+                    state = State.SPEAKING;
+                    coalescedUtterances.incrementAndGet();
+                    return false;
+                default:
+                    state = State.SPEAKING;
+                    sessionsStarted.incrementAndGet();
+                    return pauseForSpeech();
+            }
+        }
+    }
+
+    /** @param endedAt wall-clock time the utterance actually stopped playing */
+    public static void end(long endedAt) {
+        synchronized (lock) {
+            if (activeUtterances == 0 || --activeUtterances > 0) return;
+            state = State.RESUME_PENDING;
+            // Maintains the 1.5s natural pause buffer AFTER Ciel stops speaking before resuming the media
+            long delay = Math.max(0, endedAt + RESUME_DELAY_MS - System.currentTimeMillis());
+            pendingResume = scheduler.schedule(SpeechSession::resumeAfterSpeech, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public static State getState() {
+        synchronized (lock) {
+            return state;
+        }
+    }
+
+    public static Stats getStats() {
+        return new Stats(threadsCreated.get(), sessionsStarted.get(), coalescedUtterances.get(),
+                mediaToggles.get(), gameToggles.get(), debouncedToggles.get());
+    }
+
+    private static boolean pauseForSpeech() {
+        MediaController media = controller;
+        boolean isGamingActive = media.isGamingActive();
+        boolean pausedSomething = false;
+
+        if (media.isMediaActive() && !isGamingActive) {
+            if (toggleMedia(media)) {
+                System.out.println("Ciel Debug: Global Speech Queue active. Media detected. Suspending playback immediately.");
+                mediaPaused = true;
+                pausedSomething = true;
+            } else {
+                // Just resumed after the previous line; dropping the pause would speak over the media
+                schedulePause();
+            }
+        }
+
+        if (isGamingActive && media.isGamePausable()) {
+            System.out.println("Ciel Debug: Global Speech Queue active. Suspending game immediately.");
+            gameToggles.incrementAndGet();
+            media.toggleGamePause();
+            gamePaused = true;
+            pausedSomething = true;
+        }
+        return pausedSomething;
+    }
+
+    private static void schedulePause() {
+        if (pendingPause != null) pendingPause.cancel(false);
+        long delay = Math.max(0, lastMediaToggle + MEDIA_DEBOUNCE_MS - System.currentTimeMillis());
+        pendingPause = scheduler.schedule(SpeechSession::pauseAfterDebounce, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private static void pauseAfterDebounce() {
+        synchronized (lock) {
+            pendingPause = null;
+            // The line may have ended meanwhile; then there is nothing left to pause for
+            if (state != State.SPEAKING || mediaPaused) return;
+            MediaController media = controller;
+            if (!media.isMediaActive() || media.isGamingActive()) return;
+            if (toggleMedia(media)) {
+                System.out.println("Ciel Debug: Global Speech Queue active. Media detected. Suspending playback after the toggle debounce.");
+                mediaPaused = true;
+            } else {
+                schedulePause();
+            }
+        }
+    }
+
+    private static void resumeAfterSpeech() {
+        synchronized (lock) {
+            if (state != State.RESUME_PENDING || activeUtterances > 0) return;
+            pendingResume = null;
+            if (pendingPause != null) {
+                pendingPause.cancel(false);
+                pendingPause = null;
+            }
+            MediaController media = controller;
+            if (mediaPaused) {
+                System.out.println("Ciel Debug: Global Speech Queue empty. Restoring media playback.");
+                mediaPaused = false;
+                if (!toggleMedia(media)) {
+                    // Skipping only this half would leave playback paused; try again after the window
+                    mediaPaused = true;
+                    pendingResume = scheduler.schedule(SpeechSession::resumeAfterSpeech, MEDIA_DEBOUNCE_MS, TimeUnit.MILLISECONDS);
+                    return;
+                }
+            }
+            if (gamePaused) {
+                System.out.println("Ciel Debug: Global Speech Queue empty. Restoring game.");
+                gamePaused = false;
+                gameToggles.incrementAndGet();
+                media.toggleGamePause();
+            }
+            state = State.IDLE;
+        }
+        // FIX: Safely return GUI to idle ONLY when the entire queue is empty
+        CielState.getCielGui().ifPresent(gui -> gui.setState(CielGui.GuiState.IDLE));
+    }
+
+    private static boolean toggleMedia(MediaController media) {
+        long now = System.currentTimeMillis();
+        if (now - lastMediaToggle < MEDIA_DEBOUNCE_MS) {
+            debouncedToggles.incrementAndGet();
+            return false;
+        }
+        lastMediaToggle = now;
+        mediaToggles.incrementAndGet();
+        media.toggleMedia();
+        return true;
+    }
+
+    public static void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /* ------------------------------------------------------------------ */
+    /*  CONTROLLERS                                                        */
+    /* ------------------------------------------------------------------ */
+    private static final class SystemMediaController implements MediaController {
+        private Robot robot;
+
+        @Override
+        public boolean isMediaActive() {
+            SystemMetrics metrics = SystemMonitor.getSystemMetrics();
+            String activeProcLower = metrics.activeProcessName() != null ? metrics.activeProcessName().toLowerCase() : "";
+            return metrics.isPlayingMedia() ||
+                    "Media".equalsIgnoreCase(HabitTrackerService.getCurrentCategory()) ||
+                    HabitTrackerService.isMediaTitle(metrics.activeWindowTitle()) ||
+                    activeProcLower.contains("stremio") ||
+                    activeProcLower.contains("crunchyroll");
+        }
+
+        @Override
+        public boolean isGamingActive() {
+            ShortTermMemory memory = ShortTermMemoryService.getMemory();
+            return memory.isInGamingSession() || "Gaming".equalsIgnoreCase(HabitTrackerService.getCurrentCategory());
+        }
+
+        @Override
+        public boolean isGamePausable() {
+            return HabitTrackerService.isCurrentGamePausable();
+        }
+
+        @Override
+        public void toggleMedia() {
+            // Properly delegates to HabitTracker to execute the OS-level pause
+            HabitTrackerService.toggleMediaPlayback();
+        }
+
+        @Override
+        public void toggleGamePause() {
+            try {
+                if (robot == null) robot = new Robot();
+                AzureSpeechService.isSimulatingKeystroke = true;
+                AzureSpeechService.lastSimulatedInputTime = System.currentTimeMillis();
+                robot.keyPress(KeyEvent.VK_ESCAPE);
+                robot.keyRelease(KeyEvent.VK_ESCAPE);
+                robot.delay(100);
+            } catch (AWTException e) {
+                System.err.println("Ciel Error: Could not send game pause keystroke: " + e.getMessage());
+            } finally {
+                AzureSpeechService.isSimulatingKeystroke = false;
+            }
+        }
+    }
+
+    /** Used when no display is available (e.g. headless Linux): nothing is ever playing. */
+    private static final class HeadlessMediaController implements MediaController {
+        @Override public boolean isMediaActive() { return false; }
+        @Override public boolean isGamingActive() { return false; }
+        @Override public boolean isGamePausable() { return false; }
+        @Override public void toggleMedia() {}
+        @Override public void toggleGamePause() {}
+    }
+}
@@ -43,6 +43,8 @@ public class SystemMonitor {
 
     public record ProcessInfo(String name, double usage, int pid) {}
 
+    public record ForegroundActivity(String processName, String windowTitle) {}
+
     public static SystemMetrics getSystemMetrics() {
         double cpuLoad = processor.getSystemCpuLoadBetweenTicks(prevLoadTicks) * 100;
         prevLoadTicks = processor.getSystemCpuLoadTicks();
@@ -111,6 +113,17 @@ public class SystemMonitor {
         );
     }
 
+    /**
+     * Just the foreground window, for callers that do not need a full {@link #getSystemMetrics()}
+     * snapshot. Skips the process enumeration and leaves the CPU tick baseline untouched.
+     */
+    public static ForegroundActivity getForegroundActivity() {
+        com.sun.jna.platform.win32.WinDef.HWND hwnd = WindowsApiService.INSTANCE.GetForegroundWindow();
+        int activePid = hwnd != null ? getPidFromHwnd(hwnd) : 0;
+        String activeProcName = activePid > 0 ? WindowsApiService.getProcessName(activePid) : "Unknown";
+        return new ForegroundActivity(activeProcName, WindowsApiService.getActiveWindowTitle(hwnd));
+    }
+
     private static int getPidFromHwnd(com.sun.jna.platform.win32.WinDef.HWND hwnd) {
         com.sun.jna.ptr.IntByReference pid = new com.sun.jna.ptr.IntByReference();
         WindowsApiService.INSTANCE.GetWindowThreadProcessId(hwnd, pid);
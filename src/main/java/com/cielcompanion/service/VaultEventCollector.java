@@ -0,0 +1,169 @@
+package com.cielcompanion.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Turns the watch events of a few directories into batches of settled files. Every event only
+ * pushes its file's deadline back; a file is handed on once it has been quiet for the quiet
+ * period, however many saves it took to write. The loop never sleeps: it waits on the watch
+ * service for at most the time until the next file settles, so a burst of saves is drained as
+ * fast as it arrives. When the watch service overflows and events are lost, the directory is
+ * rescanned and anything new or changed since it was last handed on is picked up again.
+ */
+final class VaultEventCollector implements Closeable {
+
+    // Entries for files that are gone are pruned once the map grows past this
+    private static final int DISPATCHED_PRUNE_SIZE = 10_000;
+
+    private final WatchService watchService;
+    private final long quietNanos;
+    private final int maxBatch;
+    private final Predicate<Path> accepts;
+    private final Consumer<List<Path>> dispatch;
+    // Path -> System.nanoTime() at which it counts as settled, in first-seen order
+    private final Map<Path, Long> pending = new LinkedHashMap<>();
+    // Modification time of each file when last handed on, so a rescan skips what was already done
+    private final Map<Path, FileTime> dispatched = new HashMap<>();
+    private int pruneAt = DISPATCHED_PRUNE_SIZE;
+    private long overflows = 0;
+
+    /**
+     * @param accepts  which changed paths are of interest (checked on every event)
+     * @param dispatch receives settled files, at most {@code maxBatch} at a time, on the collector's thread
+     */
+    VaultEventCollector(List<Path> dirs, Duration quietPeriod, int maxBatch,
+                        Predicate<Path> accepts, Consumer<List<Path>> dispatch) throws IOException {
+        this.watchService = dirs.get(0).getFileSystem().newWatchService();
+        this.quietNanos = quietPeriod.toNanos();
+        this.maxBatch = maxBatch;
+        this.accepts = accepts;
+        this.dispatch = dispatch;
+        for (Path dir : dirs) {
+            dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        }
+    }
+
+    /** Collects and dispatches until {@link #close()} is called or the thread is interrupted. */
+    void run() {
+        try {
+            while (true) {
+                WatchKey key;
+                if (pending.isEmpty()) {
+                    key = watchService.take();
+                } else {
+                    long wait = Math.max(0, nextDeadline() - System.nanoTime());
+                    key = watchService.poll(wait, TimeUnit.NANOSECONDS);
+                }
+                // Drain everything already queued before looking at deadlines
+                while (key != null) {
+                    collect(key);
+                    key = watchService.poll();
+                }
+                dispatchSettled();
+            }
+        } catch (ClosedWatchServiceException | InterruptedException e) {
+            // Shut down
+        }
+    }
+
+    synchronized long getOverflows() {
+        return overflows;
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+
+    private void collect(WatchKey key) {
+        Path dir = (Path) key.watchable();
+        long deadline = System.nanoTime() + quietNanos;
+        boolean overflowed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                overflowed = true;
+                continue;
+            }
+            Path path = dir.resolve((Path) event.context());
+            if (accepts.test(path)) pending.put(path, deadline);
+        }
+        if (!key.reset()) {
+            System.err.println("Ciel Warning: Vault watch on " + dir + " is no longer valid.");
+        }
+        if (overflowed) rescan(dir, deadline);
+    }
+
+    private void rescan(Path dir, long deadline) {
+        synchronized (this) {
+            overflows++;
+        }
+        System.out.println("Ciel Warning: Vault watcher overflowed on " + dir.getFileName() + ". Rescanning for missed files.");
+        dispatched.keySet().removeIf(path -> path.getParent().equals(dir) && !Files.exists(path));
+        try (Stream<Path> files = Files.list(dir)) {
+            files.filter(Files::isRegularFile).filter(accepts).forEach(path -> {
+                if (pending.containsKey(path)) return;
+                try {
+                    FileTime modified = Files.getLastModifiedTime(path);
+                    if (!modified.equals(dispatched.get(path))) pending.put(path, deadline);
+                } catch (IOException e) {
+                    pending.put(path, deadline);
+                }
+            });
+        } catch (IOException e) {
+            System.err.println("Ciel Error: Vault rescan of " + dir + " failed.");
+        }
+    }
+
+    private long nextDeadline() {
+        long next = Long.MAX_VALUE;
+        for (long deadline : pending.values()) next = Math.min(next, deadline);
+        return next;
+    }
+
+    private void dispatchSettled() {
+        long now = System.nanoTime();
+        List<Path> batch = new ArrayList<>();
+        Iterator<Map.Entry<Path, Long>> it = pending.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Path, Long> entry = it.next();
+            if (entry.getValue() - now > 0) continue;
+            it.remove();
+            Path path = entry.getKey();
+            // Deleted or moved away while settling
+            if (!Files.isRegularFile(path)) continue;
+            try {
+                dispatched.put(path, Files.getLastModifiedTime(path));
+            } catch (IOException ignored) {}
+            if (dispatched.size() > pruneAt) {
+                dispatched.keySet().removeIf(p -> !Files.exists(p));
+                pruneAt = Math.max(DISPATCHED_PRUNE_SIZE, dispatched.size() * 2);
+            }
+            batch.add(path);
+            if (batch.size() >= maxBatch) {
+                dispatch.accept(batch);
+                batch = new ArrayList<>();
+            }
+        }
+        if (!batch.isEmpty()) dispatch.accept(batch);
+    }
+}
@@ -1,18 +1,24 @@
 package com.cielcompanion.service;
 
 import com.cielcompanion.ai.AIEngine;
+import com.cielcompanion.ai.CircuitBreaker;
+import com.cielcompanion.ai.ModelManager;
 import com.cielcompanion.CielState;
 import com.cielcompanion.memory.Fact;
 import com.cielcompanion.memory.MemoryService;
+import com.cielcompanion.memory.stwm.ShortTermMemoryService;
 import com.cielcompanion.mood.EmotionManager;
+import com.google.gson.Gson;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
@@ -44,6 +50,10 @@ public class VaultService {
     private static Path diaryDir;
 
     private static Thread watcherThread;
+    private static VaultEventCollector eventCollector;
+    // A file counts as written once no event has arrived for it for this long
+    private static final Duration WATCH_QUIET_PERIOD = Duration.ofMillis(1000);
+    private static final int WATCH_BATCH_SIZE = 16;
     private static volatile boolean isRunning = true;
     
     private static final ExecutorService taskExecutor = Executors.newFixedThreadPool(4);
@@ -58,7 +68,9 @@ public class VaultService {
 
     private static final Random random = new Random();
     private static String LORE_DIR;
-    private static Path pipelineStateFile;
+    private static Path legacyStateFile;
+    private static LoreCheckpointJournal loreJournal;
+    private static final Gson gson = new Gson();
 
     private static int extractSortNumber(Path p) {
         Matcher m = Pattern.compile("\\d+").matcher(p.getFileName().toString());
@@ -68,7 +80,8 @@ public class VaultService {
     public static void initialize() {
         vaultRoot = Paths.get(System.getProperty("user.dir"), CIEL_FOLDER_NAME);
         LORE_DIR = vaultRoot.resolve("lore").toString();
-        pipelineStateFile = vaultRoot.resolve("pipeline_state.json");
+        legacyStateFile = vaultRoot.resolve("pipeline_state.json");
+        loreJournal = new LoreCheckpointJournal(vaultRoot.resolve("pipeline_checkpoints.jsonl"));
         
         requestsDir = vaultRoot.resolve("requests");
         answersDir = vaultRoot.resolve("answers");
@@ -112,82 +125,69 @@ public class VaultService {
         }
     }
 
-    public static class PipelineState {
-        public String taskId = "";
-        public String fileName = "";
-        public int chunkIndex = 0;
-        public int totalChunks = 0;
-        public int currentPhase = 1;
-        public String currentDraft = "";
+    /** The single-step state file written by older builds; only read to migrate it into the journal. */
+    private static class LegacyPipelineState {
+        String taskId = "";
+        String fileName = "";
+        int chunkIndex = 0;
+        int totalChunks = 0;
+        int currentPhase = 1;
+        String currentDraft = "";
     }
 
-    private static PipelineState loadState() {
-        if (!Files.exists(pipelineStateFile)) return null;
+    private static Path transcriptOutputPath(String originalName) {
+        return vaultRoot.resolve("lore").resolve("Transcripts").resolve(originalName + "_Cleaned.md");
+    }
+
+    private static String originalName(String fileName) {
+        return fileName.replace(".md", "").replace(".txt", "");
+    }
+
+    private static void migrateLegacyState() {
+        if (!Files.exists(legacyStateFile)) return;
         try {
-            String json = Files.readString(pipelineStateFile, StandardCharsets.UTF_8);
-            if (json.isBlank()) return null;
-            
-            PipelineState state = new PipelineState();
-            Matcher mTask = Pattern.compile("\"taskId\"\\s*:\\s*\"([^\"]+)\"").matcher(json);
-            if (mTask.find()) state.taskId = mTask.group(1);
-            
-            Matcher mFile = Pattern.compile("\"fileName\"\\s*:\\s*\"([^\"]+)\"").matcher(json);
-            if (mFile.find()) state.fileName = mFile.group(1);
-            
-            Matcher mChunk = Pattern.compile("\"chunkIndex\"\\s*:\\s*(\\d+)").matcher(json);
-            if (mChunk.find()) state.chunkIndex = Integer.parseInt(mChunk.group(1));
-            
-            Matcher mTotal = Pattern.compile("\"totalChunks\"\\s*:\\s*(\\d+)").matcher(json);
-            if (mTotal.find()) state.totalChunks = Integer.parseInt(mTotal.group(1));
-            
-            Matcher mPhase = Pattern.compile("\"currentPhase\"\\s*:\\s*(\\d+)").matcher(json);
-            if (mPhase.find()) state.currentPhase = Integer.parseInt(mPhase.group(1));
-            
-            Matcher mDraft = Pattern.compile("\"currentDraft\"\\s*:\\s*\"(.*)\"", Pattern.DOTALL).matcher(json);
-            if (mDraft.find()) {
-                state.currentDraft = mDraft.group(1).replace("\\n", "\n").replace("\\\"", "\"");
+            if (loreJournal.load() == null) {
+                LegacyPipelineState legacy = gson.fromJson(Files.readString(legacyStateFile, StandardCharsets.UTF_8), LegacyPipelineState.class);
+                if (legacy != null && legacy.fileName != null && !legacy.fileName.isEmpty()) {
+                    Path outputPath = transcriptOutputPath(originalName(legacy.fileName));
+                    long outputBytes = Files.exists(outputPath) ? Files.size(outputPath) : 0;
+                    loreJournal.start(legacy.taskId, legacy.fileName, legacy.totalChunks, outputBytes);
+                    if (legacy.chunkIndex > 0) loreJournal.written(legacy.chunkIndex - 1, outputBytes);
+                    // Phase 3 state held the verified draft; a phase 2 draft is just the cleaned chunk
+                    if (legacy.currentPhase == 3 && legacy.currentDraft != null && !legacy.currentDraft.isBlank()) {
+                        loreJournal.record(legacy.taskId, legacy.chunkIndex, 2, legacy.currentDraft);
+                    }
+                    System.out.println("Ciel Debug: Migrated legacy pipeline state for " + legacy.fileName + " into the checkpoint journal.");
+                }
             }
-            return state;
         } catch (Exception e) {
-            return null;
+            System.err.println("Ciel Warning: Legacy pipeline state unreadable; that sweep will start over. " + e.getMessage());
         }
+        try { Files.deleteIfExists(legacyStateFile); }
+        catch (IOException ignored) {}
     }
 
-    private static void saveState(PipelineState state) {
+    private static void checkPipelineRecovery() {
+        migrateLegacyState();
+        LoreCheckpointJournal.Progress progress;
         try {
-            String safeDraft = state.currentDraft.replace("\"", "\\\"").replace("\n", "\\n").replace("\r", "");
-            String json = String.format("{\n" +
-                "  \"taskId\": \"%s\",\n" +
-                "  \"fileName\": \"%s\",\n" +
-                "  \"chunkIndex\": %d,\n" +
-                "  \"totalChunks\": %d,\n" +
-                "  \"currentPhase\": %d,\n" +
-                "  \"currentDraft\": \"%s\"\n" +
-                "}", state.taskId, state.fileName, state.chunkIndex, state.totalChunks, state.currentPhase, safeDraft);
-            Files.writeString(pipelineStateFile, json, StandardCharsets.UTF_8);
+            progress = loreJournal.load();
         } catch (IOException e) {
-            System.err.println("Ciel Error: Failed to save pipeline state.");
+            System.err.println("Ciel Error: Could not read the lore checkpoint journal.");
+            return;
         }
-    }
-
-    private static void deleteState() {
-        try { Files.deleteIfExists(pipelineStateFile); } 
-        catch (IOException ignored) {}
-    }
-
-    private static void checkPipelineRecovery() {
-        PipelineState state = loadState();
-        if (state != null) {
-            if (MemoryService.getFact("pipeline_completed_" + state.taskId).isPresent()) {
+        if (progress != null) {
+            if (MemoryService.getFact("pipeline_completed_" + progress.taskId()).isPresent()) {
                 System.out.println("Ciel Debug: Obsolete pipeline state found. Cleared safely.");
-                deleteState();
+                try { loreJournal.delete(); }
+                catch (IOException ignored) {}
             } else {
-                System.out.println("Ciel Debug: Active pipeline state found for " + state.fileName + ". Resuming Sweep.");
-                Path fileToResume = requestsDir.resolve(state.fileName);
+                System.out.println("Ciel Debug: Active pipeline state found for " + progress.fileName() + ". Resuming Sweep.");
+                Path fileToResume = requestsDir.resolve(progress.fileName());
                 if (Files.exists(fileToResume)) {
                     queueLoreInjection(fileToResume);
                 } else {
-                    fileToResume = requestsArchiveDir.resolve(state.fileName);
+                    fileToResume = requestsArchiveDir.resolve(progress.fileName());
                     if (Files.exists(fileToResume)) queueLoreInjection(fileToResume);
                 }
             }
@@ -210,10 +210,7 @@ public class VaultService {
                 Files.list(thoughtsDir)
                      .filter(p -> Files.isRegularFile(p) && (p.toString().toLowerCase().endsWith(".md") || p.toString().toLowerCase().endsWith(".txt")))
                      .forEach(p -> {
-                         String fName = p.getFileName().toString();
-                         if (!fName.startsWith("Thought_Expansion_") && !fName.startsWith("Ciel_Thoughts_") && 
-                             !fName.startsWith("Deferred_Thought_") && !fName.startsWith("Ciel_Analysis_") &&
-                             !fName.startsWith("Skipped_Lore_")) {
+                         if (!isOwnThoughtFile(p)) {
                              processingCache.put(p, System.currentTimeMillis());
                              processThoughtFile(p);
                          }
@@ -225,97 +222,103 @@ public class VaultService {
     }
 
     private static void startWatcher() {
-        watcherThread = new Thread(() -> {
-            try (WatchService watchService = FileSystems.getDefault().newWatchService()) {
-                requestsDir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
-                thoughtsDir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
-
-                while (isRunning) {
-                    WatchKey key;
-                    try { key = watchService.take(); } 
-                    catch (InterruptedException e) { if (!isRunning) break; continue; }
-
-                    Thread.sleep(1000); 
-                    Path dir = (Path) key.watchable();
-
-                    for (WatchEvent<?> event : key.pollEvents()) {
-                        Path changed = (Path) event.context();
-                        Path fullPath = dir.resolve(changed);
-
-                        if (Files.isRegularFile(fullPath) && (fullPath.toString().toLowerCase().endsWith(".md") || fullPath.toString().toLowerCase().endsWith(".txt"))) {
-                            long now = System.currentTimeMillis();
-                            if (processingCache.containsKey(fullPath) && (now - processingCache.get(fullPath)) < 10000) {
-                                continue;
-                            }
-                            processingCache.put(fullPath, now);
-                            
-                            if (dir.equals(requestsDir)) {
-                                processRequestFile(fullPath);
-                            } else if (dir.equals(thoughtsDir)) {
-                                String fName = changed.getFileName().toString();
-                                if (fName.startsWith("Thought_Expansion_") || fName.startsWith("Ciel_Thoughts_") || 
-                                    fName.startsWith("Deferred_Thought_") || fName.startsWith("Ciel_Analysis_") ||
-                                    fName.startsWith("Skipped_Lore_")) {
-                                    continue; 
-                                }
-                                processThoughtFile(fullPath);
-                            }
-                        }
-                    }
-                    key.reset();
-                }
-            } catch (Exception e) {
-                System.err.println("Ciel Error: Vault watcher failed.");
-            }
-        });
+        try {
+            eventCollector = new VaultEventCollector(List.of(requestsDir, thoughtsDir), WATCH_QUIET_PERIOD, WATCH_BATCH_SIZE,
+                    VaultService::isWatchedInput, VaultService::dispatchBatch);
+        } catch (IOException e) {
+            System.err.println("Ciel Error: Vault watcher failed.");
+            return;
+        }
+        watcherThread = new Thread(eventCollector::run);
         watcherThread.setName("Vault-Watcher");
         watcherThread.setDaemon(true);
         watcherThread.start();
     }
 
-    private static void processRequestFile(Path filePath) {
-        taskExecutor.submit(() -> {
-            try {
-                String requestContent = Files.readString(filePath, StandardCharsets.UTF_8);
-                if (requestContent.isBlank()) return;
+    private static boolean isWatchedInput(Path path) {
+        String lower = path.toString().toLowerCase();
+        if (!lower.endsWith(".md") && !lower.endsWith(".txt")) return false;
+        return !path.getParent().equals(thoughtsDir) || !isOwnThoughtFile(path);
+    }
 
-                if (requestContent.toLowerCase().contains("#completed")) {
-                    try {
-                        Path archivePath = requestsArchiveDir.resolve(filePath.getFileName());
-                        if (!filePath.getParent().equals(requestsArchiveDir)) {
-                            Files.move(filePath, archivePath, StandardCopyOption.REPLACE_EXISTING);
-                        }
-                    } catch (Exception ignored) {}
-                    return;
+    /** Files Ciel writes into the thoughts folder herself, which must not be brainstormed on again. */
+    private static boolean isOwnThoughtFile(Path path) {
+        String fName = path.getFileName().toString();
+        return fName.startsWith("Thought_Expansion_") || fName.startsWith("Ciel_Thoughts_") ||
+               fName.startsWith("Deferred_Thought_") || fName.startsWith("Ciel_Analysis_") ||
+               fName.startsWith("Skipped_Lore_");
+    }
+
+    /** Runs on the watcher thread: one task per batch of settled files. */
+    private static void dispatchBatch(List<Path> batch) {
+        long now = System.currentTimeMillis();
+        List<Path> fresh = new ArrayList<>();
+        for (Path path : batch) {
+            // Skips files the backlog sweep or an earlier event has just picked up
+            Long seen = processingCache.get(path);
+            if (seen != null && now - seen < 10000) continue;
+            processingCache.put(path, now);
+            fresh.add(path);
+        }
+        if (fresh.isEmpty()) return;
+        taskExecutor.submit(() -> {
+            for (Path path : fresh) {
+                try {
+                    if (path.getParent().equals(requestsDir)) handleRequestFile(path);
+                    else handleThoughtFile(path);
+                } catch (RuntimeException e) {
+                    // One bad file must not cost the rest of the batch
+                    System.err.println("Ciel Error: Failed to process Vault file " + path.getFileName() + ": " + e.getMessage());
                 }
+            }
+        });
+    }
 
-                System.out.println("Ciel Debug: New Vault Request detected: " + filePath.getFileName());
+    private static void processRequestFile(Path filePath) {
+        taskExecutor.submit(() -> handleRequestFile(filePath));
+    }
 
-                if (requestContent.toLowerCase().contains("#diary")) {
-                    generateManualDiaryEntry(filePath, requestContent);
-                    return;
-                }
-                
-                if (requestContent.toLowerCase().contains("#transcript") || 
-                    requestContent.toLowerCase().contains("#novel") || 
-                    requestContent.toLowerCase().contains("#lore")) {
-                    
-                    queueLoreInjection(filePath);
-                    return;
-                }
+    private static void handleRequestFile(Path filePath) {
+        try {
+            String requestContent = Files.readString(filePath, StandardCharsets.UTF_8);
+            if (requestContent.isBlank()) return;
 
-                CielState.getEmotionManager().ifPresent(em -> em.triggerEmotion("Focused", 1.0, "Vault Processing"));
-                String systemContext = "You are Ciel. Fulfill the request and output ONLY the final raw markdown text for the document. Do not wrap your response in JSON formatting.";
-                AIEngine.generateSilentLogic(requestContent, systemContext).thenAccept(answerText -> {
-                    if (answerText != null && !answerText.isBlank()) {
-                        saveFileAndArchive(filePath, answerText, answersDir, requestsArchiveDir, "Answer_", "リクエスト コンプリート。");
+            if (requestContent.toLowerCase().contains("#completed")) {
+                try {
+                    Path archivePath = requestsArchiveDir.resolve(filePath.getFileName());
+                    if (!filePath.getParent().equals(requestsArchiveDir)) {
+                        Files.move(filePath, archivePath, StandardCopyOption.REPLACE_EXISTING);
                     }
-                });
+                } catch (Exception ignored) {}
+                return;
+            }
 
-            } catch (IOException e) {
-                System.err.println("Ciel Error: Could not read request file.");
+            System.out.println("Ciel Debug: New Vault Request detected: " + filePath.getFileName());
+
+            if (requestContent.toLowerCase().contains("#diary")) {
+                generateManualDiaryEntry(filePath, requestContent);
+                return;
             }
-        });
+            
+            if (requestContent.toLowerCase().contains("#transcript") || 
+                requestContent.toLowerCase().contains("#novel") || 
+                requestContent.toLowerCase().contains("#lore")) {
+                
+                queueLoreInjection(filePath);
+                return;
+            }
+
+            CielState.getEmotionManager().ifPresent(em -> em.triggerEmotion("Focused", 1.0, "Vault Processing"));
+            String systemContext = "You are Ciel. Fulfill the request and output ONLY the final raw markdown text for the document. Do not wrap your response in JSON formatting.";
+            AIEngine.generateSilentLogic(requestContent, systemContext).thenAccept(answerText -> {
+                if (answerText != null && !answerText.isBlank()) {
+                    saveFileAndArchive(filePath, answerText, answersDir, requestsArchiveDir, "Answer_", "リクエスト コンプリート。");
+                }
+            });
+
+        } catch (IOException e) {
+            System.err.println("Ciel Error: Could not read request file.");
+        }
     }
 
     private static void queueLoreInjection(Path filePath) {
@@ -335,9 +338,14 @@ public class VaultService {
     }
 
     private static boolean isErrorResponse(String response) {
-        if (response == null || response.isBlank()) return true;
-        String l = response.toLowerCase();
-        return l.contains("timeout") || l.contains("[system_error]") || l.contains("[error") || l.contains("crashed");
+        return !LorePipeline.isUsable(response);
+    }
+
+    /** One chunk at a time while a game needs the machine or the Logic Core is failing. */
+    private static boolean isLoreThrottled() {
+        return ModelManager.isHeavyGameRunning()
+                || ShortTermMemoryService.getMemory().isInGamingSession()
+                || ModelManager.getCircuitBreaker(ModelManager.ModelTier.LOGIC).getState() != CircuitBreaker.State.CLOSED;
     }
 
     private static void startLoreBatch() {
@@ -364,7 +372,7 @@ public class VaultService {
 
             try {
                 String content = Files.readString(processingFile, StandardCharsets.UTF_8);
-                String originalName = processingFile.getFileName().toString().replace(".md", "").replace(".txt", "");
+                String originalName = originalName(processingFile.getFileName().toString());
                 
                 List<String> chunks = new ArrayList<>();
                 // STRICT 4000 character chunks to ensure small models never freeze
@@ -382,90 +390,55 @@ public class VaultService {
                     i = end;
                 }
 
-                Path loreDir = vaultRoot.resolve("lore").resolve("Transcripts");
-                Files.createDirectories(loreDir);
-                Path outputPath = loreDir.resolve(originalName + "_Cleaned.md");
+                Path outputPath = transcriptOutputPath(originalName);
+                Files.createDirectories(outputPath.getParent());
                 
-                // Pipeline Foreman Logic
-                PipelineState state = loadState();
-                if (state == null || !state.fileName.equals(processingFile.getFileName().toString())) {
-                    state = new PipelineState();
-                    state.taskId = System.currentTimeMillis() + "_" + originalName.replaceAll("[^a-zA-Z0-9]", "");
-                    state.fileName = processingFile.getFileName().toString();
-                    state.totalChunks = chunks.size();
+                // Pipeline Foreman Logic: resume exactly where the checkpoint journal left off
+                migrateLegacyState();
+                LoreCheckpointJournal.Progress progress = loreJournal.load();
+                if (progress == null || !progress.fileName().equals(processingFile.getFileName().toString()) || progress.totalChunks() != chunks.size()) {
+                    String taskId = System.currentTimeMillis() + "_" + originalName.replaceAll("[^a-zA-Z0-9]", "");
                     Files.deleteIfExists(outputPath);
                     Files.createFile(outputPath);
                     
                     if (("volume 1".equalsIgnoreCase(originalName) || "vol 1".equalsIgnoreCase(originalName))) {
                         Files.writeString(outputPath, "# That Time I Got Reincarnated as a Slime: Volume 1\n\n", StandardOpenOption.APPEND);
                     }
+                    progress = loreJournal.start(taskId, processingFile.getFileName().toString(), chunks.size(), Files.size(outputPath));
                     
                     System.out.println("Ciel Debug: Initiating Agentic Lore Sweep Pipeline for: " + originalName);
                 } else {
-                    System.out.println("Ciel Debug: Resuming Pipeline Sweep for " + originalName + " at chunk " + (state.chunkIndex + 1) + "/" + chunks.size() + " Phase " + state.currentPhase);
+                    // Anything past the last checkpointed chunk is a half-finished append
+                    if (!Files.exists(outputPath)) Files.createFile(outputPath);
+                    try (FileChannel transcript = FileChannel.open(outputPath, StandardOpenOption.WRITE)) {
+                        if (transcript.size() > progress.outputBytes()) transcript.truncate(progress.outputBytes());
+                    }
+                    System.out.println("Ciel Debug: Resuming Pipeline Sweep for " + originalName + " at chunk " + (progress.nextChunk() + 1) + "/" + chunks.size());
                 }
 
-                for (int c = state.chunkIndex; c < chunks.size(); c++) {
-                    if (!isRunning) {
-                        System.out.println("Ciel Debug: Lore assimilation interrupted by system shutdown. Foreman State saved.");
-                        fileCompletedSuccessfully = false;
-                        break; 
-                    }
-                    
-                    String chunk = chunks.get(c);
-                    if (chunk.isBlank()) {
-                        state.chunkIndex = c + 1;
-                        saveState(state);
-                        continue;
+                // PHASES 1-3: Cleaning, Verification (Gemini -> DeepSeek) and Obsidian Linking, several chunks in flight
+                LorePipeline pipeline = new LorePipeline(AIEngine::generateSilentLogic, Settings.getLorePipelineWindow(),
+                        VaultService::isLoreThrottled, () -> ModelManager.getCircuitBreaker(ModelManager.ModelTier.LOGIC).latencyPercentile(CircuitBreaker.RequestClass.LONG_FORM, 0.5));
+                LorePipeline.Result sweep = pipeline.run(chunks, progress.nextChunk(), loreJournal.checkpoint(progress.taskId()), (index, linked) -> {
+                    if (linked != null) {
+                        Files.writeString(outputPath, linked + "\n\n", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
                     }
+                    loreJournal.written(index, Files.size(outputPath));
+                }, () -> isRunning);
 
-                    // PHASE 1: Native Formatting (0 timeouts, 0 API costs)
-                    if (state.currentPhase == 1) {
-                        String cleanProse = chunk.replaceAll("\\[\\d{1,2}:\\d{2}(?::\\d{2})?\\]\\s*", "");
-                        state.currentDraft = cleanProse;
-                        state.currentPhase = 2;
-                        saveState(state);
-                    }
-                    
-                    // PHASE 2: Verification (Gemini -> DeepSeek)
-                    if (state.currentPhase == 2) {
-                        String prompt = "[LORE_PHASE_2]\n" + state.currentDraft;
-                        String result = AIEngine.generateSilentLogic(prompt, "Phase 2 Verify").join();
-                        if (result != null && !result.isBlank() && !isErrorResponse(result)) {
-                            state.currentDraft = result;
-                            state.currentPhase = 3;
-                            saveState(state);
-                        } else {
-                            System.err.println("Ciel Warning: Pipeline sweep timed out or failed on Pass 2. Safely halting to prevent data rot.");
-                            fileCompletedSuccessfully = false;
-                            break;
-                        }
-                    }
-                    
-                    // PHASE 3: Obsidian Linking
-                    if (state.currentPhase == 3) {
-                        String prompt = "[LORE_PHASE_3]\n" + state.currentDraft;
-                        String result = AIEngine.generateSilentLogic(prompt, "Phase 3 Link").join();
-                        if (result != null && !result.isBlank() && !isErrorResponse(result)) {
-                            Files.writeString(outputPath, result + "\n\n", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
-                            state.currentDraft = "";
-                            state.currentPhase = 1;
-                            state.chunkIndex = c + 1;
-                            saveState(state);
-                        } else {
-                            System.err.println("Ciel Warning: Pipeline sweep timed out or failed on Pass 3. Safely halting to prevent data rot.");
-                            fileCompletedSuccessfully = false;
-                            break;
-                        }
+                if (!sweep.completed()) {
+                    fileCompletedSuccessfully = false;
+                    if (sweep.failedPhase() == 0) {
+                        System.out.println("Ciel Debug: Lore assimilation interrupted by system shutdown. Foreman State saved.");
+                    } else {
+                        System.err.println("Ciel Warning: Pipeline sweep timed out or failed on Pass " + sweep.failedPhase() + " at chunk " + (sweep.nextChunk() + 1) + ". Safely halting to prevent data rot.");
                     }
-                    
-                    Thread.sleep(1500); 
                 }
 
                 // PHASE 4: Master Index (If complete)
                 if (fileCompletedSuccessfully) {
-                    MemoryService.addFact(new Fact("pipeline_completed_" + state.taskId, "true", System.currentTimeMillis(), "system_state", "system", 1));
-                    deleteState();
+                    MemoryService.addFact(new Fact("pipeline_completed_" + progress.taskId(), "true", System.currentTimeMillis(), "system_state", "system", 1));
+                    loreJournal.delete();
                     
                     String completedContent = content.replaceAll("(?i)#(transcript|novel|lore)", "#completed");
                     Files.writeString(processingFile, completedContent, StandardCharsets.UTF_8);
@@ -516,25 +489,27 @@ public class VaultService {
     }
 
     private static void processThoughtFile(Path filePath) {
-        taskExecutor.submit(() -> {
-            try {
-                System.out.println("Ciel Debug: New Vault Thought/Brainstorm detected: " + filePath.getFileName());
-                String thoughtContent = Files.readString(filePath, StandardCharsets.UTF_8);
-                if (thoughtContent.isBlank()) return;
+        taskExecutor.submit(() -> handleThoughtFile(filePath));
+    }
 
-                CielState.getEmotionManager().ifPresent(em -> em.triggerEmotion("Curious", 1.0, "Brainstorming"));
+    private static void handleThoughtFile(Path filePath) {
+        try {
+            System.out.println("Ciel Debug: New Vault Thought/Brainstorm detected: " + filePath.getFileName());
+            String thoughtContent = Files.readString(filePath, StandardCharsets.UTF_8);
+            if (thoughtContent.isBlank()) return;
 
-                String systemContext = "[LOCAL_THOUGHT] You are Ciel. Act as a creative partner. Format your response in beautiful Markdown.";
+            CielState.getEmotionManager().ifPresent(em -> em.triggerEmotion("Curious", 1.0, "Brainstorming"));
 
-                AIEngine.generateSilentLogic(thoughtContent, systemContext).thenAccept(brainstormText -> {
-                    if (brainstormText != null && !brainstormText.isBlank() && !isErrorResponse(brainstormText)) {
-                        saveFileAndArchive(filePath, brainstormText, insightsDir, thoughtsArchiveDir, "Ciel_Thoughts_On_", null);
-                    }
-                });
-            } catch (IOException e) {
-                System.err.println("Ciel Error: Could not read thought file.");
-            }
-        });
+            String systemContext = "[LOCAL_THOUGHT] You are Ciel. Act as a creative partner. Format your response in beautiful Markdown.";
+
+            AIEngine.generateSilentLogic(thoughtContent, systemContext).thenAccept(brainstormText -> {
+                if (brainstormText != null && !brainstormText.isBlank() && !isErrorResponse(brainstormText)) {
+                    saveFileAndArchive(filePath, brainstormText, insightsDir, thoughtsArchiveDir, "Ciel_Thoughts_On_", null);
+                }
+            });
+        } catch (IOException e) {
+            System.err.println("Ciel Error: Could not read thought file.");
+        }
     }
 
     private static void generateManualDiaryEntry(Path originalRequest, String requestContent) {
@@ -698,6 +673,10 @@ public class VaultService {
 
     public static void shutdown() {
         isRunning = false;
+        if (eventCollector != null) {
+            try { eventCollector.close(); }
+            catch (IOException ignored) {}
+        }
         if (watcherThread != null) watcherThread.interrupt();
         taskExecutor.shutdownNow();
     }
@@ -0,0 +1,220 @@
+package com.cielcompanion.service;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Random;
+
+/**
+ * Energy + zero-crossing voice activity gate for 16-bit mono PCM frames. Only frames
+ * inside a speech segment reach the recognizer: a short pre-roll before the onset so the
+ * first phoneme is not clipped, and a hangover after the last loud frame so trailing words
+ * and Vosk's endpointer still get their silence. The noise floor tracks the room (and game
+ * audio) continuously, so the threshold is relative rather than a fixed level.
+ */
+final class VoiceActivityDetector {
+
+    /** Receives the frames that pass the gate. */
+    interface FrameSink {
+        void accept(byte[] frame, int length);
+    }
+
+    // Frame must be this many times louder than the noise floor (~6 dB) to count as speech
+    private static final double ENERGY_RATIO = 4.0;
+    // Absolute floor so digital silence does not make every click look like speech
+    private static final double MIN_NOISE_FLOOR = 1e-7;
+    // Broadband hiss crosses zero on most samples; speech, even fricatives, stays below this
+    private static final double MAX_SPEECH_ZCR = 0.45;
+    private static final int ONSET_FRAMES = 2;
+    private static final int HANGOVER_FRAMES = 8;
+    private static final int PRE_ROLL_FRAMES = 5;
+
+    private final byte[][] preRoll;
+    private final int[] preRollLengths;
+    private int preRollHead = 0;
+    private int preRollCount = 0;
+
+    private double noiseFloor = -1;
+    private boolean open = false;
+    private int consecutiveSpeech = 0;
+    private int hangoverLeft = 0;
+
+    private long framesSeen = 0;
+    private long framesPassed = 0;
+
+    VoiceActivityDetector(int frameBytes) {
+        this.preRoll = new byte[PRE_ROLL_FRAMES][frameBytes];
+        this.preRollLengths = new int[PRE_ROLL_FRAMES];
+    }
+
+    /**
+     * Classifies one frame and forwards it (plus any pre-roll) to {@code sink} if the gate
+     * is open.
+     * @return true exactly when a speech segment has just ended
+     */
+    boolean process(byte[] frame, int length, FrameSink sink) {
+        framesSeen++;
+        boolean speech = isSpeechFrame(frame, length);
+
+        if (open) {
+            sink.accept(frame, length);
+            framesPassed++;
+            if (speech) {
+                hangoverLeft = HANGOVER_FRAMES;
+            } else if (--hangoverLeft <= 0) {
+                open = false;
+                consecutiveSpeech = 0;
+                return true;
+            }
+            return false;
+        }
+
+        consecutiveSpeech = speech ? consecutiveSpeech + 1 : 0;
+        if (consecutiveSpeech >= ONSET_FRAMES) {
+            open = true;
+            hangoverLeft = HANGOVER_FRAMES;
+            flushPreRoll(sink);
+            sink.accept(frame, length);
+            framesPassed++;
+        } else {
+            remember(frame, length);
+        }
+        return false;
+    }
+
+    /** Forgets the current segment and pre-roll (e.g. after the microphone was rebuilt). */
+    void reset() {
+        open = false;
+        consecutiveSpeech = 0;
+        hangoverLeft = 0;
+        preRollCount = 0;
+    }
+
+    boolean isOpen() {
+        return open;
+    }
+
+    long getFramesSeen() {
+        return framesSeen;
+    }
+
+    long getFramesPassed() {
+        return framesPassed;
+    }
+
+    private boolean isSpeechFrame(byte[] frame, int length) {
+        int samples = length / 2;
+        if (samples == 0) return false;
+
+        double sumSquares = 0;
+        int crossings = 0;
+        short previous = 0;
+        for (int i = 0; i < samples; i++) {
+            short sample = (short) ((frame[2 * i] & 0xFF) | (frame[2 * i + 1] << 8));
+            sumSquares += (double) sample * sample;
+            if (i > 0 && (sample >= 0) != (previous >= 0)) crossings++;
+            previous = sample;
+        }
+        double energy = sumSquares / samples / (32768.0 * 32768.0);
+        double zcr = (double) crossings / samples;
+
+        if (noiseFloor < 0) noiseFloor = Math.max(energy, MIN_NOISE_FLOOR);
+        boolean speech = energy > noiseFloor * ENERGY_RATIO && zcr < MAX_SPEECH_ZCR;
+
+        // Follow the noise quickly while quiet; creep upwards during "speech" so sustained
+        // background audio (music, game noise) eventually stops holding the gate open.
+        double rate = speech ? 0.002 : 0.05;
+        noiseFloor = Math.max(MIN_NOISE_FLOOR, noiseFloor + (energy - noiseFloor) * rate);
+        return speech;
+    }
+
+    private void remember(byte[] frame, int length) {
+        int slot = (preRollHead + preRollCount) % PRE_ROLL_FRAMES;
+        if (preRollCount == PRE_ROLL_FRAMES) {
+            slot = preRollHead;
+            preRollHead = (preRollHead + 1) % PRE_ROLL_FRAMES;
+        } else {
+            preRollCount++;
+        }
+        System.arraycopy(frame, 0, preRoll[slot], 0, length);
+        preRollLengths[slot] = length;
+    }
+
+    private void flushPreRoll(FrameSink sink) {
+        for (int i = 0; i < preRollCount; i++) {
+            int slot = (preRollHead + i) % PRE_ROLL_FRAMES;
+            sink.accept(preRoll[slot], preRollLengths[slot]);
+            framesPassed++;
+        }
+        preRollHead = 0;
+        preRollCount = 0;
+    }
+
+    /* ------------------------------------------------------------------ */
+    /*  BENCHMARK                                                          */
+    /* ------------------------------------------------------------------ */
+    /**
+     * Reports CPU time per hour of mostly-silent audio with and without the gate. Audio is
+     * synthetic: low room noise with a 2s voiced burst every minute. Pass a Vosk model path
+     * to measure real decoding; otherwise only the gate's own cost is reported.
+     * <pre>java ... com.cielcompanion.service.VoiceActivityDetector [modelPath] [minutes]</pre>
+     */
+    public static void main(String[] args) throws Exception {
+        String modelPath = args.length > 0 ? args[0] : null;
+        int minutes = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int frameBytes = 2048;
+        int framesPerMinute = 16000 * 2 * 60 / frameBytes;
+        byte[][] audio = synthesizeMinute(frameBytes, framesPerMinute);
+        ThreadMXBean cpu = ManagementFactory.getThreadMXBean();
+        double scale = 60.0 / minutes;
+
+        VoiceActivityDetector vad = new VoiceActivityDetector(frameBytes);
+        long start = cpu.getCurrentThreadCpuTime();
+        for (int m = 0; m < minutes; m++) {
+            for (byte[] frame : audio) vad.process(frame, frame.length, (f, n) -> {});
+        }
+        double gateMs = (cpu.getCurrentThreadCpuTime() - start) / 1e6;
+        System.out.printf("VAD only: %.1f ms CPU per audio hour, %d of %d frames passed (%.1f%%)%n",
+                gateMs * scale, vad.getFramesPassed(), vad.getFramesSeen(), 100.0 * vad.getFramesPassed() / vad.getFramesSeen());
+
+        if (modelPath == null) return;
+        try (org.vosk.Model model = new org.vosk.Model(modelPath)) {
+            for (boolean gated : new boolean[]{false, true}) {
+                VoiceActivityDetector gate = new VoiceActivityDetector(frameBytes);
+                try (org.vosk.Recognizer recognizer = new org.vosk.Recognizer(model, 16000)) {
+                    FrameSink decode = (f, n) -> recognizer.acceptWaveForm(f, n);
+                    start = cpu.getCurrentThreadCpuTime();
+                    for (int m = 0; m < minutes; m++) {
+                        for (byte[] frame : audio) {
+                            if (gated) {
+                                if (gate.process(frame, frame.length, decode)) recognizer.getFinalResult();
+                            } else {
+                                decode.accept(frame, frame.length);
+                            }
+                        }
+                    }
+                    double ms = (cpu.getCurrentThreadCpuTime() - start) / 1e6;
+                    System.out.printf("%s: %.1f s CPU per audio hour%n", gated ? "With VAD   " : "Without VAD", ms * scale / 1000);
+                }
+            }
+        }
+    }
+
+    private static byte[][] synthesizeMinute(int frameBytes, int frames) {
+        Random random = new Random(42);
+        byte[][] audio = new byte[frames][frameBytes];
+        int samplesPerFrame = frameBytes / 2;
+        int burstFrames = 2 * 16000 / samplesPerFrame;
+        for (int f = 0; f < frames; f++) {
+            boolean burst = f >= frames / 2 && f < frames / 2 + burstFrames;
+            for (int i = 0; i < samplesPerFrame; i++) {
+                double t = (f * samplesPerFrame + i) / 16000.0;
+                double value = random.nextGaussian() * 60;
+                if (burst) value += 6000 * Math.sin(2 * Math.PI * 180 * t) * (0.6 + 0.4 * Math.sin(2 * Math.PI * 4 * t));
+                short sample = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, value));
+                audio[f][2 * i] = (byte) sample;
+                audio[f][2 * i + 1] = (byte) (sample >> 8);
+            }
+        }
+        return audio;
+    }
+}
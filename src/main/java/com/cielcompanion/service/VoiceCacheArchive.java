@@ -0,0 +1,444 @@
+package com.cielcompanion.service;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.BufferedInputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Packed replacement for a flat directory of cached WAV files.
+ *
+ * PCM is appended to a single data file and located through an append-only index
+ * journal (offset, length, duration and audio format per entry). Reads go through a
+ * MappedByteBuffer, so a cache hit costs a map lookup and a memory copy instead of a
+ * file open. Re-recorded entries, and data a crash left without an index record, are dead
+ * bytes, which a background compaction copies away into the next archive generation.
+ *
+ * Generations are used instead of rewriting in place because Windows refuses to
+ * replace a file that is still memory-mapped.
+ */
+public class VoiceCacheArchive {
+
+    public record Entry(long offset, int length, long durationMs, AudioFormat format) {}
+
+    // Index and mapping are published together so a reader never pairs an entry with
+    // the data file of another generation.
+    private record View(Map<String, Entry> index, MappedByteBuffer mapped) {}
+
+    private static final String ARCHIVE_DIR_NAME = "archive";
+    private static final byte OP_PUT = 1;
+    private static final long COMPACTION_MIN_DEAD_BYTES = 1024 * 1024;
+    private static final double COMPACTION_DEAD_RATIO = 0.25;
+    // Files packed per remap during migration
+    private static final int MIGRATION_BATCH = 64;
+
+    private static final ExecutorService compactionExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "Ciel-VoiceArchiveCompaction");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final File archiveDir;
+    private final AtomicBoolean compactionScheduled = new AtomicBoolean(false);
+    private volatile View view = new View(new ConcurrentHashMap<>(), null);
+
+    private int generation;
+    private FileChannel dataChannel;
+    private DataOutputStream indexOut;
+    private long dataLength;
+    private long deadBytes;
+
+    private VoiceCacheArchive(File cacheDir) {
+        this.archiveDir = new File(cacheDir, ARCHIVE_DIR_NAME);
+    }
+
+    /** Opens (or creates) the archive stored under {@code cacheDir/archive}. */
+    public static VoiceCacheArchive open(File cacheDir) throws IOException {
+        VoiceCacheArchive archive = new VoiceCacheArchive(cacheDir);
+        archive.load();
+        return archive;
+    }
+
+    public boolean contains(String name) {
+        return view.index().containsKey(name);
+    }
+
+    public Optional<Entry> getEntry(String name) {
+        return Optional.ofNullable(view.index().get(name));
+    }
+
+    public int size() {
+        return view.index().size();
+    }
+
+    /** Copies an entry's PCM out of the mapped data file. */
+    public Optional<byte[]> readPcm(String name) {
+        View current = view;
+        Entry entry = current.index().get(name);
+        MappedByteBuffer buffer = current.mapped();
+        if (entry == null || buffer == null || entry.offset() + entry.length() > buffer.capacity()) {
+            return Optional.empty();
+        }
+        byte[] pcm = new byte[entry.length()];
+        buffer.duplicate().position((int) entry.offset()).get(pcm);
+        return Optional.of(pcm);
+    }
+
+    /** Appends a WAV file's PCM under {@code name}, replacing any previous entry. */
+    public void put(String name, File wavFile) throws IOException {
+        try (AudioInputStream stream = AudioSystem.getAudioInputStream(new BufferedInputStream(new FileInputStream(wavFile)))) {
+            AudioFormat format = stream.getFormat();
+            byte[] pcm = stream.readAllBytes();
+            put(name, format, pcm);
+        } catch (javax.sound.sampled.UnsupportedAudioFileException e) {
+            throw new IOException("Unsupported WAV file: " + wavFile.getName(), e);
+        }
+    }
+
+    public synchronized void put(String name, AudioFormat format, byte[] pcm) throws IOException {
+        Entry entry = append(name, format, pcm);
+        remap();
+        publish(name, entry);
+        maybeScheduleCompaction();
+    }
+
+    /** Writes data and index record; the entry is not visible to readers until published after a remap. */
+    private Entry append(String name, AudioFormat format, byte[] pcm) throws IOException {
+        if (dataLength + pcm.length > Integer.MAX_VALUE) {
+            throw new IOException("Voice cache archive is full (2 GB mapping limit).");
+        }
+        long offset = dataLength;
+        dataChannel.write(ByteBuffer.wrap(pcm), offset);
+        dataChannel.force(false);
+        dataLength += pcm.length;
+
+        long frames = pcm.length / Math.max(1, format.getFrameSize());
+        long durationMs = (long) (frames * 1000 / Math.max(1f, format.getFrameRate()));
+        Entry entry = new Entry(offset, pcm.length, durationMs, format);
+
+        // The index record is only written once its data is durable, so a crash can
+        // at worst leave unreferenced bytes at the end of the data file.
+        writePut(indexOut, name, entry);
+        indexOut.flush();
+        return entry;
+    }
+
+    private void publish(String name, Entry entry) {
+        Entry previous = view.index().put(name, entry);
+        if (previous != null) deadBytes += previous.length();
+    }
+
+    /**
+     * Packs every loose {@code *.wav} in {@code cacheDir} into the archive, remapping once per
+     * batch rather than once per file. Originals are left in place, since a lookup made before
+     * the batch was published may still be about to play them; files that were already in the
+     * archive when it was opened are deleted, as no lookup can have handed those out.
+     * @return number of files packed
+     */
+    public int migrateDirectory(File cacheDir) {
+        File[] wavFiles = cacheDir.listFiles((dir, fileName) -> fileName.toLowerCase().endsWith(".wav"));
+        if (wavFiles == null) return 0;
+
+        int migrated = 0;
+        int removed = 0;
+        List<File> batch = new ArrayList<>();
+        for (File wav : wavFiles) {
+            if (contains(wav.getName())) {
+                try {
+                    Files.deleteIfExists(wav.toPath());
+                    removed++;
+                } catch (IOException ignored) {}
+                continue;
+            }
+            batch.add(wav);
+            if (batch.size() >= MIGRATION_BATCH) {
+                migrated += packBatch(batch);
+                batch.clear();
+            }
+        }
+        migrated += packBatch(batch);
+        if (migrated > 0 || removed > 0) {
+            System.out.println("Ciel Debug: Packed " + migrated + " cached voice files into " + archiveDir.getPath()
+                    + "; removed " + removed + " originals packed on an earlier start.");
+        }
+        return migrated;
+    }
+
+    private synchronized int packBatch(List<File> wavFiles) {
+        Map<String, Entry> packed = new LinkedHashMap<>();
+        for (File wav : wavFiles) {
+            try (AudioInputStream stream = AudioSystem.getAudioInputStream(new BufferedInputStream(new FileInputStream(wav)))) {
+                packed.put(wav.getName(), append(wav.getName(), stream.getFormat(), stream.readAllBytes()));
+            } catch (IOException | javax.sound.sampled.UnsupportedAudioFileException e) {
+                System.err.println("Ciel Warning: Could not migrate " + wav.getName() + " into voice archive: " + e.getMessage());
+            }
+        }
+        if (packed.isEmpty()) return 0;
+        try {
+            remap();
+        } catch (IOException e) {
+            // Indexed on disk, so the entries are picked up on the next start
+            System.err.println("Ciel Warning: Could not remap voice archive after migration: " + e.getMessage());
+            return 0;
+        }
+        packed.forEach(this::publish);
+        maybeScheduleCompaction();
+        return packed.size();
+    }
+
+    public synchronized void close() {
+        try {
+            if (indexOut != null) indexOut.close();
+            if (dataChannel != null) dataChannel.close();
+        } catch (IOException ignored) {}
+        view = new View(view.index(), null);
+    }
+
+    /* ------------------------------------------------------------------ */
+    /*  Loading, mapping and compaction                                    */
+    /* ------------------------------------------------------------------ */
+    private synchronized void load() throws IOException {
+        archiveDir.mkdirs();
+        generation = findLatestGeneration();
+        deleteOlderGenerations(generation);
+
+        File dataFile = dataFile(generation);
+        File indexFile = indexFile(generation);
+        dataChannel = FileChannel.open(dataFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        dataLength = dataChannel.size();
+
+        Map<String, Entry> index = view.index();
+        long referencedBytes = 0;
+        if (indexFile.exists()) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+                while (true) {
+                    byte op;
+                    try {
+                        op = in.readByte();
+                    } catch (EOFException eof) {
+                        break;
+                    }
+                    if (op != OP_PUT) {
+                        System.err.println("Ciel Warning: Voice archive index has an unknown record type (" + op + "). Ignoring the rest.");
+                        break;
+                    }
+                    try {
+                        String name = in.readUTF();
+                        Entry entry = readEntry(in);
+                        // Ignore records pointing past the data that actually reached disk
+                        if (entry.offset() + entry.length() <= dataLength) {
+                            index.put(name, entry);
+                        }
+                    } catch (EOFException truncated) {
+                        System.err.println("Ciel Warning: Voice archive index ended mid-record. Ignoring the partial tail.");
+                        break;
+                    }
+                }
+            }
+        }
+        for (Entry entry : index.values()) referencedBytes += entry.length();
+        deadBytes = dataLength - referencedBytes;
+
+        indexOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile, true)));
+        remap();
+        System.out.println("Ciel Debug: Voice archive loaded (" + index.size() + " entries, " + dataLength / 1024 + " KB, generation " + generation + ").");
+        maybeScheduleCompaction();
+    }
+
+    private void remap() throws IOException {
+        view = new View(view.index(), mapBuffer());
+    }
+
+    private MappedByteBuffer mapBuffer() throws IOException {
+        return dataLength == 0 ? null : dataChannel.map(FileChannel.MapMode.READ_ONLY, 0, dataLength);
+    }
+
+    private void maybeScheduleCompaction() {
+        if (deadBytes < COMPACTION_MIN_DEAD_BYTES || deadBytes < dataLength * COMPACTION_DEAD_RATIO) return;
+        if (!compactionScheduled.compareAndSet(false, true)) return;
+        compactionExecutor.submit(() -> {
+            try {
+                compact();
+            } catch (Exception e) {
+                System.err.println("Ciel Error: Voice archive compaction failed: " + e.getMessage());
+            } finally {
+                compactionScheduled.set(false);
+            }
+        });
+    }
+
+    /**
+     * Copies live entries into the next generation, then switches over. Writers are
+     * held off only for the switch itself; readers keep using the old mapping until
+     * the new one is published.
+     */
+    private void compact() throws IOException {
+        Map<String, Entry> snapshot;
+        MappedByteBuffer source;
+        int nextGeneration;
+        synchronized (this) {
+            snapshot = Map.copyOf(view.index());
+            source = view.mapped();
+            nextGeneration = generation + 1;
+        }
+        if (source == null) return;
+
+        File nextData = dataFile(nextGeneration);
+        File nextIndexTmp = new File(archiveDir, "index-" + nextGeneration + ".idx.tmp");
+        Map<String, Entry> compacted = new ConcurrentHashMap<>();
+        long written = 0;
+        try (FileChannel out = FileChannel.open(nextData.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+             DataOutputStream idx = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(nextIndexTmp)))) {
+            for (Map.Entry<String, Entry> e : snapshot.entrySet()) {
+                Entry old = e.getValue();
+                ByteBuffer slice = source.duplicate();
+                slice.position((int) old.offset()).limit((int) (old.offset() + old.length()));
+                while (slice.hasRemaining()) out.write(slice, written + (old.length() - slice.remaining()));
+                Entry moved = new Entry(written, old.length(), old.durationMs(), old.format());
+                writePut(idx, e.getKey(), moved);
+                compacted.put(e.getKey(), moved);
+                written += old.length();
+            }
+            out.force(true);
+        }
+
+        synchronized (this) {
+            // Anything written while we were copying is carried over at the tail.
+            try (FileChannel out = FileChannel.open(nextData.toPath(), StandardOpenOption.WRITE);
+                 DataOutputStream idx = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(nextIndexTmp, true)))) {
+                Map<String, Entry> index = view.index();
+                for (Map.Entry<String, Entry> e : index.entrySet()) {
+                    if (e.getValue().equals(snapshot.get(e.getKey()))) continue;
+                    Entry live = e.getValue();
+                    ByteBuffer slice = view.mapped().duplicate();
+                    slice.position((int) live.offset()).limit((int) (live.offset() + live.length()));
+                    while (slice.hasRemaining()) out.write(slice, written + (live.length() - slice.remaining()));
+                    Entry moved = new Entry(written, live.length(), live.durationMs(), live.format());
+                    writePut(idx, e.getKey(), moved);
+                    compacted.put(e.getKey(), moved);
+                    written += live.length();
+                }
+                out.force(true);
+            }
+            Files.move(nextIndexTmp.toPath(), indexFile(nextGeneration).toPath(), StandardCopyOption.ATOMIC_MOVE);
+
+            long reclaimed = dataLength - written;
+            indexOut.close();
+            dataChannel.close();
+            generation = nextGeneration;
+            dataChannel = FileChannel.open(nextData.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+            dataLength = dataChannel.size();
+            deadBytes = 0;
+            indexOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile(generation), true)));
+            // Readers holding the old view keep a valid mapping until they drop it
+            view = new View(compacted, mapBuffer());
+            System.out.println("Ciel Debug: Voice archive compacted to generation " + generation + " (" + reclaimed / 1024 + " KB reclaimed).");
+        }
+        deleteOlderGenerations(nextGeneration);
+    }
+
+    private int findLatestGeneration() {
+        int latest = 1;
+        File[] indexes = archiveDir.listFiles((dir, fileName) -> fileName.matches("index-\\d+\\.idx"));
+        if (indexes != null) {
+            for (File f : indexes) {
+                latest = Math.max(latest, Integer.parseInt(f.getName().replaceAll("\\D", "")));
+            }
+        }
+        return latest;
+    }
+
+    private void deleteOlderGenerations(int current) {
+        File[] files = archiveDir.listFiles((dir, fileName) -> fileName.matches("(data-\\d+\\.pack|index-\\d+\\.idx(\\.tmp)?)"));
+        if (files == null) return;
+        for (File f : files) {
+            String digits = f.getName().replaceAll("\\D", "");
+            if (!digits.isEmpty() && Integer.parseInt(digits) < current) {
+                // May fail on Windows while an old mapping is still alive; retried on next start.
+                f.delete();
+            }
+        }
+    }
+
+    private File dataFile(int gen) { return new File(archiveDir, "data-" + gen + ".pack"); }
+    private File indexFile(int gen) { return new File(archiveDir, "index-" + gen + ".idx"); }
+
+    private static void writePut(DataOutputStream out, String name, Entry entry) throws IOException {
+        AudioFormat f = entry.format();
+        out.writeByte(OP_PUT);
+        out.writeUTF(name);
+        out.writeLong(entry.offset());
+        out.writeInt(entry.length());
+        out.writeLong(entry.durationMs());
+        out.writeUTF(f.getEncoding().toString());
+        out.writeFloat(f.getSampleRate());
+        out.writeInt(f.getSampleSizeInBits());
+        out.writeInt(f.getChannels());
+        out.writeInt(f.getFrameSize());
+        out.writeFloat(f.getFrameRate());
+        out.writeBoolean(f.isBigEndian());
+    }
+
+    private static Entry readEntry(DataInputStream in) throws IOException {
+        long offset = in.readLong();
+        int length = in.readInt();
+        long durationMs = in.readLong();
+        AudioFormat.Encoding encoding = new AudioFormat.Encoding(in.readUTF());
+        float sampleRate = in.readFloat();
+        int sampleSize = in.readInt();
+        int channels = in.readInt();
+        int frameSize = in.readInt();
+        float frameRate = in.readFloat();
+        boolean bigEndian = in.readBoolean();
+        AudioFormat format = new AudioFormat(encoding, sampleRate, sampleSize, channels, frameSize, frameRate, bigEndian);
+        return new Entry(offset, length, durationMs, format);
+    }
+
+    /**
+     * Migration tool: packs the existing flat cache directories into archives.
+     * Usage: {@code java -cp ciel.jar com.cielcompanion.service.VoiceCacheArchive [dir...]}
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String[] dirs = args.length > 0 ? args : new String[] { "voice_cache", "dnd_voice_cache" };
+        for (String dir : dirs) {
+            File cacheDir = new File(dir);
+            if (!cacheDir.isDirectory()) {
+                System.out.println("Skipping " + dir + " (not a directory).");
+                continue;
+            }
+            VoiceCacheArchive archive = open(cacheDir);
+            int migrated = archive.migrateDirectory(cacheDir);
+            // Nothing is playing from this process, so the second pass can remove the originals now
+            archive.migrateDirectory(cacheDir);
+            System.out.println(dir + ": " + migrated + " files migrated, " + archive.size() + " entries in archive.");
+            archive.close();
+        }
+        // The compaction thread is a daemon, so let a compaction still copying finish first
+        compactionExecutor.shutdown();
+        compactionExecutor.awaitTermination(10, TimeUnit.MINUTES);
+    }
+}
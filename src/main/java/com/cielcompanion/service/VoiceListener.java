@@ -2,7 +2,9 @@ package com.cielcompanion.service;
 
 import com.cielcompanion.CielState;
 import com.cielcompanion.ai.ObserverService;
+import com.cielcompanion.memory.stwm.ShortTermMemory;
 import com.cielcompanion.memory.stwm.ShortTermMemoryService;
+import com.cielcompanion.service.nlu.IntentService;
 import com.google.gson.Gson;
 import com.google.gson.JsonSyntaxException;
 import com.google.gson.reflect.TypeToken;
@@ -12,27 +14,42 @@ import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import com.google.gson.JsonElement;
 
-import javax.sound.sampled.*;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Paths;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 public class VoiceListener {
-    private static final String[] MIC_PRIORITY = {"Microphone (NVIDIA Broadcast)", "Focusrite", "Default Input"};
+
+    /** Receives what the listener decided was meant for Ciel. {@link CommandService} in normal use. */
+    public interface CommandSink {
+        void handleCommand(String text, boolean hasWakeWord);
+        void handleExplicitSearch(String query);
+
+        /** An addressed utterance is still being spoken; {@code text} is the transcript so far. */
+        default void onPartialResult(String text) {}
+    }
+
     private static final int PRIVILEGED_MODE_DURATION_SECONDS = 20;
     private static final double MIN_CONFIDENCE = 0.50;
     
-    private static final String WAKE_WORD_REGEX = "^(?:hey\\s+|hi\\s+|uh\\s+|um\\s+|ok\\s+|okay\\s+|so\\s+|well\\s+)?(he see our launch|see how can you want|how can you open|he see our|so listen|ceo listen|hey allison|c l|see l|see el|see i|ciel|cl|seal|seo|ceo|joe|chill|tell|feel|fill|she'll|still|steel|steal|sail|sale|shell|hunter)(?:\\s+|$)";
+    private static final List<String> WAKE_PREFIXES = List.of("hey", "hi", "uh", "um", "ok", "okay", "so", "well");
+    private static final List<String> WAKE_WORDS = List.of("he see our launch", "see how can you want", "how can you open", "he see our", "so listen", "ceo listen", "hey allison", "c l", "see l", "see el", "see i", "ciel", "cl", "seal", "seo", "ceo", "joe", "chill", "tell", "feel", "fill", "she'll", "still", "steel", "steal", "sail", "sale", "shell", "hunter");
+    private static final String WAKE_WORD_REGEX = "^(?:" + WAKE_PREFIXES.stream().map(p -> p + "\\s+").collect(Collectors.joining("|")) + ")?(" + String.join("|", WAKE_WORDS) + ")(?:\\s+|$)";
     private static final Pattern WAKE_WORD_PATTERN = Pattern.compile(WAKE_WORD_REGEX, Pattern.CASE_INSENSITIVE);
     
     private static final Pattern SEARCH_TRIGGER_PATTERN = Pattern.compile("^(ciel search|cl search|seal search|seel search|seo search)", Pattern.CASE_INSENSITIVE);
@@ -49,29 +66,57 @@ public class VoiceListener {
     
     private Thread watchdogThread;
 
+    // 2048 bytes = 64ms of 16kHz 16-bit mono; 32 frames bound the recognizer's backlog to ~2s
+    private static final int CAPTURE_FRAME_BYTES = 2048;
+    private static final int CAPTURE_RING_FRAMES = 32;
+    private static final long CAPTURE_FRAME_NANOS = CAPTURE_FRAME_BYTES * 1_000_000_000L / (16000 * 2);
+    // Partial transcripts are polled every 4 frames (~256ms); more often only costs decoder time
+    private static final int PARTIAL_RESULT_INTERVAL_FRAMES = 4;
+    // Audio kept for decoding a grammar-tier utterance again; commands are short, so 10s is plenty
+    private static final int MAX_REDECODE_BYTES = 16000 * 2 * 10;
+
+    public record CaptureStats(long framesCaptured, long framesDecoded, long overruns, long underruns,
+                               double lastLatencyMs, double maxLatencyMs, long latencyBoundMs) {}
+
     private Model voskModel;
-    private TargetDataLine microphone;
+    private final Supplier<AudioSource> audioSourceFactory;
+    private volatile AudioSource audioSource;
+    private volatile boolean sourceExhausted = false;
     private final ExecutorService commandExecutor = Executors.newSingleThreadExecutor();
+    private final AudioRingBuffer captureRing = new AudioRingBuffer(CAPTURE_RING_FRAMES, CAPTURE_FRAME_BYTES, CAPTURE_FRAME_NANOS);
+    private final AtomicLong micGeneration = new AtomicLong();
+    private final AtomicLong framesCaptured = new AtomicLong();
+    private final AtomicLong framesDecoded = new AtomicLong();
+    private volatile long lastLatencyNanos = 0;
+    private volatile long maxLatencyNanos = 0;
+    private Thread captureThread;
     private Thread listeningThread;
-    private final CommandService commandService;
-    private final AtomicBoolean isProcessing = new AtomicBoolean(false);
+    private final CommandSink commandService;
     private volatile boolean isRunning = true;
     private boolean isInitialized = false;
 
-    public VoiceListener(CommandService commandService) {
+    public VoiceListener(CommandSink commandService) {
+        this(commandService, MicrophoneAudioSource::new);
+    }
+
+    public VoiceListener(CommandSink commandService, Supplier<AudioSource> audioSourceFactory) {
         this.commandService = commandService;
+        this.audioSourceFactory = audioSourceFactory;
     }
 
     public void initialize() {
+        initialize(Paths.get(System.getProperty("user.dir"), "model").toString());
+    }
+
+    public void initialize(String modelPath) {
         System.out.println("Ciel Debug: Initializing Voice Listener...");
         try {
-            String modelPath = Paths.get(System.getProperty("user.dir"), "model").toString();
             voskModel = new Model(modelPath);
             isInitialized = true;
             System.out.println("Ciel Debug: Vosk model loaded successfully from " + modelPath);
             ObserverService.initialize(); 
         } catch (IOException e) {
-            System.err.println("Ciel FATAL Error: Could not load Vosk model at " + Paths.get(System.getProperty("user.dir"), "model").toString());
+            System.err.println("Ciel FATAL Error: Could not load Vosk model at " + modelPath);
         }
     }
 
@@ -95,20 +140,14 @@ public class VoiceListener {
     public void initializeMicrophoneAsync() {
         if (!isInitialized) return;
         new Thread(() -> {
-            try {
-                microphone = getTargetDataLine();
-                if (microphone != null) {
-                    microphone.open(new AudioFormat(16000, 16, 1, true, false));
-                    microphone.start();
-                    startContinuousListening();
-                    startWatchdog(); 
-                    System.out.println("Ciel Debug: Microphone line opened. Continuous listening started.");
-                } else {
-                    System.err.println("Ciel Error: No compatible microphone could be found.");
-                }
-            } catch (LineUnavailableException e) {
-                System.err.println("Ciel Error: Microphone line is unavailable.");
-                e.printStackTrace();
+            AudioSource source = audioSourceFactory.get();
+            if (source.open()) {
+                audioSource = source;
+                startContinuousListening();
+                startWatchdog(); 
+                System.out.println("Ciel Debug: Audio source opened (" + source.describe() + "). Continuous listening started.");
+            } else {
+                System.err.println("Ciel Error: No compatible microphone could be found.");
             }
         }, "Ciel-Mic-Initializer").start();
     }
@@ -116,56 +155,21 @@ public class VoiceListener {
     public void refresh() {
         System.out.println("Ciel Debug: Refreshing Voice Listener state...");
         needsMicReinitialization.set(true); 
-        if (microphone != null) {
-            microphone.close();
+        AudioSource source = audioSource;
+        if (source != null) {
+            source.close();
         }
-        if (listeningThread == null || !listeningThread.isAlive()) {
+        if (captureThread == null || !captureThread.isAlive()) {
             initializeMicrophoneAsync();
         }
     }
 
-    private TargetDataLine getTargetDataLine() throws LineUnavailableException {
-        for (int i = 0; i < 8; i++) { 
-            System.out.println("Ciel Debug: Checking for " + MIC_PRIORITY[0] + "... (Attempt " + (i + 1) + "/8)");
-            for (Mixer.Info mixerInfo : AudioSystem.getMixerInfo()) {
-                if (mixerInfo.getName().toLowerCase().contains(MIC_PRIORITY[0].toLowerCase())) {
-                    Mixer mixer = AudioSystem.getMixer(mixerInfo);
-                    DataLine.Info info = new DataLine.Info(TargetDataLine.class, new AudioFormat(16000, 16, 1, true, false));
-                    if (mixer.isLineSupported(info)) {
-                        System.out.println("Ciel Debug: Found " + MIC_PRIORITY[0] + " successfully.");
-                        return (TargetDataLine) mixer.getLine(info);
-                    }
-                }
-            }
-            if (i < 7) {
-                System.out.println("Ciel Debug: " + MIC_PRIORITY[0] + " not available. Waiting 30 seconds...");
-                try { Thread.sleep(30000); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
-            }
-        }
-        
-        System.out.println("Ciel Warning: Could not find primary mic. Checking fallbacks.");
-        for (int i = 1; i < MIC_PRIORITY.length; i++) {
-            String micName = MIC_PRIORITY[i];
-             for (Mixer.Info mixerInfo : AudioSystem.getMixerInfo()) {
-                if (mixerInfo.getName().toLowerCase().contains(micName.toLowerCase())) {
-                    Mixer mixer = AudioSystem.getMixer(mixerInfo);
-                    DataLine.Info info = new DataLine.Info(TargetDataLine.class, new AudioFormat(16000, 16, 1, true, false));
-                    if (mixer.isLineSupported(info)) {
-                        System.out.println("Ciel Debug: Found fallback mic: " + micName);
-                        return (TargetDataLine) mixer.getLine(info);
-                    }
-                }
-            }
-        }
-        
-        DataLine.Info info = new DataLine.Info(TargetDataLine.class, new AudioFormat(16000, 16, 1, true, false));
-        if (AudioSystem.isLineSupported(info)) {
-            System.out.println("Ciel Debug: Found System Default mic.");
-            return (TargetDataLine) AudioSystem.getLine(info);
-        }
-        return null;
+    public CaptureStats getCaptureStats() {
+        long frameMs = CAPTURE_FRAME_NANOS / 1_000_000;
+        return new CaptureStats(framesCaptured.get(), framesDecoded.get(), captureRing.getOverruns(), captureRing.getUnderruns(),
+                lastLatencyNanos / 1_000_000.0, maxLatencyNanos / 1_000_000.0, captureRing.capacity() * frameMs);
     }
-    
+
     private void processRecognitionResult(String result) {
         if (isMuted.get() || isInternallyMuted.get()) {
             return;
@@ -176,56 +180,78 @@ public class VoiceListener {
             return;
         }
 
-        if (!isProcessing.compareAndSet(false, true)) return; 
-        try {
-            boolean isPrivileged = ShortTermMemoryService.getMemory().isInPrivilegedMode();
-            if (ShortTermMemoryService.getMemory().isInGamingSession() && !isPrivileged) return;
+        boolean isPrivileged = ShortTermMemoryService.getMemory().isInPrivilegedMode();
+        if (ShortTermMemoryService.getMemory().isInGamingSession() && !isPrivileged) return;
 
-            JsonObject resultJson = JsonParser.parseString(result).getAsJsonObject();
-            String transcribedText = resultJson.get("text").getAsString().trim();
+        JsonObject resultJson = JsonParser.parseString(result).getAsJsonObject();
+        String transcribedText = resultJson.get("text").getAsString().trim();
 
-            if (transcribedText.isBlank() || PHANTOM_NOISES.contains(transcribedText)) {
-                return;
-            }
+        if (transcribedText.isBlank() || PHANTOM_NOISES.contains(transcribedText)) {
+            return;
+        }
 
-            System.out.printf("Vosk STT [Absolute Raw]: \"%s\"%n", transcribedText);
-            ObserverService.logToPermanentTranscript(transcribedText);
+        System.out.printf("Vosk STT [Absolute Raw]: \"%s\"%n", transcribedText);
+        ObserverService.logToPermanentTranscript(transcribedText);
 
-            boolean hasWakeWord = WAKE_WORD_PATTERN.matcher(transcribedText).find();
-            String textToProcess = transcribedText;
+        String addressed = afterWakeWord(transcribedText);
+        boolean hasWakeWord = addressed != null;
+        String textToProcess = transcribedText;
 
-            if (hasWakeWord) {
-                textToProcess = WAKE_WORD_PATTERN.matcher(transcribedText).replaceFirst("").trim();
+        if (hasWakeWord) {
+            textToProcess = addressed;
+            
+            if (textToProcess.isEmpty() || textToProcess.matches("(?i)^(listen|listened|listening|lesson|wilson|lessen|vision)$")) {
                 
-                if (textToProcess.isEmpty() || textToProcess.matches("(?i)^(listen|listened|listening|lesson|wilson|lessen|vision)$")) {
-                    
-                    if (ShortTermMemoryService.getMemory().isInPrivilegedMode()) {
-                        System.out.println("Ciel Debug: Silently dropping STT ghost echo '" + transcribedText + "' (VoiceAttack handled it).");
-                        return;
-                    } else {
-                        System.out.println("Ciel Debug: Wake word isolated via STT. Activating Privileged Mode.");
-                        startListeningForCommand();
-                        return;
-                    }
+                if (ShortTermMemoryService.getMemory().isInPrivilegedMode()) {
+                    System.out.println("Ciel Debug: Silently dropping STT ghost echo '" + transcribedText + "' (VoiceAttack handled it).");
+                    return;
+                } else {
+                    System.out.println("Ciel Debug: Wake word isolated via STT. Activating Privileged Mode.");
+                    startListeningForCommand();
+                    return;
                 }
             }
+        }
 
-            if (ShortTermMemoryService.getMemory().isSearchModeActive()) {
-                String[] words = textToProcess.split("\\s+");
-                if (words.length < 2 && !textToProcess.isEmpty()) return;
-                System.out.printf("Ciel STT: Heard search query: \"%s\"%n", textToProcess);
-                commandService.handleExplicitSearch(textToProcess);
-                ShortTermMemoryService.getMemory().setSearchQueryEndTime(0);
-                return;
-            }
+        if (ShortTermMemoryService.getMemory().isSearchModeActive()) {
+            String[] words = textToProcess.split("\\s+");
+            if (words.length < 2 && !textToProcess.isEmpty()) return;
+            System.out.printf("Ciel STT: Heard search query: \"%s\"%n", textToProcess);
+            commandService.handleExplicitSearch(textToProcess);
+            ShortTermMemoryService.getMemory().setSearchQueryEndTime(0);
+            return;
+        }
 
-            double confidence = getConfidence(resultJson);
-            if (confidence < MIN_CONFIDENCE) return;
+        double confidence = getConfidence(resultJson);
+        if (confidence < MIN_CONFIDENCE) return;
 
-            commandService.handleCommand(textToProcess, hasWakeWord, () -> isProcessing.set(false));
-        } finally {
-            if (!commandService.isBusy()) isProcessing.set(false);
-        }
+        commandService.handleCommand(textToProcess, hasWakeWord);
+    }
+
+    /**
+     * Forwards the transcript so far, for speculative intent matching, when it is addressed
+     * to Ciel. Mirrors the cheap gates of {@link #processRecognitionResult}; it runs on the
+     * recognizer thread and must stay light.
+     */
+    private void processPartialResult(String partial) {
+        if (partial.isEmpty() || isMuted.get() || isInternallyMuted.get()) return;
+        if (System.currentTimeMillis() < ignoreSttUntil) return;
+
+        ShortTermMemory memory = ShortTermMemoryService.getMemory();
+        if (memory.isInGamingSession() && !memory.isInPrivilegedMode()) return;
+        if (memory.isSearchModeActive()) return;
+
+        String addressed = afterWakeWord(partial);
+        if (addressed == null && !memory.isInPrivilegedMode()) return;
+
+        String text = addressed != null ? addressed : partial;
+        if (!text.isEmpty()) commandService.onPartialResult(text);
+    }
+
+    /** What follows the wake word (possibly empty), or null when the transcript does not start with one. */
+    static String afterWakeWord(String transcript) {
+        Matcher matcher = WAKE_WORD_PATTERN.matcher(transcript);
+        return matcher.find() ? transcript.substring(matcher.end()).trim() : null;
     }
 
     public void toggleListening() {
@@ -248,18 +274,20 @@ public class VoiceListener {
         ignoreSttUntil = System.currentTimeMillis() + 3000;
         
         LineManager.getWakeWordAckLine().ifPresent(line -> {
-            long speechDuration = SpeechService.estimateSpeechDuration(line.text());
-            ShortTermMemoryService.getMemory().setPrivilegedMode(true, PRIVILEGED_MODE_DURATION_SECONDS + (int)(speechDuration/1000));
-            SpeechService.speakPreformatted(line.text());
+            // The listening window opens now and restarts from the moment the ack actually ends
+            ShortTermMemoryService.getMemory().setPrivilegedMode(true, PRIVILEGED_MODE_DURATION_SECONDS);
+            SpeechService.speakPreformatted(line.text())
+                    .thenRun(() -> ShortTermMemoryService.getMemory().setPrivilegedMode(true, PRIVILEGED_MODE_DURATION_SECONDS));
         });
     }
 
     public void startListeningForSearchQuery() {
         LineManager.getDialogueLine("command.search_ack.0").ifPresent(line -> {
-            long speechDuration = SpeechService.estimateSpeechDuration(line.text());
-            long listenStartTime = System.currentTimeMillis() + speechDuration;
-            ShortTermMemoryService.getMemory().setSearchQueryEndTime(listenStartTime + 10000);
-            SpeechService.speakPreformatted(line.text());
+            ShortTermMemoryService.getMemory().setSearchQueryEndTime(System.currentTimeMillis() + 10000);
+            SpeechService.speakPreformatted(line.text()).thenAccept(ended -> {
+                long listenStartTime = ended != null ? ended.timestamp() : System.currentTimeMillis();
+                ShortTermMemoryService.getMemory().setSearchQueryEndTime(listenStartTime + 10000);
+            });
         });
     }
 
@@ -270,20 +298,22 @@ public class VoiceListener {
             while (isRunning) {
                 try { Thread.sleep(2000); } catch (InterruptedException e) { break; }
                 
-                if (needsMicReinitialization.get()) {
+                // Waiting for a microphone to be plugged in is silence, not a dead stream
+                AudioSource watched = audioSource;
+                if (needsMicReinitialization.get() || sourceExhausted || (watched != null && watched.isAwaitingDevice())) {
                     lastAudioTime = System.currentTimeMillis(); 
                     continue;
                 }
                 
                 long silenceDuration = System.currentTimeMillis() - lastAudioTime;
                 if (silenceDuration > DEAD_STREAM_THRESHOLD_MS) {
-                    System.out.println("Ciel FATAL: Watchdog detected dead audio stream (" + silenceDuration + "ms). Assassinating thread and rebuilding...");
+                    System.out.println("Ciel FATAL: Watchdog detected dead audio stream (" + silenceDuration + "ms). Closing the line and rebuilding...");
                     needsMicReinitialization.set(true);
                     lastAudioTime = System.currentTimeMillis(); 
                     
-                    if (listeningThread != null && listeningThread.isAlive()) {
-                        listeningThread.interrupt(); 
-                    }
+                    // Closing the line unblocks the capture thread's pending read
+                    AudioSource deadSource = audioSource;
+                    if (deadSource != null) deadSource.close();
                 }
             }
         }, "Ciel-AudioWatchdog");
@@ -292,34 +322,68 @@ public class VoiceListener {
     }
 
     private void startContinuousListening() {
+        startCaptureThread();
+
         listeningThread = new Thread(() -> {
-            lastAudioTime = System.currentTimeMillis();
+            byte[] frame = new byte[CAPTURE_FRAME_BYTES];
+            long[] capturedAt = new long[1];
+            VoiceActivityDetector vad = new VoiceActivityDetector(CAPTURE_FRAME_BYTES);
+            boolean useVad = Settings.isVoiceActivityDetectionEnabled();
+            Set<String> commandVocabulary = commandVocabulary();
+            String commandGrammar = Settings.isTwoTierRecognitionEnabled() ? new Gson().toJson(commandVocabulary) : null;
+            // What the grammar tier has heard since its last result, in case it has to be decoded again
+            ByteArrayOutputStream grammarAudio = new ByteArrayOutputStream();
             while (isRunning) {
-                if (needsMicReinitialization.compareAndSet(true, false)) {
-                    reinitializeMicrophone();
-                }
-                
-                try (Recognizer recognizer = new Recognizer(voskModel, 16000)) {
-                    recognizer.setWords(true);
-                    byte[] buffer = new byte[4096];
-                    while (isRunning && microphone != null && microphone.isOpen() && !needsMicReinitialization.get()) {
-                        
-                        int available = microphone.available();
-                        if (available > 0) {
-                            int bytesToRead = Math.min(buffer.length, available);
-                            int bytesRead = microphone.read(buffer, 0, bytesToRead);
-                            if (bytesRead > 0) {
-                                lastAudioTime = System.currentTimeMillis(); 
-                                if (recognizer.acceptWaveForm(buffer, bytesRead)) {
-                                    processRecognitionResult(recognizer.getResult());
-                                }
+                long generation = micGeneration.get();
+                captureRing.clear();
+                vad.reset();
+                grammarAudio.reset();
+                try (Recognizer freeForm = new Recognizer(voskModel, 16000);
+                     Recognizer commands = commandGrammar != null ? new Recognizer(voskModel, 16000, commandGrammar) : null) {
+                    freeForm.setWords(true);
+                    if (commands != null) commands.setWords(true);
+                    Recognizer[] active = { freeForm };
+                    String[] lastPartial = { "" };
+                    Transcriber transcriber = new Transcriber(freeForm, commands, commandVocabulary, grammarAudio);
+                    VoiceActivityDetector.FrameSink decode = (buf, len) -> {
+                        long decoded = framesDecoded.incrementAndGet();
+                        if (active[0] == commands) transcriber.keep(buf, len);
+                        if (active[0].acceptWaveForm(buf, len)) {
+                            lastPartial[0] = "";
+                            transcriber.handle(active[0], active[0].getResult());
+                        } else if (decoded % PARTIAL_RESULT_INTERVAL_FRAMES == 0) {
+                            String partial = JsonParser.parseString(active[0].getPartialResult()).getAsJsonObject().get("partial").getAsString();
+                            if (!partial.equals(lastPartial[0])) {
+                                lastPartial[0] = partial;
+                                processPartialResult(partial.replace("[unk]", " ").trim());
                             }
-                        } else {
-                            try { Thread.sleep(10); } catch (InterruptedException e) { break; }
+                        }
+                    };
+                    // A rebuilt microphone gets a fresh recognizer, as the old stream's state is meaningless
+                    while (isRunning && micGeneration.get() == generation) {
+                        int bytesRead = captureRing.poll(frame, capturedAt, 250);
+                        if (bytesRead < 0) {
+                            if (Thread.currentThread().isInterrupted()) return;
+                            continue;
+                        }
+                        recordLatency(System.nanoTime() - capturedAt[0]);
+
+                        Recognizer wanted = (commands != null && !needsFreeFormDecode()) ? commands : freeForm;
+                        if (wanted != active[0]) {
+                            transcriber.handle(active[0], active[0].getFinalResult());
+                            active[0] = wanted;
+                            System.out.println("Ciel Debug: Recognizer switched to " + (wanted == commands ? "command grammar." : "free-form dictation."));
+                        }
+
+                        if (!useVad) {
+                            decode.accept(frame, bytesRead);
+                        } else if (vad.process(frame, bytesRead, decode)) {
+                            // Segment over and nothing more will be fed: flush whatever Vosk still holds
+                            transcriber.handle(active[0], active[0].getFinalResult());
                         }
                     }
                 } catch (Exception e) {
-                    try { Thread.sleep(2000); } catch (InterruptedException ie) {}
+                    try { Thread.sleep(2000); } catch (InterruptedException ie) { return; }
                 }
             }
         });
@@ -328,17 +392,162 @@ public class VoiceListener {
         listeningThread.start();
     }
 
+    /**
+     * Capture only: blocking reads straight into the ring, so a slow acceptWaveForm on the
+     * recognizer thread can never stall the line and make the driver drop audio.
+     */
+    private void startCaptureThread() {
+        captureThread = new Thread(() -> {
+            byte[] buffer = new byte[CAPTURE_FRAME_BYTES];
+            lastAudioTime = System.currentTimeMillis();
+            while (isRunning) {
+                if (needsMicReinitialization.compareAndSet(true, false)) {
+                    reinitializeMicrophone();
+                    micGeneration.incrementAndGet();
+                }
+
+                AudioSource source = audioSource;
+                if (source == null || !source.isOpen()) {
+                    try { Thread.sleep(2000); } catch (InterruptedException e) { break; }
+                    if (!needsMicReinitialization.get() && (audioSource == null || !audioSource.isOpen())) {
+                        needsMicReinitialization.set(true);
+                    }
+                    continue;
+                }
+
+                int bytesRead = source.read(buffer, 0, buffer.length);
+                if (bytesRead > 0) {
+                    lastAudioTime = System.currentTimeMillis();
+                    framesCaptured.incrementAndGet();
+                    long capturedAt = System.nanoTime();
+                    if (source.isFinite()) {
+                        // Replayed audio can wait for the recognizer; a dropped frame would only skew the run
+                        while (isRunning && !captureRing.put(buffer, bytesRead, capturedAt, 250)) {
+                            lastAudioTime = System.currentTimeMillis(); // Waiting, not a dead stream
+                        }
+                    } else {
+                        captureRing.offer(buffer, bytesRead, capturedAt);
+                    }
+                } else if (bytesRead < 0) {
+                    // Only finite sources (file replay) end; the recognizer drains what is left
+                    System.out.println("Ciel Debug: Audio source exhausted (" + source.describe() + ").");
+                    sourceExhausted = true;
+                    break;
+                } else if (!source.isActive()) {
+                    // A stopped line returns immediately; don't spin on it until it is rebuilt
+                    try { Thread.sleep(100); } catch (InterruptedException e) { break; }
+                }
+            }
+        }, "Ciel-MicCapture");
+        captureThread.setDaemon(true);
+        captureThread.setPriority(Thread.MAX_PRIORITY);
+        captureThread.start();
+    }
+
+    /**
+     * The large free-form decode is only needed when someone is actually talking to Ciel
+     * or when background speech is being transcribed. Everything else (notably gaming,
+     * where unaddressed speech is dropped anyway) only has to catch the wake word and the
+     * fixed commands, which the small grammar recognizer does far more cheaply.
+     */
+    private boolean needsFreeFormDecode() {
+        ShortTermMemory memory = ShortTermMemoryService.getMemory();
+        if (memory.isInPrivilegedMode() || memory.isSearchModeActive()) return true;
+        if (memory.isInGamingSession()) return false;
+        return CielState.getCurrentMode() == OperatingMode.DND_ASSISTANT || Settings.isAiObserverEnabled();
+    }
+
+    private static Set<String> commandVocabulary() {
+        Set<String> phrases = new LinkedHashSet<>(WAKE_WORDS);
+        phrases.addAll(WAKE_PREFIXES);
+        phrases.addAll(IntentService.getCommandVocabulary());
+        // Anything outside the grammar decodes as [unk] instead of being forced onto a command
+        phrases.add("[unk]");
+        return phrases;
+    }
+
+    /**
+     * True for a grammar-tier result that is addressed to Ciel but is not a whole command: part
+     * of it decoded as [unk], or only stray words of the vocabulary came out. "ciel close chrome"
+     * comes out as "ciel close [unk]", and acting on "close" would lose what was to be closed.
+     * A bare wake word is whole; it starts dictation by itself.
+     */
+    static boolean isPartialCommand(String grammarText, Set<String> vocabulary) {
+        String addressed = afterWakeWord(grammarText.replaceAll("\\s+", " ").trim());
+        if (addressed == null || addressed.isEmpty()) return false;
+        return addressed.contains("[unk]") || !vocabulary.contains(addressed);
+    }
+
+    /**
+     * Turns recognizer results into transcripts on the recognizer thread. Grammar-tier results
+     * lose the [unk] tokens, except that one {@link #isPartialCommand cut short} is decoded again
+     * from the kept audio by the free-form recognizer, which sits idle while the grammar runs.
+     */
+    private final class Transcriber {
+        private final Recognizer freeForm;
+        private final Recognizer commands;
+        private final Set<String> vocabulary;
+        private final ByteArrayOutputStream grammarAudio;
+
+        Transcriber(Recognizer freeForm, Recognizer commands, Set<String> vocabulary, ByteArrayOutputStream grammarAudio) {
+            this.freeForm = freeForm;
+            this.commands = commands;
+            this.vocabulary = vocabulary;
+            this.grammarAudio = grammarAudio;
+        }
+
+        void keep(byte[] frame, int length) {
+            // Longer than any command: background talk the grammar never closed off
+            if (grammarAudio.size() + length > MAX_REDECODE_BYTES) grammarAudio.reset();
+            grammarAudio.write(frame, 0, length);
+        }
+
+        void handle(Recognizer from, String result) {
+            if (from != commands) {
+                processRecognitionResult(result);
+                return;
+            }
+            byte[] audio = grammarAudio.toByteArray();
+            grammarAudio.reset();
+            JsonObject resultJson = JsonParser.parseString(result).getAsJsonObject();
+            String heard = resultJson.get("text").getAsString();
+            if (audio.length > 0 && isPartialCommand(heard, vocabulary)) {
+                System.out.println("Ciel Debug: Command grammar only caught \"" + heard + "\". Decoding the utterance again as dictation.");
+                freeForm.acceptWaveForm(audio, audio.length);
+                processRecognitionResult(freeForm.getFinalResult());
+                return;
+            }
+            String text = heard.replace("[unk]", " ").replaceAll("\\s+", " ").trim();
+            if (text.isEmpty()) return;
+            resultJson.addProperty("text", text);
+            processRecognitionResult(resultJson.toString());
+        }
+    }
+
+    /** How far into the captured stream the recognizer has read, in bytes of audio. */
+    long getRecognizedBytes() {
+        return captureRing.framesRead() * CAPTURE_FRAME_BYTES;
+    }
+
+    /** True once a finite source has ended and the recognizer has consumed everything it captured. */
+    boolean isDrained() {
+        return sourceExhausted && captureRing.size() == 0;
+    }
+
+    private void recordLatency(long nanos) {
+        lastLatencyNanos = nanos;
+        if (nanos > maxLatencyNanos) maxLatencyNanos = nanos;
+    }
+
     private synchronized void reinitializeMicrophone() {
         System.out.println("Ciel Debug: Executing Watchdog Mic Reinitialization...");
-        if (microphone != null) { try { microphone.stop(); microphone.close(); } catch (Exception e) {} }
-        try {
-            microphone = getTargetDataLine();
-            if (microphone != null) {
-                microphone.open(new AudioFormat(16000, 16, 1, true, false));
-                microphone.start();
-                System.out.println("Ciel Debug: Microphone successfully rebuilt by Watchdog.");
-            }
-        } catch (Exception e) {
+        if (audioSource != null) audioSource.close();
+        AudioSource source = audioSourceFactory.get();
+        if (source.open()) {
+            audioSource = source;
+            System.out.println("Ciel Debug: Microphone successfully rebuilt by Watchdog.");
+        } else {
+            audioSource = null;
             System.err.println("Ciel Error: Watchdog failed to rebuild microphone.");
         }
         lastAudioTime = System.currentTimeMillis(); 
@@ -355,10 +564,11 @@ public class VoiceListener {
 
     public void close() {
         isRunning = false;
+        if (captureThread != null) captureThread.interrupt();
         if (listeningThread != null) listeningThread.interrupt();
         if (watchdogThread != null) watchdogThread.interrupt();
         commandExecutor.shutdownNow();
-        if (microphone != null) microphone.close();
+        if (audioSource != null) audioSource.close();
         if (voskModel != null) voskModel.close();
     }
 }
\ No newline at end of file
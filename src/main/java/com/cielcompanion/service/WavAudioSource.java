@@ -0,0 +1,158 @@
+package com.cielcompanion.service;
+
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays WAV files as if they were spoken into the microphone, one utterance per file with
+ * silence in between. Files in other formats are converted to {@link #FORMAT}. Playback is
+ * paced to {@code speed} x real time; a speed of 0 or less delivers audio as fast as the
+ * reader takes it.
+ */
+public class WavAudioSource implements AudioSource {
+
+    /**
+     * Told when the last byte of an utterance has been handed to the reader. {@code endByte} is
+     * its position in the replayed stream, lead-in and gaps included.
+     */
+    public interface UtteranceListener {
+        void onUtteranceEnd(int index, Path file, long endNanos, long endByte);
+    }
+
+    private static final int BYTES_PER_SECOND = 16000 * 2;
+
+    private final List<Path> files;
+    private final double speed;
+    private final int gapBytes;
+    private volatile UtteranceListener listener;
+
+    private AudioInputStream current;
+    private int fileIndex = -1;
+    private int silenceLeft = 0;
+    private long bytesDelivered = 0;
+    private long startNanos = -1;
+    private volatile boolean open = false;
+
+    public WavAudioSource(List<Path> files, double speed, int gapMs) {
+        this.files = List.copyOf(files);
+        this.speed = speed;
+        // Whole samples only
+        this.gapBytes = (int) ((long) gapMs * BYTES_PER_SECOND / 1000) & ~1;
+    }
+
+    public void setUtteranceListener(UtteranceListener listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public synchronized boolean open() {
+        if (files.isEmpty()) return false;
+        open = true;
+        // Lead-in silence so the VAD has a noise floor before the first word
+        silenceLeft = gapBytes;
+        return true;
+    }
+
+    @Override
+    public synchronized int read(byte[] buffer, int offset, int length) {
+        if (!open) return -1;
+        length &= ~1;
+        if (startNanos < 0) startNanos = System.nanoTime();
+        pace(length);
+
+        int filled = 0;
+        while (filled < length) {
+            if (silenceLeft > 0) {
+                int n = Math.min(silenceLeft, length - filled);
+                Arrays.fill(buffer, offset + filled, offset + filled + n, (byte) 0);
+                silenceLeft -= n;
+                filled += n;
+                continue;
+            }
+            if (current == null && !nextFile()) break;
+            try {
+                int n = current.read(buffer, offset + filled, length - filled);
+                if (n > 0) {
+                    filled += n;
+                    continue;
+                }
+            } catch (IOException e) {
+                System.err.println("Ciel Error: Could not read " + files.get(fileIndex) + ": " + e.getMessage());
+            }
+            finishFile(bytesDelivered + filled);
+        }
+        bytesDelivered += filled;
+        return filled == 0 ? -1 : filled;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public boolean isActive() {
+        return open;
+    }
+
+    @Override
+    public boolean isFinite() {
+        return true;
+    }
+
+    @Override
+    public String describe() {
+        return "wav replay: " + files.size() + " file(s) at " + (speed > 0 ? speed + "x" : "max") + " speed";
+    }
+
+    @Override
+    public synchronized void close() {
+        open = false;
+        if (current != null) {
+            try { current.close(); } catch (IOException ignored) {}
+            current = null;
+        }
+    }
+
+    private boolean nextFile() {
+        while (++fileIndex < files.size()) {
+            Path file = files.get(fileIndex);
+            try {
+                AudioInputStream raw = AudioSystem.getAudioInputStream(file.toFile());
+                current = raw.getFormat().matches(FORMAT) ? raw : AudioSystem.getAudioInputStream(FORMAT, raw);
+                return true;
+            } catch (Exception e) {
+                System.err.println("Ciel Error: Skipping unreadable WAV " + file + ": " + e.getMessage());
+            }
+        }
+        return false;
+    }
+
+    private void finishFile(long endByte) {
+        try { current.close(); } catch (IOException ignored) {}
+        current = null;
+        // Trailing silence lets the VAD hangover and Vosk's endpointer close the utterance
+        silenceLeft = gapBytes;
+        UtteranceListener l = listener;
+        if (l != null) l.onUtteranceEnd(fileIndex, files.get(fileIndex), System.nanoTime(), endByte);
+    }
+
+    /** Holds the reader back so audio is not delivered ahead of the replay clock. */
+    private void pace(int length) {
+        if (speed <= 0) return;
+        long dueNanos = startNanos + (long) ((bytesDelivered + length) * 1e9 / (BYTES_PER_SECOND * speed));
+        long wait = dueNanos - System.nanoTime();
+        if (wait > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package com.cielcompanion.service.nlu;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * In-process intent model consulted before the LLM semantic router. A softmax (multinomial
+ * logistic) regression over character n-grams and words, trained from whole example commands
+ * of the intent grammar plus every utterance the LLM has resolved before. Each new LLM verdict is
+ * appended to a plain-text log and the model is retrained in the background, so anything
+ * said twice is classified locally the second time.
+ *
+ * <p>A prediction is only returned when it is confident and the utterance mostly consists of
+ * features the model has seen; otherwise the caller goes on to the LLM as before.
+ */
+public class IntentClassifier {
+
+    public record Example(String text, Intent intent) {}
+
+    public record Prediction(Intent intent, double confidence) {}
+
+    public record Stats(int examples, long predictions, long deferred, long learned) {}
+
+    private static final int EPOCHS = 30;
+    private static final double LEARNING_RATE = 1.5;
+    private static final double L2 = 1e-5;
+    // Log entries used for training; the oldest fall away once the log grows past this
+    private static final int MAX_LOGGED_EXAMPLES = 5000;
+    private static final int LOGGED_EXAMPLE_WEIGHT = 3;
+    // Fraction of an utterance's features that must be known before the model is trusted on it
+    private static final double MIN_FEATURE_COVERAGE = 0.6;
+
+    /** Immutable trained weights, swapped whole after each retrain. */
+    private record Model(Intent[] classes, float[] bias, Map<String, float[]> weights) {}
+
+    private final Path examplesLog;
+    private final double threshold;
+    private final Supplier<List<Example>> seedExamples;
+    private final List<Example> logged = new ArrayList<>();
+    private volatile Model model;
+
+    private final ExecutorService trainer = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "Ciel-IntentTrainer");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicBoolean retrainPending = new AtomicBoolean(false);
+
+    private long predictions = 0;
+    private long deferred = 0;
+    private long learned = 0;
+
+    /**
+     * @param seedExamples phrases derived from the intent grammar, re-read on every retrain
+     * @param threshold    minimum softmax probability for a prediction to be used
+     */
+    public IntentClassifier(Path examplesLog, double threshold, Supplier<List<Example>> seedExamples) {
+        this.examplesLog = examplesLog;
+        this.threshold = threshold;
+        this.seedExamples = seedExamples;
+    }
+
+    /** Loads the example log and trains the first model in the background. */
+    public void start() {
+        trainer.execute(() -> {
+            loadLog();
+            retrain();
+        });
+    }
+
+    /** Returns a confident prediction, or null if the LLM should decide. Takes microseconds. */
+    public Prediction classify(String text) {
+        Model current = model;
+        if (current == null || text == null || text.isBlank()) return null;
+
+        List<String> features = features(text);
+        int known = 0;
+        double[] scores = new double[current.classes().length];
+        for (int c = 0; c < scores.length; c++) scores[c] = current.bias()[c];
+        double scale = 1.0 / Math.sqrt(features.size());
+        for (String feature : features) {
+            float[] w = current.weights().get(feature);
+            if (w == null) continue;
+            known++;
+            for (int c = 0; c < scores.length; c++) scores[c] += w[c] * scale;
+        }
+        double[] probabilities = softmax(scores);
+        int best = 0;
+        for (int c = 1; c < probabilities.length; c++) if (probabilities[c] > probabilities[best]) best = c;
+
+        synchronized (this) {
+            if ((double) known / features.size() < MIN_FEATURE_COVERAGE || probabilities[best] < threshold) {
+                deferred++;
+                return null;
+            }
+            predictions++;
+        }
+        return new Prediction(current.classes()[best], probabilities[best]);
+    }
+
+    /** Records an utterance the LLM resolved and schedules a retrain. */
+    public void learn(String text, Intent intent) {
+        if (text == null || text.isBlank() || intent == null) return;
+        String normalized = normalize(text);
+        synchronized (this) {
+            logged.add(new Example(normalized, intent));
+            if (logged.size() > MAX_LOGGED_EXAMPLES) logged.remove(0);
+            learned++;
+        }
+        trainer.execute(() -> appendToLog(normalized, intent));
+        if (retrainPending.compareAndSet(false, true)) {
+            trainer.execute(() -> {
+                retrainPending.set(false);
+                retrain();
+            });
+        }
+    }
+
+    public synchronized Stats getStats() {
+        return new Stats(logged.size(), predictions, deferred, learned);
+    }
+
+    private void retrain() {
+        List<Example> examples = new ArrayList<>(seedExamples.get());
+        synchronized (this) {
+            // Real utterances count for more than the grammar's made-up examples
+            for (int i = 0; i < LOGGED_EXAMPLE_WEIGHT; i++) examples.addAll(logged);
+        }
+        if (examples.isEmpty()) return;
+        long start = System.nanoTime();
+        model = fit(examples);
+        System.out.printf("Ciel Debug: Intent classifier trained on %d examples in %.0f ms.%n",
+                examples.size(), (System.nanoTime() - start) / 1e6);
+    }
+
+    /** Plain SGD on the softmax cross-entropy, a fixed number of shuffled passes. */
+    private static Model fit(List<Example> examples) {
+        Set<Intent> seen = new LinkedHashSet<>();
+        for (Example example : examples) seen.add(example.intent());
+        Intent[] classes = seen.toArray(new Intent[0]);
+        Map<Intent, Integer> classIndex = new HashMap<>();
+        for (int c = 0; c < classes.length; c++) classIndex.put(classes[c], c);
+
+        List<List<String>> featureLists = new ArrayList<>();
+        for (Example example : examples) featureLists.add(features(example.text()));
+
+        float[] bias = new float[classes.length];
+        Map<String, float[]> weights = new HashMap<>();
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < examples.size(); i++) order.add(i);
+        Random random = new Random(7);
+
+        double[] scores = new double[classes.length];
+        for (int epoch = 0; epoch < EPOCHS; epoch++) {
+            Collections.shuffle(order, random);
+            double rate = LEARNING_RATE / (1 + epoch * 0.5);
+            for (int i : order) {
+                List<String> features = featureLists.get(i);
+                int target = classIndex.get(examples.get(i).intent());
+                double scale = 1.0 / Math.sqrt(features.size());
+
+                for (int c = 0; c < classes.length; c++) scores[c] = bias[c];
+                for (String feature : features) {
+                    float[] w = weights.get(feature);
+                    if (w != null) for (int c = 0; c < classes.length; c++) scores[c] += w[c] * scale;
+                }
+                double[] probabilities = softmax(scores);
+
+                for (int c = 0; c < classes.length; c++) {
+                    bias[c] -= (float) (rate * (probabilities[c] - (c == target ? 1 : 0)));
+                }
+                for (String feature : features) {
+                    float[] w = weights.computeIfAbsent(feature, f -> new float[classes.length]);
+                    for (int c = 0; c < classes.length; c++) {
+                        double gradient = (probabilities[c] - (c == target ? 1 : 0)) * scale + L2 * w[c];
+                        w[c] -= (float) (rate * gradient);
+                    }
+                }
+            }
+        }
+        return new Model(classes, bias, Map.copyOf(weights));
+    }
+
+    /** Word unigrams and bigrams plus character 3- and 4-grams, which absorb small transcription errors. */
+    static List<String> features(String text) {
+        String normalized = normalize(text);
+        List<String> features = new ArrayList<>();
+        String[] words = normalized.split(" ");
+        for (int i = 0; i < words.length; i++) {
+            features.add("w:" + words[i]);
+            if (i + 1 < words.length) features.add("b:" + words[i] + " " + words[i + 1]);
+        }
+        String padded = " " + normalized + " ";
+        for (int n = 3; n <= 4; n++) {
+            for (int i = 0; i + n <= padded.length(); i++) features.add(padded.substring(i, i + n));
+        }
+        return features;
+    }
+
+    private static double[] softmax(double[] scores) {
+        double max = Double.NEGATIVE_INFINITY;
+        for (double s : scores) max = Math.max(max, s);
+        double sum = 0;
+        double[] out = new double[scores.length];
+        for (int i = 0; i < scores.length; i++) {
+            out[i] = Math.exp(scores[i] - max);
+            sum += out[i];
+        }
+        for (int i = 0; i < out.length; i++) out[i] /= sum;
+        return out;
+    }
+
+    private static String normalize(String text) {
+        return text.toLowerCase().replace("[unk]", "").replaceAll("[^a-z0-9' ]", " ").trim().replaceAll("\\s+", " ");
+    }
+
+    /* ------------------------------------------------------------------ */
+    /*  EXAMPLE LOG: one "INTENT<TAB>utterance" per line                   */
+    /* ------------------------------------------------------------------ */
+
+    private void loadLog() {
+        if (!Files.exists(examplesLog)) return;
+        try {
+            List<Example> loaded = new ArrayList<>();
+            for (String line : Files.readAllLines(examplesLog, StandardCharsets.UTF_8)) {
+                int tab = line.indexOf('\t');
+                if (tab <= 0) continue;
+                try {
+                    loaded.add(new Example(line.substring(tab + 1), Intent.valueOf(line.substring(0, tab))));
+                } catch (IllegalArgumentException e) {
+                    // An intent that no longer exists
+                }
+            }
+            synchronized (this) {
+                int from = Math.max(0, loaded.size() - MAX_LOGGED_EXAMPLES);
+                logged.addAll(0, loaded.subList(from, loaded.size()));
+            }
+            System.out.println("Ciel Debug: Loaded " + loaded.size() + " learned intent examples.");
+        } catch (IOException e) {
+            System.err.println("Ciel Error: Could not read intent example log: " + e.getMessage());
+        }
+    }
+
+    private void appendToLog(String text, Intent intent) {
+        try {
+            Files.writeString(examplesLog, intent.name() + "\t" + text + System.lineSeparator(), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            System.err.println("Ciel Error: Could not append to intent example log: " + e.getMessage());
+        }
+    }
+}
@@ -1,7 +1,9 @@
 package com.cielcompanion.service.nlu;
 
 import com.cielcompanion.service.LineManager;
+import com.cielcompanion.service.Settings;
 
+import java.nio.file.Paths;
 import java.util.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -10,13 +12,90 @@ import java.util.stream.Collectors;
 public class IntentService {
 
     private final Map<Intent, Pattern> intentPatterns = new LinkedHashMap<>();
+    private final Map<Intent, List<String>> intentKeywords = new LinkedHashMap<>();
     
     private static final Pattern MISHEARD_TRIGGER_PATTERN = Pattern.compile("^(?:hey\\s+|hi\\s+|uh\\s+|um\\s+|ok\\s+|okay\\s+|so\\s+|well\\s+)?(he see our launch|see how can you want|how can you open|he see our|so listen|ceo listen|hey allison|c l|see l|see el|see i|ciel|cl|seal|seo|ceo|joe|chill|tell|feel|fill|she'll|still|steel|steal|sail|sale|shell|hunter)(?:\\s+|$)", Pattern.CASE_INSENSITIVE);
     
     private final Map<String, List<String>> mishearingCorrections = new LinkedHashMap<>();
+    private static final String[] ENTITY_GROUPS = {"appName", "routineName", "key", "value", "dice", "soundName", "subject", "subjectA", "subjectB", "content", "topic", "type", "query", "player", "skill"};
+
+    /** One intent of the compiled grammar; {@code groups} are the entity groups its pattern actually declares. */
+    record CompiledIntent(Intent intent, Pattern pattern, String[] groups) {}
+
+    /** Easter-egg keys with their lower-case forms and keyword sets, rebuilt only when the key set is replaced. */
+    private record EasterEggIndex(Set<String> source, List<String> keys, List<String> lowerKeys, Set<String> lowerKeySet,
+                                  List<Set<String>> keywords, Map<String, int[]> keysByWord) {}
+
+    // Built from intentPatterns/intentKeywords at the end of initialize()
+    private List<CompiledIntent> compiledIntents = List.of();
+    private KeywordTrie intentPrefilter;
+    private Map<String, String> correctionIndex = Map.of();
+    private volatile EasterEggIndex easterEggIndex;
+    private IntentClassifier classifier;
     private static final Pattern JUNK_PREFIX_PATTERN = Pattern.compile("^(the|a|an)\\s+", Pattern.CASE_INSENSITIVE);
     private static final Set<String> STOP_WORDS = Set.of("a", "an", "the", "is", "are", "was", "were", "in", "of", "to", "and", "i", "you", "it");
 
+    // Fixed-phrase forms of the slot-free intents below; the wake-word recognizer's grammar is built from these.
+    // Keep in step with intentPatterns when adding a command that takes no free-form argument.
+    private static final List<String> FIXED_COMMAND_PHRASES = List.of(
+            "toggle listening",
+            "enter recording mode", "start recording mode", "enter attentive mode", "start attentive mode",
+            "enter d and d mode", "start d and d mode",
+            "return to integrated mode", "return to normal mode", "return to standard mode", "resume normal mode",
+            "what is the moon phase", "what's the moon phase", "tell me the moon phase",
+            "which planets are visible", "what planets are visible",
+            "which constellations are visible", "what constellations are visible",
+            "when is the next eclipse", "is there an eclipse",
+            "run campaign audit", "run folder audit",
+            "open the cheat sheet", "open the master sheet",
+            "enter the tensura world", "start tensura mode", "start tensura protocol",
+            "confirmed", "approved", "proceed", "execute",
+            "what's the weather", "what is the weather", "what's the weather tomorrow", "what's the forecast for tonight",
+            "what time is it", "what's the time", "what is the time", "what's the date", "what date is it",
+            "daily report", "astronomy report", "system status", "system report",
+            "which process is using the most memory", "which process is using the most cpu",
+            "highest memory", "highest cpu",
+            "reboot", "restart", "shut down", "turn off", "power off",
+            "update yourself", "system update", "update your code",
+            "cancel shutdown", "cancel reboot",
+            "scan for new apps", "scan for new games", "scan for new applications",
+            "let's chat", "start conversation", "talk to me", "open chat mode",
+            "end conversation", "stop chatting", "that's all", "close chat mode");
+
+    // Whole example commands for the intents that take an argument, labelled through analyze() like the
+    // fixed phrases; the classifier learns from these instead of the prefilter's keyword fragments
+    private static final List<String> ARGUMENT_COMMAND_EXAMPLES = List.of(
+            "open spotify", "launch steam", "start notepad", "open the calculator",
+            "close discord", "quit chrome", "terminate notepad", "force close the game", "force quit discord",
+            "find blender", "locate obs", "save path for steam",
+            "start morning routine", "run gaming routine",
+            "remember that my birthday is in may", "remember to buy milk",
+            "what is my favorite color", "who is the dungeon master",
+            "roll two d twenty", "roll a d six", "play the sound of thunder", "play a dragon roar",
+            "look up spell fireball", "look up monster beholder", "search for the item bag of holding",
+            "what are the rules for grappling", "how does concentration work",
+            "reveal that the duke is a vampire", "create a session note for the goblin camp",
+            "add to marcus session note he lost his sword", "link session notes waterdeep and the guild",
+            "what is linked to the harbor", "what do we know about the cult", "tell me about the red wizard",
+            "analyze my notes on the lich", "what are my notes on the portal",
+            "record meaningful stealth use for sam", "report surge for mike",
+            "remember that strahd is pronounced strod",
+            "run a script to clean my downloads", "organize my desktop", "automate this",
+            "copy the skill", "restore raphael");
+
+    // Never taken from a local guess, only from the patterns or the LLM router: a wrong one powers
+    // the machine off or kills a program
+    private static final Set<Intent> ROUTER_ONLY_INTENTS = EnumSet.of(Intent.INITIATE_SHUTDOWN, Intent.INITIATE_REBOOT,
+            Intent.TERMINATE_PROCESS, Intent.TERMINATE_PROCESS_FORCE, Intent.UPDATE_SYSTEM);
+
+    // Conversation the grammar never claims; gives the classifier a chat class before any is learned
+    private static final List<String> CHAT_EXAMPLES = List.of(
+            "how are you doing today", "i had a long day at work", "that was really funny", "good morning",
+            "good night", "thank you", "thanks a lot", "i'm bored", "do you like music", "i think so too",
+            "what do you think about that", "tell me a joke", "i'm going to get some food",
+            "that game was intense", "i don't know", "maybe later", "you're pretty smart", "how was your day",
+            "we should go out sometime", "i'm tired", "that makes sense", "nice job", "let me think about it");
+
     private static final Pattern SPEAKER_PREFIX_PATTERN = Pattern.compile("^(?<speaker>brandon|sam|jody|emilee|mike)\\s*[:\\-]?\\s*", Pattern.CASE_INSENSITIVE);
 
     public void initialize() {
@@ -36,70 +115,156 @@ public class IntentService {
         mishearingCorrections.put("gomu gomu no", List.of("go more go more no", "go more go no", "go my go no", "go more go me no", "the go more go more no", "gomo gomo", "gum gum no"));
         mishearingCorrections.put("it's a trap", List.of("what is a trap"));
 
-        intentPatterns.put(Intent.TOGGLE_LISTENING, Pattern.compile("(?i)toggle listening"));
-        intentPatterns.put(Intent.SET_MODE_ATTENTIVE, Pattern.compile("(?i)(enter|start|begin) (recording|attentive) mode"));
-        intentPatterns.put(Intent.SET_MODE_DND, Pattern.compile("(?i)(enter|start|begin) d and d mode"));
-        intentPatterns.put(Intent.SET_MODE_INTEGRATED, Pattern.compile("(?i)(return to|enter|resume) (integrated|standard|normal) mode"));
+        register(Intent.TOGGLE_LISTENING, "(?i)toggle listening", "toggle listening");
+        register(Intent.SET_MODE_ATTENTIVE, "(?i)(enter|start|begin) (recording|attentive) mode", "recording mode", "attentive mode");
+        register(Intent.SET_MODE_DND, "(?i)(enter|start|begin) d and d mode", "d and d mode");
+        register(Intent.SET_MODE_INTEGRATED, "(?i)(return to|enter|resume) (integrated|standard|normal) mode", "integrated mode", "standard mode", "normal mode");
         
-        intentPatterns.put(Intent.GET_MOON_PHASE, Pattern.compile("(?i).*(what is|what's|tell me).*(moon phase).*"));
-        intentPatterns.put(Intent.GET_VISIBLE_PLANETS, Pattern.compile("(?i).*(what|which).*(planets).*(visible).*"));
-        intentPatterns.put(Intent.GET_CONSTELLATIONS, Pattern.compile("(?i).*(what|which).*(constellations).*(visible).*"));
-        intentPatterns.put(Intent.GET_ECLIPSES, Pattern.compile("(?i).*(when is|are there|is there).*(next|any)?\\s*eclipse.*"));
-
-        intentPatterns.put(Intent.DND_RUN_AUDIT, Pattern.compile("(?i)run (campaign|folder) audit"));
-        intentPatterns.put(Intent.DND_RECORD_MASTERY, Pattern.compile("(?i)record meaningful (?<skill>.+) (use|success) for (?<player>.+)"));
-        intentPatterns.put(Intent.DND_REPORT_SURGE, Pattern.compile("(?i)report surge for (?<player>.+)")); 
-        intentPatterns.put(Intent.OPEN_CHEAT_SHEET, Pattern.compile("(?i)open (the )?(cheat sheet|master sheet)")); 
-        intentPatterns.put(Intent.LEARN_PHONETIC, Pattern.compile("(?i)remember that (?<key>.+) is (pronounced |called )?(?<value>.+)")); 
-
-        intentPatterns.put(Intent.DND_GET_RULE, Pattern.compile("(?i)(what are the rules for|what's the rule for|how does) (?<topic>.+)"));
-        intentPatterns.put(Intent.DND_API_SEARCH, Pattern.compile("(?i)(look up|search for the) (?<type>spell|item|monster) (?<query>.+)"));
-        intentPatterns.put(Intent.DND_PLAY_SOUND, Pattern.compile("(?i)play (the sound of )?(a |an )?(?<soundName>\\w+)( sound| noise)?"));
-        intentPatterns.put(Intent.DND_ROLL_DICE, Pattern.compile("(?i)roll (?<dice>.+)"));
-        intentPatterns.put(Intent.DND_REVEAL_LORE, Pattern.compile("(?i)reveal that (?<subject>.+?) is (?<content>.+)"));
-        intentPatterns.put(Intent.DND_CREATE_SESSION_NOTE, Pattern.compile("(?i)(create|make) a session note for (?<subject>.+)"));
-        intentPatterns.put(Intent.DND_ADD_TO_SESSION_NOTE, Pattern.compile("(?i)add to (?<subject>.+?)(s'|'s)? session note (?<content>.+)"));
-        intentPatterns.put(Intent.DND_LINK_SESSION_NOTE, Pattern.compile("(?i)link session notes (?<subjectA>.+) and (?<subjectB>.+)"));
-        intentPatterns.put(Intent.DND_RECALL_SESSION_LINKS, Pattern.compile("(?i)(what is linked to|get connections for) (?<subject>.+)"));
-        intentPatterns.put(Intent.DND_RECALL_SESSION_NOTE, Pattern.compile("(?i)(what do we know about|recall the session note for|tell me about) (?<subject>.+)"));
-        intentPatterns.put(Intent.DND_ANALYZE_LORE, Pattern.compile("(?i)(analyze my notes on|what are my notes on) (?<subject>.+)"));
-
-        intentPatterns.put(Intent.TENSURA_ENTER_WORLD, Pattern.compile("(?i)enter (the )?tensura world|start tensura (protocol|mode)"));
-        intentPatterns.put(Intent.TENSURA_CONFIRM_COPY, Pattern.compile("(?i)(yes )?(please )?(copy|duplicate|restore) (the )?(skill|ability|raphael)|(confirmed|approved|proceed|execute)"));
-
-        intentPatterns.put(Intent.DYNAMIC_PC_CONTROL, Pattern.compile("(?i).*(chant annulment|dynamic script|automate this|run a script to|organize my|script to).*"));
-
-        intentPatterns.put(Intent.GET_WEATHER_FORECAST, Pattern.compile("(?i).*(weather|forecast).*(tomorrow|later|tonight).*"));
-        intentPatterns.put(Intent.GET_WEATHER, Pattern.compile("(?i).*(weather|temperature|hot|cold|outside).*"));
-        intentPatterns.put(Intent.GET_TIME, Pattern.compile("(?i).*(what time|what's the time|what is the time|what date|what's the date).*"));
-        intentPatterns.put(Intent.GET_DAILY_REPORT, Pattern.compile("(?i).*(daily report|astronomy).*"));
-        intentPatterns.put(Intent.GET_SYSTEM_STATUS, Pattern.compile("(?i).*(status|system report|system status).*"));
+        register(Intent.GET_MOON_PHASE, "(?i).*(what is|what's|tell me).*(moon phase).*", "moon phase");
+        register(Intent.GET_VISIBLE_PLANETS, "(?i).*(what|which).*(planets).*(visible).*", "planets");
+        register(Intent.GET_CONSTELLATIONS, "(?i).*(what|which).*(constellations).*(visible).*", "constellations");
+        register(Intent.GET_ECLIPSES, "(?i).*(when is|are there|is there).*(next|any)?\\s*eclipse.*", "eclipse");
+
+        register(Intent.DND_RUN_AUDIT, "(?i)run (campaign|folder) audit", "campaign audit", "folder audit");
+        register(Intent.DND_RECORD_MASTERY, "(?i)record meaningful (?<skill>.+) (use|success) for (?<player>.+)", "record meaningful ");
+        register(Intent.DND_REPORT_SURGE, "(?i)report surge for (?<player>.+)", "report surge for ");
+        register(Intent.OPEN_CHEAT_SHEET, "(?i)open (the )?(cheat sheet|master sheet)", "cheat sheet", "master sheet");
+        register(Intent.LEARN_PHONETIC, "(?i)remember that (?<key>.+) is (pronounced |called )?(?<value>.+)", "remember that ");
+
+        register(Intent.DND_GET_RULE, "(?i)(what are the rules for|what's the rule for|how does) (?<topic>.+)", "what are the rules for ", "what's the rule for ", "how does ");
+        register(Intent.DND_API_SEARCH, "(?i)(look up|search for the) (?<type>spell|item|monster) (?<query>.+)", "look up ", "search for the ");
+        register(Intent.DND_PLAY_SOUND, "(?i)play (the sound of )?(a |an )?(?<soundName>\\w+)( sound| noise)?", "play ");
+        register(Intent.DND_ROLL_DICE, "(?i)roll (?<dice>.+)", "roll ");
+        register(Intent.DND_REVEAL_LORE, "(?i)reveal that (?<subject>.+?) is (?<content>.+)", "reveal that ");
+        register(Intent.DND_CREATE_SESSION_NOTE, "(?i)(create|make) a session note for (?<subject>.+)", " session note for ");
+        register(Intent.DND_ADD_TO_SESSION_NOTE, "(?i)add to (?<subject>.+?)(s'|'s)? session note (?<content>.+)", "add to ");
+        register(Intent.DND_LINK_SESSION_NOTE, "(?i)link session notes (?<subjectA>.+) and (?<subjectB>.+)", "link session notes ");
+        register(Intent.DND_RECALL_SESSION_LINKS, "(?i)(what is linked to|get connections for) (?<subject>.+)", "what is linked to ", "get connections for ");
+        register(Intent.DND_RECALL_SESSION_NOTE, "(?i)(what do we know about|recall the session note for|tell me about) (?<subject>.+)", "what do we know about ", "recall the session note for ", "tell me about ");
+        register(Intent.DND_ANALYZE_LORE, "(?i)(analyze my notes on|what are my notes on) (?<subject>.+)", "analyze my notes on ", "what are my notes on ");
+
+        register(Intent.TENSURA_ENTER_WORLD, "(?i)enter (the )?tensura world|start tensura (protocol|mode)", "tensura world", "start tensura ");
+        register(Intent.TENSURA_CONFIRM_COPY, "(?i)(yes )?(please )?(copy|duplicate|restore) (the )?(skill|ability|raphael)|(confirmed|approved|proceed|execute)", "copy ", "duplicate ", "restore ", "confirmed", "approved", "proceed", "execute");
+
+        register(Intent.DYNAMIC_PC_CONTROL, "(?i).*(chant annulment|dynamic script|automate this|run a script to|organize my|script to).*", "chant annulment", "dynamic script", "automate this", "run a script to", "organize my", "script to");
+
+        register(Intent.GET_WEATHER_FORECAST, "(?i).*(weather|forecast).*(tomorrow|later|tonight).*", "weather", "forecast");
+        register(Intent.GET_WEATHER, "(?i).*(weather|temperature|hot|cold|outside).*", "weather", "temperature", "hot", "cold", "outside");
+        register(Intent.GET_TIME, "(?i).*(what time|what's the time|what is the time|what date|what's the date).*", "what time", "what's the time", "what is the time", "what date", "what's the date");
+        register(Intent.GET_DAILY_REPORT, "(?i).*(daily report|astronomy).*", "daily report", "astronomy");
+        register(Intent.GET_SYSTEM_STATUS, "(?i).*(status|system report|system status).*", "status", "system report");
         
-        intentPatterns.put(Intent.GET_TOP_MEMORY_PROCESS, Pattern.compile("(?i)((top|which) process.*(memory|ram))|((most|highest) (memory|ram))"));
-        intentPatterns.put(Intent.GET_TOP_CPU_PROCESS, Pattern.compile("(?i)((top|which) process.*cpu)|((most|highest) cpu)"));
-        intentPatterns.put(Intent.TERMINATE_PROCESS_FORCE, Pattern.compile("(?i)(force close|force quit|force terminate|horse close) (?<appName>.+)"));
-        intentPatterns.put(Intent.TERMINATE_PROCESS, Pattern.compile("(?i)(close|quit|terminate) (?<appName>.+)"));
+        register(Intent.GET_TOP_MEMORY_PROCESS, "(?i)((top|which) process.*(memory|ram))|((most|highest) (memory|ram))", "memory", "ram");
+        register(Intent.GET_TOP_CPU_PROCESS, "(?i)((top|which) process.*cpu)|((most|highest) cpu)", "cpu");
+        register(Intent.TERMINATE_PROCESS_FORCE, "(?i)(force close|force quit|force terminate|horse close) (?<appName>.+)", "force close ", "force quit ", "force terminate ", "horse close ");
+        register(Intent.TERMINATE_PROCESS, "(?i)(close|quit|terminate) (?<appName>.+)", "close ", "quit ", "terminate ");
         
-        intentPatterns.put(Intent.INITIATE_REBOOT, Pattern.compile("(?i).*(reboot|restart).*"));
-        intentPatterns.put(Intent.INITIATE_SHUTDOWN, Pattern.compile("(?i).*(shut\\s*down|turn\\s*off|power\\s*off).*"));
-        intentPatterns.put(Intent.UPDATE_SYSTEM, Pattern.compile("(?i).*(update yourself|shut yourself down|close yourself|exit application|system update|update your code).*")); // NEW
+        register(Intent.INITIATE_REBOOT, "(?i).*(reboot|restart).*", "reboot", "restart");
+        register(Intent.INITIATE_SHUTDOWN, "(?i).*(shut\\s*down|turn\\s*off|power\\s*off).*", "shut", "turn", "power");
+        register(Intent.UPDATE_SYSTEM, "(?i).*(update yourself|shut yourself down|close yourself|exit application|system update|update your code).*", "update yourself", "shut yourself down", "close yourself", "exit application", "system update", "update your code");
         
-        intentPatterns.put(Intent.CANCEL_SHUTDOWN, Pattern.compile("(?i)cancel (shutdown|reboot)"));
-        intentPatterns.put(Intent.SCAN_FOR_APPS, Pattern.compile("(?i).*scan for new (apps|applications|games).*"));
-        intentPatterns.put(Intent.FIND_APP_PATH, Pattern.compile("(?i)(find|locate|learn|save path for) (?<appName>.+)"));
-        intentPatterns.put(Intent.START_ROUTINE, Pattern.compile("(?i)(start|initiate|begin|run) (?<routineName>\\w+) routine"));
+        register(Intent.CANCEL_SHUTDOWN, "(?i)cancel (shutdown|reboot)", "cancel shutdown", "cancel reboot");
+        register(Intent.SCAN_FOR_APPS, "(?i).*scan for new (apps|applications|games).*", "scan for new ");
+        register(Intent.FIND_APP_PATH, "(?i)(find|locate|learn|save path for) (?<appName>.+)", "find ", "locate ", "learn ", "save path for ");
+        register(Intent.START_ROUTINE, "(?i)(start|initiate|begin|run) (?<routineName>\\w+) routine", " routine");
         
-        intentPatterns.put(Intent.START_CHAT_MODE, Pattern.compile("(?i)(let's chat|start conversation|talk to me|open chat mode)"));
-        intentPatterns.put(Intent.END_CHAT_MODE, Pattern.compile("(?i)(end conversation|stop chatting|that's all|close chat mode)"));
+        register(Intent.START_CHAT_MODE, "(?i)(let's chat|start conversation|talk to me|open chat mode)", "let's chat", "start conversation", "talk to me", "open chat mode");
+        register(Intent.END_CHAT_MODE, "(?i)(end conversation|stop chatting|that's all|close chat mode)", "end conversation", "stop chatting", "that's all", "close chat mode");
         
-        intentPatterns.put(Intent.OPEN_APPLICATION, Pattern.compile("(?i)(open|launch|start) (?<appName>.+)"));
-        intentPatterns.put(Intent.REMEMBER_FACT, Pattern.compile("(?i)remember that (?<key>.+) is (?<value>.+)"));
-        intentPatterns.put(Intent.REMEMBER_FACT_SIMPLE, Pattern.compile("(?i)remember (?<key>.+)"));
-        intentPatterns.put(Intent.RECALL_FACT, Pattern.compile("(?i)(what is|who is|what's) (?<key>.+)"));
+        register(Intent.OPEN_APPLICATION, "(?i)(open|launch|start) (?<appName>.+)", "open ", "launch ", "start ");
+        register(Intent.REMEMBER_FACT, "(?i)remember that (?<key>.+) is (?<value>.+)", "remember that ");
+        register(Intent.REMEMBER_FACT_SIMPLE, "(?i)remember (?<key>.+)", "remember ");
+        register(Intent.RECALL_FACT, "(?i)(what is|who is|what's) (?<key>.+)", "what is ", "who is ", "what's ");
         
+        compile();
+        if (Settings.isIntentClassifierEnabled()) {
+            classifier = new IntentClassifier(Paths.get(System.getProperty("user.dir"), "intent_examples.tsv"),
+                    Settings.getIntentClassifierThreshold(), this::trainingExamples);
+            classifier.start();
+        }
         System.out.println("Ciel Debug: IntentService initialized with " + intentPatterns.size() + " patterns.");
     }
 
+    /**
+     * Local answer to "what did the user mean" for commands the patterns missed. Shutdown,
+     * reboot, update and closing programs are always left to the router, however confident.
+     * @return a confident prediction, or null when the LLM router should decide
+     */
+    public IntentClassifier.Prediction classifyUnmatched(String text) {
+        if (classifier == null) return null;
+        IntentClassifier.Prediction prediction = classifier.classify(text);
+        if (prediction != null && ROUTER_ONLY_INTENTS.contains(prediction.intent())) {
+            System.out.printf("Ciel Debug: Local intent classifier suggested [%s]; leaving it to the AI router.%n", prediction.intent());
+            return null;
+        }
+        return prediction;
+    }
+
+    /** Feeds an intent the LLM router settled on back into the local classifier. */
+    public void learnUnmatched(String text, Intent intent) {
+        if (classifier != null) classifier.learn(text, intent);
+    }
+
+    public Optional<IntentClassifier.Stats> getClassifierStats() {
+        return classifier != null ? Optional.of(classifier.getStats()) : Optional.empty();
+    }
+
+    /**
+     * The grammar as labelled phrases: the fixed command phrases and the argument examples, each
+     * labelled by the patterns themselves, and chat. Whole commands only; a bare "turn" or "close "
+     * from the prefilter would teach the model that any sentence with that word is the command.
+     */
+    private List<IntentClassifier.Example> trainingExamples() {
+        List<IntentClassifier.Example> examples = new ArrayList<>();
+        for (List<String> phrases : List.of(FIXED_COMMAND_PHRASES, ARGUMENT_COMMAND_EXAMPLES)) {
+            for (String phrase : phrases) {
+                Intent intent = analyze(phrase).intent();
+                if (intent != Intent.UNKNOWN && intent != Intent.SEARCH_WEB) examples.add(new IntentClassifier.Example(phrase, intent));
+            }
+        }
+        for (String chat : CHAT_EXAMPLES) examples.add(new IntentClassifier.Example(chat, Intent.UNKNOWN));
+        return examples;
+    }
+
+    /**
+     * Every pattern is registered with the literal keywords it cannot match without (any one
+     * of them). A single trie pass over the utterance then tells which patterns are worth running.
+     */
+    private void register(Intent intent, String regex, String... keywords) {
+        intentPatterns.put(intent, Pattern.compile(regex));
+        intentKeywords.put(intent, List.of(keywords));
+    }
+
+    private void compile() {
+        List<CompiledIntent> compiled = new ArrayList<>();
+        KeywordTrie trie = new KeywordTrie();
+        for (Map.Entry<Intent, Pattern> entry : intentPatterns.entrySet()) {
+            String regex = entry.getValue().pattern();
+            String[] groups = Arrays.stream(ENTITY_GROUPS).filter(g -> regex.contains("(?<" + g + ">")).toArray(String[]::new);
+            for (String keyword : intentKeywords.get(entry.getKey())) trie.add(keyword, compiled.size());
+            compiled.add(new CompiledIntent(entry.getKey(), entry.getValue(), groups));
+        }
+        trie.build();
+
+        Map<String, String> corrections = new HashMap<>();
+        for (Map.Entry<String, List<String>> entry : mishearingCorrections.entrySet()) {
+            for (String mishearing : entry.getValue()) corrections.putIfAbsent(mishearing, entry.getKey());
+        }
+
+        compiledIntents = List.copyOf(compiled);
+        intentPrefilter = trie;
+        correctionIndex = corrections;
+    }
+
+    /** Every complete command that can be spoken without a free-form argument, easter eggs included. */
+    public static List<String> getCommandVocabulary() {
+        Set<String> vocabulary = new LinkedHashSet<>(FIXED_COMMAND_PHRASES);
+        for (String key : LineManager.getEasterEggKeys()) {
+            vocabulary.add(key.toLowerCase());
+        }
+        return List.copyOf(vocabulary);
+    }
+
     public CommandAnalysis analyze(String text) {
         String cleanedText = MISHEARD_TRIGGER_PATTERN.matcher(text).replaceFirst("").trim();
         cleanedText = JUNK_PREFIX_PATTERN.matcher(cleanedText).replaceFirst("").trim();
@@ -112,25 +277,21 @@ public class IntentService {
             lowerText = text.substring(speakerMatcher.end()).trim().toLowerCase();
         }
 
-        for (Map.Entry<String, List<String>> entry : mishearingCorrections.entrySet()) {
-            for (String mishearing : entry.getValue()) {
-                if (lowerText.equals(mishearing)) {
-                    String correctedText = entry.getKey();
-                    if (correctedText.startsWith("shut down")) return new CommandAnalysis(Intent.INITIATE_SHUTDOWN, new HashMap<>());
-                    if (correctedText.startsWith("reboot")) return new CommandAnalysis(Intent.INITIATE_REBOOT, new HashMap<>());
-                    entities.put("key", correctedText);
-                    return new CommandAnalysis(Intent.EASTER_EGG, entities);
-                }
-            }
+        String correctedText = correctionIndex.get(lowerText);
+        if (correctedText != null) {
+            if (correctedText.startsWith("shut down")) return new CommandAnalysis(Intent.INITIATE_SHUTDOWN, new HashMap<>());
+            if (correctedText.startsWith("reboot")) return new CommandAnalysis(Intent.INITIATE_REBOOT, new HashMap<>());
+            entities.put("key", correctedText);
+            return new CommandAnalysis(Intent.EASTER_EGG, entities);
         }
-        
-        final String finalText = lowerText;
-        if (LineManager.getEasterEggKeys().stream().anyMatch(key -> key.equalsIgnoreCase(finalText))) {
-            entities.put("key", finalText);
+
+        EasterEggIndex eggs = easterEggIndex();
+        if (eggs.lowerKeySet().contains(lowerText)) {
+            entities.put("key", lowerText);
             return new CommandAnalysis(Intent.EASTER_EGG, entities);
         }
 
-        String bestMatch = findBestKeywordMatch(lowerText);
+        String bestMatch = findBestKeywordMatch(lowerText, eggs);
         if (bestMatch != null) {
             entities.put("key", bestMatch);
             return new CommandAnalysis(Intent.EASTER_EGG, entities);
@@ -142,12 +303,12 @@ public class IntentService {
             return new CommandAnalysis(Intent.EXECUTE_SKILL, entities);
         }
 
-        for (Map.Entry<Intent, Pattern> entry : intentPatterns.entrySet()) {
-            Matcher matcher = entry.getValue().matcher(lowerText);
-            if (matcher.find()) {
-                entities.putAll(extractEntities(matcher));
-                return new CommandAnalysis(entry.getKey(), entities);
-            }
+        CompiledIntent matched = matchIntent(lowerText);
+        if (matched != null) {
+            Matcher matcher = matched.pattern().matcher(lowerText);
+            matcher.find();
+            entities.putAll(extractEntities(matcher, matched.groups()));
+            return new CommandAnalysis(matched.intent(), entities);
         }
 
         if (lowerText.contains("?") || lowerText.startsWith("who") || lowerText.startsWith("what") || lowerText.startsWith("when") || lowerText.startsWith("where") || lowerText.startsWith("why") || lowerText.startsWith("how") || lowerText.startsWith("search for") || lowerText.startsWith("google")) {
@@ -158,21 +319,72 @@ public class IntentService {
         return new CommandAnalysis(Intent.UNKNOWN, entities);
     }
 
-    private String findBestKeywordMatch(String heardText) {
+    /** The first pattern, in registration order, that matches; only patterns whose keywords occur are tried. */
+    CompiledIntent matchIntent(String lowerText) {
+        BitSet candidates = new BitSet(compiledIntents.size());
+        intentPrefilter.scan(lowerText, candidates);
+        for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+            CompiledIntent compiled = compiledIntents.get(i);
+            if (compiled.pattern().matcher(lowerText).find()) return compiled;
+        }
+        return null;
+    }
+
+    /** The pre-compilation behaviour, every pattern tried in turn; kept for {@link IntentMatcherBenchmark}. */
+    Intent matchIntentSequentially(String lowerText) {
+        for (Map.Entry<Intent, Pattern> entry : intentPatterns.entrySet()) {
+            if (entry.getValue().matcher(lowerText).find()) return entry.getKey();
+        }
+        return null;
+    }
+
+    private EasterEggIndex easterEggIndex() {
+        Set<String> keys = LineManager.getEasterEggKeys();
+        EasterEggIndex index = easterEggIndex;
+        if (index != null && index.source() == keys) return index;
+
+        List<String> ordered = new ArrayList<>(keys);
+        List<String> lowerKeys = new ArrayList<>();
+        List<Set<String>> keywords = new ArrayList<>();
+        Map<String, List<Integer>> byWord = new HashMap<>();
+        for (int i = 0; i < ordered.size(); i++) {
+            String lower = ordered.get(i).toLowerCase();
+            Set<String> words = Arrays.stream(lower.split("\\s+")).filter(w -> !STOP_WORDS.contains(w)).collect(Collectors.toSet());
+            lowerKeys.add(lower);
+            keywords.add(words);
+            for (String word : words) byWord.computeIfAbsent(word, w -> new ArrayList<>()).add(i);
+        }
+        Map<String, int[]> keysByWord = new HashMap<>();
+        byWord.forEach((word, ids) -> keysByWord.put(word, ids.stream().mapToInt(Integer::intValue).toArray()));
+
+        index = new EasterEggIndex(keys, ordered, lowerKeys, new HashSet<>(lowerKeys), keywords, keysByWord);
+        easterEggIndex = index;
+        return index;
+    }
+
+    private String findBestKeywordMatch(String heardText, EasterEggIndex eggs) {
         Set<String> heardKeywords = Arrays.stream(heardText.split("\\s+")).filter(w -> !STOP_WORDS.contains(w)).collect(Collectors.toSet());
         if (heardKeywords.isEmpty()) return null;
 
+        for (int i = 0; i < eggs.keys().size(); i++) {
+            if (heardText.contains(eggs.lowerKeys().get(i))) {
+                return eggs.keys().get(i);
+            }
+        }
+
+        // Only keys sharing at least one keyword can score; walk them in key order so ties resolve as before
+        BitSet sharing = new BitSet(eggs.keys().size());
+        for (String word : heardKeywords) {
+            int[] ids = eggs.keysByWord().get(word);
+            if (ids != null) for (int id : ids) sharing.set(id);
+        }
+
         String bestMatch = null;
         long bestScore = 0;
         double bestRatio = 0.0;
 
-        for (String key : LineManager.getEasterEggKeys()) {
-            if (heardText.contains(key.toLowerCase())) {
-                return key;
-            }
-
-            Set<String> keyKeywords = Arrays.stream(key.toLowerCase().split("\\s+")).filter(w -> !STOP_WORDS.contains(w)).collect(Collectors.toSet());
-            if (keyKeywords.isEmpty()) continue;
+        for (int i = sharing.nextSetBit(0); i >= 0; i = sharing.nextSetBit(i + 1)) {
+            Set<String> keyKeywords = eggs.keywords().get(i);
             
             long currentScore = heardKeywords.stream().filter(keyKeywords::contains).count();
             double keyMatchRatio = (double) currentScore / keyKeywords.size();
@@ -182,10 +394,10 @@ public class IntentService {
             if (keyMatchRatio > bestRatio && lengthRatio >= 0.4) {
                 bestRatio = keyMatchRatio;
                 bestScore = currentScore;
-                bestMatch = key;
+                bestMatch = eggs.keys().get(i);
             } else if (keyMatchRatio == bestRatio && currentScore > bestScore && lengthRatio >= 0.4) {
                 bestScore = currentScore;
-                bestMatch = key;
+                bestMatch = eggs.keys().get(i);
             }
         }
         
@@ -195,14 +407,11 @@ public class IntentService {
         return null;
     }
 
-    private Map<String, String> extractEntities(Matcher matcher) {
+    private Map<String, String> extractEntities(Matcher matcher, String[] groups) {
         Map<String, String> entities = new HashMap<>();
-        String[] possibleGroups = {"appName", "routineName", "key", "value", "dice", "soundName", "subject", "subjectA", "subjectB", "content", "topic", "type", "query", "player", "skill"};
-        for (String group : possibleGroups) {
-            try {
-                String val = matcher.group(group);
-                if (val != null) entities.put(group, val.trim());
-            } catch (IllegalArgumentException | IllegalStateException e) { }
+        for (String group : groups) {
+            String val = matcher.group(group);
+            if (val != null) entities.put(group, val.trim());
         }
         return entities;
     }
@@ -0,0 +1,68 @@
+package com.cielcompanion.service.nlu;
+
+import java.util.ArrayDeque;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * Aho-Corasick automaton over lower-case keywords. Each keyword carries an id; one pass over
+ * a text reports the ids of every keyword occurring anywhere in it, however many keywords
+ * there are. Add all keywords, then {@link #build()} once before scanning.
+ */
+final class KeywordTrie {
+
+    private static final class Node {
+        final Map<Character, Node> next = new HashMap<>();
+        final BitSet ids = new BitSet();
+        Node fail;
+    }
+
+    private final Node root = new Node();
+    private boolean built = false;
+
+    void add(String keyword, int id) {
+        if (built) throw new IllegalStateException("KeywordTrie is already built");
+        Node node = root;
+        for (int i = 0; i < keyword.length(); i++) {
+            node = node.next.computeIfAbsent(keyword.charAt(i), c -> new Node());
+        }
+        node.ids.set(id);
+    }
+
+    /** Links failure transitions breadth-first and folds each node's suffix matches into it. */
+    void build() {
+        Queue<Node> queue = new ArrayDeque<>();
+        root.fail = root;
+        for (Node child : root.next.values()) {
+            child.fail = root;
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            Node node = queue.poll();
+            for (Map.Entry<Character, Node> edge : node.next.entrySet()) {
+                Node child = edge.getValue();
+                Node fallback = node.fail;
+                while (fallback != root && !fallback.next.containsKey(edge.getKey())) fallback = fallback.fail;
+                Node target = fallback.next.get(edge.getKey());
+                child.fail = target != null && target != child ? target : root;
+                child.ids.or(child.fail.ids);
+                queue.add(child);
+            }
+        }
+        built = true;
+    }
+
+    /** Sets in {@code found} the id of every keyword contained in {@code text}. */
+    void scan(String text, BitSet found) {
+        Node node = root;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            Node step;
+            while ((step = node.next.get(c)) == null && node != root) node = node.fail;
+            node = step != null ? step : root;
+            if (!node.ids.isEmpty()) found.or(node.ids);
+        }
+    }
+}
@@ -4,6 +4,7 @@ import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.text.Normalizer;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.*;
 
 public final class PhonoKana {
@@ -12,6 +13,45 @@ public final class PhonoKana {
     private final Map<Pattern, String> rules;
     private final Map<String, String> letterNames;
     private static final String EXTERNAL_FILE = "config/custom_phonetics.properties";
+    private static final PropertiesJournal EXTERNAL_JOURNAL = new PropertiesJournal(java.nio.file.Paths.get(EXTERNAL_FILE), "Ciel Custom Phonetics");
+    private static final int EXTERNAL_COMPACT_AFTER = 50;
+
+    private static final Pattern TOKEN_PATTERN = Pattern.compile("(?<acronym>\\b(?!AM|PM)[A-Z]{2,5}\\b)|(?<num>\\b[0-9]+(?:\\.[0-9]+)?\\b)|(?<word>[A-Za-z'-]+)");
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}");
+    private static final Pattern DOUBLED_CONSONANT = Pattern.compile("([bcdfghjklmnpqrstvwxyz])\\1");
+    // The numeral patterns formerly applied one replaceAll at a time; as whole words they never
+    // overlap, so one alternation in the same order gives the same result in a single pass.
+    // X-?II comes first and also takes plain "XII", which is therefore read "Ten Two".
+    private static final Pattern ROMAN_NUMERAL = Pattern.compile("\\b(?:(?<tenTwo>X-?2|X-?II)|(?<numeral>XIII|XI|X|IX|VIII|VII|VI|V|IV|III|II))\\b");
+    private static final Map<String, String> ROMAN_VALUES = Map.ofEntries(
+            Map.entry("XIII", " Thirteen"), Map.entry("XI", " Eleven"), Map.entry("X", " Ten"),
+            Map.entry("IX", " Nine"), Map.entry("VIII", " Eight"), Map.entry("VII", " Seven"), Map.entry("VI", " Six"),
+            Map.entry("V", " Five"), Map.entry("IV", " Four"), Map.entry("III", " Three"), Map.entry("II", " Two"));
+
+    /*
+     * The romaji-to-katakana table, in the precedence of the old replace chain. That chain
+     * replaced the plain vowels before any consonant+vowel pair, so pairs such as "ka" or "ro"
+     * could never match and their consonant was left as it was; only the entries up to the
+     * vowels, plus "n", ever applied. Those live entries are compiled into a trie and matched
+     * longest-first in one pass, which reproduces the chain exactly.
+     */
+    private static final String[][] ROMAJI_TABLE = {
+            {"shon", "ション"}, {"jon", "ジョン"}, {"chaa", "チャー"}, {"jaa", "ジャー"},
+            {"va", "ヴァ"}, {"vi", "ヴィ"}, {"ve", "ヴェ"}, {"vo", "ヴォ"},
+            {"fa", "ファ"}, {"fi", "フィ"}, {"fe", "フェ"}, {"fo", "フォ"},
+            {"ti", "ティ"}, {"di", "ディ"}, {"tu", "テュ"}, {"du", "デュ"},
+            {"shi", "シ"}, {"chi", "チ"}, {"tsu", "ツ"},
+            {"kya", "キャ"}, {"kyu", "キュ"}, {"kyo", "キョ"},
+            {"sha", "シャ"}, {"shu", "シュ"}, {"sho", "ショ"},
+            {"ai", "アイ"}, {"a", "ア"}, {"i", "イ"}, {"u", "ウ"}, {"e", "エ"}, {"o", "オ"},
+            {"n", "ン"}
+    };
+    private static final RomajiNode ROMAJI_TRIE = buildRomajiTrie();
+
+    private static final int WORD_CACHE_LIMIT = 20_000;
+    // Converted words; the rules are pure per word, and most text is the same few hundred words
+    private final Map<String, String> wordCache = new ConcurrentHashMap<>();
+    private static final ThreadLocal<StringBuilder> ROMAJI_BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(64));
 
     private PhonoKana(Map<String, String> exceptions, Map<Pattern, String> rules, Map<String, String> letterNames) {
         this.exceptions = exceptions;
@@ -20,24 +60,28 @@ public final class PhonoKana {
     }
 
     /**
-     * Dynamically adds a new word/pronunciation and saves it to the disk.
+     * Dynamically adds a new word/pronunciation and saves it to the disk. Saving appends one
+     * line to the external file's journal; the file itself is only rewritten every so often.
      */
     public void addException(String english, String katakana) {
         String lower = english.toLowerCase().trim();
         exceptions.put(lower, katakana);
-        saveExternalExceptions();
+        wordCache.clear();
+        saveExternalException(lower, katakana);
         System.out.println("Ciel Debug: Learned new phonetic: " + lower + " = " + katakana);
     }
 
-    private void saveExternalExceptions() {
+    /** Whether the word has a curated reading, built in or learned through {@link #addException}. */
+    public boolean hasException(String word) {
+        return exceptions.containsKey(word.toLowerCase(Locale.ROOT).trim());
+    }
+
+    private void saveExternalException(String lower, String katakana) {
         try {
-            File file = new File(EXTERNAL_FILE);
-            file.getParentFile().mkdirs();
-            Properties props = new Properties();
-            // We only save the "new" ones or current state to the external file
-            exceptions.forEach(props::setProperty);
-            try (OutputStream os = new FileOutputStream(file)) {
-                props.store(new OutputStreamWriter(os, StandardCharsets.UTF_8), "Ciel Custom Phonetics");
+            EXTERNAL_JOURNAL.append(lower, katakana);
+            if (EXTERNAL_JOURNAL.getJournalEntries() >= EXTERNAL_COMPACT_AFTER) {
+                // We save the current state, built-in entries included, as the external file always has
+                EXTERNAL_JOURNAL.compact(Map.copyOf(exceptions));
             }
         } catch (IOException e) {
             System.err.println("Ciel Error: Failed to save custom phonetics.");
@@ -47,30 +91,36 @@ public final class PhonoKana {
 
     public String toKatakana(String input) {
         if (input == null || input.isBlank()) return "";
-        String normalizedInput = Normalizer.normalize(input, Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+        // Decomposing and recomposing is a no-op on plain ASCII, which is nearly all input
+        String normalizedInput = isAscii(input) ? input : COMBINING_MARKS.matcher(Normalizer.normalize(input, Normalizer.Form.NFD)).replaceAll("");
         String preprocessedInput = expandRomanNumerals(normalizedInput);
-        String s = Normalizer.normalize(preprocessedInput, Normalizer.Form.NFC);
-        List<Token> tokens = tokenize(s);
-        StringBuilder out = new StringBuilder();
-
-        for (Token t : tokens) {
-            if (out.length() > 0 && t.type != Type.OTHER) out.append(" ");
-            String k = switch (t.type) {
-                case WORD -> wordToKatakana(t.text);
-                case NUMBER -> EnglishNumber.convert(t.text);
-                case ACRONYM -> spellAcronym(t.text);
-                default -> t.text;
-            };
-            out.append(k);
+        String s = isAscii(preprocessedInput) ? preprocessedInput : Normalizer.normalize(preprocessedInput, Normalizer.Form.NFC);
+        StringBuilder out = new StringBuilder(s.length() * 2);
+
+        Matcher m = TOKEN_PATTERN.matcher(s);
+        int idx = 0;
+        while (m.find()) {
+            if (m.start() > idx) out.append(s, idx, m.start());
+            if (out.length() > 0) out.append(" ");
+            if (m.start("acronym") >= 0) out.append(spellAcronym(m.group()));
+            else if (m.start("num") >= 0) out.append(EnglishNumber.convert(m.group()));
+            else out.append(wordToKatakana(m.group()));
+            idx = m.end();
         }
+        if (idx < s.length()) out.append(s, idx, s.length());
         return out.toString().trim();
     }
 
     private String wordToKatakana(String w) {
         String lower = w.toLowerCase(Locale.ROOT);
-        if (exceptions.containsKey(lower)) return exceptions.get(lower);
-        String romajiLike = applyRules(lower);
-        return romajiLikeToKatakana(romajiLike);
+        String exception = exceptions.get(lower);
+        if (exception != null) return exception;
+        String cached = wordCache.get(lower);
+        if (cached != null) return cached;
+        String katakana = romajiLikeToKatakana(applyRules(lower));
+        if (wordCache.size() >= WORD_CACHE_LIMIT) wordCache.clear();
+        wordCache.put(lower, katakana);
+        return katakana;
     }
 
     private String applyRules(String s) {
@@ -79,43 +129,95 @@ public final class PhonoKana {
             out = e.getKey().matcher(out).replaceAll(e.getValue());
         }
         out = out.replace('l', 'r');
-        out = out.replaceAll("([bcdfghjklmnpqrstvwxyz])\\1", "$1");
+        out = DOUBLED_CONSONANT.matcher(out).replaceAll("$1");
         return out.trim();
     }
 
-    private String romajiLikeToKatakana(String r) {
-        r = r.replaceAll("(?<![aiueo])(k)([aiueo])", "ク$2");
-        return r.replace("shon", "ション").replace("jon", "ジョン").replace("chaa", "チャー").replace("jaa", "ジャー")
-                .replace("va", "ヴァ").replace("vi", "ヴィ").replace("ve", "ヴェ").replace("vo", "ヴォ")
-                .replace("fa", "ファ").replace("fi", "フィ").replace("fe", "フェ").replace("fo", "フォ")
-                .replace("ti", "ティ").replace("di", "ディ").replace("tu", "テュ").replace("du", "デュ")
-                .replace("shi", "シ").replace("chi", "チ").replace("tsu", "ツ")
-                .replace("kya", "キャ").replace("kyu", "キュ").replace("kyo", "キョ")
-                .replace("sha", "シャ").replace("shu", "シュ").replace("sho", "ショ")
-                .replace("ai", "アイ").replace("a", "ア").replace("i", "イ").replace("u", "ウ").replace("e", "エ").replace("o", "オ")
-                .replace("ka", "カ").replace("ki", "キ").replace("ku", "ク").replace("ke", "ケ").replace("ko", "コ")
-                .replace("sa", "サ").replace("su", "ス").replace("se", "セ").replace("so", "ソ")
-                .replace("ta", "タ").replace("te", "テ").replace("to", "ト")
-                .replace("na", "ナ").replace("ni", "ニ").replace("nu", "ヌ").replace("ne", "ネ").replace("no", "ノ")
-                .replace("ha", "ハ").replace("hi", "ヒ").replace("fu", "フ").replace("he", "ヘ").replace("ho", "ホ")
-                .replace("ma", "マ").replace("mi", "ミ").replace("mu", "ム").replace("me", "メ").replace("mo", "モ")
-                .replace("ya", "ヤ").replace("yu", "ユ").replace("yo", "ヨ")
-                .replace("ra", "ラ").replace("ri", "リ").replace("ru", "ル").replace("re", "レ").replace("ro", "ロ")
-                .replace("wa", "ワ").replace("wo", "ヲ").replace("n", "ン")
-                .replace("ga", "ガ").replace("gi", "ギ").replace("gu", "グ").replace("ge", "ゲ").replace("go", "ゴ")
-                .replace("za", "ザ").replace("ji", "ジ").replace("zu", "ズ").replace("ze", "ゼ").replace("zo", "ゾ")
-                .replace("da", "ダ").replace("de", "ディ").replace("do", "ド")
-                .replace("ba", "バ").replace("bi", "ビ").replace("bu", "ブ").replace("be", "ベ").replace("bo", "ボ")
-                .replace("pa", "パ").replace("pi", "ピ").replace("pu", "プ").replace("pe", "ペ").replace("po", "ポ")
-                .replaceAll("aa", "アー").replaceAll("ii", "イー").replaceAll("uu", "ウー").replaceAll("ee", "エー").replaceAll("oo", "オー");
+    /**
+     * One left-to-right pass: a 'k' before a vowel (and not after one) becomes ク, otherwise
+     * the longest table entry starting here is emitted, otherwise the character itself.
+     */
+    private static String romajiLikeToKatakana(String r) {
+        StringBuilder out = ROMAJI_BUFFER.get();
+        out.setLength(0);
+        int i = 0;
+        int n = r.length();
+        while (i < n) {
+            char c = r.charAt(i);
+            if (c == 'k' && i + 1 < n && isVowel(r.charAt(i + 1)) && (i == 0 || !isVowel(r.charAt(i - 1)))) {
+                out.append('ク');
+                i++;
+                continue;
+            }
+            RomajiNode node = ROMAJI_TRIE;
+            String replacement = null;
+            int matchEnd = i;
+            for (int j = i; j < n; j++) {
+                node = node.next(r.charAt(j));
+                if (node == null) break;
+                if (node.output != null) {
+                    replacement = node.output;
+                    matchEnd = j + 1;
+                }
+            }
+            if (replacement != null) {
+                out.append(replacement);
+                i = matchEnd;
+            } else {
+                out.append(c);
+                i++;
+            }
+        }
+        return out.toString();
+    }
+
+    private static boolean isVowel(char c) {
+        return c == 'a' || c == 'i' || c == 'u' || c == 'e' || c == 'o';
+    }
+
+    private static boolean isAscii(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) >= 0x80) return false;
+        }
+        return true;
+    }
+
+    /** Trie node over lower-case ASCII letters. */
+    private static final class RomajiNode {
+        final RomajiNode[] children = new RomajiNode[26];
+        String output;
+
+        RomajiNode next(char c) {
+            return c >= 'a' && c <= 'z' ? children[c - 'a'] : null;
+        }
+    }
+
+    private static RomajiNode buildRomajiTrie() {
+        RomajiNode root = new RomajiNode();
+        for (String[] entry : ROMAJI_TABLE) {
+            RomajiNode node = root;
+            for (char c : entry[0].toCharArray()) {
+                int slot = c - 'a';
+                if (node.children[slot] == null) node.children[slot] = new RomajiNode();
+                node = node.children[slot];
+            }
+            if (node.output == null) node.output = entry[1];
+        }
+        return root;
     }
 
     private String expandRomanNumerals(String s) {
-        return s.replaceAll("\\bX-?2\\b", " Ten Two").replaceAll("\\bX-?II\\b", " Ten Two").replaceAll("\\bXIII\\b", " Thirteen")
-                .replaceAll("\\bXII\\b", " Twelve").replaceAll("\\bXI\\b", " Eleven").replaceAll("\\bX\\b", " Ten")
-                .replaceAll("\\bIX\\b", " Nine").replaceAll("\\bVIII\\b", " Eight").replaceAll("\\bVII\\b", " Seven")
-                .replaceAll("\\bVI\\b", " Six").replaceAll("\\bV\\b", " Five").replaceAll("\\bIV\\b", " Four")
-                .replaceAll("\\bIII\\b", " Three").replaceAll("\\bII\\b", " Two");
+        if (s.indexOf('I') < 0 && s.indexOf('V') < 0 && s.indexOf('X') < 0) return s;
+        Matcher m = ROMAN_NUMERAL.matcher(s);
+        if (!m.find()) return s;
+        StringBuilder out = new StringBuilder(s.length() + 16);
+        int idx = 0;
+        do {
+            out.append(s, idx, m.start());
+            out.append(m.start("tenTwo") >= 0 ? " Ten Two" : ROMAN_VALUES.get(m.group("numeral")));
+            idx = m.end();
+        } while (m.find());
+        return out.append(s, idx, s.length()).toString();
     }
 
     private String spellAcronym(String s) {
@@ -127,22 +229,44 @@ public final class PhonoKana {
         return b.toString();
     }
 
-    private enum Type { WORD, NUMBER, ACRONYM, OTHER }
-    private record Token(Type type, String text) {}
+    /* ------------------------------------------------------------------ */
+    /*  BENCHMARK                                                          */
+    /* ------------------------------------------------------------------ */
+    /**
+     * Sentences per second and bytes allocated per sentence, first with the word cache
+     * emptied before every sentence (every word goes through the rules and the trie), then warm.
+     * <pre>java ... com.cielcompanion.util.PhonoKana [sentences.txt] [rounds]</pre>
+     */
+    public static void main(String[] args) throws Exception {
+        List<String> sentences = args.length > 0
+                ? java.nio.file.Files.readAllLines(java.nio.file.Paths.get(args[0]), StandardCharsets.UTF_8).stream().filter(l -> !l.isBlank()).toList()
+                : List.of("Partly cloudy with a chance of rain later this evening.",
+                        "The Perseids meteor shower peaks tonight, best viewed after midnight.",
+                        "Jupiter and Saturn are visible in the southern sky.",
+                        "Final Fantasy XII and Mass Effect II are installed on drive D.",
+                        "NASA reports the ISS will pass overhead at 9 PM.",
+                        "Temperature 23.5 degrees, humidity 60 percent, wind from the northwest.",
+                        "Café Señor Überstraße is closed on Sundays.");
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        PhonoKana kana = getInstance();
+        com.sun.management.ThreadMXBean mx = (com.sun.management.ThreadMXBean) java.lang.management.ManagementFactory.getThreadMXBean();
 
-    private List<Token> tokenize(String s) {
-        List<Token> out = new ArrayList<>();
-        Matcher m = Pattern.compile("(?<acronym>\\b(?!AM|PM)[A-Z]{2,5}\\b)|(?<num>\\b[0-9]+(?:\\.[0-9]+)?\\b)|(?<word>[A-Za-z'-]+)").matcher(s);
-        int idx = 0;
-        while (m.find()) {
-            if (m.start() > idx) out.add(new Token(Type.OTHER, s.substring(idx, m.start())));
-            if (m.group("acronym") != null) out.add(new Token(Type.ACRONYM, m.group()));
-            else if (m.group("num") != null) out.add(new Token(Type.NUMBER, m.group()));
-            else if (m.group("word") != null) out.add(new Token(Type.WORD, m.group()));
-            idx = m.end();
+        for (boolean warm : new boolean[]{false, true}) {
+            for (int r = 0; r < rounds / 4; r++) for (String sentence : sentences) kana.toKatakana(sentence);
+            long allocated = mx.getCurrentThreadAllocatedBytes();
+            long start = System.nanoTime();
+            for (int r = 0; r < rounds; r++) {
+                for (String sentence : sentences) {
+                    if (!warm) kana.wordCache.clear();
+                    kana.toKatakana(sentence);
+                }
+            }
+            long elapsed = System.nanoTime() - start;
+            long count = (long) rounds * sentences.size();
+            System.out.printf("%s cache: %,.0f sentences/s, %.1f us and %,d bytes allocated per sentence%n",
+                    warm ? "Warm" : "Cold", count / (elapsed / 1e9), elapsed / 1e3 / count,
+                    (mx.getCurrentThreadAllocatedBytes() - allocated) / count);
         }
-        if (idx < s.length()) out.add(new Token(Type.OTHER, s.substring(idx)));
-        return out;
     }
 
     private static PhonoKana instance;
@@ -152,7 +276,8 @@ public final class PhonoKana {
     }
 
     private static PhonoKana createDefaultInstance() {
-        Map<String, String> ex = new HashMap<>();
+        // Read by the speech path while exceptions are learned from other threads
+        Map<String, String> ex = new ConcurrentHashMap<>();
         // Load Internal
         try (InputStream is = PhonoKana.class.getResourceAsStream("/phonokana_exceptions.properties")) {
             if (is != null) {
@@ -162,16 +287,12 @@ public final class PhonoKana {
             }
         } catch (Exception e) { e.printStackTrace(); }
 
-        // Load External overrides
-        File external = new File(EXTERNAL_FILE);
-        if (external.exists()) {
-            try (InputStream is = new FileInputStream(external)) {
-                Properties props = new Properties();
-                props.load(new InputStreamReader(is, StandardCharsets.UTF_8));
-                props.forEach((key, value) -> ex.put((String) key, (String) value));
-                System.out.println("Ciel Debug: Loaded " + props.size() + " custom external phonetics.");
-            } catch (Exception e) { e.printStackTrace(); }
-        }
+        // Load External overrides, with anything learned since they were last compacted
+        try {
+            Map<String, String> external = EXTERNAL_JOURNAL.load();
+            ex.putAll(external);
+            if (!external.isEmpty()) System.out.println("Ciel Debug: Loaded " + external.size() + " custom external phonetics.");
+        } catch (Exception e) { e.printStackTrace(); }
 
         Map<Pattern, String> rules = new LinkedHashMap<>();
         rules.put(Pattern.compile("\\bwh"), "hw");
@@ -0,0 +1,99 @@
+package com.cielcompanion.util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * A properties file that is updated by appending. Each {@link #append} adds one line to a
+ * journal beside the snapshot. {@link #load} reads the snapshot and replays the journal on top
+ * of it, and {@link #compact} writes a fresh snapshot and empties the journal. Learning one word
+ * therefore costs one appended line instead of rewriting the whole file. A crash between the
+ * two steps of a compaction only leaves journal lines that repeat what the snapshot already says.
+ */
+public final class PropertiesJournal {
+
+    private final Path snapshot;
+    private final Path journal;
+    private final String comment;
+    private int journalEntries = 0;
+
+    public PropertiesJournal(Path snapshot, String comment) {
+        this.snapshot = snapshot;
+        this.journal = snapshot.resolveSibling(snapshot.getFileName() + ".journal");
+        this.comment = comment;
+    }
+
+    /** The snapshot with every journal entry applied, later entries winning. */
+    public synchronized Map<String, String> load() throws IOException {
+        Properties props = new Properties();
+        if (Files.exists(snapshot)) {
+            try (Reader reader = Files.newBufferedReader(snapshot, StandardCharsets.UTF_8)) {
+                props.load(reader);
+            }
+        }
+        journalEntries = 0;
+        if (Files.exists(journal)) {
+            try (Reader reader = Files.newBufferedReader(journal, StandardCharsets.UTF_8)) {
+                props.load(reader);
+            }
+            journalEntries = (int) Files.readAllLines(journal, StandardCharsets.UTF_8).stream()
+                    .filter(line -> !line.isBlank() && !line.startsWith("#")).count();
+        }
+        Map<String, String> entries = new HashMap<>();
+        props.forEach((key, value) -> entries.put((String) key, (String) value));
+        return entries;
+    }
+
+    public synchronized void append(String key, String value) throws IOException {
+        Files.createDirectories(journal.toAbsolutePath().getParent());
+        Files.writeString(journal, escape(key, value), StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        journalEntries++;
+    }
+
+    /** Lines appended since the last compaction. */
+    public synchronized int getJournalEntries() {
+        return journalEntries;
+    }
+
+    /** Replaces the snapshot with {@code entries} (via a temporary file) and empties the journal. */
+    public synchronized void compact(Map<String, String> entries) throws IOException {
+        Properties props = new Properties();
+        props.putAll(entries);
+        Files.createDirectories(snapshot.toAbsolutePath().getParent());
+        Path temp = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            props.store(writer, comment);
+        }
+        try {
+            Files.move(temp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, snapshot, StandardCopyOption.REPLACE_EXISTING);
+        }
+        Files.deleteIfExists(journal);
+        journalEntries = 0;
+    }
+
+    /** One entry in properties syntax, so the journal loads with {@link Properties#load}. */
+    private static String escape(String key, String value) throws IOException {
+        Properties single = new Properties();
+        single.setProperty(key, value);
+        StringWriter out = new StringWriter();
+        single.store(out, null);
+        StringBuilder line = new StringBuilder();
+        for (String stored : out.toString().split("\\R")) {
+            if (!stored.startsWith("#") && !stored.isEmpty()) line.append(stored).append(System.lineSeparator());
+        }
+        return line.toString();
+    }
+}
@@ -0,0 +1,163 @@
+package com.cielcompanion.ai;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs {@link CircuitBreaker} against a local stand-in for the Swarm that can be told to
+ * answer, slow down, stall or fail, and checks the adaptive timeout and its exemption for
+ * long-form requests, fail-fast while open and half-open recovery. Every scenario gets a
+ * breaker of its own. Takes about a minute, most of it waiting out the stall and the breaker's
+ * cool-downs.
+ */
+class CircuitBreakerTest {
+
+    private enum Behaviour { HEALTHY, SLOW, STALL, ERROR }
+
+    private static final Duration CEILING = Duration.ofMinutes(15);
+
+    private static volatile Behaviour behaviour = Behaviour.HEALTHY;
+    private static final AtomicInteger hits = new AtomicInteger();
+    private static HttpServer server;
+    private static URI uri;
+    private static HttpClient client;
+
+    @BeforeAll
+    static void startServer() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/v1/chat/completions", exchange -> {
+            hits.incrementAndGet();
+            Behaviour now = behaviour;
+            try {
+                switch (now) {
+                    case STALL -> Thread.sleep(60_000);
+                    case HEALTHY -> Thread.sleep(20 + (long) (Math.random() * 30));
+                    case SLOW -> Thread.sleep(400);
+                    default -> { }
+                }
+            } catch (InterruptedException ignored) {}
+            byte[] body = (now == Behaviour.ERROR ? "{\"error\":\"injected\"}" : "{\"choices\":[]}").getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(now == Behaviour.ERROR ? 500 : 200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            } catch (Exception ignored) {}
+        });
+        server.setExecutor(Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "Ciel-TestServer");
+            t.setDaemon(true);
+            return t;
+        }));
+        server.start();
+        uri = URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/v1/chat/completions");
+        client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(2)).build();
+    }
+
+    @AfterAll
+    static void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    void stallIsAbandonedAtTheAdaptiveTimeoutNotTheCeiling() throws Exception {
+        CircuitBreaker breaker = CircuitBreaker.forEndpoint("test/stall");
+        behaviour = Behaviour.HEALTHY;
+        assertEquals(CEILING, breaker.timeout(CEILING), "ceiling used until latencies are known");
+        for (int i = 0; i < 20; i++) assertEquals(200, call(breaker).statusCode());
+        // A few times a ~50 ms p99 is below the floor
+        assertEquals(Duration.ofSeconds(20), breaker.timeout(CEILING));
+
+        behaviour = Behaviour.STALL;
+        long start = System.currentTimeMillis();
+        assertThrows(HttpTimeoutException.class, () -> call(breaker));
+        long took = System.currentTimeMillis() - start;
+        assertTrue(took >= 19_500 && took < 25_000, "stall abandoned after " + took + "ms");
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState(), "one failure opened the breaker");
+    }
+
+    @Test
+    void longFormRequestsKeepTheirCeilingAndTheirOwnLatencies() throws Exception {
+        CircuitBreaker breaker = CircuitBreaker.forEndpoint("test/long-form");
+        behaviour = Behaviour.HEALTHY;
+        for (int i = 0; i < 20; i++) call(breaker);
+        assertEquals(Duration.ofSeconds(20), breaker.timeout(CEILING));
+        assertEquals(CEILING, breaker.timeout(CEILING, CircuitBreaker.RequestClass.LONG_FORM), "long-form cut to the chat timeout");
+
+        behaviour = Behaviour.SLOW;
+        for (int i = 0; i < 10; i++) assertEquals(200, call(breaker, CircuitBreaker.RequestClass.LONG_FORM).statusCode());
+        Duration interactive = breaker.latencyPercentile(0.99);
+        Duration longForm = breaker.latencyPercentile(CircuitBreaker.RequestClass.LONG_FORM, 0.5);
+        assertTrue(interactive.toMillis() < 200, "long-form latencies leaked into the chat window: p99 " + interactive.toMillis() + "ms");
+        assertTrue(longForm.toMillis() >= 400, "long-form p50 " + longForm.toMillis() + "ms");
+    }
+
+    @Test
+    void thirdConsecutiveFailureOpensTheBreakerAndLaterRequestsFailFast() throws Exception {
+        CircuitBreaker breaker = CircuitBreaker.forEndpoint("test/open");
+        behaviour = Behaviour.ERROR;
+        for (int i = 0; i < 2; i++) {
+            assertEquals(500, call(breaker).statusCode());
+            assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        }
+        assertEquals(500, call(breaker).statusCode());
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        int hitsBefore = hits.get();
+        for (int i = 0; i < 3; i++) {
+            long start = System.nanoTime();
+            assertThrows(CircuitBreaker.OpenException.class, () -> call(breaker));
+            assertTrue(System.nanoTime() - start < 100_000_000L, "open breaker did not fail fast");
+        }
+        assertEquals(hitsBefore, hits.get(), "requests reached the endpoint while open");
+    }
+
+    @Test
+    void failedProbeReopensForLongerAndARecoveredEndpointClosesIt() throws Exception {
+        CircuitBreaker breaker = CircuitBreaker.forEndpoint("test/probe");
+        behaviour = Behaviour.ERROR;
+        for (int i = 0; i < 3; i++) call(breaker);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        Thread.sleep(10_500);
+        assertEquals(500, call(breaker).statusCode(), "probe let through after the cool-down");
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState(), "failed probe reopens");
+
+        // The second cool-down is twice as long
+        Thread.sleep(10_500);
+        assertThrows(CircuitBreaker.OpenException.class, () -> call(breaker));
+
+        behaviour = Behaviour.HEALTHY;
+        Thread.sleep(10_000);
+        assertEquals(200, call(breaker).statusCode(), "probe let through after the longer cool-down");
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState(), "successful probe closes");
+        assertEquals(200, call(breaker).statusCode());
+    }
+
+    private static HttpResponse<String> call(CircuitBreaker breaker) throws Exception {
+        return call(breaker, CircuitBreaker.RequestClass.INTERACTIVE);
+    }
+
+    private static HttpResponse<String> call(CircuitBreaker breaker, CircuitBreaker.RequestClass requestClass) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{}", StandardCharsets.UTF_8));
+        return breaker.send(client, request, CEILING, HttpResponse.BodyHandlers.ofString(), requestClass);
+    }
+}
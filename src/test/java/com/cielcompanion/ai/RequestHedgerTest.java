@@ -0,0 +1,92 @@
+package com.cielcompanion.ai;
+
+import org.junit.jupiter.api.Test;
+
+import javax.net.ssl.SSLSession;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Races hand-completed futures through {@link RequestHedger}, so who answers first and how is
+ * decided by the test rather than by a network. Each scenario uses a breaker of its own.
+ */
+class RequestHedgerTest {
+
+    private static final Duration HEDGE_AFTER = Duration.ofMillis(200);
+
+    @Test
+    void fastPrimaryIsNeverHedged() throws Exception {
+        CircuitBreaker breaker = CircuitBreaker.forEndpoint("test/hedge-fast");
+        CompletableFuture<HttpResponse<String>> backup = new CompletableFuture<>();
+        RequestHedger.Outcome outcome = RequestHedger.race(ModelManager.ModelTier.LOGIC, breaker,
+                () -> CompletableFuture.completedFuture(response(200)), () -> backup, HEDGE_AFTER, () -> true).get(2, TimeUnit.SECONDS);
+        assertEquals(200, outcome.response().statusCode());
+        assertFalse(outcome.hedged());
+        Thread.sleep(HEDGE_AFTER.toMillis() + 100);
+        assertFalse(backup.isDone(), "backup sent after the primary had answered");
+    }
+
+    @Test
+    void cancelledLosingPrimaryStillCountsTowardsItsLatencies() throws Exception {
+        CircuitBreaker breaker = CircuitBreaker.forEndpoint("test/hedge-lower-bound");
+        for (int i = 0; i < 10; i++) breaker.onSuccess(CircuitBreaker.RequestClass.INTERACTIVE, 50_000_000L);
+        CompletableFuture<HttpResponse<String>> primary = new CompletableFuture<>();
+
+        RequestHedger.Outcome outcome = RequestHedger.race(ModelManager.ModelTier.LOGIC, breaker,
+                () -> primary, () -> CompletableFuture.completedFuture(response(200)), HEDGE_AFTER, () -> true).get(2, TimeUnit.SECONDS);
+
+        assertTrue(outcome.hedged() && outcome.backupWon());
+        assertTrue(primary.isCancelled(), "losing primary left running");
+        Duration slowest = breaker.latencyPercentile(1.0);
+        assertTrue(slowest.compareTo(HEDGE_AFTER) >= 0, "slowest known latency " + slowest.toMillis() + "ms");
+    }
+
+    @Test
+    void bothLegsFailingEndsTheRaceWithNoAnswer() throws Exception {
+        CircuitBreaker breaker = CircuitBreaker.forEndpoint("test/hedge-both-fail");
+        CompletableFuture<HttpResponse<String>> primary = new CompletableFuture<>();
+        long failuresBefore = failures();
+
+        CompletableFuture<RequestHedger.Outcome> race = RequestHedger.race(ModelManager.ModelTier.LOGIC, breaker,
+                () -> primary, () -> CompletableFuture.completedFuture(response(500)), HEDGE_AFTER, () -> true);
+        Thread.sleep(HEDGE_AFTER.toMillis() + 100);
+        assertFalse(race.isDone(), "race ended while the primary was still running");
+        primary.complete(response(503));
+
+        RequestHedger.Outcome outcome = race.get(2, TimeUnit.SECONDS);
+        assertNull(outcome.response());
+        assertTrue(outcome.hedged());
+        assertEquals(failuresBefore + 1, failures());
+    }
+
+    private static long failures() {
+        RequestHedger.Stats stats = RequestHedger.getStats().get(ModelManager.ModelTier.LOGIC);
+        return stats == null ? 0 : stats.failures();
+    }
+
+    private static HttpResponse<String> response(int status) {
+        return new HttpResponse<>() {
+            @Override public int statusCode() { return status; }
+            @Override public HttpRequest request() { return null; }
+            @Override public Optional<HttpResponse<String>> previousResponse() { return Optional.empty(); }
+            @Override public HttpHeaders headers() { return HttpHeaders.of(Map.of(), (name, value) -> true); }
+            @Override public String body() { return "{}"; }
+            @Override public Optional<SSLSession> sslSession() { return Optional.empty(); }
+            @Override public URI uri() { return URI.create("http://127.0.0.1/"); }
+            @Override public HttpClient.Version version() { return HttpClient.Version.HTTP_1_1; }
+        };
+    }
+}
@@ -0,0 +1,138 @@
+package com.cielcompanion.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Replays recorded utterances into the production {@link CommandDispatcher} in bursts, faster
+ * than commands can run, and checks that the recognizer side never waits. The wake word is
+ * split off with {@link VoiceListener#afterWakeWord} and the priority assigned by
+ * {@link CommandService#priorityFor}, as on the real recognizer thread; only the command
+ * itself is a stub that takes {@code replay.commandMs} and releases its ticket.
+ * Lines are what Vosk heard, one per line, as in the campaign's Transcripts/Session_*.txt,
+ * passed as {@code -Dreplay.transcripts=a.txt,b.txt}. Without them a built-in sample mixes
+ * addressed commands with overheard talk that mentions restarting, updating and turning
+ * things off.
+ */
+class CommandQueueReplayTest {
+
+    private static final List<String> SAMPLE = List.of(
+            "so i was thinking we should restart the campaign next week",
+            "ciel what time is it",
+            "can you turn off the lights in the hall",
+            "the update for that game broke everything",
+            "ciel open spotify",
+            "he rolled a natural twenty",
+            "ciel stop",
+            "did you reboot the router",
+            "ciel remind me to feed the cat",
+            "we need to upgrade our armor",
+            "ciel never mind",
+            "let's take a break",
+            "ciel play some music",
+            "i'll power off the console after this round");
+    private static final int BURST = 6;
+    private static final long BURST_GAP_MS = 300;
+
+    private final long commandMs = Long.getLong("replay.commandMs", 200);
+    private final int utterances = Integer.getInteger("replay.utterances", 300);
+
+    private final List<Double> offerMicros = new CopyOnWriteArrayList<>();
+    private final Map<CommandQueue.Priority, AtomicLong> offered = new EnumMap<>(CommandQueue.Priority.class);
+    private final Map<CommandQueue.Priority, AtomicLong> executed = new EnumMap<>(CommandQueue.Priority.class);
+    private final AtomicLong abortsByOverheard = new AtomicLong();
+    private CommandDispatcher dispatcher;
+
+    /** Stands in for CommandService's command handling; the dispatch and abort rules are the real ones. */
+    private final CommandDispatcher.Handler stub = new CommandDispatcher.Handler() {
+        @Override
+        public void execute(CommandQueue.Entry entry, long ticket) {
+            executed.get(entry.priority()).incrementAndGet();
+            try {
+                Thread.sleep(commandMs);
+            } catch (InterruptedException e) {
+                return; // Aborted; the abort already released the busy flag
+            }
+            dispatcher.release(ticket);
+        }
+
+        @Override
+        public boolean onCriticalAbort(CommandQueue.Entry entry) {
+            if (!entry.hasWakeWord()) abortsByOverheard.incrementAndGet();
+            return true;
+        }
+    };
+
+    @Test
+    void recognizerNeverWaitsAndEveryCriticalCommandRuns() throws Exception {
+        for (CommandQueue.Priority priority : CommandQueue.Priority.values()) {
+            offered.put(priority, new AtomicLong());
+            executed.put(priority, new AtomicLong());
+        }
+        List<String> lines = loadTranscripts();
+        dispatcher = new CommandDispatcher(stub);
+
+        // Class loading and regex compilation are not what is being measured
+        for (String line : lines) CommandService.priorityFor(line, VoiceListener.afterWakeWord(line) != null);
+
+        for (int i = 0; i < utterances; i++) {
+            hear(lines.get(i % lines.size()));
+            if ((i + 1) % BURST == 0) Thread.sleep(BURST_GAP_MS);
+        }
+        // Let the queue drain: every critical entry has to run, the rest may expire
+        long deadline = System.currentTimeMillis() + 40_000;
+        while ((dispatcher.getQueueStats().queued() > 0 || criticalRunning()) && System.currentTimeMillis() < deadline) Thread.sleep(50);
+
+        double[] offers = offerMicros.stream().mapToDouble(Double::doubleValue).sorted().toArray();
+        CommandQueue.Stats stats = dispatcher.getQueueStats();
+        System.out.printf("Offer: p50 %.1f us, max %.1f us; queue %d accepted, %d rejected, %d evicted, %d expired; %d running commands cancelled%n",
+                offers[offers.length / 2], offers[offers.length - 1], stats.accepted(), stats.rejected(), stats.evicted(),
+                stats.expired(), dispatcher.getPreemptedCount());
+
+        // An offer that waited on the running command would take at least as long as the command
+        assertTrue(offers[offers.length - 1] < commandMs * 1000.0, "slowest offer took " + offers[offers.length - 1] + " us");
+        assertEquals(offered.get(CommandQueue.Priority.CRITICAL).get(), executed.get(CommandQueue.Priority.CRITICAL).get(), "critical commands run");
+        assertEquals(0, abortsByOverheard.get(), "aborts triggered by overheard speech");
+    }
+
+    /** What VoiceListener and CommandService.handleCommand do on the recognizer thread. */
+    private void hear(String heard) {
+        long t0 = System.nanoTime();
+        String addressed = VoiceListener.afterWakeWord(heard);
+        boolean hasWakeWord = addressed != null;
+        String text = hasWakeWord ? addressed : heard;
+        CommandQueue.Priority priority = CommandService.priorityFor(text, hasWakeWord);
+        dispatcher.offer(text, hasWakeWord, false, priority);
+        offerMicros.add((System.nanoTime() - t0) / 1e3);
+        offered.get(priority).incrementAndGet();
+    }
+
+    private boolean criticalRunning() {
+        return executed.get(CommandQueue.Priority.CRITICAL).get() < offered.get(CommandQueue.Priority.CRITICAL).get();
+    }
+
+    private static List<String> loadTranscripts() throws Exception {
+        List<String> lines = new ArrayList<>();
+        String files = System.getProperty("replay.transcripts", "");
+        for (String file : files.split(",")) {
+            if (file.isBlank()) continue;
+            for (String line : Files.readAllLines(Paths.get(file.trim()), StandardCharsets.UTF_8)) {
+                String text = LorePipeline.clean(line).trim().toLowerCase();
+                if (!text.isEmpty()) lines.add(text);
+            }
+        }
+        return lines.isEmpty() ? SAMPLE : lines;
+    }
+}
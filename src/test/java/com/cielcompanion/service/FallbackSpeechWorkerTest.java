@@ -0,0 +1,143 @@
+package com.cielcompanion.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs {@link FallbackSpeechWorker} against a bash stub that speaks its line protocol, so the
+ * supervision can be checked on a machine without SAPI. The stub takes a while to report
+ * READY and notes any request that reached it before then; it "speaks" by sleeping, exits on
+ * the line "crash" and can be told never to become ready at all. The worker is static, so the
+ * scenarios run in a fixed order and the one that leaves a crash backoff behind runs last.
+ */
+@EnabledOnOs({OS.LINUX, OS.MAC})
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class FallbackSpeechWorkerTest {
+
+    private static final String STUB = """
+            #!/usr/bin/env bash
+            # usage: stub.sh <seconds before READY> <early-request log> [silent]
+            sleep "$1"
+            if read -t 0; then echo early >> "$2"; fi
+            if [ "$3" = "silent" ]; then sleep 60; exit 0; fi
+            echo READY
+            while read -r cmd id text; do
+              [ "$cmd" = "QUIT" ] && exit 0
+              [ "$cmd" = "SPEAK" ] || continue
+              line=$(echo "$text" | base64 -d)
+              [ "$line" = "crash" ] && exit 1
+              echo "STARTED $id"
+              if [ "$line" = "long" ]; then sleep 30; else sleep 0.2; fi
+              echo "DONE $id"
+            done
+            """;
+
+    @TempDir
+    static Path dir;
+    private static Path stub;
+    private static Path early;
+    private static final AtomicInteger started = new AtomicInteger();
+
+    @BeforeAll
+    static void writeStub() throws Exception {
+        stub = dir.resolve("stub.sh");
+        early = dir.resolve("early.log");
+        Files.writeString(stub, STUB, StandardCharsets.UTF_8);
+        SpeechPlayback.addListener(event -> {
+            if (event.phase() == SpeechPlayback.Phase.STARTED) started.incrementAndGet();
+        });
+    }
+
+    @AfterEach
+    void stopWorker() {
+        FallbackSpeechWorker.shutdown();
+    }
+
+    @Test
+    @Order(1)
+    void firstLineWaitsForReadyInsteadOfRacingIt() {
+        FallbackSpeechWorker.setCommand("bash " + stub + " 1.5 " + early);
+        int startedBefore = started.get();
+        long t0 = System.currentTimeMillis();
+        assertTrue(FallbackSpeechWorker.speak("first", "k1"), "first line spoken");
+        long waited = System.currentTimeMillis() - t0;
+        assertTrue(waited >= 1500, "waited for the worker to load, only " + waited + "ms");
+        assertTrue(FallbackSpeechWorker.speak("second", "k2") && FallbackSpeechWorker.speak("third", "k3"), "two more lines on the same worker");
+        assertFalse(Files.exists(early), "a line was sent before READY");
+        assertEquals(3, started.get() - startedBefore, "STARTED published for every line");
+    }
+
+    @Test
+    @Order(2)
+    void crashFailsTheLineAndTheNextGetsAFreshWorker() throws InterruptedException {
+        FallbackSpeechWorker.setCommand("bash " + stub + " 0 " + early);
+        long restarts = FallbackSpeechWorker.getRestartCount();
+        assertFalse(FallbackSpeechWorker.speak("crash", "k4"), "line that kills the worker fails");
+        assertEquals(restarts + 1, FallbackSpeechWorker.getRestartCount(), "crash counted");
+        assertFalse(FallbackSpeechWorker.speak("too soon", "k5"), "respawned inside the backoff");
+        Thread.sleep(2100);
+        assertTrue(FallbackSpeechWorker.speak("back", "k6"), "spoken again after the backoff");
+    }
+
+    @Test
+    @Order(3)
+    void stopCutsOffALongLineAtOnce() throws Exception {
+        FallbackSpeechWorker.setCommand("bash " + stub + " 0 " + early);
+        long restarts = FallbackSpeechWorker.getRestartCount();
+        CompletableFuture<Boolean> longLine = CompletableFuture.supplyAsync(() -> FallbackSpeechWorker.speak("long", "k7"));
+        Thread.sleep(2000);
+        long stopAt = System.currentTimeMillis();
+        FallbackSpeechWorker.stopCurrent();
+        assertFalse(longLine.get(2, TimeUnit.SECONDS), "interrupted line reports failure");
+        long took = System.currentTimeMillis() - stopAt;
+        assertTrue(took < 1000, "stop took " + took + "ms");
+        assertEquals(restarts, FallbackSpeechWorker.getRestartCount(), "a deliberate stop counted as a crash");
+        assertTrue(FallbackSpeechWorker.speak("after stop", "k8"), "next line spoken");
+    }
+
+    @Test
+    @Order(4)
+    void stopDoesNotWaitForAWorkerThatIsStillStarting() throws Exception {
+        FallbackSpeechWorker.setCommand("bash " + stub + " 5 " + early);
+        long restarts = FallbackSpeechWorker.getRestartCount();
+        CompletableFuture<Boolean> firstLine = CompletableFuture.supplyAsync(() -> FallbackSpeechWorker.speak("first", "k10"));
+        Thread.sleep(500);
+        long stopAt = System.currentTimeMillis();
+        FallbackSpeechWorker.stopCurrent();
+        long took = System.currentTimeMillis() - stopAt;
+        assertTrue(took < 1000, "stop waited " + took + "ms for the starting worker");
+        assertFalse(firstLine.get(1, TimeUnit.SECONDS), "line waiting for READY reports failure");
+        assertEquals(restarts, FallbackSpeechWorker.getRestartCount(), "a deliberate stop counted as a crash");
+    }
+
+    @Test
+    @Order(5)
+    void workerThatNeverReportsReadyIsKilledAfterTheTimeout() {
+        FallbackSpeechWorker.setCommand("bash " + stub + " 0 " + early + " silent");
+        long restarts = FallbackSpeechWorker.getRestartCount();
+        long t0 = System.currentTimeMillis();
+        assertFalse(FallbackSpeechWorker.speak("never heard", "k9"), "line hung instead of failing");
+        long waited = System.currentTimeMillis() - t0;
+        assertTrue(waited >= 9000 && waited < 15000, "gave up after " + waited + "ms");
+        assertEquals(restarts + 1, FallbackSpeechWorker.getRestartCount(), "counted as a crash");
+        assertFalse(Files.exists(early), "a line was sent before READY");
+    }
+}
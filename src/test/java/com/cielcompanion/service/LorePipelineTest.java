@@ -0,0 +1,235 @@
+package com.cielcompanion.service;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs {@link LorePipeline} and the old one-chunk-at-a-time sweep side by side against a local
+ * stub of the Logic Core, and checks that both write the same document and stop at the same
+ * chunk. The stub answers deterministically from the prompt after a random delay, so only the
+ * timing differs between runs; it can also be told to fail a chunk's verification or linking.
+ * The last scenario halts part-way, tears the end of its {@link LoreCheckpointJournal}, resumes
+ * from the journal and checks that the result is still identical and no answered call was
+ * repeated. {@code -Dreplay.chunks} and {@code -Dreplay.window} size the runs.
+ */
+class LorePipelineTest {
+
+    private static final ScheduledExecutorService backend = Executors.newScheduledThreadPool(8, r -> {
+        Thread t = new Thread(r, "Ciel-LoreStub");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final int window = Integer.getInteger("replay.window", 3);
+    private final List<String> chunks = chunks(Integer.getInteger("replay.chunks", 24));
+
+    @AfterAll
+    static void stopBackend() {
+        backend.shutdownNow();
+    }
+
+    @Test
+    void allChunksSucceed() throws Exception {
+        assertMatchesSequential(-1, 0, false);
+    }
+
+    @Test
+    void verificationFailureStopsAtTheSameChunk() throws Exception {
+        assertEquals(9, assertMatchesSequential(9, 2, false).nextChunk());
+    }
+
+    @Test
+    void linkingFailureStopsAtTheSameChunk() throws Exception {
+        LorePipeline.Result result = assertMatchesSequential(14, 3, false);
+        assertEquals(14, result.nextChunk());
+        assertEquals(3, result.failedPhase());
+    }
+
+    @Test
+    void throttledSweepStillMatches() throws Exception {
+        assertMatchesSequential(-1, 0, true);
+    }
+
+    @Test
+    void crashAndResumeFromTheJournalRepeatsNoAnsweredCall(@TempDir Path dir) throws Exception {
+        StringBuilder expected = new StringBuilder();
+        sequential(stub(-1, 0, null), expected);
+
+        Path journalFile = dir.resolve("pipeline_checkpoints.jsonl");
+        Path transcript = dir.resolve("transcript.md");
+        Files.createFile(transcript);
+
+        // First attempt: linking fails at chunk 14, with later chunks already answered
+        Set<String> answered = ConcurrentHashMap.newKeySet();
+        LoreCheckpointJournal journal = new LoreCheckpointJournal(journalFile);
+        journal.start("test", "test.md", chunks.size(), 0);
+        LorePipeline.Result first = new LorePipeline(stub(14, 3, answered), window, () -> false, () -> Duration.ofMillis(40))
+                .run(chunks, 0, journal.checkpoint("test"), (index, linked) -> appendChunk(journal, transcript, index, linked), () -> true);
+        assertEquals(14, first.nextChunk());
+        Thread.sleep(200); // Let the chunks behind the failure finish, as they would before a crash
+        // Simulate a crash mid-way through both a transcript append and a journal record
+        Files.writeString(transcript, "half a chunk", StandardOpenOption.APPEND);
+        Files.writeString(journalFile, "{\"type\":\"stage\",\"chu", StandardOpenOption.APPEND);
+
+        // Restart: a fresh journal object replays the file, the transcript is cut back, the sweep resumes
+        LoreCheckpointJournal reopened = new LoreCheckpointJournal(journalFile);
+        LoreCheckpointJournal.Progress progress = reopened.load();
+        assertEquals(14, progress.nextChunk(), "resumed at");
+        try (FileChannel channel = FileChannel.open(transcript, StandardOpenOption.WRITE)) {
+            channel.truncate(progress.outputBytes());
+        }
+        Set<String> repeated = ConcurrentHashMap.newKeySet();
+        LorePipeline.Model resumedModel = stub(-1, 0, null);
+        LorePipeline.Result second = new LorePipeline((prompt, label) -> {
+            if (answered.contains(prompt)) repeated.add(prompt);
+            return resumedModel.generate(prompt, label);
+        }, window, () -> false, () -> Duration.ofMillis(40))
+                .run(chunks, progress.nextChunk(), reopened.checkpoint(progress.taskId()), (index, linked) -> appendChunk(reopened, transcript, index, linked), () -> true);
+
+        assertTrue(second.completed(), "resumed sweep completed");
+        assertTrue(repeated.isEmpty(), repeated.size() + " answered call(s) repeated");
+        assertEquals(expected.toString(), Files.readString(transcript, StandardCharsets.UTF_8));
+        reopened.delete();
+    }
+
+    @Test
+    void lateAnswersOfAHaltedSweepDoNotLeakIntoTheNextFile(@TempDir Path dir) throws Exception {
+        // Verification fails at chunk 9 while chunks 10 and 11 are still being answered
+        LorePipeline.Model failing = stub(9, 2, null);
+        LorePipeline.Model model = (prompt, label) -> prompt.contains("Chapter 10:") || prompt.contains("Chapter 11:")
+                ? failing.generate(prompt, label).thenApplyAsync(answer -> answer, CompletableFuture.delayedExecutor(300, TimeUnit.MILLISECONDS))
+                : failing.generate(prompt, label);
+
+        Path journalFile = dir.resolve("pipeline_checkpoints.jsonl");
+        LoreCheckpointJournal journal = new LoreCheckpointJournal(journalFile);
+        journal.start("first", "first.md", chunks.size(), 0);
+        LorePipeline.Checkpoint checkpoint = journal.checkpoint("first");
+        AtomicInteger late = new AtomicInteger();
+        AtomicBoolean returned = new AtomicBoolean();
+        LorePipeline.Result result = new LorePipeline(model, window, () -> false, () -> Duration.ofMillis(40))
+                .run(chunks, 0, new LorePipeline.Checkpoint() {
+                    @Override public String recalled(int chunk, int phase) { return checkpoint.recalled(chunk, phase); }
+                    @Override public void record(int chunk, int phase, String text) {
+                        if (returned.get()) late.incrementAndGet();
+                        checkpoint.record(chunk, phase, text);
+                    }
+                }, (index, linked) -> journal.written(index, 0), () -> true);
+        returned.set(true);
+        assertEquals(9, result.nextChunk());
+
+        // The next file in the queue starts at once, as VaultService does
+        journal.start("second", "second.md", chunks.size(), 0);
+        Thread.sleep(1000);
+        assertTrue(late.get() > 0, "no chunk answered after the sweep stopped; the scenario proved nothing");
+
+        LorePipeline.Checkpoint next = journal.checkpoint("second");
+        for (int chunk = 9; chunk < 12; chunk++) {
+            for (int phase = 2; phase <= 3; phase++) {
+                assertNull(next.recalled(chunk, phase), "chunk " + chunk + " phase " + phase + " of the first file offered to the second");
+            }
+        }
+        LoreCheckpointJournal reopened = new LoreCheckpointJournal(journalFile);
+        assertEquals("second", reopened.load().taskId());
+        for (int chunk = 9; chunk < 12; chunk++) {
+            assertNull(reopened.checkpoint("second").recalled(chunk, 3), "chunk " + chunk + " of the first file in the replayed journal");
+        }
+    }
+
+    /** Runs both sweeps with the same stub and checks they wrote the same text and stopped alike. */
+    private LorePipeline.Result assertMatchesSequential(int failChunk, int failPhase, boolean throttled) throws Exception {
+        LorePipeline.Model model = stub(failChunk, failPhase, null);
+
+        long start = System.nanoTime();
+        StringBuilder expected = new StringBuilder();
+        int expectedStop = sequential(model, expected);
+        double sequentialMs = (System.nanoTime() - start) / 1e6;
+
+        start = System.nanoTime();
+        StringBuilder actual = new StringBuilder();
+        List<Integer> written = new ArrayList<>();
+        LorePipeline pipeline = new LorePipeline(model, window, () -> throttled, () -> Duration.ofMillis(40));
+        LorePipeline.Result result = pipeline.run(chunks, 0, LorePipeline.Checkpoint.NONE, (index, linked) -> {
+            written.add(index);
+            if (linked != null) actual.append(linked).append("\n\n");
+        }, () -> true);
+        System.out.printf("Sequential %.1f ms, pipelined %.1f ms, stopped at %d/%d%n",
+                sequentialMs, (System.nanoTime() - start) / 1e6, result.nextChunk(), chunks.size());
+
+        assertEquals(expected.toString(), actual.toString());
+        assertEquals(expectedStop, result.nextChunk(), "stopped at");
+        assertEquals(expectedStop == chunks.size(), result.completed());
+        for (int i = 0; i < written.size(); i++) assertEquals(i, written.get(i), "chunks handed to the sink out of order");
+        return result;
+    }
+
+    private static void appendChunk(LoreCheckpointJournal journal, Path transcript, int index, String linked) throws IOException {
+        if (linked != null) Files.writeString(transcript, linked + "\n\n", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        journal.written(index, Files.size(transcript));
+    }
+
+    /** The sweep as it was before pipelining, minus its 1.5 s pause after each chunk. */
+    private int sequential(LorePipeline.Model model, StringBuilder out) {
+        for (int c = 0; c < chunks.size(); c++) {
+            String chunk = chunks.get(c);
+            if (chunk.isBlank()) continue;
+            String verified = model.generate(LorePipeline.PHASE_2_PREFIX + LorePipeline.clean(chunk), "Phase 2 Verify").join();
+            if (!LorePipeline.isUsable(verified)) return c;
+            String linked = model.generate(LorePipeline.PHASE_3_PREFIX + verified, "Phase 3 Link").join();
+            if (!LorePipeline.isUsable(linked)) return c;
+            out.append(linked).append("\n\n");
+        }
+        return chunks.size();
+    }
+
+    private static List<String> chunks(int count) {
+        List<String> chunks = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            chunks.add(i % 7 == 5 ? "   " : "[0" + i % 10 + ":1" + i % 6 + "] Chapter " + i + ": Rimuru names the goblins. [1:02:03] Shion cooks.");
+        }
+        return chunks;
+    }
+
+    /**
+     * Deterministic answers after 10-50 ms; the chosen chunk's chosen phase answers with an error.
+     * Prompts that were answered successfully are added to {@code answered} when it is given.
+     */
+    private static LorePipeline.Model stub(int failChunk, int failPhase, Set<String> answered) {
+        String failMarker = "Chapter " + failChunk + ":";
+        return (prompt, label) -> {
+            CompletableFuture<String> answer = new CompletableFuture<>();
+            boolean verify = prompt.startsWith(LorePipeline.PHASE_2_PREFIX);
+            String body = prompt.substring(prompt.indexOf('\n') + 1);
+            String response = verify ? "Verified: " + body.strip() : "Linked: " + body.replace("Rimuru", "[[Rimuru]]").replace("Shion", "[[Shion]]");
+            if (body.contains(failMarker) && failPhase == (verify ? 2 : 3)) response = "[SYSTEM_ERROR] stub failure";
+            String reply = response;
+            backend.schedule(() -> {
+                if (answered != null && LorePipeline.isUsable(reply)) answered.add(prompt);
+                answer.complete(reply);
+            }, 10 + (long) (Math.random() * 40), TimeUnit.MILLISECONDS);
+            return answer;
+        };
+    }
+}
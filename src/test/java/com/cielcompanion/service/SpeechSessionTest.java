@@ -0,0 +1,171 @@
+package com.cielcompanion.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Drives {@link SpeechSession} through a fake {@link SpeechSession.MediaController} that only
+ * records what it was asked to do, so the pause/resume state machine can be checked without a
+ * media player, a game or a display. Each scenario starts from IDLE with media playing and
+ * must end back in IDLE with everything it paused resumed exactly once. Most of the run is
+ * spent waiting out the 1.5 s resume delay and the 1 s toggle debounce.
+ */
+class SpeechSessionTest {
+
+    /** Media and game state as the outside world would see it, plus how often each was toggled. */
+    private static final class FakeController implements SpeechSession.MediaController {
+        volatile boolean mediaPlaying = true;
+        volatile boolean gaming = false;
+        volatile boolean pausable = false;
+        volatile boolean gamePaused = false;
+        volatile int mediaToggles = 0;
+        volatile int gameToggles = 0;
+
+        @Override public boolean isMediaActive() { return mediaPlaying; }
+        @Override public boolean isGamingActive() { return gaming; }
+        @Override public boolean isGamePausable() { return pausable; }
+
+        @Override
+        public synchronized void toggleMedia() {
+            mediaPlaying = !mediaPlaying;
+            mediaToggles++;
+        }
+
+        @Override
+        public synchronized void toggleGamePause() {
+            gamePaused = !gamePaused;
+            gameToggles++;
+        }
+    }
+
+    private FakeController media;
+
+    @BeforeEach
+    void fresh() throws InterruptedException {
+        awaitIdle();
+        // Clear the media toggle debounce left by the previous scenario
+        Thread.sleep(1100);
+        media = new FakeController();
+        SpeechSession.setMediaController(media);
+    }
+
+    @Test
+    void oneLinePausesMediaAndResumesAfterTheDelay() throws InterruptedException {
+        assertTrue(SpeechSession.begin(), "begin reports a pause");
+        assertFalse(media.mediaPlaying);
+        assertEquals(SpeechSession.State.SPEAKING, SpeechSession.getState());
+        SpeechSession.end(System.currentTimeMillis());
+        assertEquals(SpeechSession.State.RESUME_PENDING, SpeechSession.getState());
+        Thread.sleep(1000);
+        assertFalse(media.mediaPlaying, "still paused inside the resume delay");
+        assertSettled(2, 0);
+    }
+
+    @Test
+    void lineInsideTheResumeDelayKeepsThePause() throws InterruptedException {
+        SpeechSession.begin();
+        SpeechSession.end(System.currentTimeMillis());
+        Thread.sleep(500);
+        assertFalse(SpeechSession.begin(), "second begin needs no pause");
+        assertEquals(SpeechSession.State.SPEAKING, SpeechSession.getState());
+        assertEquals(1, media.mediaToggles, "resume cancelled");
+        SpeechSession.end(System.currentTimeMillis());
+        assertSettled(2, 0);
+    }
+
+    @Test
+    void overlappingLinesKeepTheSessionOpenUntilTheLastEnds() throws InterruptedException {
+        SpeechSession.begin();
+        SpeechSession.begin();
+        SpeechSession.end(System.currentTimeMillis());
+        assertEquals(SpeechSession.State.SPEAKING, SpeechSession.getState(), "one of two lines ended");
+        SpeechSession.end(System.currentTimeMillis());
+        assertSettled(2, 0);
+    }
+
+    @Test
+    void lineCutOffAtOnceResumesAfterTheDebounce() throws InterruptedException {
+        long start = System.currentTimeMillis();
+        SpeechSession.begin();
+        // Ended "long ago", so the resume fires immediately and lands inside the toggle debounce
+        SpeechSession.end(start - 1500);
+        Thread.sleep(200);
+        assertFalse(media.mediaPlaying, "resume held back by the debounce");
+        assertEquals(SpeechSession.State.RESUME_PENDING, SpeechSession.getState());
+        assertSettled(2, 0);
+    }
+
+    @Test
+    void followUpRightAfterTheResumeStillPausesMedia() throws InterruptedException {
+        SpeechSession.begin();
+        SpeechSession.end(System.currentTimeMillis());
+        awaitIdle();
+        assertTrue(media.mediaPlaying, "resumed after the first line");
+        // A normal follow-up reply, well inside the toggle debounce of the resume
+        SpeechSession.begin();
+        long deadline = System.currentTimeMillis() + 1500;
+        while (media.mediaPlaying && System.currentTimeMillis() < deadline) Thread.sleep(20);
+        assertFalse(media.mediaPlaying, "paused once the debounce closed");
+        assertEquals(SpeechSession.State.SPEAKING, SpeechSession.getState());
+        SpeechSession.end(System.currentTimeMillis());
+        assertSettled(4, 0);
+    }
+
+    @Test
+    void followUpThatEndsInsideTheDebounceTouchesNothing() throws InterruptedException {
+        SpeechSession.begin();
+        SpeechSession.end(System.currentTimeMillis());
+        awaitIdle();
+        SpeechSession.begin();
+        SpeechSession.end(System.currentTimeMillis() - 1500);
+        assertSettled(2, 0);
+    }
+
+    @Test
+    void pausableGameIsPausedInsteadOfMedia() throws InterruptedException {
+        media.gaming = true;
+        media.pausable = true;
+        assertTrue(SpeechSession.begin(), "begin reports a pause");
+        assertTrue(media.gamePaused);
+        assertTrue(media.mediaPlaying, "media untouched");
+        SpeechSession.end(System.currentTimeMillis());
+        assertSettled(0, 2);
+    }
+
+    @Test
+    void unpausableGameLeavesEverythingAlone() throws InterruptedException {
+        media.gaming = true;
+        assertFalse(SpeechSession.begin(), "begin reports no pause");
+        SpeechSession.end(System.currentTimeMillis());
+        assertSettled(0, 0);
+    }
+
+    @Test
+    void everySessionSharesOneSchedulerThread() throws InterruptedException {
+        for (int i = 0; i < 2; i++) {
+            SpeechSession.begin();
+            SpeechSession.end(System.currentTimeMillis());
+            awaitIdle();
+        }
+        assertTrue(SpeechSession.getStats().threadsCreated() <= 1, "threads created: " + SpeechSession.getStats().threadsCreated());
+    }
+
+    private static void awaitIdle() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (SpeechSession.getState() != SpeechSession.State.IDLE && System.currentTimeMillis() < deadline) Thread.sleep(20);
+    }
+
+    /** Waits for the session to go idle and checks everything paused was resumed. */
+    private void assertSettled(int mediaToggles, int gameToggles) throws InterruptedException {
+        awaitIdle();
+        assertEquals(SpeechSession.State.IDLE, SpeechSession.getState());
+        assertEquals(mediaToggles, media.mediaToggles, "media toggles");
+        assertEquals(gameToggles, media.gameToggles, "game toggles");
+        assertTrue(media.mediaPlaying || media.gaming, "media left paused");
+        assertFalse(media.gamePaused, "game left paused");
+    }
+}
@@ -0,0 +1,126 @@
+package com.cielcompanion.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Writes into folders watched by a {@link VaultEventCollector} and checks that every file of
+ * interest is handed on exactly once, after its last save. The burst floods two folders the way
+ * a vault sync or a bulk copy would, {@code -Dreplay.files} files each (1000 by default) written
+ * in {@code -Dreplay.saves} saves. A big enough burst overflows the watch service, and then the
+ * run also exercises the rescan that recovers the lost events.
+ */
+class VaultEventCollectorTest {
+
+    private static final Duration QUIET = Duration.ofMillis(300);
+
+    @TempDir
+    Path root;
+    private final Map<Path, AtomicInteger> received = new ConcurrentHashMap<>();
+    private final Map<Path, String> contentSeen = new ConcurrentHashMap<>();
+    private final AtomicInteger batches = new AtomicInteger();
+    private VaultEventCollector collector;
+
+    @AfterEach
+    void close() throws Exception {
+        if (collector != null) collector.close();
+    }
+
+    @Test
+    void fileStillBeingSavedIsHandedOnOnceAfterItGoesQuiet() throws Exception {
+        Path requests = Files.createDirectories(root.resolve("requests"));
+        watch(List.of(requests));
+        Path file = requests.resolve("Note.md");
+        Files.writeString(file, "save 1\n", StandardCharsets.UTF_8);
+        for (int save = 2; save <= 4; save++) {
+            Thread.sleep(QUIET.toMillis() / 2);
+            assertTrue(received.isEmpty(), "handed on while still being saved");
+            Files.writeString(file, "save " + save + "\n", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        }
+        awaitReceived(1, 5_000);
+        assertEquals(1, received.get(file).get());
+        assertTrue(contentSeen.get(file).contains("save 4"), "handed on before the last save");
+    }
+
+    @Test
+    void burstAcrossTwoFoldersLosesAndRepeatsNothing() throws Exception {
+        int filesPerFolder = Integer.getInteger("replay.files", 1000);
+        int savesPerFile = Integer.getInteger("replay.saves", 3);
+        Path requests = Files.createDirectories(root.resolve("requests"));
+        Path thoughts = Files.createDirectories(root.resolve("thoughts"));
+        watch(List.of(requests, thoughts));
+
+        long start = System.nanoTime();
+        List<Thread> writers = new ArrayList<>();
+        List<Throwable> writeErrors = new ArrayList<>();
+        for (Path dir : List.of(requests, thoughts)) {
+            Thread writer = new Thread(() -> {
+                try {
+                    for (int i = 0; i < filesPerFolder; i++) {
+                        Path file = dir.resolve("Note_" + i + ".md");
+                        Files.writeString(file, "save 1\n", StandardCharsets.UTF_8);
+                        for (int save = 2; save <= savesPerFile; save++) {
+                            Files.writeString(file, "save " + save + "\n", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+                        }
+                        // Not of interest to the collector, and must never be handed on
+                        Files.writeString(dir.resolve("Scratch_" + i + ".tmp"), "x", StandardCharsets.UTF_8);
+                    }
+                } catch (Exception e) {
+                    synchronized (writeErrors) { writeErrors.add(e); }
+                }
+            }, "Ciel-BurstWriter");
+            writers.add(writer);
+            writer.start();
+        }
+        for (Thread writer : writers) writer.join();
+        assertTrue(writeErrors.isEmpty(), "writer failed: " + writeErrors);
+        double writeMs = (System.nanoTime() - start) / 1e6;
+
+        int expected = filesPerFolder * 2;
+        awaitReceived(expected, 60_000);
+        double settleMs = (System.nanoTime() - start) / 1e6;
+        Thread.sleep(1000); // Give duplicates a chance to show up
+        System.out.printf("Wrote %d files (%d saves each) in %.0f ms; all handed on after %.0f ms in %d batches, %d watch overflow(s).%n",
+                expected, savesPerFile, writeMs, settleMs, batches.get(), collector.getOverflows());
+
+        assertEquals(expected, received.size(), "files handed on");
+        assertEquals(0, received.values().stream().filter(count -> count.get() > 1).count(), "files handed on twice");
+        assertEquals(0, contentSeen.values().stream().filter(text -> !text.contains("save " + savesPerFile)).count(), "files handed on before the last save");
+        assertEquals(0, received.keySet().stream().filter(path -> !path.toString().endsWith(".md")).count(), "unwanted files handed on");
+    }
+
+    private void watch(List<Path> dirs) throws Exception {
+        collector = new VaultEventCollector(dirs, QUIET, 16, path -> path.toString().endsWith(".md"), batch -> {
+            batches.incrementAndGet();
+            for (Path path : batch) {
+                received.computeIfAbsent(path, p -> new AtomicInteger()).incrementAndGet();
+                try {
+                    contentSeen.put(path, Files.readString(path, StandardCharsets.UTF_8));
+                } catch (Exception ignored) {}
+            }
+        });
+        Thread watcher = new Thread(collector::run, "Vault-Watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    private void awaitReceived(int count, long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (received.size() < count && System.currentTimeMillis() < deadline) Thread.sleep(50);
+    }
+}
@@ -0,0 +1,46 @@
+package com.cielcompanion.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the transcript rules of {@link VoiceListener} that need no model: where the wake word
+ * ends, and which grammar-tier results are cut short and have to be decoded again as dictation.
+ */
+class VoiceListenerTest {
+
+    private static final Set<String> VOCABULARY = Set.of("ciel", "hey", "what time is it", "close chat mode", "restart", "[unk]");
+
+    @Test
+    void wakeWordIsSplitOffTheCommand() {
+        assertEquals("what time is it", VoiceListener.afterWakeWord("hey ciel what time is it"));
+        assertEquals("", VoiceListener.afterWakeWord("ciel"));
+        assertNull(VoiceListener.afterWakeWord("what time is it"));
+    }
+
+    @Test
+    void wholeCommandsAndBareWakeWordsAreTrusted() {
+        assertFalse(VoiceListener.isPartialCommand("ciel what time is it", VOCABULARY));
+        assertFalse(VoiceListener.isPartialCommand("ciel  restart", VOCABULARY));
+        assertFalse(VoiceListener.isPartialCommand("ciel", VOCABULARY), "bare wake word starts dictation by itself");
+    }
+
+    @Test
+    void addressedCommandWithALostArgumentIsPartial() {
+        assertTrue(VoiceListener.isPartialCommand("ciel close [unk]", VOCABULARY), "app name lost");
+        assertTrue(VoiceListener.isPartialCommand("ciel [unk]", VOCABULARY));
+        assertTrue(VoiceListener.isPartialCommand("ciel close", VOCABULARY), "stray vocabulary words only");
+    }
+
+    @Test
+    void unaddressedSpeechIsLeftAlone() {
+        assertFalse(VoiceListener.isPartialCommand("[unk] close [unk]", VOCABULARY));
+        assertFalse(VoiceListener.isPartialCommand("", VOCABULARY));
+    }
+}
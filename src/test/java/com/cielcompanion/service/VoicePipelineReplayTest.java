@@ -0,0 +1,250 @@
+package com.cielcompanion.service;
+
+import com.cielcompanion.service.nlu.CommandAnalysis;
+import com.cielcompanion.service.nlu.IntentService;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Headless replay of the voice path: WAV files go through the real {@link VoiceListener}
+ * (capture ring, VAD, Vosk, wake-word matching), then {@link IntentService} and the
+ * production {@link CommandDispatcher}. Commands are not executed, since they speak, launch
+ * applications or power the machine off; the handler only notes when each was dispatched.
+ *
+ * <p>Each WAV file is treated as one utterance. Reported per stage (p50/p90/p99/max):
+ * <ul>
+ *   <li>recognition - end of the utterance's audio to the transcript reaching the command side.
+ *                     Transcripts are matched to utterances in order, by how far into the
+ *                     replayed audio the recognizer had read when it produced them</li>
+ *   <li>intent      - {@link IntentService#analyze}, or claiming the {@link IntentPrefetcher}
+ *                     speculation made from partial results when it matches</li>
+ *   <li>dispatch    - queue admission to the dispatcher picking the command up</li>
+ *   <li>end-to-end  - end of audio to dispatch</li>
+ * </ul>
+ * plus recognizer CPU time against audio duration and the prefetcher's hit rate. The capture
+ * side waits for the recognizer rather than dropping audio; a run that still drops a frame fails.
+ * Run with {@code -Dreplay.prefetch=false} for the baseline without speculation.
+ * Needs a Vosk model and recordings, so it only runs when they are given:
+ * <pre>-Dreplay.model=&lt;modelPath&gt; -Dreplay.wavs=&lt;wav or directory&gt;[,...] [-Dreplay.speed=0]</pre>
+ * A speed of 1 replays in real time, 4 four times faster, 0 as fast as Vosk keeps up.
+ */
+@EnabledIfSystemProperty(named = "replay.model", matches = ".+")
+class VoicePipelineReplayTest {
+
+    private static final int GAP_MS = 1500;
+    private static final long DRAIN_TIMEOUT_MS = 10 * 60 * 1000;
+    // Time after the last audio for the final segment to close and dispatch
+    private static final long SETTLE_MS = 1500;
+
+    private final Map<String, List<Double>> stageMs = new LinkedHashMap<>();
+    private record Ended(int index, long endNanos, long endByte) {}
+
+    private final Map<Integer, Long> utteranceEnd = new ConcurrentHashMap<>();
+    // Utterances whose audio has been delivered but which no transcript has been matched to yet, oldest first
+    private final Deque<Ended> awaitingTranscript = new ArrayDeque<>();
+    private final List<String> transcript = new CopyOnWriteArrayList<>();
+    private final IntentService intentService = new IntentService();
+    private final IntentPrefetcher prefetcher = Boolean.parseBoolean(System.getProperty("replay.prefetch", "true"))
+            ? new IntentPrefetcher(intentService, null) : null;
+    private CommandDispatcher dispatcher;
+    private VoiceListener listener;
+
+    @Test
+    void replayDropsNoAudio() throws Exception {
+        List<Path> files = new ArrayList<>();
+        for (String arg : System.getProperty("replay.wavs", "").split(",")) {
+            if (!arg.isBlank()) files.addAll(collectWavs(Paths.get(arg.trim())));
+        }
+        assertFalse(files.isEmpty(), "no WAV files in replay.wavs");
+        run(System.getProperty("replay.model"), Double.parseDouble(System.getProperty("replay.speed", "0")), files);
+    }
+
+    private void run(String modelPath, double speed, List<Path> files) throws Exception {
+        Settings.initialize();
+        LineManager.load();
+        intentService.initialize();
+        for (String stage : List.of("recognition", "intent", "dispatch", "end-to-end")) stageMs.put(stage, new CopyOnWriteArrayList<>());
+
+        WavAudioSource source = new WavAudioSource(files, speed, GAP_MS);
+        source.setUtteranceListener((index, file, endNanos, endByte) -> {
+            utteranceEnd.put(index, endNanos);
+            synchronized (awaitingTranscript) {
+                awaitingTranscript.addLast(new Ended(index, endNanos, endByte));
+            }
+        });
+
+        dispatcher = new CommandDispatcher(new RecordingHandler());
+
+        listener = new VoiceListener(new RecordingSink(), () -> source);
+        listener.initialize(modelPath);
+        long wallStart = System.nanoTime();
+        listener.initializeMicrophoneAsync();
+
+        long deadline = System.currentTimeMillis() + DRAIN_TIMEOUT_MS;
+        while (!listener.isDrained() && System.currentTimeMillis() < deadline) Thread.sleep(50);
+        Thread.sleep(SETTLE_MS);
+        double wallSeconds = (System.nanoTime() - wallStart) / 1e9 - SETTLE_MS / 1000.0;
+        double recognizerCpuSeconds = threadCpuSeconds("Ciel-ContinuousListener");
+
+        VoiceListener.CaptureStats capture = listener.getCaptureStats();
+        report(files, capture, wallSeconds, recognizerCpuSeconds);
+        listener.close();
+        assertEquals(0, capture.overruns(), "captured frames dropped; the latencies above are not trustworthy");
+    }
+
+    /**
+     * The utterance a transcript belongs to: the oldest waiting one whose audio the recognizer
+     * has read to the end. If it has also read past the end of the next one, the older one
+     * produced no transcript and is skipped. Null when the transcript came from audio that has
+     * not ended yet (Vosk split an utterance at a pause) or nothing is waiting.
+     */
+    private Ended matchUtterance() {
+        long recognized = listener.getRecognizedBytes();
+        synchronized (awaitingTranscript) {
+            Ended head = awaitingTranscript.peekFirst();
+            if (head == null || head.endByte() > recognized) return null;
+            awaitingTranscript.pollFirst();
+            Ended next;
+            while ((next = awaitingTranscript.peekFirst()) != null && next.endByte() <= recognized) {
+                head = awaitingTranscript.pollFirst();
+            }
+            return head;
+        }
+    }
+
+    /** Stands in for CommandService on the recognizer side: same classification work, same dispatcher. */
+    private class RecordingSink implements VoiceListener.CommandSink {
+        @Override
+        public void handleCommand(String text, boolean hasWakeWord) {
+            long received = System.nanoTime();
+            Ended ended = matchUtterance();
+            int utterance = ended != null ? ended.index() : -1;
+            if (ended != null) record("recognition", received - ended.endNanos());
+
+            long analyzeStart = System.nanoTime();
+            IntentPrefetcher.Speculation speculation = prefetcher != null ? prefetcher.claim(text) : null;
+            CommandAnalysis analysis = speculation != null ? speculation.analysis() : intentService.analyze(text);
+            record("intent", System.nanoTime() - analyzeStart);
+
+            transcript.add(String.format("  #%s %s\"%s\" -> %s", utterance >= 0 ? utterance : "?", hasWakeWord ? "[wake] " : "", text, analysis.intent()));
+            dispatcher.offer(encode(utterance, System.nanoTime(), text), hasWakeWord, false,
+                    CommandService.priorityFor(text, hasWakeWord));
+        }
+
+        @Override
+        public void handleExplicitSearch(String query) {
+            handleCommand(query, true);
+        }
+
+        @Override
+        public void onPartialResult(String text) {
+            if (prefetcher != null) prefetcher.onPartial(text);
+        }
+    }
+
+    /** Notes when each command was dispatched and finishes it at once. */
+    private class RecordingHandler implements CommandDispatcher.Handler {
+        @Override
+        public void execute(CommandQueue.Entry entry, long ticket) {
+            long now = System.nanoTime();
+            String[] parts = entry.text().split(" ", 3);
+            record("dispatch", now - Long.parseLong(parts[1]));
+            Long end = utteranceEnd.get(Integer.parseInt(parts[0]));
+            if (end != null) record("end-to-end", now - end);
+            dispatcher.release(ticket);
+        }
+
+        @Override
+        public boolean onCriticalAbort(CommandQueue.Entry entry) {
+            return true;
+        }
+    }
+
+    private static String encode(int utterance, long queuedAt, String text) {
+        return utterance + " " + queuedAt + " " + text;
+    }
+
+    private void record(String stage, long nanos) {
+        stageMs.get(stage).add(nanos / 1e6);
+    }
+
+    private void report(List<Path> files, VoiceListener.CaptureStats capture, double wallSeconds, double cpuSeconds) {
+        double audioSeconds = files.stream().mapToDouble(VoicePipelineReplayTest::durationSeconds).sum()
+                + (files.size() + 1) * GAP_MS / 1000.0;
+
+        System.out.println();
+        System.out.println("=== Voice pipeline replay ===");
+        System.out.printf("Utterances: %d, audio: %.1f s, wall: %.1f s (%.1fx real time)%n",
+                files.size(), audioSeconds, wallSeconds, audioSeconds / Math.max(wallSeconds, 1e-9));
+        System.out.printf("Recognizer CPU: %.2f s (%.3f s per audio second)%n", cpuSeconds, cpuSeconds / audioSeconds);
+        System.out.printf("Capture: %d frames, %d decoded, %d overruns, ring latency max %.1f ms%n",
+                capture.framesCaptured(), capture.framesDecoded(), capture.overruns(), capture.maxLatencyMs());
+        System.out.printf("%-12s %6s %9s %9s %9s %9s%n", "stage", "n", "p50 ms", "p90 ms", "p99 ms", "max ms");
+        for (Map.Entry<String, List<Double>> stage : stageMs.entrySet()) {
+            double[] sorted = stage.getValue().stream().mapToDouble(Double::doubleValue).sorted().toArray();
+            if (sorted.length == 0) {
+                System.out.printf("%-12s %6d %9s %9s %9s %9s%n", stage.getKey(), 0, "-", "-", "-", "-");
+                continue;
+            }
+            System.out.printf("%-12s %6d %9.1f %9.1f %9.1f %9.1f%n", stage.getKey(), sorted.length,
+                    percentile(sorted, 50), percentile(sorted, 90), percentile(sorted, 99), sorted[sorted.length - 1]);
+        }
+        if (prefetcher != null) {
+            IntentPrefetcher.Stats prefetch = prefetcher.getStats();
+            System.out.printf("Prefetch: %d speculations, %d hits, %d misses, %.2f ms saved per hit%n",
+                    prefetch.speculated(), prefetch.hits(), prefetch.misses(), prefetch.averageSavedMs());
+        }
+        System.out.println("Transcripts:");
+        transcript.forEach(System.out::println);
+    }
+
+    /** Nearest-rank percentile of an ascending array. */
+    private static double percentile(double[] sorted, double p) {
+        int rank = (int) Math.ceil(p / 100.0 * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))];
+    }
+
+    private static double threadCpuSeconds(String threadName) {
+        ThreadMXBean cpu = ManagementFactory.getThreadMXBean();
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(t -> t.getName().equals(threadName))
+                .mapToLong(t -> cpu.getThreadCpuTime(t.getId()))
+                .filter(ns -> ns > 0)
+                .sum() / 1e9;
+    }
+
+    private static double durationSeconds(Path file) {
+        try (javax.sound.sampled.AudioInputStream in = javax.sound.sampled.AudioSystem.getAudioInputStream(file.toFile())) {
+            return in.getFrameLength() / in.getFormat().getFrameRate();
+        } catch (Exception e) {
+            return 0;
+        }
+    }
+
+    private static List<Path> collectWavs(Path path) throws IOException {
+        if (!Files.isDirectory(path)) return List.of(path);
+        try (Stream<Path> entries = Files.list(path)) {
+            return entries.filter(p -> p.getFileName().toString().toLowerCase().endsWith(".wav")).sorted().toList();
+        }
+    }
+}
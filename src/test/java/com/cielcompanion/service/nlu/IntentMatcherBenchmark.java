@@ -0,0 +1,109 @@
+package com.cielcompanion.service.nlu;
+
+import com.cielcompanion.service.LineManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-utterance cost of {@link IntentService}: the pattern stage tried sequentially, as it
+ * was before the grammar was compiled, against the keyword-prefiltered matcher, plus the
+ * whole {@code analyze()} call. Each invocation takes the next utterance of the corpus, one
+ * per line as Vosk transcribes them ({@code -p corpus=utterances.txt}); a built-in set of real
+ * commands and chatter is used when none is given. That both pattern stages agree on every
+ * utterance is checked by {@link IntentServiceTest}.
+ * <pre>java -cp &lt;test classpath&gt; com.cielcompanion.service.nlu.IntentMatcherBenchmark</pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IntentMatcherBenchmark {
+
+    static final List<String> DEFAULT_CORPUS = List.of(
+            "what time is it", "what's the weather", "what's the weather tomorrow", "is it cold outside",
+            "open spotify", "launch visual studio code", "start discord", "close chrome", "force quit steam",
+            "toggle listening", "enter d and d mode", "return to normal mode", "start recording mode",
+            "roll two d twenty", "play the sound of a dragon", "look up spell fireball",
+            "what are the rules for grappling", "tell me about the silver order", "reveal that marcus is a spy",
+            "add to elara's session note she found the key", "link session notes marcus and elara",
+            "record meaningful stealth use for sam", "report surge for mike", "run campaign audit",
+            "open the cheat sheet", "what is the moon phase", "which planets are visible tonight",
+            "when is the next eclipse", "daily report", "system status", "which process is using the most memory",
+            "highest cpu", "reboot", "shut down", "cancel shutdown", "update yourself", "scan for new games",
+            "find obs studio", "start morning routine", "let's chat", "that's all",
+            "remember that my car is red", "remember to buy milk", "what's my car", "who is rimuru",
+            "remember that kaneda is pronounced kah nay dah", "confirmed", "copy the skill",
+            "enter the tensura world", "automate this please", "organize my downloads folder",
+            "gomu gomu no", "pot of greed", "heart of greed", "set your heart ablaze", "yggdrasil",
+            "i think we should go to the store later", "that was a really good game",
+            "how many moons does jupiter have", "why is the sky blue", "search for cheap flights",
+            "can you hear me", "good morning", "thanks", "no not that one", "the dragon attacks the party");
+
+    @Param({""})
+    public String corpus;
+
+    private IntentService service;
+    private List<String> utterances;
+    private List<String> lowered;
+    private int next = 0;
+
+    @Setup
+    public void setUp() throws IOException {
+        LineManager.load();
+        service = new IntentService();
+        service.initialize();
+        utterances = load(corpus);
+        lowered = utterances.stream().map(String::toLowerCase).toList();
+    }
+
+    /** The utterances in {@code file}, or the built-in corpus when it is blank. */
+    static List<String> load(String file) throws IOException {
+        if (file == null || file.isBlank()) return DEFAULT_CORPUS;
+        return Files.readAllLines(Paths.get(file), StandardCharsets.UTF_8).stream().map(String::trim).filter(s -> !s.isEmpty()).toList();
+    }
+
+    @Benchmark
+    public Intent patternStageSequential() {
+        return service.matchIntentSequentially(lowered.get(advance()));
+    }
+
+    @Benchmark
+    public IntentService.CompiledIntent patternStageCompiled() {
+        return service.matchIntent(lowered.get(advance()));
+    }
+
+    @Benchmark
+    public Object analyze() {
+        return service.analyze(utterances.get(advance()));
+    }
+
+    private int advance() {
+        int index = next;
+        next = index + 1 == utterances.size() ? 0 : index + 1;
+        return index;
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(IntentMatcherBenchmark.class.getSimpleName()).build()).run();
+    }
+}
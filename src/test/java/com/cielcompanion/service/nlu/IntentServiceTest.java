@@ -0,0 +1,36 @@
+package com.cielcompanion.service.nlu;
+
+import com.cielcompanion.service.LineManager;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that the keyword-prefiltered pattern stage of {@link IntentService} picks the same
+ * intent as trying every pattern in order, over the corpus of {@link IntentMatcherBenchmark}
+ * or the utterances in {@code -Dreplay.corpus}, one per line.
+ */
+class IntentServiceTest {
+
+    @Test
+    void compiledMatcherAgreesWithSequentialOnEveryUtterance() throws Exception {
+        LineManager.load();
+        IntentService service = new IntentService();
+        service.initialize();
+
+        List<String> disagreements = new ArrayList<>();
+        for (String utterance : IntentMatcherBenchmark.load(System.getProperty("replay.corpus"))) {
+            String text = utterance.toLowerCase();
+            IntentService.CompiledIntent compiled = service.matchIntent(text);
+            Intent sequential = service.matchIntentSequentially(text);
+            if (!Objects.equals(sequential, compiled == null ? null : compiled.intent())) {
+                disagreements.add("\"" + text + "\": sequential=" + sequential + " compiled=" + (compiled == null ? null : compiled.intent()));
+            }
+        }
+        assertEquals(List.of(), disagreements);
+    }
+}
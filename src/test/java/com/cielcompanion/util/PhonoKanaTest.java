@@ -0,0 +1,72 @@
+package com.cielcompanion.util;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+/**
+ * Checks {@link PhonoKana#toKatakana} against phonokana_golden.tsv: outputs of the replace-chain
+ * implementation for sentences from the bundled SRD, the astronomy and weather lines, the app
+ * aliases, every curated exception word and a set of edge cases (numerals, acronyms, numbers,
+ * accents). The one-pass converter must reproduce them exactly, cold and from the word cache.
+ * A learned custom_phonetics file would change the readings, so the check is skipped beside one.
+ */
+class PhonoKanaTest {
+
+    private record Case(String input, String expected) {}
+
+    private static final List<Case> cases = new ArrayList<>();
+
+    @BeforeAll
+    static void loadGolden() throws Exception {
+        assumeFalse(Files.exists(Paths.get("config/custom_phonetics.properties"))
+                || Files.exists(Paths.get("config/custom_phonetics.properties.journal")), "custom phonetics present");
+        try (InputStream in = PhonoKanaTest.class.getResourceAsStream("/phonokana_golden.tsv")) {
+            assertNotNull(in, "phonokana_golden.tsv missing");
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                int tab = line.indexOf('\t');
+                cases.add(new Case(line.substring(0, tab), line.substring(tab + 1)));
+            }
+        }
+        assertTrue(cases.size() > 1000, "only " + cases.size() + " golden cases");
+    }
+
+    @Test
+    void everyGoldenInputConvertsAsBefore() {
+        assertMatchesGolden();
+    }
+
+    @Test
+    void cachedWordsConvertAsBefore() {
+        // Twice over, so the second pass comes from the word cache the first one filled
+        assertMatchesGolden();
+        assertMatchesGolden();
+    }
+
+    private static void assertMatchesGolden() {
+        PhonoKana kana = PhonoKana.getInstance();
+        List<String> mismatches = new ArrayList<>();
+        for (Case c : cases) {
+            String actual = kana.toKatakana(c.input());
+            if (!actual.equals(c.expected())) mismatches.add(c.input() + "\n  expected: " + c.expected() + "\n  actual:   " + actual);
+        }
+        assertEquals(0, mismatches.size(), mismatches.size() + " of " + cases.size() + " differ, first:\n"
+                + (mismatches.isEmpty() ? "" : mismatches.get(0)));
+    }
+}